@@ -32,16 +32,25 @@ CREATE TABLE SMC_MDM_SCCURVES_HD (
     STATUS_MSG          VARCHAR2(4000),             -- Error message if failed
     RECORDS_PROCESSED   NUMBER(10) DEFAULT 0,       -- Count of curve records created
     RAW_XML             CLOB,                       -- Original XML payload for audit
+    RAW_XML_GZ          BLOB,                       -- Gzip-compressed payload (codec GZIP)
+    RAW_XML_CODEC       VARCHAR2(10),               -- 'NONE' (RAW_XML) or 'GZIP' (RAW_XML_GZ)
+    RAW_XML_STATE       VARCHAR2(10),               -- 'INLINE', 'SPOOLED' or 'ARCHIVED'
     RECEIVED_AT         TIMESTAMP DEFAULT SYSTIMESTAMP NOT NULL,
     DT_UPDATE           TIMESTAMP,
     CONSTRAINT CHK_HD_SOURCE_SYSTEM CHECK (SOURCE_SYSTEM IN ('ZFA', 'ITRON')),
     CONSTRAINT CHK_HD_SOURCE_TYPE CHECK (SOURCE_TYPE IN ('MEASURE', 'ALARM', 'EVENT')),
-    CONSTRAINT CHK_HD_STATUS CHECK (STATUS IN ('PENDING', 'PROCESSING', 'SUCCESS', 'ERROR', 'PARTIAL'))
+    CONSTRAINT CHK_HD_STATUS CHECK (STATUS IN ('PENDING', 'PROCESSING', 'SUCCESS', 'ERROR', 'PARTIAL')),
+    CONSTRAINT CHK_HD_RAW_XML_CODEC CHECK (RAW_XML_CODEC IN ('NONE', 'GZIP')),
+    CONSTRAINT CHK_HD_RAW_XML_STATE CHECK (RAW_XML_STATE IN ('INLINE', 'SPOOLED', 'ARCHIVED'))
 );
 
 -- Indexes for SMC_MDM_SCCURVES_HD
 CREATE INDEX IDX_HD_STATUS ON SMC_MDM_SCCURVES_HD(STATUS);
 CREATE INDEX IDX_HD_MESSAGE_UUID ON SMC_MDM_SCCURVES_HD(MESSAGE_UUID);
+-- One live (non-ERROR) header per message: rejects a replay that passes the importer's checks
+CREATE UNIQUE INDEX UX_HD_MESSAGE_UUID ON SMC_MDM_SCCURVES_HD(
+    CASE WHEN STATUS <> 'ERROR' AND MESSAGE_UUID IS NOT NULL THEN SOURCE_SYSTEM END,
+    CASE WHEN STATUS <> 'ERROR' AND MESSAGE_UUID IS NOT NULL THEN MESSAGE_UUID END);
 CREATE INDEX IDX_HD_SOURCE_SYSTEM ON SMC_MDM_SCCURVES_HD(SOURCE_SYSTEM, SOURCE_TYPE);
 CREATE INDEX IDX_HD_RECEIVED_AT ON SMC_MDM_SCCURVES_HD(RECEIVED_AT);
 CREATE INDEX IDX_HD_SENDER_ID ON SMC_MDM_SCCURVES_HD(SENDER_ID);
@@ -51,6 +60,9 @@ COMMENT ON COLUMN SMC_MDM_SCCURVES_HD.LOG_ID IS 'Auto-generated primary key';
 COMMENT ON COLUMN SMC_MDM_SCCURVES_HD.SOURCE_SYSTEM IS 'Source system identifier (ZFA or ITRON)';
 COMMENT ON COLUMN SMC_MDM_SCCURVES_HD.SOURCE_TYPE IS 'Data type (MEASURE, ALARM, EVENT)';
 COMMENT ON COLUMN SMC_MDM_SCCURVES_HD.RAW_XML IS 'Original XML payload stored for audit and replay';
+COMMENT ON COLUMN SMC_MDM_SCCURVES_HD.RAW_XML_GZ IS 'Gzip-compressed original XML payload (RAW_XML_CODEC = GZIP)';
+COMMENT ON COLUMN SMC_MDM_SCCURVES_HD.RAW_XML_CODEC IS 'Storage codec of the raw payload: NONE or GZIP (NULL = NONE)';
+COMMENT ON COLUMN SMC_MDM_SCCURVES_HD.RAW_XML_STATE IS 'Raw payload archival: INLINE (with header), SPOOLED (pending background copy), ARCHIVED';
 
 -- ============================================================================
 -- CURVE DATA TABLE: SMC_MDM_SCCURVES
@@ -71,6 +83,7 @@ CREATE TABLE SMC_MDM_SCCURVES (
     SOURCE_SYSTEM       VARCHAR2(20),               -- 'ZFA' or 'ITRON'
     SOURCE_CREATION_DT  TIMESTAMP,                  -- Original creation timestamp
     DT_CREATE           TIMESTAMP DEFAULT SYSTIMESTAMP NOT NULL,
+    DT_UPDATE           TIMESTAMP,                  -- Last merge of partial data (MERGE write mode)
     -- Q1-Q100: Quantity values for 15-min intervals (96 normal + 4 for DST)
     Q1 NUMBER(15,4), Q2 NUMBER(15,4), Q3 NUMBER(15,4), Q4 NUMBER(15,4), Q5 NUMBER(15,4),
     Q6 NUMBER(15,4), Q7 NUMBER(15,4), Q8 NUMBER(15,4), Q9 NUMBER(15,4), Q10 NUMBER(15,4),
@@ -118,6 +131,7 @@ CREATE TABLE SMC_MDM_SCCURVES (
 
 -- Indexes for SMC_MDM_SCCURVES
 CREATE INDEX IDX_CURVES_HD_LOG_ID ON SMC_MDM_SCCURVES(HD_LOG_ID);
+-- MERGE write mode replaces this with UX_CURVES_POD_DATE_CLASS (04_curves_merge.sql)
 CREATE INDEX IDX_CURVES_POD_DATE ON SMC_MDM_SCCURVES(POD_ID, DATE_READ);
 CREATE INDEX IDX_CURVES_SUPPLY_NUM ON SMC_MDM_SCCURVES(SUPPLY_NUM);
 CREATE INDEX IDX_CURVES_DATE_READ ON SMC_MDM_SCCURVES(DATE_READ);
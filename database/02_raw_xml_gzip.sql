@@ -0,0 +1,17 @@
+-- ============================================================================
+-- SmartMeters Connector - Upgrade: compressed raw payload archival
+-- ============================================================================
+-- Adds the gzip BLOB column and codec flag to SMC_MDM_SCCURVES_HD for
+-- installations created before 01_schema.sql included them.
+-- Existing rows keep RAW_XML_CODEC = NULL, which is read as 'NONE'.
+-- Enable with mdm.rawxml.codec=GZIP in application.properties.
+-- ============================================================================
+
+ALTER TABLE SMC_MDM_SCCURVES_HD ADD (
+    RAW_XML_GZ          BLOB,
+    RAW_XML_CODEC       VARCHAR2(10),
+    CONSTRAINT CHK_HD_RAW_XML_CODEC CHECK (RAW_XML_CODEC IN ('NONE', 'GZIP'))
+);
+
+COMMENT ON COLUMN SMC_MDM_SCCURVES_HD.RAW_XML_GZ IS 'Gzip-compressed original XML payload (RAW_XML_CODEC = GZIP)';
+COMMENT ON COLUMN SMC_MDM_SCCURVES_HD.RAW_XML_CODEC IS 'Storage codec of the raw payload: NONE or GZIP (NULL = NONE)';
@@ -0,0 +1,14 @@
+-- ============================================================================
+-- SmartMeters Connector - Upgrade: deferred raw payload archival
+-- ============================================================================
+-- Adds the archival state of the raw payload to SMC_MDM_SCCURVES_HD.
+-- Existing rows keep RAW_XML_STATE = NULL, which is read as 'INLINE'.
+-- Enable with mdm.rawxml.deferred=true in application.properties.
+-- ============================================================================
+
+ALTER TABLE SMC_MDM_SCCURVES_HD ADD (
+    RAW_XML_STATE       VARCHAR2(10),
+    CONSTRAINT CHK_HD_RAW_XML_STATE CHECK (RAW_XML_STATE IN ('INLINE', 'SPOOLED', 'ARCHIVED'))
+);
+
+COMMENT ON COLUMN SMC_MDM_SCCURVES_HD.RAW_XML_STATE IS 'Raw payload archival: INLINE (with header), SPOOLED (pending background copy), ARCHIVED';
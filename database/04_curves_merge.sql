@@ -0,0 +1,64 @@
+-- ============================================================================
+-- SmartMeters Connector - Upgrade: MERGE write mode for SMC_MDM_SCCURVES
+-- ============================================================================
+-- Supports mdm.curves.write.mode=MERGE, which merges partial POD-days into a
+-- single row per (POD_ID, DATE_READ, DATA_CLASS).
+--
+-- UX_CURVES_POD_DATE_CLASS makes the MERGE key unique: when two messages for
+-- the same POD-day both reach WHEN NOT MATCHED, Oracle rejects the second
+-- insert (ORA-00001) and the importer retries it as an update. It replaces
+-- IDX_CURVES_POD_DATE, whose (POD_ID, DATE_READ) lookups use its prefix.
+--
+-- Run this script only when switching to MERGE: afterwards INSERT mode and
+-- backfills of POD-days that already exist fail on the unique key.
+--
+-- Rows written in INSERT mode are consolidated first, the way MERGE would
+-- have written them: the newest row (highest CURVE_ID) of each POD-day is
+-- kept, each of its empty slots (S IS NULL) is filled from the newest older
+-- row that has the slot, and the older rows are deleted. One MERGE pass runs
+-- per duplicate depth, each a full scan of SMC_MDM_SCCURVES; schedule the
+-- upgrade in a maintenance window.
+-- ============================================================================
+
+ALTER TABLE SMC_MDM_SCCURVES ADD (
+    DT_UPDATE           TIMESTAMP
+);
+
+COMMENT ON COLUMN SMC_MDM_SCCURVES.DT_UPDATE IS 'Timestamp of the last merge of partial data into this row';
+
+DECLARE
+    v_slots VARCHAR2(32767);
+    v_pass  PLS_INTEGER := 2;
+BEGIN
+    FOR i IN 1 .. 100 LOOP
+        v_slots := v_slots || CASE WHEN i > 1 THEN ', ' END
+            || 'k.Q' || i || ' = CASE WHEN k.S' || i || ' IS NOT NULL THEN k.Q' || i || ' ELSE d.Q' || i || ' END, '
+            || 'k.S' || i || ' = NVL(k.S' || i || ', d.S' || i || ')';
+    END LOOP;
+
+    -- Pass n folds the n-th newest row of each POD-day into the newest one
+    LOOP
+        EXECUTE IMMEDIATE
+            'MERGE INTO SMC_MDM_SCCURVES k USING ('
+            || 'SELECT c.*, '
+            || 'FIRST_VALUE(CURVE_ID) OVER (PARTITION BY POD_ID, DATE_READ, DATA_CLASS ORDER BY CURVE_ID DESC) KEEP_ID, '
+            || 'ROW_NUMBER() OVER (PARTITION BY POD_ID, DATE_READ, DATA_CLASS ORDER BY CURVE_ID DESC) RN '
+            || 'FROM SMC_MDM_SCCURVES c) d '
+            || 'ON (k.CURVE_ID = d.KEEP_ID AND d.RN = :pass) '
+            || 'WHEN MATCHED THEN UPDATE SET ' || v_slots || ', k.DT_UPDATE = SYSTIMESTAMP'
+            USING v_pass;
+        EXIT WHEN SQL%ROWCOUNT = 0;
+        v_pass := v_pass + 1;
+    END LOOP;
+
+    DELETE FROM SMC_MDM_SCCURVES c
+    WHERE c.CURVE_ID < (SELECT MAX(m.CURVE_ID) FROM SMC_MDM_SCCURVES m
+                        WHERE m.POD_ID = c.POD_ID
+                          AND m.DATE_READ = c.DATE_READ
+                          AND m.DATA_CLASS = c.DATA_CLASS);
+    COMMIT;
+END;
+/
+
+DROP INDEX IDX_CURVES_POD_DATE;
+CREATE UNIQUE INDEX UX_CURVES_POD_DATE_CLASS ON SMC_MDM_SCCURVES(POD_ID, DATE_READ, DATA_CLASS);
@@ -0,0 +1,27 @@
+-- ============================================================================
+-- SmartMeters Connector - Upgrade: scheduled retries in SMC_LOAD_PROFILE_INBOUND
+-- ============================================================================
+-- A failed delivery goes back to PENDING with NEXT_ATTEMPT_AT set by a
+-- jittered exponential backoff (processor.retry.backoff.*). The processor
+-- only selects PENDING rows that are due:
+--
+--   WHERE STATUS = 'PENDING' AND NEXT_ATTEMPT_AT <= :now ORDER BY NEXT_ATTEMPT_AT
+--
+-- IDX_SMC_LOAD_PROFILE_DUE serves both the filter and the order. New rows are
+-- due at RECEIVED_TIMESTAMP.
+-- ============================================================================
+
+ALTER TABLE SMC_LOAD_PROFILE_INBOUND ADD (
+    NEXT_ATTEMPT_AT     TIMESTAMP
+);
+
+UPDATE SMC_LOAD_PROFILE_INBOUND SET NEXT_ATTEMPT_AT = RECEIVED_TIMESTAMP WHERE NEXT_ATTEMPT_AT IS NULL;
+COMMIT;
+
+ALTER TABLE SMC_LOAD_PROFILE_INBOUND MODIFY (
+    NEXT_ATTEMPT_AT     DEFAULT SYSTIMESTAMP NOT NULL
+);
+
+COMMENT ON COLUMN SMC_LOAD_PROFILE_INBOUND.NEXT_ATTEMPT_AT IS 'Earliest time a PENDING message is sent (again)';
+
+CREATE INDEX IDX_SMC_LOAD_PROFILE_DUE ON SMC_LOAD_PROFILE_INBOUND(STATUS, NEXT_ATTEMPT_AT);
@@ -0,0 +1,22 @@
+-- ============================================================================
+-- SmartMeters Connector - Upgrade: claim protocol for SMC_LOAD_PROFILE_INBOUND
+-- ============================================================================
+-- Several nodes may run the outbound processor. A node claims due PENDING
+-- rows with SELECT ... FOR UPDATE SKIP LOCKED and, in the same transaction,
+-- sets them to PROCESSING with its node ID (PROCESSED_BY, processor.node.id)
+-- and LEASE_EXPIRES_AT (now + processor.lease.ms).
+--
+-- Rows still PROCESSING after their lease expired (node crashed or stopped)
+-- are returned to PENDING by the next processing cycle of any node. Status
+-- updates only apply to the current claim (CLAIM_TOKEN, see 09).
+--
+-- Rows that were PROCESSING before this upgrade have no lease and are not
+-- recovered automatically.
+-- ============================================================================
+
+ALTER TABLE SMC_LOAD_PROFILE_INBOUND ADD (
+    LEASE_EXPIRES_AT    TIMESTAMP
+);
+
+COMMENT ON COLUMN SMC_LOAD_PROFILE_INBOUND.PROCESSED_BY IS 'Node that claimed the message last';
+COMMENT ON COLUMN SMC_LOAD_PROFILE_INBOUND.LEASE_EXPIRES_AT IS 'End of the claim of PROCESSED_BY while PROCESSING';
@@ -0,0 +1,15 @@
+-- ============================================================================
+-- SmartMeters Connector - Upgrade: validation result of SMC_LOAD_PROFILE_INBOUND
+-- ============================================================================
+-- The outbound processor inspects a payload (message ID, profile count) once,
+-- before its first delivery, and stores the profile count. Retries of a row
+-- with PROFILE_COUNT set are not inspected again.
+--
+-- Existing rows are inspected on their next delivery.
+-- ============================================================================
+
+ALTER TABLE SMC_LOAD_PROFILE_INBOUND ADD (
+    PROFILE_COUNT       NUMBER(6)
+);
+
+COMMENT ON COLUMN SMC_LOAD_PROFILE_INBOUND.PROFILE_COUNT IS 'Profiles found when the payload passed validation, NULL until then';
@@ -0,0 +1,35 @@
+-- ============================================================================
+-- SmartMeters Connector - Upgrade: one live header per MESSAGE_UUID
+-- ============================================================================
+-- The importer commits a PENDING header before it writes any curve row and
+-- checks the database for PENDING/PROCESSING/SUCCESS headers of the same
+-- UUID. UX_HD_MESSAGE_UUID makes Oracle reject a second live (non-ERROR)
+-- header per (SOURCE_SYSTEM, MESSAGE_UUID) that passes those checks, e.g.
+-- a resend arriving on another node at the same moment.
+--
+-- Replays accepted before this upgrade are marked ERROR first (the oldest
+-- header of each UUID is kept). Their curve rows stay in SMC_MDM_SCCURVES
+-- but drop out of V_CURVES_DAILY_SUMMARY, which only reads SUCCESS headers.
+-- Review them before running the script:
+--
+--   SELECT SOURCE_SYSTEM, MESSAGE_UUID, COUNT(*) FROM SMC_MDM_SCCURVES_HD
+--   WHERE STATUS <> 'ERROR' AND MESSAGE_UUID IS NOT NULL
+--   GROUP BY SOURCE_SYSTEM, MESSAGE_UUID HAVING COUNT(*) > 1;
+-- ============================================================================
+
+UPDATE SMC_MDM_SCCURVES_HD h
+SET STATUS = 'ERROR',
+    STATUS_MSG = 'Duplicate MESSAGE_UUID, superseded by an earlier header (08 upgrade)'
+WHERE h.STATUS <> 'ERROR'
+  AND h.MESSAGE_UUID IS NOT NULL
+  AND EXISTS (
+      SELECT 1 FROM SMC_MDM_SCCURVES_HD o
+      WHERE o.SOURCE_SYSTEM = h.SOURCE_SYSTEM
+        AND o.MESSAGE_UUID = h.MESSAGE_UUID
+        AND o.STATUS <> 'ERROR'
+        AND o.LOG_ID < h.LOG_ID);
+COMMIT;
+
+CREATE UNIQUE INDEX UX_HD_MESSAGE_UUID ON SMC_MDM_SCCURVES_HD(
+    CASE WHEN STATUS <> 'ERROR' AND MESSAGE_UUID IS NOT NULL THEN SOURCE_SYSTEM END,
+    CASE WHEN STATUS <> 'ERROR' AND MESSAGE_UUID IS NOT NULL THEN MESSAGE_UUID END);
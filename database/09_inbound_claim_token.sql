@@ -0,0 +1,17 @@
+-- ============================================================================
+-- SmartMeters Connector - Upgrade: claim token for SMC_LOAD_PROFILE_INBOUND
+-- ============================================================================
+-- Every claim of a row (see 06_inbound_claim_lease.sql) stores a new random
+-- CLAIM_TOKEN, and status updates apply only while the row still carries the
+-- token of the claim they belong to. Lease recovery replaces the token, so a
+-- late outcome of the old owner, or of an earlier claim by the same node,
+-- updates nothing (it is logged and counted as a stale update).
+--
+-- Existing rows have no token; updates of rows without a token apply as before.
+-- ============================================================================
+
+ALTER TABLE SMC_LOAD_PROFILE_INBOUND ADD (
+    CLAIM_TOKEN         VARCHAR2(36)
+);
+
+COMMENT ON COLUMN SMC_LOAD_PROFILE_INBOUND.CLAIM_TOKEN IS 'Token of the current claim; status updates must match it';
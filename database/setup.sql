@@ -21,6 +21,8 @@ GRANT CREATE SEQUENCE TO LOAD_PROFILE;
 GRANT CREATE PROCEDURE TO LOAD_PROFILE;
 GRANT CREATE TRIGGER TO LOAD_PROFILE;
 GRANT CREATE VIEW TO LOAD_PROFILE;
+-- Backfill run lock (CurveBackfillService)
+GRANT EXECUTE ON SYS.DBMS_LOCK TO LOAD_PROFILE;
 */
 
 -- Connect as LOAD_PROFILE user
@@ -214,6 +214,9 @@ CREATE TABLE SMC_LOAD_PROFILE_INBOUND (
     PROCESSING_END_TIME TIMESTAMP,
     LAST_MANUAL_RETRY_TIME TIMESTAMP,
     LAST_ATTEMPT_TIMESTAMP TIMESTAMP, -- Kept from v1.0 for DAO compatibility
+    NEXT_ATTEMPT_AT TIMESTAMP DEFAULT SYSTIMESTAMP NOT NULL, -- Retry backoff: due time of a PENDING message
+    LEASE_EXPIRES_AT TIMESTAMP, -- End of the claim of PROCESSED_BY while PROCESSING
+    PROFILE_COUNT NUMBER(6), -- Profiles found when the payload passed validation
     
     -- HTTP Response tracking
     LAST_HTTP_STATUS_CODE NUMBER(5) DEFAULT 0,
@@ -226,7 +229,8 @@ CREATE TABLE SMC_LOAD_PROFILE_INBOUND (
     MANUAL_RETRY_COUNT NUMBER(3) DEFAULT 0,
     
     -- Additional Metadata
-    PROCESSED_BY VARCHAR2(100),
+    PROCESSED_BY VARCHAR2(100), -- Node that claimed the message last
+    CLAIM_TOKEN VARCHAR2(36), -- Token of the current claim; status updates must match it
     NOTES VARCHAR2(2000),
     
     -- Constraints
@@ -245,6 +249,10 @@ CREATE INDEX IDX_SMC_LOAD_PROFILE_STATUS
 ON SMC_LOAD_PROFILE_INBOUND (STATUS, RECEIVED_TIMESTAMP)
 TABLESPACE USERS;
 
+CREATE INDEX IDX_SMC_LOAD_PROFILE_DUE
+ON SMC_LOAD_PROFILE_INBOUND (STATUS, NEXT_ATTEMPT_AT)
+TABLESPACE USERS;
+
 CREATE INDEX IDX_SMC_LOAD_PROFILE_RECEIVED
 ON SMC_LOAD_PROFILE_INBOUND (RECEIVED_TIMESTAMP DESC)
 TABLESPACE USERS;
@@ -1,5 +1,6 @@
 package com.hedno.integration;
 
+import com.hedno.integration.controller.ContentEncodingInterceptor;
 import com.hedno.integration.controller.MdmPushController;
 
 import javax.ws.rs.ApplicationPath;
@@ -21,6 +22,7 @@ public class RestApplication extends Application {
     public Set<Class<?>> getClasses() {
         Set<Class<?>> classes = new HashSet<>();
         classes.add(MdmPushController.class);
+        classes.add(ContentEncodingInterceptor.class);
         return classes;
     }
 }
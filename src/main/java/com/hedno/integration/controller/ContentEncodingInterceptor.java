@@ -0,0 +1,209 @@
+package com.hedno.integration.controller;
+
+import com.hedno.integration.ConfigService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Transparent decoding of compressed request bodies (Content-Encoding: gzip,
+ * x-gzip or deflate) for the push endpoints.
+ *
+ * The body is inflated while the resource reads it; nothing is buffered in
+ * compressed form. The decoded size is capped by mdm.push.max.decompressed.bytes
+ * to guard against zip bombs: reading past it throws PayloadTooLargeException
+ * (answered with 413). A corrupt or truncated compressed body is answered
+ * with 400, unknown encodings with 415.
+ *
+ * @author HEDNO Integration Team
+ * @version 1.0
+ */
+@Provider
+@Priority(Priorities.ENTITY_CODER)
+public class ContentEncodingInterceptor implements ReaderInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentEncodingInterceptor.class);
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final long maxDecompressedBytes;
+
+    public ContentEncodingInterceptor() {
+        this(Long.parseLong(ConfigService.get("mdm.push.max.decompressed.bytes", "268435456").trim()));
+    }
+
+    ContentEncodingInterceptor(long maxDecompressedBytes) {
+        this.maxDecompressedBytes = maxDecompressedBytes;
+    }
+
+    @Override
+    public Object aroundReadFrom(ReaderInterceptorContext context) throws IOException {
+        String encoding = context.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+        if (encoding != null && !encoding.trim().isEmpty()) {
+            InputStream decoded;
+            try {
+                decoded = decode(encoding, context.getInputStream());
+            } catch (CorruptBodyException e) {
+                throw corruptBody(e);
+            }
+            if (decoded == null) {
+                logger.warn("Unsupported Content-Encoding: {}", encoding);
+                throw new WebApplicationException("Unsupported Content-Encoding: " + encoding,
+                        Response.Status.UNSUPPORTED_MEDIA_TYPE);
+            }
+            context.setInputStream(decoded);
+            // The entity is now identity-encoded
+            context.getHeaders().remove(HttpHeaders.CONTENT_ENCODING);
+        }
+        try {
+            return context.proceed();
+        } catch (PayloadTooLargeException e) {
+            // Entities read in full by their provider (e.g. String bodies)
+            throw new WebApplicationException(e.getMessage(), e, 413);
+        } catch (ZipException | EOFException e) {
+            throw corruptBody(e);
+        }
+    }
+
+    private static WebApplicationException corruptBody(IOException e) {
+        logger.warn("Corrupt compressed request body: {}", e.getMessage());
+        return new WebApplicationException("Corrupt compressed request body: " + e.getMessage(), e,
+                Response.Status.BAD_REQUEST);
+    }
+
+    /**
+     * Wrap a body stream for its Content-Encoding
+     *
+     * @return The decoding stream, or null for an unsupported encoding
+     * @throws CorruptBodyException if the gzip header is corrupt or truncated
+     */
+    InputStream decode(String encoding, InputStream body) throws IOException {
+        String name = encoding.trim().toLowerCase();
+        switch (name) {
+            case "identity":
+                return body;
+            case "gzip":
+            case "x-gzip":
+                logger.debug("Decoding gzip request body");
+                try {
+                    // GZIPInputStream reads and checks the header right away
+                    return new LimitedInputStream(new GZIPInputStream(body, BUFFER_SIZE), maxDecompressedBytes);
+                } catch (ZipException | EOFException e) {
+                    throw new CorruptBodyException(e);
+                }
+            case "deflate":
+                logger.debug("Decoding deflate request body");
+                return new LimitedInputStream(inflate(body), maxDecompressedBytes);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * HTTP deflate is zlib-wrapped, but some clients send raw deflate data:
+     * look at the first two bytes to tell them apart
+     */
+    private static InputStream inflate(InputStream body) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(body, 2);
+        int first = in.read();
+        int second = first >= 0 ? in.read() : -1;
+        if (second >= 0) {
+            in.unread(second);
+        }
+        if (first >= 0) {
+            in.unread(first);
+        }
+        boolean zlib = first >= 0 && second >= 0
+                && (first & 0x0F) == 8 && ((first << 8) | second) % 31 == 0;
+        return new InflaterInputStream(in, new Inflater(!zlib), BUFFER_SIZE);
+    }
+
+    /**
+     * Request body larger than mdm.push.max.decompressed.bytes once decoded
+     */
+    public static class PayloadTooLargeException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        PayloadTooLargeException(long limit) {
+            super("Decompressed request body exceeds " + limit + " bytes");
+        }
+    }
+
+    /**
+     * Compressed request body that cannot be decoded
+     */
+    public static class CorruptBodyException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        CorruptBodyException(IOException cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Fails once more than limit bytes have been read
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        private final long limit;
+        private long count;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void count(long n) throws PayloadTooLargeException {
+            count += n;
+            if (count > limit) {
+                throw new PayloadTooLargeException(limit);
+            }
+        }
+    }
+}
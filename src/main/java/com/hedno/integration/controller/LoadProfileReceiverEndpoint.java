@@ -1,5 +1,7 @@
 package com.hedno.integration.controller;
 
+import com.hedno.integration.service.AdmissionRejectedException;
+import com.hedno.integration.service.DuplicateMessageException;
 import com.hedno.integration.service.MdmImportService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,12 +22,14 @@ import java.util.Map;
  *   Base path: /profiles
  *   Push data: POST /api/profiles/profiles  (or /api/profiles/profiles/{operation})
  *   Debug:     GET  /api/profiles/debug/{logId}
+ *   Raw XML:   GET  /api/profiles/debug/{logId}/raw
  * 
  * Architecture per Architect's design:
  * - SMC_MDM_SCCURVES_HD: Master/header table (renamed from DEBUG_LOG)
  * - SMC_MDM_SCCURVES: Curve data with HD_LOG_ID FK
  * - Multi-source support: ZFA, ITRON
  * - Multi-type support: MEASURE, ALARM, EVENT
+ * - gzip/deflate request bodies (ContentEncodingInterceptor)
  * 
  * @author HEDNO Integration Team
  * @version 3.0
@@ -147,6 +151,29 @@ public class LoadProfileReceiverEndpoint {
             log.info("Profile Data processing completed - HD_LOG_ID: {}, Duration: {}ms", hdLogId, duration);
             return Response.ok(response).build();
             
+        } catch (DuplicateMessageException e) {
+            long duration = System.currentTimeMillis() - startTime;
+            log.info("Duplicate Profile Data rejected - UUID: {}, original HD_LOG_ID: {}",
+                e.getMessageUuid(), e.getOriginalLogId());
+            
+            String response = String.format(
+                "{\"status\": \"DUPLICATE\", \"hdLogId\": %d, \"messageUuid\": \"%s\", \"processingTimeMs\": %d}",
+                e.getOriginalLogId(), escapeJson(e.getMessageUuid()), duration
+            );
+            return Response.ok(response).build();
+            
+        } catch (AdmissionRejectedException e) {
+            log.warn("Profile Data refused ({} limit): {}", e.getLimit(), e.getMessage());
+            
+            String response = String.format(
+                "{\"status\": \"BUSY\", \"limit\": \"%s\", \"retryAfterSeconds\": %d}",
+                e.getLimit(), e.getRetryAfterSeconds()
+            );
+            return Response.status(429)
+                .header("Retry-After", e.getRetryAfterSeconds())
+                .entity(response)
+                .build();
+            
         } catch (Exception e) {
             log.error("Profile Data processing failed", e);
             
@@ -202,6 +229,8 @@ public class LoadProfileReceiverEndpoint {
             json.append("\"statusMsg\": ").append(jsonString(header.get("statusMsg"))).append(",");
             json.append("\"recordsProcessed\": ").append(header.get("recordsProcessed")).append(",");
             json.append("\"receivedAt\": \"").append(header.get("receivedAt")).append("\",");
+            json.append("\"rawXmlCodec\": \"").append(nullSafe(header.get("rawXmlCodec"))).append("\",");
+            json.append("\"rawXmlState\": \"").append(nullSafe(header.get("rawXmlState"))).append("\",");
             json.append("\"processingSummary\": [");
             
             for (int i = 0; i < summary.size(); i++) {
@@ -228,6 +257,37 @@ public class LoadProfileReceiverEndpoint {
         }
     }
     
+    /**
+     * Get the original XML payload of a header record
+     * URL: GET /api/profiles/debug/{logId}/raw
+     * 
+     * Payloads archived with the GZIP codec are decompressed transparently.
+     * 
+     * @param logId The HD_LOG_ID
+     * @return The raw XML as received
+     */
+    @GET
+    @Path("/debug/{logId}/raw")
+    @Produces(MediaType.APPLICATION_XML)
+    public Response getDebugRawXml(@PathParam("logId") long logId) {
+        try {
+            String rawXml = mdmImportService.getRawXml(logId);
+            if (rawXml == null) {
+                return Response.status(Response.Status.NOT_FOUND)
+                    .type(MediaType.APPLICATION_JSON)
+                    .entity("{\"error\": \"Raw XML not found\", \"logId\": " + logId + "}")
+                    .build();
+            }
+            return Response.ok(rawXml).build();
+        } catch (Exception e) {
+            log.error("Error retrieving raw XML for {}", logId, e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .type(MediaType.APPLICATION_JSON)
+                .entity("{\"error\": \"" + escapeJson(e.getMessage()) + "\"}")
+                .build();
+        }
+    }
+
     /**
      * Get debug record by transaction ID (UUID lookup)
      * URL: GET /api/profiles/debug/uuid/{transactionId}
@@ -241,9 +301,10 @@ public class LoadProfileReceiverEndpoint {
     @Produces(MediaType.APPLICATION_JSON)
     public Response getDebugByUuid(@PathParam("transactionId") String transactionId) {
         try {
-            String status = mdmImportService.getLogStatus(transactionId);
+            Map<String, String> status = mdmImportService.getLogStatusDetail(transactionId);
             return Response.ok(
-                "{\"transactionId\": \"" + transactionId + "\", \"status\": \"" + status + "\"}"
+                "{\"transactionId\": \"" + transactionId + "\", \"status\": \"" + status.get("status")
+                    + "\", \"rawXmlState\": \"" + status.get("rawXmlState") + "\"}"
             ).build();
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
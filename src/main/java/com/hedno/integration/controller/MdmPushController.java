@@ -1,6 +1,13 @@
 package com.hedno.integration.controller;
 
+import com.hedno.integration.service.AdaptiveConcurrencyLimiter;
+import com.hedno.integration.service.AdmissionRejectedException;
+import com.hedno.integration.service.CircuitBreaker;
+import com.hedno.integration.service.DuplicateMessageException;
 import com.hedno.integration.service.MdmImportService;
+import com.hedno.integration.service.SymbolTable;
+import com.hedno.integration.service.TimeoutScheduler;
+import com.hedno.integration.service.XmlParserPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -9,13 +16,15 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.zip.ZipException;
 
 /**
  * MDM Push REST Controller.
@@ -24,8 +33,14 @@ import java.util.UUID;
  * Endpoints:
  * - POST /profiles/profiles - Main data push endpoint
  * - GET /profiles/status/{txId} - Check processing status
+ * - GET /profiles/stats/symbols - Symbol table hit rates
+ * - GET /profiles/stats/xml - XML parser and marshaller pool counters
+ * - GET /profiles/stats/ingestion - Extraction / validation cost, admission and queue time
  * - GET /profiles/health - Health check
  * 
+ * Push bodies may be sent with Content-Encoding: gzip or deflate
+ * (decoded by ContentEncodingInterceptor).
+ * 
  * Note: Data is stored for Artemis consumption - no SAP integration.
  * 
  * @author HEDNO Integration Team
@@ -36,6 +51,8 @@ public class MdmPushController {
 
     private static final Logger logger = LoggerFactory.getLogger(MdmPushController.class);
 
+    private static final int READ_BUFFER_SIZE = 8192;
+
     private final MdmImportService importService;
 
     public MdmPushController() {
@@ -67,7 +84,7 @@ public class MdmPushController {
 
         try {
             // Read XML body
-            String xmlBody = readRequestBody(bodyStream);
+            String xmlBody = readRequestBody(bodyStream, request.getContentLength());
 
             if (xmlBody == null || xmlBody.trim().isEmpty()) {
                 logger.warn("Empty request body received - TxId: {}", txId);
@@ -97,6 +114,26 @@ public class MdmPushController {
 
             return buildSuccessResponse(txId, hdLogId);
 
+        } catch (ContentEncodingInterceptor.PayloadTooLargeException e) {
+            logger.warn("Decompressed body too large - TxId: {}: {}", txId, e.getMessage());
+            return buildErrorResponse(txId, e.getMessage(), 413);
+
+        } catch (ZipException e) {
+            logger.warn("Corrupt compressed body - TxId: {}: {}", txId, e.getMessage());
+            return buildErrorResponse(txId, "Corrupt compressed request body: " + e.getMessage(), 400);
+
+        } catch (DuplicateMessageException e) {
+            // Answer replays with the original identifiers so the sender stops retrying
+            logger.info("Duplicate load profile push - TxId: {}, MessageUuid: {}, Original HdLogId: {}",
+                txId, e.getMessageUuid(), e.getOriginalLogId());
+            return buildDuplicateResponse(e.getMessageUuid(), e.getOriginalLogId());
+
+        } catch (AdmissionRejectedException e) {
+            // Over an admission limit: refuse now instead of queueing behind the DB
+            logger.warn("Load profile push refused - TxId: {}, Limit: {}: {}",
+                txId, e.getLimit(), e.getMessage());
+            return buildBusyResponse(txId, e);
+
         } catch (Exception e) {
             long duration = System.currentTimeMillis() - startTime;
             logger.error("Error processing load profile - TxId: {}, Duration: {}ms", 
@@ -113,9 +150,10 @@ public class MdmPushController {
     @Produces(MediaType.APPLICATION_JSON)
     public Response getStatus(@PathParam("txId") String txId) {
         try {
-            String status = importService.getLogStatus(txId);
+            Map<String, String> status = importService.getLogStatusDetail(txId);
             return Response.ok()
-                .entity("{\"txId\":\"" + txId + "\",\"status\":\"" + status + "\"}")
+                .entity("{\"txId\":\"" + txId + "\",\"status\":\"" + status.get("status")
+                    + "\",\"rawXmlState\":\"" + status.get("rawXmlState") + "\"}")
                 .build();
         } catch (Exception e) {
             logger.error("Error getting status for txId: {}", txId, e);
@@ -148,6 +186,31 @@ public class MdmPushController {
         }
     }
 
+    /**
+     * Get the original XML payload of a header (decompressed if archived as GZIP)
+     */
+    @GET
+    @Path("/header/{logId}/raw")
+    @Produces(MediaType.APPLICATION_XML)
+    public Response getHeaderRawXml(@PathParam("logId") long logId) {
+        try {
+            String rawXml = importService.getRawXml(logId);
+            if (rawXml == null) {
+                return Response.status(404)
+                    .type(MediaType.APPLICATION_JSON)
+                    .entity("{\"error\":\"Raw XML not found\"}")
+                    .build();
+            }
+            return Response.ok().entity(rawXml).build();
+        } catch (Exception e) {
+            logger.error("Error getting raw XML for logId: {}", logId, e);
+            return Response.status(500)
+                .type(MediaType.APPLICATION_JSON)
+                .entity("{\"error\":\"" + e.getMessage() + "\"}")
+                .build();
+        }
+    }
+
     /**
      * Get processing summary for a header
      */
@@ -166,6 +229,51 @@ public class MdmPushController {
         }
     }
 
+    /**
+     * Hit rates of the shared POD/OBIS/unit/status symbol tables
+     */
+    @GET
+    @Path("/stats/symbols")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getSymbolStatistics() {
+        return Response.ok().entity(mapToJson(SymbolTable.getAllStatistics())).build();
+    }
+
+    /**
+     * Extraction and schema validation cost per message
+     */
+    @GET
+    @Path("/stats/ingestion")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getIngestionStatistics() {
+        return Response.ok().entity(mapToJson(MdmImportService.getIngestionStatistics())).build();
+    }
+
+    /**
+     * Reuse counters of the shared XML parsers and JAXB marshaller pools
+     */
+    @GET
+    @Path("/stats/xml")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getXmlPoolStatistics() {
+        return Response.ok().entity(mapToJson(XmlParserPool.getStatistics())).build();
+    }
+
+    /**
+     * SAP delivery flow control: adaptive concurrency limit, circuit breaker
+     * and the shared timeout thread
+     */
+    @GET
+    @Path("/stats/outbound")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getOutboundStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        prefixed(stats, "limiter.", AdaptiveConcurrencyLimiter.getInstance().getStatistics());
+        prefixed(stats, "breaker.", CircuitBreaker.getInstance().getStatistics());
+        prefixed(stats, "timeouts.", TimeoutScheduler.getInstance().getStatistics());
+        return Response.ok().entity(mapToJson(stats)).build();
+    }
+
     /**
      * Health check endpoint
      */
@@ -182,16 +290,15 @@ public class MdmPushController {
     // Helper Methods
     // ========================================================================
 
-    private String readRequestBody(InputStream bodyStream) throws Exception {
-        StringBuilder sb = new StringBuilder();
-        try (BufferedReader reader =
-                new BufferedReader(new InputStreamReader(bodyStream, StandardCharsets.UTF_8.name()))) {
-
-           String line;
-
-           while ((line = reader.readLine()) != null) {
-               sb.append(line).append('\n');
-           }
+    private String readRequestBody(InputStream bodyStream, int contentLength) throws Exception {
+        // Decoded straight from the (possibly inflating) body stream, line endings untouched
+        StringBuilder sb = new StringBuilder(contentLength > 0 ? contentLength : READ_BUFFER_SIZE);
+        try (Reader reader = new InputStreamReader(bodyStream, StandardCharsets.UTF_8)) {
+            char[] buffer = new char[READ_BUFFER_SIZE];
+            int n;
+            while ((n = reader.read(buffer)) >= 0) {
+                sb.append(buffer, 0, n);
+            }
         }
         return sb.toString();
     }
@@ -214,6 +321,27 @@ public class MdmPushController {
         return Response.ok(xml).build();
     }
 
+    private Response buildDuplicateResponse(String txId, long hdLogId) {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<Response>\n" +
+            "  <Status>DUPLICATE</Status>\n" +
+            "  <TransactionId>" + escapeXml(txId) + "</TransactionId>\n" +
+            "  <LogId>" + hdLogId + "</LogId>\n" +
+            "  <Message>Message already received and stored</Message>\n" +
+            "</Response>";
+        return Response.ok(xml).build();
+    }
+
+    private Response buildBusyResponse(String txId, AdmissionRejectedException e) {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<Response>\n" +
+            "  <Status>BUSY</Status>\n" +
+            "  <TransactionId>" + txId + "</TransactionId>\n" +
+            "  <Message>" + escapeXml(e.getMessage()) + "</Message>\n" +
+            "</Response>";
+        return Response.status(429).header("Retry-After", e.getRetryAfterSeconds()).entity(xml).build();
+    }
+
     private Response buildErrorResponse(String txId, String message, int status) {
         String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
             "<Response>\n" +
@@ -253,6 +381,12 @@ public class MdmPushController {
         return sb.toString();
     }
 
+    private static void prefixed(Map<String, Object> target, String prefix, Map<String, Object> source) {
+        for (Map.Entry<String, Object> entry : source.entrySet()) {
+            target.put(prefix + entry.getKey(), entry.getValue());
+        }
+    }
+
     private String listToJson(List<Map<String, Object>> list) {
         StringBuilder sb = new StringBuilder("[");
         boolean first = true;
@@ -1,6 +1,7 @@
 package com.hedno.integration.dao;
 
 import com.hedno.integration.ConfigService;
+import com.hedno.integration.processor.IntervalColumns;
 import com.hedno.integration.processor.IntervalData;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
@@ -14,6 +15,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.List;
 
 /**
@@ -28,7 +30,7 @@ public class IntervalDataDAO {
     private static final String BATCH_INSERT_SQL =
         "INSERT INTO SMC_LOAD_PROFILE_INTERVALS (ITEM_ID, INTERVAL_START_TIME, " +
         "INTERVAL_END_TIME, INTERVAL_VALUE, UNIT_CODE, STATUS) " +
-        "VALUES (?, ?, ?, ?, ?, ?)";
+        "VALUES (?, ?, ?, ? / 10000, ?, ?)";
 
     private DataSource dataSource;
 
@@ -86,7 +88,13 @@ private void createHikariDataSource() {
             for (IntervalData interval : intervals) {
                 ps.setLong(1, orderItemId);
                 ps.setTimestamp(2, Timestamp.valueOf(interval.getStartDateTime()));
-                ps.setBigDecimal(4, interval.getValue());
+                // Bound as the fixed-point long, descaled by the statement
+                long value = interval.getScaledValue();
+                if (value != IntervalColumns.NO_VALUE) {
+                    ps.setLong(4, value);
+                } else {
+                    ps.setNull(4, Types.NUMERIC);
+                }
                 ps.setString(5, interval.getUnitCode());
                 ps.setString(6, interval.getStatus());
                 ps.addBatch();
@@ -14,6 +14,8 @@ import java.sql.*;
 import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Data Access Object for LOAD_PROFILE_INBOUND table operations.
@@ -28,7 +30,7 @@ public class LoadProfileInboundDAO {
     // FIXED: Aligned with v2.0 Entity (added originalMessageId, removed attemptCount from insert)
     private static final String INSERT_SQL = 
         "INSERT INTO SMC_LOAD_PROFILE_INBOUND (MESSAGE_UUID, RAW_PAYLOAD, STATUS, RECEIVED_TIMESTAMP, " +
-        "LAST_ERROR_MESSAGE, ORIGINAL_MESSAGE_ID) VALUES (?, ?, ?, ?, ?, ?)";
+        "LAST_ERROR_MESSAGE, ORIGINAL_MESSAGE_ID, NEXT_ATTEMPT_AT) VALUES (?, ?, ?, ?, ?, ?, ?)";
     
     // FIXED: Aligned with v2.0 Entity and Processor logic
     // The processor now updates all fields, so this query must be comprehensive.
@@ -38,8 +40,11 @@ public class LoadProfileInboundDAO {
         "LAST_HTTP_STATUS_CODE = ?, LAST_RESPONSE_MESSAGE = ?, " +
         "LAST_ERROR_MESSAGE = ?, ORIGINAL_MESSAGE_ID = ?, " +
         "LAST_ATTEMPT_TIMESTAMP = ?, ATTEMPT_COUNT = ?, " + 
-        "MANUAL_RETRY_COUNT = ? " +
-        "WHERE MESSAGE_UUID = ?";
+        "MANUAL_RETRY_COUNT = ?, NEXT_ATTEMPT_AT = COALESCE(?, SYSTIMESTAMP), " +
+        "LEASE_EXPIRES_AT = ?, PROFILE_COUNT = ? " +
+        // Only the current claim writes (DECODE: NULL matches NULL); outcomes of a
+        // recovered or superseded claim match no row
+        "WHERE MESSAGE_UUID = ? AND DECODE(CLAIM_TOKEN, ?, 1, 0) = 1";
     
     // FIXED: Aligned with v2.0 Entity (added all new fields)
     private static final String SELECT_BY_UUID_SQL = 
@@ -47,7 +52,7 @@ public class LoadProfileInboundDAO {
         "PROCESSING_START_TIME, PROCESSING_END_TIME, LAST_MANUAL_RETRY_TIME, " +
         "LAST_HTTP_STATUS_CODE, LAST_RESPONSE_MESSAGE, LAST_ERROR_MESSAGE, " +
         "ORIGINAL_MESSAGE_ID, MANUAL_RETRY_COUNT, PROCESSED_BY, NOTES, " +
-        "LAST_ATTEMPT_TIMESTAMP, ATTEMPT_COUNT " +
+        "LAST_ATTEMPT_TIMESTAMP, ATTEMPT_COUNT, NEXT_ATTEMPT_AT, LEASE_EXPIRES_AT, PROFILE_COUNT, CLAIM_TOKEN " +
         "FROM SMC_LOAD_PROFILE_INBOUND WHERE MESSAGE_UUID = ?";
 
     // FIXED: Aligned with v3.0 Processor logic (fetches PENDING, no retry logic)
@@ -56,11 +61,33 @@ public class LoadProfileInboundDAO {
         "PROCESSING_START_TIME, PROCESSING_END_TIME, LAST_MANUAL_RETRY_TIME, " +
         "LAST_HTTP_STATUS_CODE, LAST_RESPONSE_MESSAGE, LAST_ERROR_MESSAGE, " +
         "ORIGINAL_MESSAGE_ID, MANUAL_RETRY_COUNT, PROCESSED_BY, NOTES, " +
-        "LAST_ATTEMPT_TIMESTAMP, ATTEMPT_COUNT " +
+        "LAST_ATTEMPT_TIMESTAMP, ATTEMPT_COUNT, NEXT_ATTEMPT_AT, LEASE_EXPIRES_AT, PROFILE_COUNT, CLAIM_TOKEN " +
         "FROM SMC_LOAD_PROFILE_INBOUND " +
-        "WHERE STATUS = 'PENDING' " + // Changed from ('RECEIVED', 'FAILED_RETRY')
-        "ORDER BY RECEIVED_TIMESTAMP " +
-        "FETCH FIRST ? ROWS ONLY"; // Only one parameter now
+        "WHERE STATUS = 'PENDING' AND NEXT_ATTEMPT_AT <= ? " + // Due messages only (IDX_SMC_LOAD_PROFILE_DUE)
+        "ORDER BY NEXT_ATTEMPT_AT " +
+        "FETCH FIRST ? ROWS ONLY";
+    
+    // Claim: due PENDING rows not locked by another node, locked as they are fetched
+    private static final String SELECT_FOR_CLAIM_SQL = 
+        "SELECT MESSAGE_UUID, RAW_PAYLOAD, STATUS, RECEIVED_TIMESTAMP, " +
+        "PROCESSING_START_TIME, PROCESSING_END_TIME, LAST_MANUAL_RETRY_TIME, " +
+        "LAST_HTTP_STATUS_CODE, LAST_RESPONSE_MESSAGE, LAST_ERROR_MESSAGE, " +
+        "ORIGINAL_MESSAGE_ID, MANUAL_RETRY_COUNT, PROCESSED_BY, NOTES, " +
+        "LAST_ATTEMPT_TIMESTAMP, ATTEMPT_COUNT, NEXT_ATTEMPT_AT, LEASE_EXPIRES_AT, PROFILE_COUNT, CLAIM_TOKEN " +
+        "FROM SMC_LOAD_PROFILE_INBOUND " +
+        "WHERE STATUS = 'PENDING' AND NEXT_ATTEMPT_AT <= ? " +
+        "ORDER BY NEXT_ATTEMPT_AT " +
+        "FOR UPDATE SKIP LOCKED";
+    
+    private static final String CLAIM_SQL = 
+        "UPDATE SMC_LOAD_PROFILE_INBOUND SET STATUS = 'PROCESSING', PROCESSED_BY = ?, " +
+        "LEASE_EXPIRES_AT = ?, PROCESSING_START_TIME = ?, CLAIM_TOKEN = ? WHERE MESSAGE_UUID = ?";
+    
+    // A fresh token ends the expired claim: a late outcome of the old node no longer matches
+    private static final String RECOVER_LEASES_SQL = 
+        "UPDATE SMC_LOAD_PROFILE_INBOUND SET STATUS = 'PENDING', NEXT_ATTEMPT_AT = ?, " +
+        "LEASE_EXPIRES_AT = NULL, CLAIM_TOKEN = RAWTOHEX(SYS_GUID()), LAST_ERROR_MESSAGE = 'Lease of ' || PROCESSED_BY || ' expired' " +
+        "WHERE STATUS = 'PROCESSING' AND LEASE_EXPIRES_AT < ?";
     
     // FIXED: Aligned with v2.0 Entity (added all new fields)
     private static final String SELECT_BY_STATUS_SQL = 
@@ -68,7 +95,7 @@ public class LoadProfileInboundDAO {
         "PROCESSING_START_TIME, PROCESSING_END_TIME, LAST_MANUAL_RETRY_TIME, " +
         "LAST_HTTP_STATUS_CODE, LAST_RESPONSE_MESSAGE, LAST_ERROR_MESSAGE, " +
         "ORIGINAL_MESSAGE_ID, MANUAL_RETRY_COUNT, PROCESSED_BY, NOTES, " +
-        "LAST_ATTEMPT_TIMESTAMP, ATTEMPT_COUNT " +
+        "LAST_ATTEMPT_TIMESTAMP, ATTEMPT_COUNT, NEXT_ATTEMPT_AT, LEASE_EXPIRES_AT, PROFILE_COUNT, CLAIM_TOKEN " +
         "FROM SMC_LOAD_PROFILE_INBOUND " +
         "WHERE STATUS = ? ORDER BY RECEIVED_TIMESTAMP";
     
@@ -82,6 +109,9 @@ public class LoadProfileInboundDAO {
     
     private DataSource dataSource;
     
+    // Status updates that matched no row: their claim had been recovered or superseded
+    private final LongAdder staleUpdates = new LongAdder();
+    
     /**
      * Constructor that initializes the data source.
      * First attempts JNDI lookup for WebLogic, falls back to HikariCP if not found.
@@ -158,6 +188,9 @@ public class LoadProfileInboundDAO {
             ps.setTimestamp(4, loadProfile.getReceivedTimestamp());
             ps.setString(5, loadProfile.getLastErrorMessage());
             ps.setString(6, loadProfile.getOriginalMessageId()); // <-- ADDED
+            // A new message is due at once
+            ps.setTimestamp(7, loadProfile.getNextAttemptAt() != null
+                ? loadProfile.getNextAttemptAt() : loadProfile.getReceivedTimestamp());
             
             int rowsAffected = ps.executeUpdate();
             
@@ -206,17 +239,7 @@ public class LoadProfileInboundDAO {
         try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(UPDATE_STATUS_SQL)) {
             
-            ps.setString(1, loadProfile.getStatus().getValue());
-            ps.setTimestamp(2, loadProfile.getProcessingStartTime());
-            ps.setTimestamp(3, loadProfile.getProcessingEndTime());
-            ps.setInt(4, loadProfile.getLastHttpStatusCode());
-            ps.setString(5, loadProfile.getLastResponseMessage());
-            ps.setString(6, loadProfile.getLastErrorMessage());
-            ps.setString(7, loadProfile.getOriginalMessageId());
-            ps.setTimestamp(8, loadProfile.getLastAttemptTimestamp());
-            ps.setInt(9, loadProfile.getAttemptCount());
-            ps.setInt(10, loadProfile.getManualRetryCount());
-            ps.setString(11, loadProfile.getMessageUuid());
+            bindStatusUpdate(ps, loadProfile);
             
             int rowsAffected = ps.executeUpdate();
             
@@ -225,6 +248,7 @@ public class LoadProfileInboundDAO {
                     loadProfile.getStatus(), loadProfile.getMessageUuid());
                 return true;
             }
+            staleUpdate(loadProfile);
             return false;
             
         } catch (SQLException e) {
@@ -234,6 +258,90 @@ public class LoadProfileInboundDAO {
         }
     }
     
+    /**
+     * Update the status of several load profile records in one batch
+     * (all messages of a coalesced delivery)
+     * @param loadProfiles The load profiles with updated status
+     * @return true if update successful, false otherwise
+     */
+    public boolean updateStatus(List<LoadProfileInbound> loadProfiles) {
+        if (loadProfiles.size() == 1) {
+            return updateStatus(loadProfiles.get(0));
+        }
+        
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(UPDATE_STATUS_SQL)) {
+            
+            int[] counts;
+            conn.setAutoCommit(false);
+            try {
+                for (LoadProfileInbound loadProfile : loadProfiles) {
+                    bindStatusUpdate(ps, loadProfile);
+                    ps.addBatch();
+                }
+                counts = ps.executeBatch();
+                conn.commit();
+                
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+                
+            } finally {
+                // The connection goes back to the pool
+                conn.setAutoCommit(true);
+            }
+            
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    staleUpdate(loadProfiles.get(i));
+                }
+            }
+            logger.debug("Updated status of {} messages", loadProfiles.size());
+            return true;
+            
+        } catch (SQLException e) {
+            logger.error("Error updating status of {} messages", loadProfiles.size(), e);
+            return false;
+        }
+    }
+    
+    private void staleUpdate(LoadProfileInbound loadProfile) {
+        staleUpdates.increment();
+        logger.warn("Status {} of message {} not stored: its claim ({}, token {}) is no longer current",
+            loadProfile.getStatus(), loadProfile.getMessageUuid(),
+            loadProfile.getProcessedBy(), loadProfile.getClaimToken());
+    }
+    
+    /**
+     * Number of status updates dropped because their claim was no longer current
+     */
+    public long getStaleUpdateCount() {
+        return staleUpdates.sum();
+    }
+    
+    private static void bindStatusUpdate(PreparedStatement ps, LoadProfileInbound loadProfile)
+            throws SQLException {
+        ps.setString(1, loadProfile.getStatus().getValue());
+        ps.setTimestamp(2, loadProfile.getProcessingStartTime());
+        ps.setTimestamp(3, loadProfile.getProcessingEndTime());
+        ps.setInt(4, loadProfile.getLastHttpStatusCode());
+        ps.setString(5, loadProfile.getLastResponseMessage());
+        ps.setString(6, loadProfile.getLastErrorMessage());
+        ps.setString(7, loadProfile.getOriginalMessageId());
+        ps.setTimestamp(8, loadProfile.getLastAttemptTimestamp());
+        ps.setInt(9, loadProfile.getAttemptCount());
+        ps.setInt(10, loadProfile.getManualRetryCount());
+        ps.setTimestamp(11, loadProfile.getNextAttemptAt());
+        ps.setTimestamp(12, loadProfile.getLeaseExpiresAt());
+        if (loadProfile.getProfileCount() != null) {
+            ps.setInt(13, loadProfile.getProfileCount());
+        } else {
+            ps.setNull(13, Types.INTEGER);
+        }
+        ps.setString(14, loadProfile.getMessageUuid());
+        ps.setString(15, loadProfile.getClaimToken());
+    }
+    
     /**
      * Find a load profile by UUID
      * @param messageUuid The message UUID
@@ -258,7 +366,8 @@ public class LoadProfileInboundDAO {
     }
     
     /**
-     * Get messages ready for processing (PENDING status)
+     * Get messages ready for processing (PENDING status and due), the
+     * longest due first
      * @param batchSize Number of records to fetch
      * @return List of LoadProfileInbound ready for processing
      */
@@ -269,8 +378,8 @@ public class LoadProfileInboundDAO {
         try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(SELECT_FOR_PROCESSING_SQL)) {
             
-            // FIXED: Only one parameter now
-            ps.setInt(1, batchSize);
+            ps.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+            ps.setInt(2, batchSize);
             
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
@@ -289,6 +398,108 @@ public class LoadProfileInboundDAO {
         return messages;
     }
     
+    /**
+     * Atomically claim due PENDING messages for this node (SELECT ... FOR
+     * UPDATE SKIP LOCKED, then PROCESSING with node ID and lease expiry in
+     * the same transaction). Nodes running the processor concurrently never
+     * claim the same message. Each claim gets a new CLAIM_TOKEN; status
+     * updates only apply while the row still carries it.
+     * @param batchSize Maximum number of messages to claim
+     * @param nodeId Node claiming the messages (stored in PROCESSED_BY)
+     * @param leaseMs Lease duration; unfinished messages are then recovered
+     * @return The claimed messages, in PROCESSING status
+     */
+    public List<LoadProfileInbound> claimMessagesForProcessing(int batchSize, String nodeId, long leaseMs) {
+        List<LoadProfileInbound> messages = new ArrayList<>();
+        if (batchSize <= 0) {
+            return messages;
+        }
+        
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Timestamp leaseExpiresAt = new Timestamp(now.getTime() + leaseMs);
+        
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = conn.prepareStatement(SELECT_FOR_CLAIM_SQL)) {
+                    ps.setTimestamp(1, now);
+                    // SKIP LOCKED locks rows when they are fetched: fetch no more than we claim
+                    ps.setFetchSize(batchSize);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (messages.size() < batchSize && rs.next()) {
+                            messages.add(mapResultSetToEntity(rs));
+                        }
+                    }
+                }
+                
+                if (!messages.isEmpty()) {
+                    try (PreparedStatement ps = conn.prepareStatement(CLAIM_SQL)) {
+                        for (LoadProfileInbound message : messages) {
+                            ps.setString(1, nodeId);
+                            ps.setTimestamp(2, leaseExpiresAt);
+                            String claimToken = UUID.randomUUID().toString();
+                            ps.setTimestamp(3, now);
+                            ps.setString(4, claimToken);
+                            ps.setString(5, message.getMessageUuid());
+                            ps.addBatch();
+                            
+                            message.setStatus(ProcessingStatus.PROCESSING);
+                            message.setProcessedBy(nodeId);
+                            message.setClaimToken(claimToken);
+                            message.setLeaseExpiresAt(leaseExpiresAt);
+                            message.setProcessingStartTime(now);
+                        }
+                        ps.executeBatch();
+                    }
+                }
+                conn.commit();
+                
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+                
+            } finally {
+                // The connection goes back to the pool
+                conn.setAutoCommit(true);
+            }
+            
+            if (!messages.isEmpty()) {
+                logger.info("Node {} claimed {} messages until {}", nodeId, messages.size(), leaseExpiresAt);
+            }
+            
+        } catch (SQLException e) {
+            logger.error("Error claiming messages for processing", e);
+            messages.clear();
+        }
+        
+        return messages;
+    }
+    
+    /**
+     * Return messages whose lease expired (the claiming node crashed or was
+     * stopped) to PENDING, due at once
+     * @return Number of recovered messages
+     */
+    public int recoverExpiredLeases() {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(RECOVER_LEASES_SQL)) {
+            
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            ps.setTimestamp(1, now);
+            ps.setTimestamp(2, now);
+            
+            int recovered = ps.executeUpdate();
+            if (recovered > 0) {
+                logger.warn("Recovered {} messages with an expired lease", recovered);
+            }
+            return recovered;
+            
+        } catch (SQLException e) {
+            logger.error("Error recovering expired leases", e);
+            return 0;
+        }
+    }
+    
     /**
      * Find all messages by status
      * @param status The status to filter by
@@ -376,11 +587,16 @@ public class LoadProfileInboundDAO {
         entity.setOriginalMessageId(rs.getString("ORIGINAL_MESSAGE_ID"));
         entity.setManualRetryCount(rs.getInt("MANUAL_RETRY_COUNT"));
         entity.setProcessedBy(rs.getString("PROCESSED_BY"));
+        entity.setClaimToken(rs.getString("CLAIM_TOKEN"));
         entity.setNotes(rs.getString("NOTES"));
         
         // Map old fields
         entity.setLastAttemptTimestamp(rs.getTimestamp("LAST_ATTEMPT_TIMESTAMP"));
         entity.setAttemptCount(rs.getInt("ATTEMPT_COUNT"));
+        entity.setNextAttemptAt(rs.getTimestamp("NEXT_ATTEMPT_AT"));
+        entity.setLeaseExpiresAt(rs.getTimestamp("LEASE_EXPIRES_AT"));
+        int profileCount = rs.getInt("PROFILE_COUNT");
+        entity.setProfileCount(rs.wasNull() ? null : profileCount);
         
         return entity;
     }
@@ -394,4 +610,4 @@ public class LoadProfileInboundDAO {
             logger.info("DataSource closed successfully");
         }
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -27,6 +27,8 @@ public class LoadProfileInbound {
     private Timestamp processingEndTime;
     private Timestamp lastManualRetryTime;
     private Timestamp lastAttemptTimestamp; // <-- ADDED to match DAO/DB
+    private Timestamp nextAttemptAt; // Earliest time a PENDING message is picked up
+    private Timestamp leaseExpiresAt; // End of the claim of the node in PROCESSED_BY
     
     // HTTP Response tracking (per requirement)
     private int lastHttpStatusCode;
@@ -39,7 +41,9 @@ public class LoadProfileInbound {
     // Additional metadata
     private int manualRetryCount;
     private int attemptCount; // <-- ADDED to match DAO/DB
+    private Integer profileCount; // Profiles found when the payload passed validation, null until then
     private String processedBy;
+    private String claimToken; // Token of the current claim; status updates must carry it
     private String notes;
     
     /**
@@ -202,6 +206,30 @@ public class LoadProfileInbound {
         this.attemptCount = attemptCount;
     }
 
+    public Timestamp getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(Timestamp nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public Timestamp getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+
+    public void setLeaseExpiresAt(Timestamp leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
+    public Integer getProfileCount() {
+        return profileCount;
+    }
+
+    public void setProfileCount(Integer profileCount) {
+        this.profileCount = profileCount;
+    }
+
     // --- End of ADDED Getters/Setters ---
 
     // HTTP Response tracking getters and setters
@@ -273,6 +301,14 @@ public class LoadProfileInbound {
         this.processedBy = processedBy;
     }
     
+    public String getClaimToken() {
+        return claimToken;
+    }
+    
+    public void setClaimToken(String claimToken) {
+        this.claimToken = claimToken;
+    }
+    
     public String getNotes() {
         return notes;
     }
@@ -379,6 +415,7 @@ public class LoadProfileInbound {
         this.lastResponseMessage = null;
         this.lastErrorMessage = null;
         this.attemptCount = 0; // Reset attempt count
+        this.nextAttemptAt = new Timestamp(System.currentTimeMillis()); // Due at once
         this.incrementManualRetryCount();
     }
     
@@ -402,4 +439,4 @@ public class LoadProfileInbound {
             getProcessingDurationMs(), manualRetryCount, getAgeInHours()
         );
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,253 @@
+package com.hedno.integration.processor;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point decimals with 4 fractional digits, as stored in the
+ * NUMBER(15,4) quantity columns. A value is a long scaled by 10^4
+ * (1.25 is 12500).
+ *
+ * The parser reads a character sequence directly - plain or with an
+ * exponent ("1.25", "-0.5", "1.2E+3") - and rounds HALF_UP to 4 digits,
+ * like BigDecimal.setScale(4, HALF_UP). It allocates nothing on the happy
+ * path. Besides the scaled value it records the natural scale of the input
+ * (capped at 4), so callers can reproduce the BigDecimal the text denotes.
+ *
+ * A parser instance is not thread-safe; use one per parsing thread.
+ *
+ * @author HEDNO Integration Team
+ * @version 1.0
+ */
+public final class FixedPointDecimal {
+
+    /** Fractional digits of the scaled representation */
+    public static final int SCALE = 4;
+
+    /** Scaled values must stay below this magnitude (10^18) */
+    public static final long MAX_SCALED = 1_000_000_000_000_000_000L;
+
+    private static final int MAX_DIGITS = 18;
+    private static final int MAX_EXPONENT = 1000;
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private int lastScale;
+
+    /**
+     * Natural scale (0..4) of the value last returned by parse()
+     */
+    public int getLastScale() {
+        return lastScale;
+    }
+
+    /**
+     * Parse a whole character sequence
+     *
+     * @throws NumberFormatException if the text is not a decimal number
+     * @throws ArithmeticException if the value does not fit the scaled range
+     */
+    public long parse(CharSequence text) {
+        return parse(text, 0, text.length());
+    }
+
+    /**
+     * Parse text[from, to) into a value scaled by 10^4. Surrounding
+     * whitespace is ignored.
+     *
+     * @throws NumberFormatException if the text is not a decimal number
+     * @throws ArithmeticException if the value does not fit the scaled range
+     */
+    public long parse(CharSequence text, int from, int to) {
+        int i = from;
+        int end = to;
+        while (i < end && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        while (end > i && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+
+        boolean negative = false;
+        if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significant = 0;
+        int fractionDigits = 0;     // fraction digits held in the mantissa
+        int allFractionDigits = 0;  // all fraction digits of the text
+        int droppedIntegerDigits = 0;
+        int firstDropped = -1;
+        boolean anyDigit = false;
+        boolean inFraction = false;
+
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                int digit = c - '0';
+                anyDigit = true;
+                if (inFraction) {
+                    allFractionDigits++;
+                }
+                if (mantissa == 0 && digit == 0) {
+                    if (inFraction) {
+                        fractionDigits++;
+                    }
+                } else if (significant < MAX_DIGITS) {
+                    mantissa = mantissa * 10 + digit;
+                    significant++;
+                    if (inFraction) {
+                        fractionDigits++;
+                    }
+                } else {
+                    if (firstDropped < 0) {
+                        firstDropped = digit;
+                    }
+                    if (!inFraction) {
+                        droppedIntegerDigits++;
+                    }
+                }
+            } else if (c == '.' && !inFraction) {
+                inFraction = true;
+            } else if (c == 'e' || c == 'E') {
+                break;
+            } else {
+                throw invalid(text, from, to);
+            }
+        }
+        if (!anyDigit) {
+            throw invalid(text, from, to);
+        }
+
+        int exponent = 0;
+        if (i < end) {
+            // Exponent part
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+                negativeExponent = text.charAt(i) == '-';
+                i++;
+            }
+            if (i == end) {
+                throw invalid(text, from, to);
+            }
+            for (; i < end; i++) {
+                char c = text.charAt(i);
+                if (c < '0' || c > '9') {
+                    throw invalid(text, from, to);
+                }
+                if (exponent < MAX_EXPONENT) {
+                    exponent = exponent * 10 + (c - '0');
+                }
+            }
+            if (negativeExponent) {
+                exponent = -exponent;
+            }
+        }
+
+        lastScale = Math.max(0, Math.min(SCALE, allFractionDigits - exponent));
+
+        long scaled;
+        int shift = exponent + droppedIntegerDigits - fractionDigits + SCALE;
+        if (mantissa == 0) {
+            scaled = 0;
+        } else if (shift >= 0) {
+            if (firstDropped >= 0 && shift > 0) {
+                throw overflow(text, from, to);
+            }
+            if (shift >= POWERS_OF_TEN.length || mantissa >= MAX_SCALED / POWERS_OF_TEN[shift]) {
+                throw overflow(text, from, to);
+            }
+            scaled = mantissa * POWERS_OF_TEN[shift];
+            if (firstDropped >= 5) {
+                scaled++;
+            }
+        } else if (-shift >= POWERS_OF_TEN.length) {
+            scaled = 0;
+        } else {
+            long divisor = POWERS_OF_TEN[-shift];
+            scaled = mantissa / divisor;
+            if (mantissa % divisor >= divisor / 2) {
+                scaled++;
+            }
+        }
+        if (scaled >= MAX_SCALED) {
+            throw overflow(text, from, to);
+        }
+        return negative ? -scaled : scaled;
+    }
+
+    /**
+     * Whether text[from, to) holds only whitespace
+     */
+    public static boolean isBlank(CharSequence text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Scaled value of a BigDecimal (HALF_UP)
+     *
+     * @throws ArithmeticException if the value does not fit the scaled range
+     */
+    public static long fromBigDecimal(BigDecimal value) {
+        BigDecimal scaled = value.setScale(SCALE, RoundingMode.HALF_UP);
+        if (scaled.unscaledValue().bitLength() >= 63 || Math.abs(scaled.unscaledValue().longValue()) >= MAX_SCALED) {
+            throw new ArithmeticException("Value out of range: " + value);
+        }
+        return scaled.unscaledValue().longValue();
+    }
+
+    /**
+     * Natural scale of a BigDecimal, capped to 0..4
+     */
+    public static int scaleOf(BigDecimal value) {
+        return Math.max(0, Math.min(SCALE, value.scale()));
+    }
+
+    /**
+     * BigDecimal of a scaled value, shown with the given scale (0..4)
+     */
+    public static BigDecimal toBigDecimal(long scaled, int scale) {
+        BigDecimal value = BigDecimal.valueOf(scaled, SCALE);
+        return scale < SCALE ? value.setScale(Math.max(0, scale), RoundingMode.HALF_UP) : value;
+    }
+
+    /**
+     * Plain decimal text of a scaled value, e.g. 12500 -> "1.2500"
+     */
+    public static String toPlainString(long scaled) {
+        StringBuilder sb = new StringBuilder(24);
+        long magnitude = Math.abs(scaled);
+        if (scaled < 0) {
+            sb.append('-');
+        }
+        sb.append(magnitude / POWERS_OF_TEN[SCALE]).append('.');
+        String fraction = Long.toString(magnitude % POWERS_OF_TEN[SCALE]);
+        for (int i = fraction.length(); i < SCALE; i++) {
+            sb.append('0');
+        }
+        return sb.append(fraction).toString();
+    }
+
+    private static NumberFormatException invalid(CharSequence text, int from, int to) {
+        return new NumberFormatException("Invalid decimal: '" + text.subSequence(from, to) + "'");
+    }
+
+    private static ArithmeticException overflow(CharSequence text, int from, int to) {
+        return new ArithmeticException("Decimal out of range: '" + text.subSequence(from, to) + "'");
+    }
+}
@@ -0,0 +1,209 @@
+package com.hedno.integration.processor;
+
+import com.hedno.integration.service.SymbolTable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Columnar (struct-of-arrays) storage of the intervals of one channel.
+ *
+ * Instead of one IntervalData (plus LocalDateTime, BigDecimal and Strings)
+ * per reading, every field is kept in a primitive array:
+ * - start:  UTC epoch seconds (long[])
+ * - value:  fixed-point value scaled by 10^4 (long[]) + natural scale (byte[])
+ * - unit, status: codes of the shared SymbolTable.UNIT / STATUS (int[])
+ *
+ * Missing start times and values are stored as NO_VALUE.
+ *
+ * @author HEDNO Integration Team
+ * @version 1.0
+ */
+public class IntervalColumns {
+
+    /** Marker for a missing start time or value */
+    public static final long NO_VALUE = Long.MIN_VALUE;
+
+    /** Marker for a missing unit or status code */
+    public static final int NO_CODE = -1;
+
+    private static final int INITIAL_CAPACITY = 96;
+
+    private long[] startEpochSeconds;
+    private long[] scaledValues;
+    private byte[] scales;
+    private int[] unitCodes;
+    private int[] statusCodes;
+    private int size;
+
+    // Symbols the shared tables rejected (table full), coded as -(index + 2)
+    private List<String> overflowSymbols;
+
+    public IntervalColumns() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public IntervalColumns(int capacity) {
+        int initial = Math.max(1, capacity);
+        this.startEpochSeconds = new long[initial];
+        this.scaledValues = new long[initial];
+        this.scales = new byte[initial];
+        this.unitCodes = new int[initial];
+        this.statusCodes = new int[initial];
+    }
+
+    /**
+     * Append an interval
+     *
+     * @param startEpochSecond UTC start in epoch seconds, or NO_VALUE
+     * @param scaledValue Value scaled by 10^4 (FixedPointDecimal), or NO_VALUE
+     * @param scale Natural scale of the value (0..4)
+     */
+    public void add(long startEpochSecond, long scaledValue, int scale, String unitCode, String status) {
+        ensureCapacity(size + 1);
+        startEpochSeconds[size] = startEpochSecond;
+        scaledValues[size] = scaledValue;
+        scales[size] = (byte) scale;
+        unitCodes[size] = code(SymbolTable.UNIT, unitCode);
+        statusCodes[size] = code(SymbolTable.STATUS, status);
+        size++;
+    }
+
+    /**
+     * Append an interval from object values
+     *
+     * @throws ArithmeticException if the value does not fit the fixed-point range
+     */
+    public void add(LocalDateTime start, BigDecimal value, String unitCode, String status) {
+        long epoch = start != null ? start.toEpochSecond(ZoneOffset.UTC) : NO_VALUE;
+        if (value == null) {
+            add(epoch, NO_VALUE, 0, unitCode, status);
+        } else {
+            add(epoch, FixedPointDecimal.fromBigDecimal(value), FixedPointDecimal.scaleOf(value), unitCode, status);
+        }
+    }
+
+    public void add(IntervalData interval) {
+        add(interval.getStartDateTime(), interval.getValue(), interval.getUnitCode(), interval.getStatus());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getStartEpochSecond(int index) {
+        checkIndex(index);
+        return startEpochSeconds[index];
+    }
+
+    public LocalDateTime getStartDateTime(int index) {
+        long epoch = getStartEpochSecond(index);
+        return epoch == NO_VALUE ? null : LocalDateTime.ofEpochSecond(epoch, 0, ZoneOffset.UTC);
+    }
+
+    public boolean hasValue(int index) {
+        checkIndex(index);
+        return scaledValues[index] != NO_VALUE;
+    }
+
+    /**
+     * Value scaled by 10^4, or NO_VALUE
+     */
+    public long getScaledValue(int index) {
+        checkIndex(index);
+        return scaledValues[index];
+    }
+
+    public int getScale(int index) {
+        checkIndex(index);
+        return scales[index];
+    }
+
+    /**
+     * Value as BigDecimal (allocates - prefer getScaledValue)
+     */
+    public BigDecimal getValue(int index) {
+        return hasValue(index) ? FixedPointDecimal.toBigDecimal(scaledValues[index], scales[index]) : null;
+    }
+
+    /**
+     * Unit code: SymbolTable.UNIT code, NO_CODE, or a local overflow code (&lt; -1)
+     */
+    public int getUnitCodeId(int index) {
+        checkIndex(index);
+        return unitCodes[index];
+    }
+
+    public int getStatusCodeId(int index) {
+        checkIndex(index);
+        return statusCodes[index];
+    }
+
+    public String getUnitCode(int index) {
+        return symbol(SymbolTable.UNIT, getUnitCodeId(index));
+    }
+
+    public String getStatus(int index) {
+        return symbol(SymbolTable.STATUS, getStatusCodeId(index));
+    }
+
+    /**
+     * Object view of one interval (compatibility with the IntervalData model)
+     */
+    public IntervalData toIntervalData(int index) {
+        IntervalData interval = new IntervalData();
+        interval.setStartDateTime(getStartDateTime(index));
+        interval.setValue(getValue(index));
+        interval.setUnitCode(getUnitCode(index));
+        interval.setStatus(getStatus(index));
+        return interval;
+    }
+
+    private int code(SymbolTable table, String symbol) {
+        if (symbol == null) {
+            return NO_CODE;
+        }
+        int code = table.code(symbol);
+        if (code != SymbolTable.NO_CODE) {
+            return code;
+        }
+        if (overflowSymbols == null) {
+            overflowSymbols = new ArrayList<>();
+        }
+        overflowSymbols.add(symbol);
+        return -(overflowSymbols.size() + 1);
+    }
+
+    private String symbol(SymbolTable table, int code) {
+        if (code == NO_CODE) {
+            return null;
+        }
+        return code >= 0 ? table.symbol(code) : overflowSymbols.get(-code - 2);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= startEpochSeconds.length) {
+            return;
+        }
+        int capacity = Math.max(required, startEpochSeconds.length + (startEpochSeconds.length >> 1));
+        startEpochSeconds = Arrays.copyOf(startEpochSeconds, capacity);
+        scaledValues = Arrays.copyOf(scaledValues, capacity);
+        scales = Arrays.copyOf(scales, capacity);
+        unitCodes = Arrays.copyOf(unitCodes, capacity);
+        statusCodes = Arrays.copyOf(statusCodes, capacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
@@ -7,13 +7,18 @@ import java.time.LocalDateTime;
  * Interval Data entity.
  * Represents a single 15-minute interval reading.
  * 
+ * The value may be held as a fixed-point long (FixedPointDecimal); the
+ * BigDecimal is then only created when getValue() is called.
+ * 
  * @author HEDNO Integration Team
- * @version 3.0
+ * @version 3.1
  */
 public class IntervalData {
 
     private LocalDateTime startDateTime;
     private BigDecimal value;
+    private long scaledValue = IntervalColumns.NO_VALUE;
+    private int scale;
     private String unitCode;
     private String status;
 
@@ -38,11 +43,36 @@ public class IntervalData {
     }
 
     public BigDecimal getValue() {
+        if (value == null && scaledValue != IntervalColumns.NO_VALUE) {
+            value = FixedPointDecimal.toBigDecimal(scaledValue, scale);
+        }
         return value;
     }
 
     public void setValue(BigDecimal value) {
         this.value = value;
+        this.scaledValue = IntervalColumns.NO_VALUE;
+    }
+
+    /**
+     * Value scaled by 10^4, or IntervalColumns.NO_VALUE
+     *
+     * @throws ArithmeticException if a BigDecimal value does not fit the fixed-point range
+     */
+    public long getScaledValue() {
+        if (scaledValue == IntervalColumns.NO_VALUE && value != null) {
+            return FixedPointDecimal.fromBigDecimal(value);
+        }
+        return scaledValue;
+    }
+
+    /**
+     * Set the value as a long scaled by 10^4 with its natural scale (0..4)
+     */
+    public void setScaledValue(long scaledValue, int scale) {
+        this.scaledValue = scaledValue;
+        this.scale = scale;
+        this.value = null;
     }
 
     public String getUnitCode() {
@@ -65,7 +95,7 @@ public class IntervalData {
     public String toString() {
         return "IntervalData{" +
                 "startDateTime=" + startDateTime +
-                ", value=" + value +
+                ", value=" + getValue() +
                 ", unitCode='" + unitCode + '\'' +
                 ", status='" + status + '\'' +
                 '}';
@@ -0,0 +1,146 @@
+package com.hedno.integration.processor;
+
+/**
+ * Hand-rolled parser for the fixed timestamp layouts we receive:
+ *
+ *   yyyy-MM-ddTHH:mm:ss
+ *   yyyy-MM-ddTHH:mm:ssZ
+ *   yyyy-MM-ddTHH:mm:ss+hh:mm / -hh:mm
+ *   yyyy-MM-dd HH:mm:ss
+ *
+ * parse() returns the local date-time as epoch seconds (read as UTC) and
+ * records the zone offset, so callers choose between the local reading and
+ * the instant (local - offset). Nothing is allocated; anything outside the
+ * layouts above (fractional seconds, named zones, ...) returns INVALID and
+ * is left to the DateTimeFormatter based fallback of the caller.
+ *
+ * A parser instance is not thread-safe; use one per parsing thread.
+ *
+ * @author HEDNO Integration Team
+ * @version 1.0
+ */
+public final class IsoDateTimeParser {
+
+    /** Returned by parse() when the text is not one of the fixed layouts */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    /** Offset reported when the text has no zone designator */
+    public static final int NO_OFFSET = Integer.MIN_VALUE;
+
+    private static final int LOCAL_LENGTH = 19;
+    private static final int SECONDS_PER_DAY = 86400;
+
+    private int lastOffsetSeconds = NO_OFFSET;
+
+    /**
+     * Zone offset in seconds of the last successful parse, or NO_OFFSET
+     */
+    public int getLastOffsetSeconds() {
+        return lastOffsetSeconds;
+    }
+
+    public long parse(CharSequence text) {
+        return parse(text, 0, text.length());
+    }
+
+    /**
+     * Parse text[from, to) - surrounding whitespace is ignored.
+     *
+     * @return Local date-time as epoch seconds (UTC reading), or INVALID
+     */
+    public long parse(CharSequence text, int from, int to) {
+        int start = from;
+        int end = to;
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (end - start < LOCAL_LENGTH) {
+            return INVALID;
+        }
+
+        int year = digits(text, start, 4);
+        int month = digits(text, start + 5, 2);
+        int day = digits(text, start + 8, 2);
+        int hour = digits(text, start + 11, 2);
+        int minute = digits(text, start + 14, 2);
+        int second = digits(text, start + 17, 2);
+        char separator = text.charAt(start + 10);
+
+        if ((year | month | day | hour | minute | second) < 0
+                || text.charAt(start + 4) != '-' || text.charAt(start + 7) != '-'
+                || (separator != 'T' && separator != ' ')
+                || text.charAt(start + 13) != ':' || text.charAt(start + 16) != ':'
+                || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour > 23 || minute > 59 || second > 59) {
+            return INVALID;
+        }
+
+        int offset;
+        int zone = start + LOCAL_LENGTH;
+        if (zone == end) {
+            offset = NO_OFFSET;
+        } else if (separator != 'T') {
+            return INVALID;
+        } else if (zone + 1 == end && text.charAt(zone) == 'Z') {
+            offset = 0;
+        } else if (zone + 6 == end && (text.charAt(zone) == '+' || text.charAt(zone) == '-')
+                && text.charAt(zone + 3) == ':') {
+            int offsetHours = digits(text, zone + 1, 2);
+            int offsetMinutes = digits(text, zone + 4, 2);
+            if (offsetHours < 0 || offsetMinutes < 0 || offsetHours > 18 || offsetMinutes > 59) {
+                return INVALID;
+            }
+            offset = (offsetHours * 3600 + offsetMinutes * 60) * (text.charAt(zone) == '-' ? -1 : 1);
+        } else {
+            return INVALID;
+        }
+
+        lastOffsetSeconds = offset;
+        return epochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second;
+    }
+
+    /**
+     * Days since 1970-01-01 of a proleptic Gregorian date
+     */
+    static long epochDay(int year, int month, int day) {
+        // Shift the year to start in March so the leap day is the last day
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Value of count ASCII digits at position, or -1
+     */
+    private static int digits(CharSequence text, int position, int count) {
+        int value = 0;
+        for (int i = position; i < position + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -1,14 +1,17 @@
 package com.hedno.integration.processor;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
 
 /**
  * Load Profile Data entity.
  * Represents a single meter channel's data from MDM.
  * 
+ * Intervals are held in columnar form (IntervalColumns); the IntervalData
+ * list is a read-only compatibility view materialized on access.
+ * 
  * @author HEDNO Integration Team
- * @version 3.0
+ * @version 3.1
  */
 public class LoadProfileData {
 
@@ -16,10 +19,10 @@ public class LoadProfileData {
     private String podId;
     private String obisCode;
     private String sourceSystem;
-    private List<IntervalData> intervals;
+    private IntervalColumns columns;
 
     public LoadProfileData() {
-        this.intervals = new ArrayList<>();
+        this.columns = new IntervalColumns();
     }
 
     // Getters and Setters
@@ -56,19 +59,43 @@ public class LoadProfileData {
         this.sourceSystem = sourceSystem;
     }
 
+    public IntervalColumns getColumns() {
+        return columns;
+    }
+
+    public void setColumns(IntervalColumns columns) {
+        this.columns = columns != null ? columns : new IntervalColumns();
+    }
+
+    /**
+     * Read-only view of the intervals; each access creates an IntervalData
+     */
     public List<IntervalData> getIntervals() {
-        return intervals;
+        return new AbstractList<IntervalData>() {
+            @Override
+            public IntervalData get(int index) {
+                return columns.toIntervalData(index);
+            }
+
+            @Override
+            public int size() {
+                return columns.size();
+            }
+        };
     }
 
     public void setIntervals(List<IntervalData> intervals) {
-        this.intervals = intervals;
+        IntervalColumns copy = new IntervalColumns(intervals != null ? intervals.size() : 0);
+        if (intervals != null) {
+            for (IntervalData interval : intervals) {
+                copy.add(interval);
+            }
+        }
+        this.columns = copy;
     }
 
     public void addInterval(IntervalData interval) {
-        if (this.intervals == null) {
-            this.intervals = new ArrayList<>();
-        }
-        this.intervals.add(interval);
+        columns.add(interval);
     }
 
     @Override
@@ -78,7 +105,7 @@ public class LoadProfileData {
                 ", podId='" + podId + '\'' +
                 ", obisCode='" + obisCode + '\'' +
                 ", sourceSystem='" + sourceSystem + '\'' +
-                ", intervalsCount=" + (intervals != null ? intervals.size() : 0) +
+                ", intervalsCount=" + columns.size() +
                 '}';
     }
 }
@@ -1,430 +1,814 @@
-package com.hedno.integration.processor;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.w3c.dom.*;
-import org.xml.sax.InputSource;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import java.io.StringReader;
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
-
-/**
- * Load Profile Data Extractor.
- * Parses MDM XML and extracts load profile data.
- * 
- * Supports:
- * - ZFA format (UtilitiesTimeSeriesERPItemBulkNotification)
- * - UtilitiesTimeSeriesERPItemNotificationMessage format
- * - Generic interval data format
- * 
- * @author HEDNO Integration Team
- * @version 3.1 - Fixed to handle actual XML structure
- */
-public class LoadProfileDataExtractor {
-
-    private static final Logger logger = LoggerFactory.getLogger(LoadProfileDataExtractor.class);
-
-    // XML namespaces
-    private static final String NS_SAP_GLOBAL = "http://sap.com/xi/SAPGlobal20/Global";
-
-    // Date formatters
-    private static final DateTimeFormatter ISO_FORMATTER = DateTimeFormatter.ISO_DATE_TIME;
-    private static final DateTimeFormatter UTC_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
-
-    private final DocumentBuilderFactory factory;
-
-    public LoadProfileDataExtractor() {
-        this.factory = DocumentBuilderFactory.newInstance();
-        this.factory.setNamespaceAware(true);
-        this.factory.setIgnoringComments(true);
-        this.factory.setIgnoringElementContentWhitespace(true);
-    }
-
-    /**
-     * Extract load profiles from XML string
-     * 
-     * @param xmlContent The XML content
-     * @return List of extracted load profiles
-     */
-    public List<LoadProfileData> extractFromXml(String xmlContent) throws Exception {
-        List<LoadProfileData> profiles = new ArrayList<>();
-
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document doc = builder.parse(new InputSource(new StringReader(xmlContent)));
-        doc.getDocumentElement().normalize();
-
-        // Try to extract message UUID from header
-        String messageUuid = extractMessageUuid(doc);
-        logger.debug("Extracted message UUID: {}", messageUuid);
-
-        // Strategy 1: Find UtilitiesTimeSeriesERPItemNotificationMessage elements
-        NodeList messageNodes = findMessageNodes(doc);
-        logger.debug("Found {} notification message elements", messageNodes.getLength());
-
-        if (messageNodes.getLength() > 0) {
-            for (int i = 0; i < messageNodes.getLength(); i++) {
-                Element messageEl = (Element) messageNodes.item(i);
-                LoadProfileData profile = extractProfileFromNotificationMessage(messageEl, messageUuid);
-                if (profile != null && !profile.getIntervals().isEmpty()) {
-                    profiles.add(profile);
-                    logger.debug("Extracted profile: POD={}, intervals={}", 
-                        profile.getPodId(), profile.getIntervals().size());
-                }
-            }
-        }
-
-        // Strategy 2: If no profiles found, try direct UtilitiesTimeSeries extraction
-        if (profiles.isEmpty()) {
-            logger.debug("No profiles from notification messages, trying direct TimeSeries extraction");
-            NodeList timeSeriesNodes = doc.getElementsByTagName("UtilitiesTimeSeries");
-            if (timeSeriesNodes.getLength() == 0) {
-                timeSeriesNodes = doc.getElementsByTagNameNS(NS_SAP_GLOBAL, "UtilitiesTimeSeries");
-            }
-            
-            for (int i = 0; i < timeSeriesNodes.getLength(); i++) {
-                Element tsEl = (Element) timeSeriesNodes.item(i);
-                LoadProfileData profile = extractProfileFromTimeSeries(tsEl, messageUuid);
-                if (profile != null && !profile.getIntervals().isEmpty()) {
-                    profiles.add(profile);
-                }
-            }
-        }
-
-        logger.info("Extracted {} load profiles from XML", profiles.size());
-        return profiles;
-    }
-
-    /**
-     * Find notification message nodes with various namespace combinations
-     */
-    private NodeList findMessageNodes(Document doc) {
-        // Try different element names and namespace combinations
-        String[] elementNames = {
-            "UtilitiesTimeSeriesERPItemNotificationMessage",
-            "UtilitiesTimeSeriesERPItemBulkNotificationMessage"
-        };
-        
-        for (String elementName : elementNames) {
-            // Try with SAP Global namespace
-            NodeList nodes = doc.getElementsByTagNameNS(NS_SAP_GLOBAL, elementName);
-            if (nodes.getLength() > 0) {
-                logger.debug("Found {} elements with name {} (NS: SAP Global)", nodes.getLength(), elementName);
-                return nodes;
-            }
-            
-            // Try without namespace
-            nodes = doc.getElementsByTagName(elementName);
-            if (nodes.getLength() > 0) {
-                logger.debug("Found {} elements with name {} (no NS)", nodes.getLength(), elementName);
-                return nodes;
-            }
-        }
-        
-        // Return empty NodeList
-        return doc.getElementsByTagName("__NONEXISTENT__");
-    }
-
-    /**
-     * Extract message UUID from XML header
-     */
-    private String extractMessageUuid(Document doc) {
-        // Try different locations for UUID
-        String[] uuidTags = {"UUID", "uuid", "MessageID", "messageId"};
-        
-        for (String tag : uuidTags) {
-            NodeList uuidNodes = doc.getElementsByTagName(tag);
-            if (uuidNodes.getLength() > 0) {
-                String uuid = uuidNodes.item(0).getTextContent().trim();
-                if (uuid != null && !uuid.isEmpty()) {
-                    return uuid;
-                }
-            }
-        }
-
-        // Generate new UUID if not found
-        String generated = UUID.randomUUID().toString().toUpperCase();
-        logger.debug("No UUID found in XML, generated: {}", generated);
-        return generated;
-    }
-
-    /**
-     * Extract profile from UtilitiesTimeSeriesERPItemNotificationMessage element
-     */
-    private LoadProfileData extractProfileFromNotificationMessage(Element messageEl, String messageUuid) {
-        // Find UtilitiesTimeSeries within this message
-        NodeList tsNodes = messageEl.getElementsByTagName("UtilitiesTimeSeries");
-        if (tsNodes.getLength() == 0) {
-            tsNodes = messageEl.getElementsByTagNameNS(NS_SAP_GLOBAL, "UtilitiesTimeSeries");
-        }
-        
-        if (tsNodes.getLength() == 0) {
-            logger.warn("No UtilitiesTimeSeries found in notification message");
-            return null;
-        }
-        
-        Element tsEl = (Element) tsNodes.item(0);
-        return extractProfileFromTimeSeries(tsEl, messageUuid);
-    }
-
-    /**
-     * Extract profile from UtilitiesTimeSeries element
-     */
-    private LoadProfileData extractProfileFromTimeSeries(Element tsEl, String messageUuid) {
-        LoadProfileData profile = new LoadProfileData();
-        profile.setMessageUuid(messageUuid);
-
-        try {
-            // Extract POD ID from UtilitiesMeasurementTaskAssignmentRole
-            String podId = extractPodId(tsEl);
-            profile.setPodId(podId);
-
-            // Extract OBIS code
-            String obisCode = extractObisCode(tsEl);
-            profile.setObisCode(obisCode);
-
-            // Extract intervals from Item elements
-            NodeList itemNodes = tsEl.getElementsByTagName("Item");
-            logger.debug("Found {} Item elements", itemNodes.getLength());
-
-            for (int i = 0; i < itemNodes.getLength(); i++) {
-                Element itemEl = (Element) itemNodes.item(i);
-                IntervalData interval = extractInterval(itemEl);
-                if (interval != null) {
-                    profile.addInterval(interval);
-                }
-            }
-
-            logger.debug("Extracted profile: POD={}, OBIS={}, intervals={}",
-                podId, obisCode, profile.getIntervals().size());
-
-        } catch (Exception e) {
-            logger.error("Error extracting profile from TimeSeries", e);
-            return null;
-        }
-
-        return profile;
-    }
-
-    /**
-     * Extract POD ID from various possible locations
-     */
-    private String extractPodId(Element parent) {
-        // Priority order of tags to check
-        String[] podTags = {
-            "UtilitiesPointOfDeliveryPartyID",      // Found in test.xml
-            "UtilitiesDeviceID",
-            "MeteringPointID", 
-            "ServicePointChannelID",
-            "POD_ID",
-            "PodId"
-        };
-        
-        for (String tag : podTags) {
-            String value = getElementTextDeep(parent, tag);
-            if (value != null && !value.isEmpty()) {
-                logger.debug("Found POD ID using tag {}: {}", tag, value);
-                return value;
-            }
-        }
-        
-        logger.warn("No POD ID found in XML");
-        return "UNKNOWN";
-    }
-
-    /**
-     * Extract OBIS code from various possible locations
-     */
-    private String extractObisCode(Element parent) {
-        // Priority order of tags to check
-        String[] obisTags = {
-            "UtilitiesObjectIdentificationSystemCodeText",  // Found in test.xml
-            "UtilitiesMeasurementTaskTypeCode",
-            "MeasuredQuantityTypeCode",
-            "ObisCode",
-            "OBIS"
-        };
-        
-        for (String tag : obisTags) {
-            String value = getElementTextDeep(parent, tag);
-            if (value != null && !value.isEmpty()) {
-                logger.debug("Found OBIS code using tag {}: {}", tag, value);
-                return value;
-            }
-        }
-        
-        logger.warn("No OBIS code found in XML");
-        return "UNKNOWN";
-    }
-
-    /**
-     * Extract single interval from Item element
-     */
-    private IntervalData extractInterval(Element itemEl) {
-        IntervalData interval = new IntervalData();
-
-        try {
-            // Extract start time - try multiple tag names
-            String startTimeStr = getElementText(itemEl, "UTCValidityStartDateTime");
-            if (startTimeStr == null || startTimeStr.isEmpty()) {
-                startTimeStr = getElementText(itemEl, "StartDateTime");
-            }
-            if (startTimeStr == null || startTimeStr.isEmpty()) {
-                startTimeStr = getElementText(itemEl, "UtilitiesTimeSeriesItemDateTime");
-            }
-            
-            if (startTimeStr != null && !startTimeStr.isEmpty()) {
-                interval.setStartDateTime(parseDateTime(startTimeStr));
-            } else {
-                logger.warn("No start time found in Item element");
-                return null;
-            }
-
-            // Extract value from Quantity element
-            Element quantityEl = getFirstChildElement(itemEl, "Quantity");
-            if (quantityEl != null) {
-                String valueStr = quantityEl.getTextContent().trim();
-                try {
-                    interval.setValue(new BigDecimal(valueStr));
-                } catch (NumberFormatException e) {
-                    logger.warn("Invalid quantity value: {}", valueStr);
-                    interval.setValue(BigDecimal.ZERO);
-                }
-                
-                // Extract unit from attribute
-                String unit = quantityEl.getAttribute("unitCode");
-                interval.setUnitCode(unit != null && !unit.isEmpty() ? unit : "KWH");
-            } else {
-                // Try direct Value element
-                String valueStr = getElementText(itemEl, "Value");
-                if (valueStr != null && !valueStr.isEmpty()) {
-                    try {
-                        interval.setValue(new BigDecimal(valueStr.trim()));
-                    } catch (NumberFormatException e) {
-                        interval.setValue(BigDecimal.ZERO);
-                    }
-                }
-                interval.setUnitCode("KWH");
-            }
-
-            // Extract status from ItemStatus
-            String status = extractStatus(itemEl);
-            interval.setStatus(status != null ? status : "W");
-
-        } catch (Exception e) {
-            logger.warn("Error extracting interval", e);
-            return null;
-        }
-
-        return interval;
-    }
-
-    /**
-     * Extract status from ItemStatus element
-     */
-    private String extractStatus(Element itemEl) {
-        // Try to find ItemStatus/UtilitiesTimeSeriesItemTypeCode
-        Element statusEl = getFirstChildElement(itemEl, "ItemStatus");
-        if (statusEl != null) {
-            String status = getElementText(statusEl, "UtilitiesTimeSeriesItemTypeCode");
-            if (status != null && !status.isEmpty()) {
-                return status;
-            }
-        }
-        
-        // Try direct StatusRef
-        String status = getElementText(itemEl, "StatusRef");
-        if (status != null && !status.isEmpty()) {
-            return status;
-        }
-        
-        return "W"; // Default status
-    }
-
-    /**
-     * Get first child element with given tag name
-     */
-    private Element getFirstChildElement(Element parent, String tagName) {
-        NodeList nodes = parent.getElementsByTagName(tagName);
-        if (nodes.getLength() > 0) {
-            return (Element) nodes.item(0);
-        }
-        return null;
-    }
-
-    /**
-     * Get text content of first matching child element (direct children only)
-     */
-    private String getElementText(Element parent, String tagName) {
-        NodeList nodes = parent.getElementsByTagName(tagName);
-        if (nodes.getLength() > 0) {
-            String text = nodes.item(0).getTextContent();
-            return text != null ? text.trim() : null;
-        }
-        return null;
-    }
-
-    /**
-     * Get text content searching deeply in the element tree
-     */
-    private String getElementTextDeep(Element parent, String tagName) {
-        // Try without namespace first
-        NodeList nodes = parent.getElementsByTagName(tagName);
-        if (nodes.getLength() > 0) {
-            String text = nodes.item(0).getTextContent();
-            return text != null ? text.trim() : null;
-        }
-        
-        // Try with SAP Global namespace
-        nodes = parent.getElementsByTagNameNS(NS_SAP_GLOBAL, tagName);
-        if (nodes.getLength() > 0) {
-            String text = nodes.item(0).getTextContent();
-            return text != null ? text.trim() : null;
-        }
-        
-        return null;
-    }
-
-    /**
-     * Parse datetime string to LocalDateTime
-     */
-    private LocalDateTime parseDateTime(String dateTimeStr) {
-        if (dateTimeStr == null || dateTimeStr.isEmpty()) {
-            return null;
-        }
-
-        try {
-            String cleaned = dateTimeStr.trim();
-            
-            // Handle UTC format: 2025-11-23T22:00:00Z
-            if (cleaned.endsWith("Z")) {
-                return LocalDateTime.parse(cleaned, UTC_FORMATTER);
-            }
-            
-            // Handle ISO format with timezone offset
-            if (cleaned.contains("T")) {
-                if (cleaned.contains("+") || cleaned.lastIndexOf("-") > 10) {
-                    // Has timezone offset, take first 19 chars
-                    return LocalDateTime.parse(cleaned.substring(0, 19), 
-                        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss"));
-                } else {
-                    return LocalDateTime.parse(cleaned, ISO_FORMATTER);
-                }
-            }
-
-            // Try simple format
-            return LocalDateTime.parse(cleaned, 
-                DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-
-        } catch (Exception e) {
-            logger.warn("Could not parse datetime: {} - {}", dateTimeStr, e.getMessage());
-            return null;
-        }
-    }
-}
+package com.hedno.integration.processor;
+
+import com.hedno.integration.service.SchemaValidation;
+import com.hedno.integration.service.SymbolTable;
+import com.hedno.integration.service.XmlParserPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Load Profile Data Extractor.
+ * Parses MDM XML and extracts load profile data.
+ *
+ * Supports:
+ * - ZFA format (UtilitiesTimeSeriesERPItemBulkNotification)
+ * - UtilitiesTimeSeriesERPItemNotificationMessage format
+ * - Generic interval data format
+ *
+ * The document is read in a single forward pass (StAX). Every element name we
+ * care about is resolved once against a static extraction plan, so the cost is
+ * linear in the size of the document instead of one subtree search per
+ * message, time series and Item.
+ *
+ * Optional XSD validation (SchemaValidation) runs in the same pass: the events
+ * of the validated subtree are forwarded to a ValidatorHandler.
+ *
+ * @author HEDNO Integration Team
+ * @version 3.2 - Single-pass extraction plan
+ */
+public class LoadProfileDataExtractor {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadProfileDataExtractor.class);
+
+    // Date formatters
+    private static final DateTimeFormatter ISO_FORMATTER = DateTimeFormatter.ISO_DATE_TIME;
+    private static final DateTimeFormatter UTC_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
+    private static final DateTimeFormatter OFFSET_PREFIX_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+    private static final DateTimeFormatter SIMPLE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // Candidate tags, in priority order (first non-empty wins)
+    private static final String[] UUID_TAGS = {"UUID", "uuid", "MessageID", "messageId"};
+
+    private static final String[] POD_TAGS = {
+        "UtilitiesPointOfDeliveryPartyID",
+        "UtilitiesDeviceID",
+        "MeteringPointID",
+        "ServicePointChannelID",
+        "POD_ID",
+        "PodId"
+    };
+
+    private static final String[] OBIS_TAGS = {
+        "UtilitiesObjectIdentificationSystemCodeText",
+        "UtilitiesMeasurementTaskTypeCode",
+        "MeasuredQuantityTypeCode",
+        "ObisCode",
+        "OBIS"
+    };
+
+    private static final String[] START_TAGS = {
+        "UTCValidityStartDateTime",
+        "StartDateTime",
+        "UtilitiesTimeSeriesItemDateTime"
+    };
+
+    /**
+     * Role of an element in the extraction plan
+     */
+    private enum Role {
+        NOTIFICATION_MESSAGE,   // UtilitiesTimeSeriesERPItemNotificationMessage
+        BULK_MESSAGE,           // UtilitiesTimeSeriesERPItemBulkNotificationMessage
+        TIME_SERIES,            // UtilitiesTimeSeries
+        ITEM,                   // Item
+        QUANTITY,               // Item/Quantity (value + unitCode)
+        VALUE,                  // Item/Value (generic format)
+        ITEM_STATUS,            // Item/ItemStatus
+        STATUS_CODE,            // Item/ItemStatus/UtilitiesTimeSeriesItemTypeCode
+        STATUS_REF,             // Item/StatusRef (generic format)
+        START,                  // Item start time candidates
+        UUID,                   // Message UUID candidates
+        POD,                    // POD ID candidates
+        OBIS                    // OBIS code candidates
+    }
+
+    /**
+     * Compiled extraction plan: element local name -> role and candidate priority
+     */
+    private static final Map<String, PlanEntry> PLAN = new HashMap<>();
+
+    static {
+        PLAN.put("UtilitiesTimeSeriesERPItemNotificationMessage", new PlanEntry(Role.NOTIFICATION_MESSAGE, 0));
+        PLAN.put("UtilitiesTimeSeriesERPItemBulkNotificationMessage", new PlanEntry(Role.BULK_MESSAGE, 0));
+        PLAN.put("UtilitiesTimeSeries", new PlanEntry(Role.TIME_SERIES, 0));
+        PLAN.put("Item", new PlanEntry(Role.ITEM, 0));
+        PLAN.put("Quantity", new PlanEntry(Role.QUANTITY, 0));
+        PLAN.put("Value", new PlanEntry(Role.VALUE, 0));
+        PLAN.put("ItemStatus", new PlanEntry(Role.ITEM_STATUS, 0));
+        PLAN.put("UtilitiesTimeSeriesItemTypeCode", new PlanEntry(Role.STATUS_CODE, 0));
+        PLAN.put("StatusRef", new PlanEntry(Role.STATUS_REF, 0));
+        register(START_TAGS, Role.START);
+        register(UUID_TAGS, Role.UUID);
+        register(POD_TAGS, Role.POD);
+        register(OBIS_TAGS, Role.OBIS);
+    }
+
+    private static void register(String[] tags, Role role) {
+        for (int i = 0; i < tags.length; i++) {
+            PLAN.put(tags[i], new PlanEntry(role, i));
+        }
+    }
+
+    private final XMLInputFactory inputFactory;
+
+    public LoadProfileDataExtractor() {
+        this.inputFactory = XmlParserPool.xmlInputFactory();
+    }
+
+    /**
+     * Extract load profiles from XML string
+     *
+     * @param xmlContent The XML content
+     * @return List of extracted load profiles
+     */
+    public List<LoadProfileData> extractFromXml(String xmlContent) throws Exception {
+        return extractFromXml(xmlContent, null);
+    }
+
+    /**
+     * Extract load profiles from XML string, validating it against the schema
+     * in the same pass
+     *
+     * @param xmlContent The XML content
+     * @param validation Schema validation, or null / disabled for none
+     * @return List of extracted load profiles
+     * @throws XMLStreamException on malformed XML or, in REJECT mode, on a schema error
+     */
+    public List<LoadProfileData> extractFromXml(String xmlContent, SchemaValidation validation) throws Exception {
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(new StringReader(xmlContent));
+        ValidationBridge bridge = null;
+        try {
+            if (validation != null && validation.isEnabled()) {
+                bridge = new ValidationBridge(validation.open(), validation.getRootElement(), reader);
+            }
+            return extract(reader, bridge);
+        } catch (SAXException e) {
+            throw new XMLStreamException("Schema validation failed: " + e.getMessage(), e);
+        } finally {
+            if (bridge != null) {
+                bridge.session.close();
+            }
+            reader.close();
+        }
+    }
+
+    /**
+     * Run the extraction plan over the stream in one forward pass.
+     *
+     * Profiles found inside notification messages take precedence; when the
+     * document has none, every UtilitiesTimeSeries element becomes a profile.
+     */
+    private List<LoadProfileData> extract(XMLStreamReader reader, ValidationBridge bridge)
+            throws XMLStreamException, SAXException {
+        ExtractionState state = new ExtractionState();
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    state.depth++;
+                    if (bridge != null) {
+                        bridge.startElement(state.depth);
+                    }
+                    startElement(reader, state);
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (bridge != null) {
+                        bridge.characters();
+                    }
+                    if (state.capturing) {
+                        state.text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    endElement(reader, state);
+                    if (bridge != null) {
+                        bridge.endElement(state.depth);
+                    }
+                    state.depth--;
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (bridge != null) {
+            bridge.finish();
+        }
+
+        String messageUuid = firstNonEmpty(state.uuidCandidates);
+        if (messageUuid == null) {
+            messageUuid = UUID.randomUUID().toString().toUpperCase();
+            logger.debug("No UUID found in XML, generated: {}", messageUuid);
+        } else {
+            logger.debug("Extracted message UUID: {}", messageUuid);
+        }
+        // Notification messages take precedence over bulk notification messages
+        Role messageRole = state.messageCounts.containsKey(Role.NOTIFICATION_MESSAGE)
+            ? Role.NOTIFICATION_MESSAGE : Role.BULK_MESSAGE;
+        logger.debug("Found {} notification message elements",
+            state.messageCounts.getOrDefault(messageRole, 0));
+
+        List<LoadProfileData> profiles = new ArrayList<>();
+        if (state.messageCounts.containsKey(messageRole)) {
+            profiles = collect(state.messageProfiles.get(messageRole), messageUuid);
+        }
+
+        if (profiles.isEmpty()) {
+            logger.debug("No profiles from notification messages, trying direct TimeSeries extraction");
+            profiles = collect(state.allProfiles, messageUuid);
+        }
+
+        logger.info("Extracted {} load profiles from XML", profiles.size());
+        return profiles;
+    }
+
+    private void startElement(XMLStreamReader reader, ExtractionState state) {
+        PlanEntry entry = PLAN.get(reader.getLocalName());
+        if (entry == null) {
+            return;
+        }
+
+        TimeSeriesState ts = state.timeSeries;
+        ItemState item = ts != null ? ts.item : null;
+
+        switch (entry.role) {
+            case NOTIFICATION_MESSAGE:
+            case BULK_MESSAGE:
+                state.openMessages.push(new MessageState(entry.role, state.depth));
+                state.messageCounts.merge(entry.role, 1, Integer::sum);
+                break;
+
+            case TIME_SERIES:
+                if (ts == null) {
+                    ts = new TimeSeriesState(state.depth);
+                    // Each message contributes its first UtilitiesTimeSeries only
+                    for (MessageState message : state.openMessages) {
+                        if (!message.hasTimeSeries) {
+                            message.hasTimeSeries = true;
+                            ts.messageRoles.add(message.role);
+                        }
+                    }
+                    state.timeSeries = ts;
+                }
+                break;
+
+            case ITEM:
+                if (ts != null && item == null) {
+                    ts.item = new ItemState(state.depth);
+                    ts.itemCount++;
+                }
+                break;
+
+            case QUANTITY:
+                if (item != null && !item.hasQuantity) {
+                    item.hasQuantity = true;
+                    String unit = reader.getAttributeValue(null, "unitCode");
+                    item.unitCode = unit != null && !unit.isEmpty() ? unit : "KWH";
+                    beginCapture(state, entry);
+                }
+                break;
+
+            case VALUE:
+                if (item != null && !item.valueSeen) {
+                    beginCapture(state, entry);
+                }
+                break;
+
+            case ITEM_STATUS:
+                if (item != null && item.statusDepth == 0 && !item.seenItemStatus) {
+                    item.statusDepth = state.depth;
+                    item.seenItemStatus = true;
+                }
+                break;
+
+            case STATUS_CODE:
+                if (item != null && item.statusDepth > 0 && item.statusCode == null) {
+                    beginCapture(state, entry);
+                }
+                break;
+
+            case STATUS_REF:
+                if (item != null && item.statusRef == null) {
+                    beginCapture(state, entry);
+                }
+                break;
+
+            case START:
+                if (item != null && !item.startSeen[entry.priority]) {
+                    beginCapture(state, entry);
+                }
+                break;
+
+            case UUID:
+                if (state.uuidCandidates[entry.priority] == null) {
+                    beginCapture(state, entry);
+                }
+                break;
+
+            case POD:
+                if (ts != null && ts.podCandidates[entry.priority] == null) {
+                    beginCapture(state, entry);
+                }
+                break;
+
+            case OBIS:
+                if (ts != null && ts.obisCandidates[entry.priority] == null) {
+                    beginCapture(state, entry);
+                }
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    private void endElement(XMLStreamReader reader, ExtractionState state) {
+        TimeSeriesState ts = state.timeSeries;
+        ItemState item = ts != null ? ts.item : null;
+
+        // Finish an active text capture
+        if (state.capturing && state.captureDepth == state.depth) {
+            PlanEntry entry = state.captureEntry;
+            state.capturing = false;
+            state.captureEntry = null;
+            state.captureDepth = 0;
+            if (entry.role == Role.QUANTITY || entry.role == Role.VALUE) {
+                storeValue(state, item);
+            } else if (entry.role == Role.START) {
+                storeStart(state, item, entry);
+            } else {
+                storeCapture(state, ts, item, entry, state.text.toString().trim());
+            }
+        }
+
+        if (item != null && item.statusDepth == state.depth) {
+            item.statusDepth = 0;
+        }
+
+        if (item != null && item.depth == state.depth) {
+            appendInterval(ts.profile.getColumns(), item);
+            ts.item = null;
+            return;
+        }
+
+        if (ts != null && ts.depth == state.depth) {
+            finishTimeSeries(state, ts);
+            state.timeSeries = null;
+            return;
+        }
+
+        MessageState message = state.openMessages.peek();
+        if (message != null && message.depth == state.depth) {
+            state.openMessages.pop();
+        }
+    }
+
+    private void beginCapture(ExtractionState state, PlanEntry entry) {
+        if (!state.capturing) {
+            state.capturing = true;
+            state.text.setLength(0);
+            state.captureEntry = entry;
+            state.captureDepth = state.depth;
+        }
+    }
+
+    /**
+     * Parse a captured quantity straight from the text buffer into a scaled long
+     */
+    private void storeValue(ExtractionState state, ItemState item) {
+        if (item == null || item.valueSeen) {
+            return;
+        }
+        StringBuilder text = state.text;
+        item.valueSeen = true;
+        item.valueBlank = FixedPointDecimal.isBlank(text, 0, text.length());
+        if (item.valueBlank) {
+            return;
+        }
+        try {
+            item.scaledValue = state.decimals.parse(text);
+            item.valueScale = state.decimals.getLastScale();
+        } catch (NumberFormatException | ArithmeticException e) {
+            item.invalidValue = text.toString().trim();
+        }
+    }
+
+    /**
+     * Parse a captured start time straight from the text buffer. Text outside
+     * the fixed layouts is kept for the DateTimeFormatter fallback.
+     */
+    private void storeStart(ExtractionState state, ItemState item, PlanEntry entry) {
+        if (item == null) {
+            return;
+        }
+        item.startSeen[entry.priority] = true;
+        long local = state.timestamps.parse(state.text);
+        if (local != IsoDateTimeParser.INVALID) {
+            // Offsets are not applied: the local part is read as UTC, as parseDateTime does
+            item.startEpochs[entry.priority] = local;
+        } else {
+            String value = state.text.toString().trim();
+            item.startCandidates[entry.priority] = value.isEmpty() ? null : value;
+        }
+    }
+
+    private void storeCapture(ExtractionState state, TimeSeriesState ts, ItemState item,
+            PlanEntry entry, String value) {
+        switch (entry.role) {
+            case STATUS_CODE:
+                if (item != null) {
+                    item.statusCode = value;
+                }
+                break;
+            case STATUS_REF:
+                if (item != null) {
+                    item.statusRef = value;
+                }
+                break;
+            case UUID:
+                state.uuidCandidates[entry.priority] = value;
+                break;
+            case POD:
+                if (ts != null) {
+                    ts.podCandidates[entry.priority] = value;
+                }
+                break;
+            case OBIS:
+                if (ts != null) {
+                    ts.obisCandidates[entry.priority] = value;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Complete a UtilitiesTimeSeries: resolve POD/OBIS by priority
+     */
+    private void finishTimeSeries(ExtractionState state, TimeSeriesState ts) {
+        String podId = firstNonEmpty(ts.podCandidates);
+        if (podId == null) {
+            logger.warn("No POD ID found in XML");
+            podId = "UNKNOWN";
+        }
+        String obisCode = firstNonEmpty(ts.obisCandidates);
+        if (obisCode == null) {
+            logger.warn("No OBIS code found in XML");
+            obisCode = "UNKNOWN";
+        }
+
+        ts.profile.setPodId(SymbolTable.POD.intern(podId));
+        ts.profile.setObisCode(SymbolTable.OBIS.intern(obisCode));
+
+        logger.debug("Extracted profile: POD={}, OBIS={}, items={}, intervals={}",
+            podId, obisCode, ts.itemCount, ts.profile.getColumns().size());
+
+        state.allProfiles.add(ts.profile);
+        for (Role role : ts.messageRoles) {
+            state.messageProfiles.get(role).add(ts.profile);
+        }
+    }
+
+    /**
+     * Append the values collected for an Item element to the channel columns
+     */
+    private void appendInterval(IntervalColumns columns, ItemState item) {
+        long epochSecond = IntervalColumns.NO_VALUE;
+        boolean found = false;
+        for (int i = 0; i < item.startEpochs.length && !found; i++) {
+            if (item.startEpochs[i] != IntervalColumns.NO_VALUE) {
+                epochSecond = item.startEpochs[i];
+                found = true;
+            } else if (item.startCandidates[i] != null) {
+                LocalDateTime start = parseDateTime(item.startCandidates[i]);
+                epochSecond = start != null ? start.toEpochSecond(ZoneOffset.UTC) : IntervalColumns.NO_VALUE;
+                found = true;
+            }
+        }
+        if (!found) {
+            logger.warn("No start time found in Item element");
+            return;
+        }
+        long value = IntervalColumns.NO_VALUE;
+        int scale = 0;
+        String unitCode;
+        boolean hasText = item.valueSeen && !item.valueBlank;
+
+        if (item.hasQuantity) {
+            if (hasText && item.invalidValue == null) {
+                value = item.scaledValue;
+                scale = item.valueScale;
+            } else {
+                logger.warn("Invalid quantity value: {}", item.invalidValue != null ? item.invalidValue : "");
+                value = 0;
+            }
+            unitCode = item.unitCode;
+        } else {
+            if (hasText) {
+                if (item.invalidValue == null) {
+                    value = item.scaledValue;
+                    scale = item.valueScale;
+                } else {
+                    value = 0;
+                }
+            }
+            unitCode = "KWH";
+        }
+
+        String status = item.statusCode;
+        if (status == null || status.isEmpty()) {
+            status = item.statusRef;
+        }
+
+        columns.add(epochSecond, value, scale, unitCode, status != null && !status.isEmpty() ? status : "W");
+    }
+
+    private List<LoadProfileData> collect(List<LoadProfileData> candidates, String messageUuid) {
+        List<LoadProfileData> profiles = new ArrayList<>();
+        for (LoadProfileData profile : candidates) {
+            if (!profile.getColumns().isEmpty()) {
+                profile.setMessageUuid(messageUuid);
+                profiles.add(profile);
+            }
+        }
+        return profiles;
+    }
+
+    private static String firstNonEmpty(String[] candidates) {
+        for (String value : candidates) {
+            if (value != null && !value.isEmpty()) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parse datetime string to LocalDateTime
+     */
+    private LocalDateTime parseDateTime(String dateTimeStr) {
+        if (dateTimeStr == null || dateTimeStr.isEmpty()) {
+            return null;
+        }
+
+        try {
+            String cleaned = dateTimeStr.trim();
+
+            // Handle UTC format: 2025-11-23T22:00:00Z
+            if (cleaned.endsWith("Z")) {
+                return LocalDateTime.parse(cleaned, UTC_FORMATTER);
+            }
+
+            // Handle ISO format with timezone offset
+            if (cleaned.contains("T")) {
+                if (cleaned.contains("+") || cleaned.lastIndexOf("-") > 10) {
+                    // Has timezone offset, take first 19 chars
+                    return LocalDateTime.parse(cleaned.substring(0, 19), OFFSET_PREFIX_FORMATTER);
+                } else {
+                    return LocalDateTime.parse(cleaned, ISO_FORMATTER);
+                }
+            }
+
+            // Try simple format
+            return LocalDateTime.parse(cleaned, SIMPLE_FORMATTER);
+
+        } catch (Exception e) {
+            logger.warn("Could not parse datetime: {} - {}", dateTimeStr, e.getMessage());
+            return null;
+        }
+    }
+
+    // ========================================================================
+    // Extraction state
+    // ========================================================================
+
+    /**
+     * Entry of the compiled extraction plan
+     */
+    private static final class PlanEntry {
+        final Role role;
+        final int priority;
+
+        PlanEntry(Role role, int priority) {
+            this.role = role;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * Document-level state of a single extraction pass
+     */
+    private static final class ExtractionState {
+        int depth;
+
+        final String[] uuidCandidates = new String[UUID_TAGS.length];
+
+        final Deque<MessageState> openMessages = new ArrayDeque<>();
+        final Map<Role, Integer> messageCounts = new EnumMap<>(Role.class);
+        final Map<Role, List<LoadProfileData>> messageProfiles = new EnumMap<>(Role.class);
+
+        TimeSeriesState timeSeries;
+        final List<LoadProfileData> allProfiles = new ArrayList<>();
+
+        boolean capturing;
+        final StringBuilder text = new StringBuilder(64);
+        final FixedPointDecimal decimals = new FixedPointDecimal();
+        final IsoDateTimeParser timestamps = new IsoDateTimeParser();
+        PlanEntry captureEntry;
+        int captureDepth;
+
+        ExtractionState() {
+            messageProfiles.put(Role.NOTIFICATION_MESSAGE, new ArrayList<>());
+            messageProfiles.put(Role.BULK_MESSAGE, new ArrayList<>());
+        }
+    }
+
+    /**
+     * State of an open notification message element
+     */
+    private static final class MessageState {
+        final Role role;
+        final int depth;
+        boolean hasTimeSeries;
+
+        MessageState(Role role, int depth) {
+            this.role = role;
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * State of the UtilitiesTimeSeries element currently open
+     */
+    private static final class TimeSeriesState {
+        final int depth;
+        final LoadProfileData profile = new LoadProfileData();
+        final String[] podCandidates = new String[POD_TAGS.length];
+        final String[] obisCandidates = new String[OBIS_TAGS.length];
+        final Set<Role> messageRoles = EnumSet.noneOf(Role.class);
+        int itemCount;
+        ItemState item;
+
+        TimeSeriesState(int depth) {
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * Forwards the StAX events of the validated subtree to the schema
+     * ValidatorHandler, so validation shares the extraction pass
+     */
+    private static final class ValidationBridge implements Locator {
+        final SchemaValidation.Session session;
+        final ContentHandler handler;
+        final String rootElement;
+        final XMLStreamReader reader;
+        final AttributesImpl attributes = new AttributesImpl();
+        int rootDepth;
+        boolean done;
+
+        ValidationBridge(SchemaValidation.Session session, String rootElement, XMLStreamReader reader) {
+            this.session = session;
+            this.handler = session.handler();
+            this.rootElement = rootElement;
+            this.reader = reader;
+        }
+
+        void startElement(int depth) throws SAXException {
+            if (rootDepth == 0) {
+                if (done || !rootElement.equals(reader.getLocalName())) {
+                    return;
+                }
+                rootDepth = depth;
+                handler.setDocumentLocator(this);
+                handler.startDocument();
+            }
+            for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                handler.startPrefixMapping(nonNull(reader.getNamespacePrefix(i)), nonNull(reader.getNamespaceURI(i)));
+            }
+            attributes.clear();
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                attributes.addAttribute(nonNull(reader.getAttributeNamespace(i)), reader.getAttributeLocalName(i),
+                        qName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+                        "CDATA", reader.getAttributeValue(i));
+            }
+            handler.startElement(nonNull(reader.getNamespaceURI()), reader.getLocalName(),
+                    qName(reader.getPrefix(), reader.getLocalName()), attributes);
+        }
+
+        void characters() throws SAXException {
+            if (rootDepth > 0) {
+                handler.characters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            }
+        }
+
+        void endElement(int depth) throws SAXException {
+            if (rootDepth == 0) {
+                return;
+            }
+            handler.endElement(nonNull(reader.getNamespaceURI()), reader.getLocalName(),
+                    qName(reader.getPrefix(), reader.getLocalName()));
+            for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                handler.endPrefixMapping(nonNull(reader.getNamespacePrefix(i)));
+            }
+            if (depth == rootDepth) {
+                handler.endDocument();
+                rootDepth = 0;
+                done = true;
+            }
+        }
+
+        void finish() throws SAXException {
+            if (done) {
+                session.complete();
+            } else {
+                session.reject("Element " + rootElement + " not found");
+            }
+        }
+
+        private static String nonNull(String value) {
+            return value != null ? value : "";
+        }
+
+        private static String qName(String prefix, String localName) {
+            return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+        }
+
+        @Override
+        public String getPublicId() {
+            return null;
+        }
+
+        @Override
+        public String getSystemId() {
+            return null;
+        }
+
+        @Override
+        public int getLineNumber() {
+            return reader.getLocation().getLineNumber();
+        }
+
+        @Override
+        public int getColumnNumber() {
+            return reader.getLocation().getColumnNumber();
+        }
+    }
+
+    /**
+     * State of the Item element currently open
+     */
+    private static final class ItemState {
+        final int depth;
+        final boolean[] startSeen = new boolean[START_TAGS.length];
+        final long[] startEpochs = newStartEpochs();
+        final String[] startCandidates = new String[START_TAGS.length];
+        boolean hasQuantity;
+        boolean valueSeen;
+        boolean valueBlank;
+        long scaledValue;
+        int valueScale;
+        String invalidValue;
+        String unitCode;
+        boolean seenItemStatus;
+        int statusDepth;
+        String statusCode;
+        String statusRef;
+
+        ItemState(int depth) {
+            this.depth = depth;
+        }
+
+        private static long[] newStartEpochs() {
+            long[] epochs = new long[START_TAGS.length];
+            Arrays.fill(epochs, IntervalColumns.NO_VALUE);
+            return epochs;
+        }
+    }
+}
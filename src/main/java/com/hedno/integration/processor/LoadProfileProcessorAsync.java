@@ -3,10 +3,12 @@ package com.hedno.integration.processor;
 import com.hedno.integration.dao.LoadProfileInboundDAO;
 import com.hedno.integration.entity.LoadProfileInbound;
 import com.hedno.integration.entity.LoadProfileInbound.ProcessingStatus;
+import com.hedno.integration.service.AdaptiveConcurrencyLimiter;
+import com.hedno.integration.service.CircuitBreaker;
 import com.hedno.integration.service.SimpleXMLBuilderService;
-import com.hedno.integration.service.SoapClientServiceAsync;
-import com.hedno.integration.service.SoapClientServiceAsync.SoapResponse;
-import com.hedno.integration.service.SoapClientServiceAsync.SoapResponseCallback;
+import com.hedno.integration.service.SimpleXMLBuilderService.ValidationResult;
+import com.hedno.integration.service.SoapClientServiceUpdated.SoapResponse;
+import com.hedno.integration.service.SoapClientServiceUpdated.SoapResponseCallback;
 import com.hedno.integration.service.SoapClientServiceUpdated;
 import com.hedno.integration.service.XMLBuilderService;
 import org.slf4j.Logger;
@@ -17,12 +19,20 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import javax.ejb.*;
+import javax.xml.bind.JAXBException;
+import javax.xml.datatype.DatatypeConfigurationException;
+import java.lang.management.ManagementFactory;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -34,6 +44,21 @@ import java.util.concurrent.atomic.AtomicInteger;
  * - Asynchronous SOAP calls with callbacks
  * - Preserves original Message ID for manual retry
  * - Improved concurrent processing
+ * - Concurrency adapts to SAP latency and errors (AdaptiveConcurrencyLimiter);
+ *   nothing is dispatched while the SAP circuit is open (CircuitBreaker)
+ * - PENDING messages are coalesced into bulk notifications of up to
+ *   processor.max.profiles.per.message profiles (NotificationCoalescer);
+ *   the outcome of each SOAP call is applied to every message it carried
+ * - Failed deliveries are retried after a jittered exponential backoff
+ *   (RetryBackoff, NEXT_ATTEMPT_AT)
+ * - Messages are claimed with SELECT ... FOR UPDATE SKIP LOCKED under a
+ *   lease, so several nodes can run the processor; leases of crashed nodes
+ *   are recovered
+ * - Dispatching is continuous: every completed SOAP call refills its slot
+ *   from the queue at once, so a slow SAP response no longer holds back the
+ *   rest of the batch; the timer is a watchdog (lease recovery, stuck
+ *   deliveries, picking up new work while idle). Dispatch tasks run one at a
+ *   time on the container's ManagedExecutorService
  * 
  * @author HEDNO Integration Team
  * @version 3.0
@@ -55,8 +80,14 @@ public class LoadProfileProcessorAsync {
     private static final int DEFAULT_MAX_PROFILES_PER_MESSAGE = 10;
     private static final long ASYNC_TIMEOUT_MS = 120000;
     private static final int DEFAULT_MAX_RETRIES = 5;
+    private static final long DEFAULT_COALESCE_MAX_BYTES = 1048576;
+    private static final long DEFAULT_RETRY_BACKOFF_BASE_MS = 30000;
+    private static final long DEFAULT_RETRY_BACKOFF_MAX_MS = 1800000;
+    private static final long DEFAULT_LEASE_MS = 300000;
     // Services
     private LoadProfileInboundDAO dao;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter = AdaptiveConcurrencyLimiter.getInstance();
+    private final CircuitBreaker circuitBreaker = CircuitBreaker.getInstance();
 
 
     // Configuration
@@ -65,9 +96,16 @@ public class LoadProfileProcessorAsync {
     private int maxConcurrent;
     private int maxProfilesPerMessage;
     private int maxRetryAttempts;
+    private long coalesceMaxBytes;
+    private NotificationCoalescer coalescer;
+    private RetryBackoff retryBackoff;
+    private String nodeId;
+    private long leaseMs;
 
-    // Processing state
+    // Processing state: isProcessing is held by the single running dispatch task
     private final AtomicBoolean isProcessing = new AtomicBoolean(false);
+    private final AtomicBoolean dispatchRequested = new AtomicBoolean(false);
+    private volatile boolean shuttingDown;
     private final AtomicInteger activeAsyncRequests = new AtomicInteger(0);
     private final Map<String, ProcessingContext> activeContexts = new ConcurrentHashMap<>();
     private Timer processingTimer;
@@ -80,6 +118,11 @@ public class LoadProfileProcessorAsync {
     @Resource
     private TimerService timerService;
 
+    // Claims and dispatches run here, never on the timer or SOAP callback threads
+    // (the container's default ManagedExecutorService, Java EE 7)
+    @Resource(lookup = "java:comp/DefaultManagedExecutorService")
+    private ExecutorService dispatcher;
+
     /**
      * Processing context for tracking async operations
      */
@@ -89,31 +132,41 @@ public class LoadProfileProcessorAsync {
         final CountDownLatch latch;
         volatile boolean completed;
         volatile int httpStatusCode;
+        final long breakerPermission;
+        boolean outcomeRecorded;
 
-        ProcessingContext(String messageUuid) {
+        ProcessingContext(String messageUuid, long breakerPermission) {
             this.messageUuid = messageUuid;
+            this.breakerPermission = breakerPermission;
             this.startTime = System.currentTimeMillis();
             this.latch = new CountDownLatch(1);
             this.completed = false;
             this.httpStatusCode = -1;
         }
     }
-private SimpleXMLBuilderService xmlBuilder;
-private SoapClientServiceUpdated soapClient;
+    private SimpleXMLBuilderService xmlBuilder;
+    private SoapClientServiceUpdated soapClient;
+
     /**
      * Initialize the processor on startup
      */
-@PostConstruct
-public void initialize() {
-    // Initialize with new services
-    xmlBuilder = new SimpleXMLBuilderService();
-    
-    String endpointUrl = System.getProperty("endpoint.url");
-    String username = System.getProperty("endpoint.username", "");
-    String password = System.getProperty("endpoint.password", "");
-    
-    soapClient = new SoapClientServiceUpdated(endpointUrl, username, password);
-}
+    @PostConstruct
+    public void initialize() {
+        logger.info("Initializing Async LoadProfileProcessor...");
+        loadConfiguration();
+
+        dao = new LoadProfileInboundDAO();
+        xmlBuilder = new SimpleXMLBuilderService();
+
+        String endpointUrl = System.getProperty("endpoint.url");
+        String username = System.getProperty("endpoint.username", "");
+        String password = System.getProperty("endpoint.password", "");
+
+        soapClient = new SoapClientServiceUpdated(endpointUrl, username, password);
+
+        startProcessingTimer();
+        logger.info("Async LoadProfileProcessor initialized on node {}", nodeId);
+    }
 
     /**
      * Cleanup on shutdown
@@ -121,11 +174,13 @@ public void initialize() {
     @PreDestroy
     public void shutdown() {
         logger.info("Shutting down Async LoadProfileProcessor...");
+        shuttingDown = true;
 
         // Cancel timer
         if (processingTimer != null) {
             processingTimer.cancel();
         }
+        // The dispatcher belongs to the container: a running dispatch ends on shuttingDown
 
         // Wait for current processing to complete
         int waitCount = 0;
@@ -176,12 +231,34 @@ public void initialize() {
         maxRetryAttempts = Integer.parseInt(
                 System.getProperty("processor.max.retries",
                         String.valueOf(DEFAULT_MAX_RETRIES)));
+        coalesceMaxBytes = Long.parseLong(
+                System.getProperty("processor.coalesce.max.bytes",
+                        String.valueOf(DEFAULT_COALESCE_MAX_BYTES)));
+
+        // WebLogic server name, else pid@host
+        nodeId = System.getProperty("processor.node.id",
+                System.getProperty("weblogic.Name", ManagementFactory.getRuntimeMXBean().getName()));
+        leaseMs = Long.parseLong(
+                System.getProperty("processor.lease.ms",
+                        String.valueOf(DEFAULT_LEASE_MS)));
+
+        retryBackoff = new RetryBackoff(
+                Long.parseLong(System.getProperty("processor.retry.backoff.base.ms",
+                        String.valueOf(DEFAULT_RETRY_BACKOFF_BASE_MS))),
+                Long.parseLong(System.getProperty("processor.retry.backoff.max.ms",
+                        String.valueOf(DEFAULT_RETRY_BACKOFF_MAX_MS))));
 
-        logger.info("Configuration loaded - ... Max Retries: {}",
-                maxRetryAttempts);
+        try {
+            coalescer = new NotificationCoalescer(new XMLBuilderService(maxProfilesPerMessage), coalesceMaxBytes);
+        } catch (JAXBException | DatatypeConfigurationException e) {
+            throw new IllegalStateException("Cannot create XMLBuilderService", e);
+        }
 
-        logger.info("Configuration loaded - Interval: {}ms, Batch: {}, Max Concurrent: {}, Max Profiles/Msg: {}",
-                processingIntervalMs, batchSize, maxConcurrent, maxProfilesPerMessage);
+        logger.info("Configuration loaded - ... Max Retries: {}, Node: {}, Lease: {}ms",
+                maxRetryAttempts, nodeId, leaseMs);
+
+        logger.info("Configuration loaded - Interval: {}ms, Batch: {}, Max Concurrent: {}, Max Profiles/Msg: {}, Max Bytes/Msg: {}",
+                processingIntervalMs, batchSize, maxConcurrent, maxProfilesPerMessage, coalesceMaxBytes);
     }
 
     /**
@@ -203,7 +280,7 @@ public void initialize() {
     }
 
     /**
-     * Timer callback for periodic processing
+     * Timer callback: watchdog for the continuous dispatcher
      */
     @Timeout
     public void processMessages(Timer timer) {
@@ -211,153 +288,268 @@ public void initialize() {
             return;
         }
 
-        // Check if already processing
-        if (!isProcessing.compareAndSet(false, true)) {
-            logger.debug("Processing already in progress, skipping this cycle");
+        try {
+            // Messages claimed by a node that crashed or was stopped go back to PENDING
+            dao.recoverExpiredLeases();
+
+            long now = System.currentTimeMillis();
+            for (ProcessingContext context : activeContexts.values()) {
+                if (now - context.startTime > ASYNC_TIMEOUT_MS) {
+                    logger.warn("Message {} still waiting for SAP after {} ms",
+                            context.messageUuid, now - context.startTime);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error in processing watchdog", e);
+        }
+
+        // Completions keep the pipeline full; this picks up work that arrived
+        // while nothing was in flight (or while the circuit was open)
+        requestDispatch();
+    }
+
+    /**
+     * Ask the dispatcher to fill the free slots. At most one dispatch task
+     * runs at a time; requests made while it runs are merged into one more
+     * round of that task.
+     */
+    private void requestDispatch() {
+        dispatchRequested.set(true);
+        if (shuttingDown || !isProcessing.compareAndSet(false, true)) {
             return;
         }
+        try {
+            dispatcher.execute(this::runDispatch);
+        } catch (RejectedExecutionException e) {
+            isProcessing.set(false);
+            logger.warn("Dispatcher rejected the dispatch task; retried on the next timer tick");
+        }
+    }
 
+    private void runDispatch() {
         try {
-            doProcessMessages();
+            while (!shuttingDown && dispatchRequested.getAndSet(false)) {
+                doProcessMessages();
+            }
         } finally {
             isProcessing.set(false);
         }
+        // A request that came in after the last round but before isProcessing was cleared
+        if (dispatchRequested.get()) {
+            requestDispatch();
+        }
     }
 
     /**
-     * Main processing logic with async operations
+     * Claim and dispatch as many deliveries as there are free slots; returns
+     * without waiting for SAP
      */
     private void doProcessMessages() {
-        logger.debug("Starting async message processing cycle...");
+        logger.debug("Filling free dispatch slots...");
 
         try {
-            // Check if we have capacity for new async requests
-            if (activeAsyncRequests.get() >= maxConcurrent) {
-                logger.info("Max concurrent requests reached ({}), skipping this cycle",
-                        activeAsyncRequests.get());
+            // Nothing goes out while SAP is considered down
+            if (!circuitBreaker.isCallPermitted()) {
+                logger.debug("SAP circuit is {}, nothing dispatched", circuitBreaker.getState());
                 return;
             }
 
-            // Calculate how many messages we can process
-            int availableSlots = Math.min(batchSize, maxConcurrent - activeAsyncRequests.get());
+            // Check if we have capacity for new async requests: the adaptive
+            // limit, capped by processor.max.concurrent
+            int availableSlots = Math.min(batchSize, Math.min(
+                    maxConcurrent - activeAsyncRequests.get(), concurrencyLimiter.available()));
+            if (availableSlots <= 0) {
+                logger.debug("Concurrency limit reached ({} active, limit {}), nothing dispatched",
+                        activeAsyncRequests.get(), concurrencyLimiter.getLimit());
+                return;
+            }
 
-            // Fetch messages ready for processing (PENDING status only)
-            List<LoadProfileInbound> messages = dao.getMessagesForProcessing(availableSlots);
+            // Claim messages ready for processing (due PENDING ones not claimed
+            // by another node); each slot can carry up to maxProfilesPerMessage of them
+            List<LoadProfileInbound> messages = dao.claimMessagesForProcessing(
+                    availableSlots * maxProfilesPerMessage, nodeId, leaseMs);
 
             if (messages.isEmpty()) {
                 logger.debug("No messages to process");
                 return;
             }
 
-            logger.info("Processing {} messages asynchronously", messages.size());
-
-            // Process each message asynchronously
-            CountDownLatch batchLatch = new CountDownLatch(messages.size());
-
-            for (LoadProfileInbound message : messages) {
-                processMessageAsync(message, batchLatch);
+            List<NotificationCoalescer.Delivery> deliveries = coalescer.coalesce(messages, availableSlots);
+
+            // Take a breaker permission and a limiter slot per delivery; the
+            // rest goes back to PENDING until a slot frees up (a half-open
+            // breaker lets a single probe through)
+            List<NotificationCoalescer.Delivery> dispatched = new ArrayList<>(deliveries.size());
+            List<Long> permissions = new ArrayList<>(deliveries.size());
+            int dispatchedMessages = 0;
+            for (NotificationCoalescer.Delivery delivery : deliveries) {
+                long permission = circuitBreaker.tryAcquirePermission();
+                if (permission == CircuitBreaker.NOT_PERMITTED) {
+                    break;
+                }
+                if (!concurrencyLimiter.tryAcquire()) {
+                    circuitBreaker.releasePermission(permission);
+                    break;
+                }
+                dispatched.add(delivery);
+                permissions.add(permission);
+                dispatchedMessages += delivery.getMessages().size();
             }
 
-            // Wait for batch completion with timeout
-            boolean completed = batchLatch.await(ASYNC_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            logger.info("Processing {} of {} messages asynchronously in {} SOAP calls",
+                    dispatchedMessages, messages.size(), dispatched.size());
+            releaseClaims(messages, dispatched);
 
-            if (!completed) {
-                logger.warn("Batch processing timeout - some messages may still be processing");
+            // Process each delivery asynchronously; each completion refills its slot
+            for (int i = 0; i < dispatched.size(); i++) {
+                processMessageAsync(dispatched.get(i), permissions.get(i));
             }
 
-            logger.info("Processing cycle complete - Active async requests: {}",
-                    activeAsyncRequests.get());
+            logger.debug("Dispatch complete - Active async requests: {}", activeAsyncRequests.get());
 
         } catch (Exception e) {
-            logger.error("Error in processing cycle", e);
+            logger.error("Error dispatching messages", e);
         }
     }
 
     /**
-     * Process individual message asynchronously
+     * Return claimed messages that could not be dispatched to PENDING
      */
-    private void processMessageAsync(LoadProfileInbound message, CountDownLatch batchLatch) {
-        String messageUuid = message.getMessageUuid();
-        logger.info("Starting async processing for message: {}", messageUuid);
+    private void releaseClaims(List<LoadProfileInbound> claimed, List<NotificationCoalescer.Delivery> dispatched) {
+        Set<LoadProfileInbound> sent = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (NotificationCoalescer.Delivery delivery : dispatched) {
+            sent.addAll(delivery.getMessages());
+        }
+        List<LoadProfileInbound> released = new ArrayList<>();
+        for (LoadProfileInbound message : claimed) {
+            if (!sent.contains(message)) {
+                message.setStatus(ProcessingStatus.PENDING);
+                message.setProcessingStartTime(null);
+                message.setLeaseExpiresAt(null);
+                released.add(message);
+            }
+        }
+        if (!released.isEmpty()) {
+            dao.updateStatus(released);
+            logger.debug("Released {} claimed messages", released.size());
+        }
+    }
+
+    /**
+     * Process one delivery (a single message or a coalesced notification) asynchronously
+     *
+     * @param breakerPermission Circuit breaker permission the outcome is reported with
+     */
+    private void processMessageAsync(NotificationCoalescer.Delivery delivery, long breakerPermission) {
+        String messageUuid = delivery.getMessageUuid();
+        List<LoadProfileInbound> messages = delivery.getMessages();
+        if (delivery.isCoalesced()) {
+            logger.info("Starting async processing for notification {} ({} messages, {} profiles)",
+                    messageUuid, messages.size(), delivery.getProfileCount());
+        } else {
+            logger.info("Starting async processing for message: {}", messageUuid);
+        }
 
         // Create processing context
-        ProcessingContext context = new ProcessingContext(messageUuid);
+        ProcessingContext context = new ProcessingContext(messageUuid, breakerPermission);
         activeContexts.put(messageUuid, context);
         activeAsyncRequests.incrementAndGet();
 
-        // Update status to PROCESSING
-        message.setStatus(ProcessingStatus.PROCESSING);
-        message.setProcessingStartTime(new Timestamp(System.currentTimeMillis()));
-        dao.updateStatus(message);
+        // Update status to PROCESSING and count the attempt
+        Timestamp startTime = new Timestamp(System.currentTimeMillis());
+        for (LoadProfileInbound message : messages) {
+            message.setStatus(ProcessingStatus.PROCESSING);
+            message.setProcessingStartTime(startTime);
+            message.setLastAttemptTimestamp(startTime);
+            message.setAttemptCount(message.getAttemptCount() + 1);
+        }
+        dao.updateStatus(messages);
 
         try {
-            // Validate XML
-            if (!xmlBuilder.validateXml(message.getRawPayload())) {
-                throw new IllegalArgumentException("XML validation failed");
+            // A coalesced payload is built from messages that were parsed as
+            // bulk notifications; a single message is checked as received,
+            // once (PROFILE_COUNT is stored with the outcome for its retries)
+            LoadProfileInbound single = messages.get(0);
+            if (!delivery.isCoalesced() && single.getProfileCount() == null) {
+                ValidationResult validation = xmlBuilder.inspect(delivery.getPayload());
+                if (!validation.isValid()) {
+                    throw new IllegalArgumentException("XML validation failed: " + validation.getErrors());
+                }
+
+                // UUID in the XML should match the database UUID
+                if (!messageUuid.equals(validation.getMessageId())) {
+                    logger.warn("UUID mismatch - DB: {}, XML: {} - Using DB UUID",
+                            messageUuid, validation.getMessageId());
+                }
+                single.setProfileCount(validation.getProfileCount());
             }
 
-            // Extract UUID from XML (should match database UUID)
-            String xmlUuid = xmlBuilder.extractMessageUuid(message.getRawPayload());
-            if (!messageUuid.equals(xmlUuid)) {
-                logger.warn("UUID mismatch - DB: {}, XML: {} - Using DB UUID",
-                        messageUuid, xmlUuid);
+            SoapResponseCallback callback = new SoapResponseCallback() {
+                @Override
+                public void onSuccess(SoapResponse response) {
+                    handleAsyncSuccess(messages, response, context);
+                }
+
+                @Override
+                public void onFailure(SoapResponse response) {
+                    handleAsyncFailure(messages, response, context);
+                }
+
+                @Override
+                public void onException(String messageId, Exception e) {
+                    handleAsyncException(messages, e, context);
+                }
+            };
+
+            // Send asynchronously with callback; a merged notification is
+            // streamed to the connection from the model
+            if (delivery.isCoalesced()) {
+                soapClient.sendSoapMessageAsync(delivery::writeTo, messageUuid,
+                        delivery.getProfileCount(), callback);
+            } else {
+                soapClient.sendSoapMessageAsync(delivery.getPayload(), messageUuid, callback);
             }
 
-            // Send asynchronously with callback
-            soapClient.sendSoapMessageAsync(
-                    message.getRawPayload(),
-                    messageUuid,
-                    new SoapResponseCallback() {
-                        @Override
-                        public void onSuccess(SoapResponse response) {
-                            handleAsyncSuccess(message, response, context, batchLatch);
-                        }
-
-                        @Override
-                        public void onFailure(SoapResponse response) {
-                            handleAsyncFailure(message, response, context, batchLatch);
-                        }
-
-                        @Override
-                        public void onException(String messageId, Exception e) {
-                            handleAsyncException(message, e, context, batchLatch);
-                        }
-                    });
-
         } catch (Exception e) {
-            // Synchronous error during setup
+            // Synchronous error during setup: nothing was sent to SAP
             logger.error("Error setting up async processing for message {}", messageUuid, e);
-            handleAsyncException(message, e, context, batchLatch);
+            releaseDelivery(context);
+            handleAsyncException(messages, e, context);
         }
     }
 
     /**
      * Handle successful async response (HTTP 200)
      */
-    private void handleAsyncSuccess(LoadProfileInbound message, SoapResponse response,
-            ProcessingContext context, CountDownLatch batchLatch) {
+    private void handleAsyncSuccess(List<LoadProfileInbound> messages, SoapResponse response,
+            ProcessingContext context) {
         try {
-            logger.info("Message {} completed successfully - HTTP {} ({}ms)",
-                    message.getMessageUuid(), response.getStatusCode(), response.getResponseTimeMs());
+            recordOutcome(context, false);
+            Timestamp endTime = new Timestamp(System.currentTimeMillis());
+            for (LoadProfileInbound message : messages) {
+                logger.info("Message {} completed successfully - HTTP {} ({}ms)",
+                        message.getMessageUuid(), response.getStatusCode(), response.getResponseTimeMs());
 
-            // Update to COMPLETED status
-            message.setStatus(ProcessingStatus.COMPLETED);
-            message.setLastHttpStatusCode(response.getStatusCode());
-            message.setLastResponseMessage(response.getStatusMessage());
-            message.setProcessingEndTime(new Timestamp(System.currentTimeMillis()));
-            message.setLastErrorMessage(null);
-            dao.updateStatus(message);
+                // Update to COMPLETED status
+                message.setStatus(ProcessingStatus.COMPLETED);
+                message.setLeaseExpiresAt(null);
+                message.setLastHttpStatusCode(response.getStatusCode());
+                message.setLastResponseMessage(response.getStatusMessage());
+                message.setProcessingEndTime(endTime);
+                message.setLastErrorMessage(null);
+            }
+            dao.updateStatus(messages);
 
             // Update statistics
-            totalProcessed.incrementAndGet();
-            totalCompleted.incrementAndGet();
+            totalProcessed.addAndGet(messages.size());
+            totalCompleted.addAndGet(messages.size());
 
             // Update context
             context.completed = true;
             context.httpStatusCode = response.getStatusCode();
 
         } finally {
-            cleanupAsyncRequest(context, batchLatch);
+            cleanupAsyncRequest(context);
         }
     }
 
@@ -366,96 +558,148 @@ public void initialize() {
     /**
      * Handle failed async response (non-200 HTTP status)
      */
-    private void handleAsyncFailure(LoadProfileInbound message, SoapResponse response,
-            ProcessingContext context, CountDownLatch batchLatch) {
+    private void handleAsyncFailure(List<LoadProfileInbound> messages, SoapResponse response,
+            ProcessingContext context) {
         try {
             String errorMsg = String.format("HTTP %d: %s",
                     response.getStatusCode(), response.getStatusMessage());
+            recordOutcome(context, isEndpointFailure(response.getStatusCode()));
 
-            // Check if we have retries left
-            if (message.getAttemptCount() < maxRetryAttempts) {
-                // --- RETRY LOGIC ---
-                logger.warn("Message {} failed on attempt {}/{}. Retrying... Error: {}",
-                        message.getMessageUuid(), message.getAttemptCount(), maxRetryAttempts, errorMsg);
-
-                // Set status back to PENDING to be picked up again
-                message.setStatus(ProcessingStatus.PENDING);
-                message.setLastErrorMessage(errorMsg); // Log the error
-                message.setProcessingEndTime(new Timestamp(System.currentTimeMillis())); // End this attempt
-
-            } else {
-                // --- FAILED (DEAD-LETTER) LOGIC ---
-                logger.error("Message {} failed on final attempt {}/{}. Moving to FAILED. Error: {}",
-                        message.getMessageUuid(), message.getAttemptCount(), maxRetryAttempts, errorMsg);
-
-                message.setStatus(ProcessingStatus.FAILED);
-                message.setLastHttpStatusCode(response.getStatusCode());
-                message.setLastResponseMessage(response.getStatusMessage());
-                message.setProcessingEndTime(new Timestamp(System.currentTimeMillis()));
-                message.setLastErrorMessage(errorMsg);
-                message.setOriginalMessageId(message.getMessageUuid());
-
-                // Update statistics
-                totalProcessed.incrementAndGet();
-                totalFailed.incrementAndGet();
+            for (LoadProfileInbound message : messages) {
+                message.setLeaseExpiresAt(null);
+
+                // Check if we have retries left
+                if (message.getAttemptCount() < maxRetryAttempts) {
+                    // --- RETRY LOGIC ---
+                    Timestamp nextAttemptAt = retryBackoff.nextAttemptAt(message.getAttemptCount());
+                    logger.warn("Message {} failed on attempt {}/{}. Retrying at {}... Error: {}",
+                            message.getMessageUuid(), message.getAttemptCount(), maxRetryAttempts,
+                            nextAttemptAt, errorMsg);
+
+                    // Set status back to PENDING, picked up again once due
+                    message.setStatus(ProcessingStatus.PENDING);
+                    message.setNextAttemptAt(nextAttemptAt);
+                    message.setLastErrorMessage(errorMsg); // Log the error
+                    message.setProcessingEndTime(new Timestamp(System.currentTimeMillis())); // End this attempt
+
+                } else {
+                    // --- FAILED (DEAD-LETTER) LOGIC ---
+                    logger.error("Message {} failed on final attempt {}/{}. Moving to FAILED. Error: {}",
+                            message.getMessageUuid(), message.getAttemptCount(), maxRetryAttempts, errorMsg);
+
+                    message.setStatus(ProcessingStatus.FAILED);
+                    message.setLastHttpStatusCode(response.getStatusCode());
+                    message.setLastResponseMessage(response.getStatusMessage());
+                    message.setProcessingEndTime(new Timestamp(System.currentTimeMillis()));
+                    message.setLastErrorMessage(errorMsg);
+                    message.setOriginalMessageId(message.getMessageUuid());
+
+                    // Update statistics
+                    totalProcessed.incrementAndGet();
+                    totalFailed.incrementAndGet();
+                }
             }
 
             // Save the updated status (either PENDING or FAILED)
-            dao.updateStatus(message);
+            dao.updateStatus(messages);
 
             // Update context
             context.completed = false;
             context.httpStatusCode = response.getStatusCode();
 
         } finally {
-            cleanupAsyncRequest(context, batchLatch);
+            cleanupAsyncRequest(context);
         }
     }
 
     /**
      * Handle async exception
      */
-    private void handleAsyncException(LoadProfileInbound message, Exception e,
-            ProcessingContext context, CountDownLatch batchLatch) {
+    private void handleAsyncException(List<LoadProfileInbound> messages, Exception e,
+            ProcessingContext context) {
         try {
             logger.error("Message {} encountered exception - Preserving for manual retry",
-                    message.getMessageUuid(), e);
+                    context.messageUuid, e);
+            recordOutcome(context, true);
 
-            // Update to FAILED status
-            message.setStatus(ProcessingStatus.FAILED);
-            message.setLastHttpStatusCode(-1);
-            message.setLastResponseMessage("Connection Error");
-            message.setProcessingEndTime(new Timestamp(System.currentTimeMillis()));
-            message.setLastErrorMessage("Exception: " + e.getMessage());
+            Timestamp endTime = new Timestamp(System.currentTimeMillis());
+            for (LoadProfileInbound message : messages) {
+                // Update to FAILED status
+                message.setStatus(ProcessingStatus.FAILED);
+                message.setLeaseExpiresAt(null);
+                message.setLastHttpStatusCode(-1);
+                message.setLastResponseMessage("Connection Error");
+                message.setProcessingEndTime(endTime);
+                message.setLastErrorMessage("Exception: " + e.getMessage());
 
-            // Preserve original Message ID for manual retry
-            message.setOriginalMessageId(message.getMessageUuid());
-            dao.updateStatus(message);
+                // Preserve original Message ID for manual retry
+                message.setOriginalMessageId(message.getMessageUuid());
+            }
+            dao.updateStatus(messages);
 
             // Update statistics
-            totalProcessed.incrementAndGet();
-            totalFailed.incrementAndGet();
+            totalProcessed.addAndGet(messages.size());
+            totalFailed.addAndGet(messages.size());
 
             // Update context
             context.completed = false;
             context.httpStatusCode = -1;
 
         } finally {
-            cleanupAsyncRequest(context, batchLatch);
+            cleanupAsyncRequest(context);
         }
     }
 
     /**
-     * Cleanup after async request completion
+     * Failures that say something about SAP rather than about the message:
+     * no answer (-1), timeouts and errors mapped to 500, 5xx, 429
      */
-    private void cleanupAsyncRequest(ProcessingContext context, CountDownLatch batchLatch) {
+    private static boolean isEndpointFailure(int httpStatusCode) {
+        return httpStatusCode < 0 || httpStatusCode >= 500 || httpStatusCode == 429;
+    }
+
+    /**
+     * Feed the delivery outcome to the limiter and the breaker (once per message)
+     */
+    private void recordOutcome(ProcessingContext context, boolean endpointFailure) {
+        if (context.outcomeRecorded) {
+            return;
+        }
+        context.outcomeRecorded = true;
+        long responseTimeMs = System.currentTimeMillis() - context.startTime;
+        if (endpointFailure) {
+            concurrencyLimiter.onDropped(responseTimeMs);
+            circuitBreaker.onFailure(context.breakerPermission);
+        } else {
+            concurrencyLimiter.onSuccess(responseTimeMs);
+            circuitBreaker.onSuccess(context.breakerPermission);
+        }
+    }
+
+    /**
+     * Return the limiter slot and breaker permission of a message that was not sent
+     */
+    private void releaseDelivery(ProcessingContext context) {
+        if (context.outcomeRecorded) {
+            return;
+        }
+        context.outcomeRecorded = true;
+        concurrencyLimiter.release();
+        circuitBreaker.releasePermission(context.breakerPermission);
+    }
+
+    /**
+     * Cleanup after async request completion and refill the freed slot
+     */
+    private void cleanupAsyncRequest(ProcessingContext context) {
         activeContexts.remove(context.messageUuid);
         activeAsyncRequests.decrementAndGet();
         context.latch.countDown();
-        batchLatch.countDown();
 
         long duration = System.currentTimeMillis() - context.startTime;
         logger.debug("Async request completed for {} in {}ms", context.messageUuid, duration);
+
+        requestDispatch();
     }
 
     /**
@@ -480,8 +724,9 @@ public void initialize() {
             return false;
         }
 
-        // Reset to PENDING for reprocessing
+        // Reset to PENDING for reprocessing, due at once
         message.setStatus(ProcessingStatus.PENDING);
+        message.setNextAttemptAt(new Timestamp(System.currentTimeMillis()));
         message.setProcessingStartTime(null);
         message.setProcessingEndTime(null);
         message.setLastHttpStatusCode(0);
@@ -495,6 +740,7 @@ public void initialize() {
 
         if (dao.updateStatus(message)) {
             logger.info("Message {} reset for manual retry", messageUuid);
+            requestDispatch();
             return true;
         }
 
@@ -516,6 +762,7 @@ public void initialize() {
         stats.setTotalProcessed(totalProcessed.get());
         stats.setTotalCompleted(totalCompleted.get());
         stats.setTotalFailed(totalFailed.get());
+        stats.setStaleUpdates(dao.getStaleUpdateCount());
         stats.setThreadPoolStats(soapClient.getThreadPoolStats());
 
         return stats;
@@ -534,6 +781,7 @@ public void initialize() {
         private int totalProcessed;
         private int totalCompleted;
         private int totalFailed;
+        private long staleUpdates;
         private String threadPoolStats;
 
         // Getters and setters
@@ -609,6 +857,14 @@ public void initialize() {
             this.totalFailed = totalFailed;
         }
 
+        public long getStaleUpdates() {
+            return staleUpdates;
+        }
+
+        public void setStaleUpdates(long staleUpdates) {
+            this.staleUpdates = staleUpdates;
+        }
+
         public String getThreadPoolStats() {
             return threadPoolStats;
         }
@@ -621,9 +877,9 @@ public void initialize() {
         public String toString() {
             return String.format(
                     "Statistics[Pending=%d, Processing=%d, Completed=%d, Failed=%d, " +
-                            "Active=%s, AsyncReqs=%d, Total=%d, ThreadPool=%s]",
+                            "Active=%s, AsyncReqs=%d, Total=%d, StaleUpdates=%d, ThreadPool=%s]",
                     pendingCount, processingCount, completedCount, failedCount,
-                    isProcessing, activeAsyncRequests, totalProcessed, threadPoolStats);
+                    isProcessing, activeAsyncRequests, totalProcessed, staleUpdates, threadPoolStats);
         }
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,257 @@
+package com.hedno.integration.processor;
+
+import com.hedno.integration.entity.LoadProfileInbound;
+import com.hedno.integration.service.XMLBuilderService;
+import com.hedno.integration.soap.model.UtilitiesTimeSeriesERPItemBulkNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.bind.JAXBException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups PENDING inbound messages into deliveries to SAP.
+ *
+ * Messages are merged into one bulk notification
+ * (XMLBuilderService.coalesceNotifications) as long as the delivery stays
+ * within maxProfilesPerMessage profiles and maxBytes of payload (UTF-8, as
+ * sent). A message that cannot be merged (not a bulk notification, or full
+ * on its own) is delivered alone with its original payload. A merged
+ * notification's UUID depends only on the messages in it, so a retry of the
+ * same group is sent under the same MessageId.
+ *
+ * Every Delivery keeps the messages it carries, so the SAP outcome is applied
+ * to each MESSAGE_UUID. A merged notification is kept as a model and written
+ * to the connection by writeTo (XMLBuilderService.writeXml), not as a String.
+ *
+ * @author HEDNO Integration Team
+ * @version 1.0
+ */
+public class NotificationCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationCoalescer.class);
+
+    private final XMLBuilderService xmlBuilder;
+    private final int maxProfiles;
+    private final long maxBytes;
+
+    public NotificationCoalescer(XMLBuilderService xmlBuilder, long maxBytes) {
+        this.xmlBuilder = xmlBuilder;
+        this.maxProfiles = xmlBuilder.getMaxProfilesPerMessage();
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Group messages (oldest first) into at most maxDeliveries deliveries.
+     * Messages that do not fit are left out and stay PENDING.
+     */
+    public List<Delivery> coalesce(List<LoadProfileInbound> messages, int maxDeliveries) {
+        List<Delivery> deliveries = new ArrayList<>();
+        Group group = new Group();
+
+        for (LoadProfileInbound message : messages) {
+            long bytes = utf8Length(message.getRawPayload());
+            // Anything but joining the open group needs one more delivery; once
+            // there is none left, stop before parsing a message that cannot join
+            boolean lastDelivery = deliveries.size() + (group.isEmpty() ? 0 : 1) >= maxDeliveries;
+            int knownProfiles = message.getProfileCount() != null ? Math.max(1, message.getProfileCount()) : 1;
+            if (lastDelivery && (group.isEmpty() || bytes >= maxBytes || !group.fits(knownProfiles, bytes))) {
+                break;
+            }
+
+            UtilitiesTimeSeriesERPItemBulkNotification notification = parse(message);
+            int profiles = notification != null ? notification.getNotificationMessages().size() : 0;
+            boolean mergeable = profiles > 0 && profiles < maxProfiles && bytes < maxBytes;
+            boolean joinsGroup = mergeable && !group.isEmpty() && group.fits(profiles, bytes);
+            if (!joinsGroup && lastDelivery) {
+                break;
+            }
+            if (!mergeable) {
+                deliveries.add(new Delivery(message, Math.max(profiles, 0)));
+                continue;
+            }
+            if (!joinsGroup && !group.isEmpty()) {
+                close(group, deliveries);
+                group = new Group();
+            }
+            group.add(message, notification, profiles, bytes);
+        }
+        if (!group.isEmpty()) {
+            close(group, deliveries);
+        }
+        return deliveries;
+    }
+
+    /**
+     * Size of the payload as sent (UTF-8), without encoding it
+     */
+    static long utf8Length(String payload) {
+        if (payload == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (int i = 0; i < payload.length(); i++) {
+            char c = payload.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < payload.length()
+                    && Character.isLowSurrogate(payload.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private UtilitiesTimeSeriesERPItemBulkNotification parse(LoadProfileInbound message) {
+        if (message.getRawPayload() == null) {
+            return null;
+        }
+        try {
+            return xmlBuilder.unmarshalFromXml(message.getRawPayload());
+        } catch (JAXBException | ClassCastException e) {
+            logger.debug("Message {} is not a bulk notification, delivered on its own",
+                    message.getMessageUuid());
+            return null;
+        }
+    }
+
+    private void close(Group group, List<Delivery> deliveries) {
+        if (group.messages.size() == 1) {
+            // Nothing to merge: send the original payload under its own UUID
+            deliveries.add(new Delivery(group.messages.get(0), group.profiles));
+            return;
+        }
+        UtilitiesTimeSeriesERPItemBulkNotification merged = xmlBuilder.coalesceNotifications(group.notifications);
+        deliveries.add(new Delivery(merged, xmlBuilder, group.messages, group.profiles));
+        logger.debug("Coalesced {} messages ({} profiles) into {}",
+                group.messages.size(), group.profiles, merged.getMessageHeader().getUuid());
+    }
+
+    /**
+     * Messages collected for the next merged notification
+     */
+    private final class Group {
+        final List<LoadProfileInbound> messages = new ArrayList<>();
+        final Map<String, UtilitiesTimeSeriesERPItemBulkNotification> notifications = new LinkedHashMap<>();
+        int profiles;
+        long bytes;
+
+        boolean isEmpty() {
+            return messages.isEmpty();
+        }
+
+        boolean fits(int moreProfiles, long moreBytes) {
+            return profiles + moreProfiles <= maxProfiles && bytes + moreBytes <= maxBytes;
+        }
+
+        void add(LoadProfileInbound message, UtilitiesTimeSeriesERPItemBulkNotification notification,
+                 int messageProfiles, long messageBytes) {
+            messages.add(message);
+            notifications.put(message.getMessageUuid(), notification);
+            profiles += messageProfiles;
+            bytes += messageBytes;
+        }
+    }
+
+    /**
+     * One SOAP call: the payload to send and the inbound messages it carries
+     */
+    public static final class Delivery {
+        private final String messageUuid;
+        private final UtilitiesTimeSeriesERPItemBulkNotification notification;
+        private final XMLBuilderService xmlBuilder;
+        private final List<LoadProfileInbound> messages;
+        private final int profileCount;
+        private String payload;
+
+        /**
+         * A message sent as received
+         */
+        Delivery(LoadProfileInbound message, int profileCount) {
+            this.messageUuid = message.getMessageUuid();
+            this.notification = null;
+            this.xmlBuilder = null;
+            this.payload = message.getRawPayload();
+            this.messages = Collections.singletonList(message);
+            this.profileCount = profileCount;
+        }
+
+        /**
+         * Messages merged into one notification
+         */
+        Delivery(UtilitiesTimeSeriesERPItemBulkNotification notification, XMLBuilderService xmlBuilder,
+                 List<LoadProfileInbound> messages, int profileCount) {
+            this.messageUuid = notification.getMessageHeader().getUuid();
+            this.notification = notification;
+            this.xmlBuilder = xmlBuilder;
+            this.messages = Collections.unmodifiableList(messages);
+            this.profileCount = profileCount;
+        }
+
+        /**
+         * UUID of the notification sent: the merged UUID, or the message's own
+         */
+        public String getMessageUuid() {
+            return messageUuid;
+        }
+
+        /**
+         * SOAP XML of the delivery; a merged notification is marshalled on first use
+         */
+        public synchronized String getPayload() {
+            if (payload == null && notification != null) {
+                try {
+                    payload = xmlBuilder.marshalToXml(notification);
+                } catch (JAXBException e) {
+                    throw new IllegalStateException("Cannot marshal notification " + messageUuid, e);
+                }
+            }
+            return payload;
+        }
+
+        /**
+         * Merged notification, null for a message sent as received
+         */
+        public UtilitiesTimeSeriesERPItemBulkNotification getNotification() {
+            return notification;
+        }
+
+        /**
+         * Write the SOAP XML as UTF-8: a merged notification straight from the model
+         */
+        public void writeTo(OutputStream out) throws IOException {
+            if (notification != null) {
+                xmlBuilder.writeXml(notification, out);
+            } else {
+                out.write(payload.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        public List<LoadProfileInbound> getMessages() {
+            return messages;
+        }
+
+        public int getProfileCount() {
+            return profileCount;
+        }
+
+        /**
+         * Whether the payload was built from several messages
+         */
+        public boolean isCoalesced() {
+            return messages.size() > 1;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.hedno.integration.processor;
+
+import java.sql.Timestamp;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Jittered exponential backoff for the automatic retries of failed deliveries.
+ *
+ * Retry n waits between half and all of min(maxMs, baseMs * 2^(n-1))
+ * ("equal jitter"): the wait grows while SAP keeps failing, and messages that
+ * failed together do not all come back in the same cycle.
+ *
+ * @author HEDNO Integration Team
+ * @version 1.0
+ */
+public final class RetryBackoff {
+
+    // 2^30 * baseMs is beyond any sensible maxMs
+    private static final int MAX_EXPONENT = 30;
+
+    private final long baseMs;
+    private final long maxMs;
+
+    public RetryBackoff(long baseMs, long maxMs) {
+        this.baseMs = Math.max(1, baseMs);
+        this.maxMs = Math.max(this.baseMs, maxMs);
+    }
+
+    /**
+     * Wait before the next attempt of a message that has failed attempt times
+     */
+    public long delayMs(int attempt) {
+        int exponent = Math.max(0, Math.min(attempt - 1, MAX_EXPONENT));
+        long ceiling = baseMs > (maxMs >> exponent) ? maxMs : baseMs << exponent;
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+
+    /**
+     * Time at which a message that has failed attempt times is due again
+     */
+    public Timestamp nextAttemptAt(int attempt) {
+        return new Timestamp(System.currentTimeMillis() + delayMs(attempt));
+    }
+}
@@ -0,0 +1,192 @@
+package com.hedno.integration.service;
+
+import com.hedno.integration.ConfigService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AIMD concurrency limit for SOAP deliveries to SAP.
+ *
+ * Every completed delivery is a sample:
+ * - dropped (connection error, timeout, 5xx, 429) or slower than
+ *   soap.limiter.latency.threshold.ms: the limit is multiplied by
+ *   soap.limiter.backoff.ratio
+ * - otherwise, if at least half of the limit was in use: the limit grows by one
+ *
+ * The limit stays between soap.limiter.min and soap.limiter.max.
+ *
+ * A slot given back that was never taken (more onSuccess/onDropped/release
+ * calls than tryAcquire) is a caller bug: it is logged and counted as
+ * "unbalanced", and the in-flight count is left alone.
+ *
+ * @author HEDNO Integration Team
+ * @version 1.0
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    // Weight of a new sample in the smoothed response time
+    private static final double RTT_SMOOTHING = 0.2;
+
+    private static volatile AdaptiveConcurrencyLimiter instance;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdMs;
+
+    // Guarded by this
+    private double limit;
+    private int inFlight;
+    private double smoothedRttMs;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder slow = new LongAdder();
+    private final LongAdder increases = new LongAdder();
+    private final LongAdder decreases = new LongAdder();
+    private final LongAdder unbalanced = new LongAdder();
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                               double backoffRatio, long latencyThresholdMs) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdMs = latencyThresholdMs;
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+    }
+
+    /**
+     * Shared limiter for the SAP endpoint, configured from application.properties
+     */
+    public static AdaptiveConcurrencyLimiter getInstance() {
+        AdaptiveConcurrencyLimiter result = instance;
+        if (result == null) {
+            synchronized (AdaptiveConcurrencyLimiter.class) {
+                result = instance;
+                if (result == null) {
+                    result = new AdaptiveConcurrencyLimiter(
+                            Integer.parseInt(ConfigService.get("soap.limiter.initial", "5").trim()),
+                            Integer.parseInt(ConfigService.get("soap.limiter.min", "1").trim()),
+                            Integer.parseInt(ConfigService.get("soap.limiter.max", "20").trim()),
+                            Double.parseDouble(ConfigService.get("soap.limiter.backoff.ratio", "0.9").trim()),
+                            Long.parseLong(ConfigService.get("soap.limiter.latency.threshold.ms", "10000").trim()));
+                    logger.info("SAP concurrency limit: {} (min {}, max {})",
+                            result.getLimit(), result.minLimit, result.maxLimit);
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Take a delivery slot if the current limit allows one more in flight.
+     * Every acquired slot must end with onSuccess, onDropped or release.
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            rejected.increment();
+            return false;
+        }
+        inFlight++;
+        acquired.increment();
+        return true;
+    }
+
+    /**
+     * Free slots under the current limit
+     */
+    public synchronized int available() {
+        return Math.max(0, (int) limit - inFlight);
+    }
+
+    /**
+     * The delivery got an answer from the endpoint (2xx, or a 4xx caused by the message)
+     */
+    public void onSuccess(long rttMs) {
+        sample(rttMs, false);
+    }
+
+    /**
+     * The delivery failed because of the endpoint (no answer, timeout, 5xx, 429)
+     */
+    public void onDropped(long rttMs) {
+        sample(rttMs, true);
+    }
+
+    /**
+     * Give back a slot that was not used for a delivery
+     */
+    public synchronized void release() {
+        releaseSlot("release");
+    }
+
+    private synchronized void sample(long rttMs, boolean drop) {
+        int wasInFlight = inFlight;
+        releaseSlot(drop ? "onDropped" : "onSuccess");
+        smoothedRttMs = smoothedRttMs == 0 ? rttMs : smoothedRttMs + RTT_SMOOTHING * (rttMs - smoothedRttMs);
+
+        boolean tooSlow = !drop && rttMs > latencyThresholdMs;
+        if (drop || tooSlow) {
+            (drop ? dropped : slow).increment();
+            double reduced = Math.max(minLimit, limit * backoffRatio);
+            if (reduced < limit) {
+                decreases.increment();
+                logger.debug("SAP concurrency limit {} -> {} ({} after {} ms)",
+                        (int) limit, (int) reduced, drop ? "drop" : "slow response", rttMs);
+                limit = reduced;
+            }
+        } else {
+            succeeded.increment();
+            if (wasInFlight * 2 >= (int) limit && limit < maxLimit) {
+                increases.increment();
+                limit = Math.min(maxLimit, limit + 1);
+            }
+        }
+    }
+
+    private void releaseSlot(String caller) {
+        if (inFlight == 0) {
+            unbalanced.increment();
+            logger.error("SAP concurrency limiter: {} without a slot in flight (acquire/release imbalance)",
+                    caller, new IllegalStateException("No slot in flight"));
+            return;
+        }
+        inFlight--;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Current limit, slots in use and sample counters
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("limit", (int) limit);
+            stats.put("inFlight", inFlight);
+            stats.put("rttMs", Math.round(smoothedRttMs));
+        }
+        stats.put("min", minLimit);
+        stats.put("max", maxLimit);
+        stats.put("acquired", acquired.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("succeeded", succeeded.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("slow", slow.sum());
+        stats.put("increases", increases.sum());
+        stats.put("decreases", decreases.sum());
+        stats.put("unbalanced", unbalanced.sum());
+        return stats;
+    }
+}
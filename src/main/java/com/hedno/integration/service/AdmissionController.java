@@ -0,0 +1,261 @@
+package com.hedno.integration.service;
+
+import com.hedno.integration.ConfigService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control for pushed messages, in front of the database work of
+ * MdmImportService. A request is admitted immediately or refused immediately
+ * (AdmissionRejectedException, answered with 429 + Retry-After); nothing
+ * waits here.
+ *
+ * Limits:
+ * - mdm.admission.max.concurrent:     messages in flight overall
+ * - mdm.admission.max.per.sender:     hard cap per SENDER_ID; below it every
+ *                                     active sender gets a fair share of the
+ *                                     concurrency limit
+ * - mdm.admission.max.inflight.bytes: payload bytes in flight (UTF-16, as held
+ *                                     on the heap); a single larger message is
+ *                                     admitted only when nothing else is in flight
+ *
+ * A resend of a message that is still being processed (see
+ * MessageReplayRegistry) is refused the same way, so the sender comes back
+ * once the original has succeeded or failed. So is an admitted message that
+ * finds no writer connection within mdm.writer.acquire.timeout.ms.
+ *
+ * Queue time is the time an admitted message waits for a writer connection.
+ *
+ * @author HEDNO Integration Team
+ * @version 1.0
+ */
+public class AdmissionController {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionController.class);
+
+    public static final String LIMIT_CONCURRENCY = "concurrency";
+    public static final String LIMIT_SENDER = "sender";
+    public static final String LIMIT_BYTES = "bytes";
+    public static final String LIMIT_IN_PROGRESS = "inProgress";
+    public static final String LIMIT_WRITER = "writer";
+
+    private static final String UNKNOWN_SENDER = "UNKNOWN";
+    private static final long MAX_RETRY_AFTER_SECONDS = 60;
+
+    private static volatile AdmissionController instance;
+
+    private final int maxConcurrent;
+    private final int maxPerSender;
+    private final long maxInFlightBytes;
+    private final long defaultRetryAfterSeconds;
+
+    // Guarded by this
+    private final Map<String, Integer> inFlightBySender = new HashMap<>();
+    private int inFlight;
+    private long inFlightBytes;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejectedConcurrency = new LongAdder();
+    private final LongAdder rejectedSender = new LongAdder();
+    private final LongAdder rejectedBytes = new LongAdder();
+    private final LongAdder rejectedInProgress = new LongAdder();
+    private final LongAdder rejectedWriter = new LongAdder();
+    private final LongAdder queuedMessages = new LongAdder();
+    private final LongAdder queueNanos = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder serviceNanos = new LongAdder();
+    private final LongAccumulator maxQueueNanos = new LongAccumulator(Math::max, 0);
+
+    AdmissionController(int maxConcurrent, int maxPerSender, long maxInFlightBytes, long defaultRetryAfterSeconds) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxPerSender = Math.max(1, maxPerSender);
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.defaultRetryAfterSeconds = Math.max(1, defaultRetryAfterSeconds);
+    }
+
+    /**
+     * Shared controller configured from application.properties
+     */
+    public static AdmissionController getInstance() {
+        AdmissionController result = instance;
+        if (result == null) {
+            synchronized (AdmissionController.class) {
+                result = instance;
+                if (result == null) {
+                    int maxConcurrent = Integer.parseInt(ConfigService.get("mdm.admission.max.concurrent", "32").trim());
+                    result = new AdmissionController(maxConcurrent,
+                            Integer.parseInt(ConfigService.get("mdm.admission.max.per.sender",
+                                    String.valueOf(maxConcurrent)).trim()),
+                            Long.parseLong(ConfigService.get("mdm.admission.max.inflight.bytes", "1073741824").trim()),
+                            Long.parseLong(ConfigService.get("mdm.admission.retry.after.seconds", "2").trim()));
+                    log.info("Admission control: {} concurrent, {} per sender, {} bytes in flight",
+                            result.maxConcurrent, result.maxPerSender, result.maxInFlightBytes);
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Admit one message or refuse it immediately
+     *
+     * @param senderId SENDER_ID of the message (null counts as one unknown sender)
+     * @param payloadChars Length of the payload in chars
+     * @return Permit to close when the message is done
+     * @throws AdmissionRejectedException if a limit is reached
+     */
+    public Permit admit(String senderId, long payloadChars) throws AdmissionRejectedException {
+        String sender = senderId != null && !senderId.isEmpty() ? senderId : UNKNOWN_SENDER;
+        long bytes = payloadChars * 2;
+
+        synchronized (this) {
+            int senderInFlight = inFlightBySender.getOrDefault(sender, 0);
+            if (inFlight >= maxConcurrent) {
+                rejectedConcurrency.increment();
+                throw reject(LIMIT_CONCURRENCY, "Too many messages in flight (" + inFlight + ")");
+            }
+            int share = fairShare(senderInFlight == 0 ? inFlightBySender.size() + 1 : inFlightBySender.size());
+            if (senderInFlight >= share) {
+                rejectedSender.increment();
+                throw reject(LIMIT_SENDER, "Sender " + sender + " has " + senderInFlight
+                        + " messages in flight (share " + share + ")");
+            }
+            if (inFlight > 0 && inFlightBytes + bytes > maxInFlightBytes) {
+                rejectedBytes.increment();
+                throw reject(LIMIT_BYTES, "In-flight payload budget exhausted (" + inFlightBytes + " bytes)");
+            }
+
+            inFlight++;
+            inFlightBytes += bytes;
+            inFlightBySender.put(sender, senderInFlight + 1);
+        }
+        admitted.increment();
+        return new Permit(sender, bytes);
+    }
+
+    /**
+     * Concurrency share of one sender when activeSenders are in flight
+     */
+    private int fairShare(int activeSenders) {
+        int share = (maxConcurrent + activeSenders - 1) / Math.max(1, activeSenders);
+        return Math.max(1, Math.min(maxPerSender, share));
+    }
+
+    /**
+     * Refuse a resend whose original is still being processed
+     */
+    public AdmissionRejectedException rejectInProgress(String messageUuid, long originalLogId) {
+        rejectedInProgress.increment();
+        return reject(LIMIT_IN_PROGRESS, "Message " + messageUuid + " is still being processed"
+                + (originalLogId > 0 ? " as HD_LOG_ID " + originalLogId : ""));
+    }
+
+    /**
+     * Refuse an admitted message that got no writer connection in time
+     * (the caller closes its permit)
+     */
+    public AdmissionRejectedException rejectWriter(long waitedMs) {
+        rejectedWriter.increment();
+        return reject(LIMIT_WRITER, "No writer connection available within " + waitedMs + " ms");
+    }
+
+    private AdmissionRejectedException reject(String limit, String message) {
+        return new AdmissionRejectedException(limit, message, retryAfterSeconds());
+    }
+
+    /**
+     * Average time a message holds its permit (at least the configured default)
+     */
+    private long retryAfterSeconds() {
+        long done = completed.sum();
+        if (done == 0) {
+            return defaultRetryAfterSeconds;
+        }
+        long averageSeconds = (serviceNanos.sum() / done + 999_999_999L) / 1_000_000_000L;
+        return Math.min(MAX_RETRY_AFTER_SECONDS, Math.max(defaultRetryAfterSeconds, averageSeconds));
+    }
+
+    private synchronized void release(String sender, long bytes) {
+        inFlight--;
+        inFlightBytes -= bytes;
+        int remaining = inFlightBySender.getOrDefault(sender, 1) - 1;
+        if (remaining <= 0) {
+            inFlightBySender.remove(sender);
+        } else {
+            inFlightBySender.put(sender, remaining);
+        }
+    }
+
+    /**
+     * Admission counters, in-flight state and queue time
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("inFlight", inFlight);
+            stats.put("inFlightBytes", inFlightBytes);
+            stats.put("activeSenders", inFlightBySender.size());
+        }
+        stats.put("admitted", admitted.sum());
+        stats.put("rejected.concurrency", rejectedConcurrency.sum());
+        stats.put("rejected.sender", rejectedSender.sum());
+        stats.put("rejected.bytes", rejectedBytes.sum());
+        stats.put("rejected.inProgress", rejectedInProgress.sum());
+        stats.put("rejected.writer", rejectedWriter.sum());
+        long queued = queuedMessages.sum();
+        stats.put("queue.avgMicros", queued > 0 ? queueNanos.sum() / queued / 1000 : 0);
+        stats.put("queue.maxMicros", maxQueueNanos.get() / 1000);
+        long done = completed.sum();
+        stats.put("service.avgMillis", done > 0 ? serviceNanos.sum() / done / 1_000_000 : 0);
+        return stats;
+    }
+
+    /**
+     * Admission of one message; close() releases it
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final String sender;
+        private final long bytes;
+        private final long admittedAt = System.nanoTime();
+        private boolean started;
+        private boolean closed;
+
+        Permit(String sender, long bytes) {
+            this.sender = sender;
+            this.bytes = bytes;
+        }
+
+        /**
+         * Record the queue time: the message got its writer connection
+         */
+        public void started() {
+            if (started) {
+                return;
+            }
+            started = true;
+            long waited = System.nanoTime() - admittedAt;
+            queuedMessages.increment();
+            queueNanos.add(waited);
+            maxQueueNanos.accumulate(waited);
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            completed.increment();
+            serviceNanos.add(System.nanoTime() - admittedAt);
+            release(sender, bytes);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.hedno.integration.service;
+
+/**
+ * Thrown when a push is refused by the AdmissionController because a
+ * concurrency, per-sender or in-flight-bytes limit is reached, because no
+ * writer connection freed up in time, or because the original of a resent
+ * message is still being processed. The sender should retry after
+ * getRetryAfterSeconds().
+ *
+ * @author HEDNO Integration Team
+ * @version 1.0
+ */
+public class AdmissionRejectedException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String limit;
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(String limit, String message, long retryAfterSeconds) {
+        super(message);
+        this.limit = limit;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Limit that refused the request: concurrency, sender, bytes, writer or inProgress
+     */
+    public String getLimit() {
+        return limit;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,259 @@
+package com.hedno.integration.service;
+
+import com.hedno.integration.ConfigService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker for SOAP deliveries to SAP.
+ *
+ * - CLOSED:    deliveries flow; the outcomes of the last soap.breaker.window
+ *              deliveries are kept. Once at least soap.breaker.min.calls are
+ *              known and soap.breaker.failure.rate percent of them failed, the
+ *              breaker opens.
+ * - OPEN:      nothing is dispatched for soap.breaker.open.ms.
+ * - HALF_OPEN: one delivery is let through as a probe. Success closes the
+ *              breaker; failure opens it again for twice as long (at most
+ *              soap.breaker.open.max.ms).
+ *
+ * A permission is the breaker's generation number, which changes on every
+ * transition; the outcome of the delivery is reported with it. An outcome
+ * whose permission belongs to an earlier generation is ignored (counted as
+ * "stale"): a delivery sent before the breaker opened cannot close it from
+ * HALF_OPEN, only the probe can.
+ *
+ * @author HEDNO Integration Team
+ * @version 1.0
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * Returned by tryAcquirePermission when no delivery may go out
+     */
+    public static final long NOT_PERMITTED = -1;
+
+    private static volatile CircuitBreaker instance;
+
+    private final int minCalls;
+    private final int failureRatePct;
+    private final long openMs;
+    private final long maxOpenMs;
+    private final LongSupplier clock;
+
+    // Guarded by this
+    private final boolean[] window;
+    private int windowPos;
+    private int windowCount;
+    private int windowFailures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private long currentOpenMs;
+    private boolean probeInFlight;
+    private long generation;
+
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+
+    CircuitBreaker(int windowSize, int minCalls, int failureRatePct, long openMs, long maxOpenMs,
+                   LongSupplier clock) {
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minCalls = Math.max(1, Math.min(window.length, minCalls));
+        this.failureRatePct = failureRatePct;
+        this.openMs = openMs;
+        this.maxOpenMs = Math.max(openMs, maxOpenMs);
+        this.clock = clock;
+        this.currentOpenMs = openMs;
+    }
+
+    /**
+     * Shared breaker for the SAP endpoint, configured from application.properties
+     */
+    public static CircuitBreaker getInstance() {
+        CircuitBreaker result = instance;
+        if (result == null) {
+            synchronized (CircuitBreaker.class) {
+                result = instance;
+                if (result == null) {
+                    result = new CircuitBreaker(
+                            Integer.parseInt(ConfigService.get("soap.breaker.window", "20").trim()),
+                            Integer.parseInt(ConfigService.get("soap.breaker.min.calls", "10").trim()),
+                            Integer.parseInt(ConfigService.get("soap.breaker.failure.rate", "50").trim()),
+                            Long.parseLong(ConfigService.get("soap.breaker.open.ms", "30000").trim()),
+                            Long.parseLong(ConfigService.get("soap.breaker.open.max.ms", "300000").trim()),
+                            System::currentTimeMillis);
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Whether a delivery would be permitted now (no state change)
+     */
+    public synchronized boolean isCallPermitted() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                return clock.getAsLong() - openedAt >= currentOpenMs;
+            default:
+                return !probeInFlight;
+        }
+    }
+
+    /**
+     * Permission for one delivery. A permitted delivery must end with
+     * onSuccess, onFailure or releasePermission, given the returned permission.
+     *
+     * @return The permission, or NOT_PERMITTED
+     */
+    public synchronized long tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < currentOpenMs) {
+                rejected.increment();
+                return NOT_PERMITTED;
+            }
+            transition(State.HALF_OPEN);
+            logger.info("SAP circuit half-open, sending a probe delivery");
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                rejected.increment();
+                return NOT_PERMITTED;
+            }
+            probeInFlight = true;
+            probes.increment();
+        }
+        return generation;
+    }
+
+    /**
+     * Give back a permission that was not used for a delivery
+     */
+    public synchronized void releasePermission(long permission) {
+        if (state == State.HALF_OPEN && permission == generation) {
+            probeInFlight = false;
+        }
+    }
+
+    /**
+     * The endpoint answered (2xx, or a 4xx caused by the message)
+     */
+    public synchronized void onSuccess(long permission) {
+        if (isStale(permission)) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            logger.info("SAP circuit closed, probe delivery succeeded");
+            currentOpenMs = openMs;
+            transition(State.CLOSED);
+            return;
+        }
+        record(false);
+    }
+
+    /**
+     * The endpoint failed (no answer, timeout, 5xx, 429)
+     */
+    public synchronized void onFailure(long permission) {
+        if (isStale(permission)) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            currentOpenMs = Math.min(maxOpenMs, currentOpenMs * 2);
+            open("probe delivery failed");
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && windowCount >= minCalls
+                && windowFailures * 100 >= failureRatePct * windowCount) {
+            open(windowFailures + " of the last " + windowCount + " deliveries failed");
+        }
+    }
+
+    /**
+     * Outcome of a delivery permitted before the last transition
+     */
+    private boolean isStale(long permission) {
+        if (permission == generation) {
+            return false;
+        }
+        stale.increment();
+        logger.debug("Ignoring the outcome of a delivery from breaker generation {} (now {}, generation {})",
+                permission, state, generation);
+        return true;
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowPos]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowPos] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowPos = (windowPos + 1) % window.length;
+    }
+
+    private void open(String reason) {
+        openedAt = clock.getAsLong();
+        transition(State.OPEN);
+        opened.increment();
+        logger.warn("SAP circuit open for {} ms: {}", currentOpenMs, reason);
+    }
+
+    /**
+     * Enter a new state and generation; permissions of the old one become stale
+     */
+    private void transition(State next) {
+        state = next;
+        generation++;
+        probeInFlight = false;
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        windowPos = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * State, failure rate of the current window and transition counters
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("state", state.name());
+            stats.put("window.calls", windowCount);
+            stats.put("window.failureRatePct", windowCount > 0 ? windowFailures * 100 / windowCount : 0);
+            stats.put("openRemainingMs", state == State.OPEN
+                    ? Math.max(0, currentOpenMs - (clock.getAsLong() - openedAt)) : 0);
+        }
+        stats.put("opened", opened.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("probes", probes.sum());
+        stats.put("stale", stale.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,384 @@
+package com.hedno.integration.service;
+
+import com.hedno.integration.ConfigService;
+import com.hedno.integration.dao.ConnectOracleDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk backfill of historical curve data into SMC_MDM_SCCURVES.
+ *
+ * Messages are read from a directory of XML files. Headers are created one
+ * by one, but curve rows are collected across messages and written with
+ * large direct-path (APPEND_VALUES) batches. Within a batch, a later row for
+ * the same POD, date and data class is merged into the earlier one slot by
+ * slot, as the MERGE write mode would.
+ *
+ * With mdm.backfill.defer.indexes (default false) the non-unique curve indexes
+ * are set UNUSABLE and FK_CURVES_HD disabled for the duration of the load
+ * (direct path is silently downgraded when a foreign key is enabled), then
+ * rebuilt/re-validated at the end. Only for maintenance windows: while indexes
+ * are deferred, queries on SMC_MDM_SCCURVES fall back to full scans.
+ *
+ * Only one run at a time: a run holds an exclusive DBMS_LOCK lock (the schema
+ * needs EXECUTE on DBMS_LOCK) and a second run fails at once.
+ *
+ * CLI:  java com.hedno.integration.service.CurveBackfillService &lt;dir&gt; [sourceSystem]
+ *
+ * @author HEDNO Integration Team
+ * @version 1.0
+ */
+public class CurveBackfillService {
+
+    private static final Logger log = LoggerFactory.getLogger(CurveBackfillService.class);
+
+    private static final String CURVES_TABLE = "SMC_MDM_SCCURVES";
+    private static final String CURVES_FK = "FK_CURVES_HD";
+
+    private static final String INSERT_CURVE_DIRECT_SQL = MdmImportService.buildInsertCurveSql("APPEND_VALUES");
+
+    /** User lock id of DBMS_LOCK (0..1073741823) shared by all backfill runs */
+    private static final int RUN_LOCK_ID = 310031;
+
+    private static final String REQUEST_RUN_LOCK_SQL = "BEGIN ? := DBMS_LOCK.REQUEST(id => ?, " +
+            "lockmode => DBMS_LOCK.X_MODE, timeout => 0, release_on_commit => FALSE); END;";
+    private static final String RELEASE_RUN_LOCK_SQL = "BEGIN ? := DBMS_LOCK.RELEASE(id => ?); END;";
+
+    private static final String SELECT_DEFERRABLE_INDEXES_SQL = "SELECT INDEX_NAME FROM USER_INDEXES " +
+            "WHERE TABLE_NAME = ? AND UNIQUENESS = 'NONUNIQUE' AND STATUS = 'VALID'";
+
+    private final MdmImportService importService;
+    private final int batchRows;
+    private final boolean deferIndexes;
+
+    public CurveBackfillService() {
+        this(new MdmImportService());
+    }
+
+    public CurveBackfillService(MdmImportService importService) {
+        this.importService = importService;
+        this.batchRows = Integer.parseInt(ConfigService.get("mdm.backfill.batch.rows", "20000").trim());
+        this.deferIndexes = Boolean.parseBoolean(ConfigService.get("mdm.backfill.defer.indexes", "false").trim());
+    }
+
+    /**
+     * Backfill all *.xml files of a directory (in file name order)
+     */
+    public BackfillResult backfillDirectory(String directory, String sourceSystem) throws Exception {
+        Path dir = Paths.get(directory);
+        if (!Files.isDirectory(dir)) {
+            throw new IllegalArgumentException("Not a directory: " + directory);
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.xml")) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        Collections.sort(files);
+        log.info("Backfill of {} files from {} ({}), batch: {} rows, defer indexes: {}",
+                files.size(), dir, sourceSystem, batchRows, deferIndexes);
+        return backfill(files, sourceSystem);
+    }
+
+    private BackfillResult backfill(List<Path> files, String sourceSystem) throws Exception {
+        BackfillResult result = new BackfillResult();
+        long start = System.currentTimeMillis();
+
+        ConnectOracleDAO dao = new ConnectOracleDAO();
+        try (Connection conn = dao.getConnection()) {
+            conn.setAutoCommit(false);
+            acquireRunLock(conn);
+
+            DeferredMaintenance deferred = new DeferredMaintenance();
+            try {
+                if (deferIndexes) {
+                    deferIndexMaintenance(conn, deferred);
+                }
+                List<MdmImportService.StagedMessage> pending = new ArrayList<>();
+                int pendingRows = 0;
+
+                for (Path file : files) {
+                    String xml = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+                    result.files++;
+                    try {
+                        MdmImportService.StagedMessage staged = importService.stageMessage(conn, xml,
+                                "backfill:" + file.getParent(), sourceSystem,
+                                MdmImportService.SOURCE_TYPE_MEASURE, file.getFileName().toString());
+                        if (staged.rows.isEmpty()) {
+                            result.failedMessages++;
+                            continue;
+                        }
+                        pending.add(staged);
+                        pendingRows += staged.rows.size();
+                    } catch (DuplicateMessageException | AdmissionRejectedException e) {
+                        // Already stored, or a live message with the same UUID is in progress
+                        result.duplicateMessages++;
+                        continue;
+                    } catch (Exception e) {
+                        log.warn("Backfill skipped {}: {}", file, e.getMessage());
+                        conn.rollback();
+                        result.failedMessages++;
+                        continue;
+                    }
+
+                    if (pendingRows >= batchRows) {
+                        flush(conn, pending, result);
+                        pendingRows = 0;
+                    }
+                }
+                flush(conn, pending, result);
+
+            } finally {
+                restoreIndexMaintenance(conn, deferred);
+                releaseRunLock(conn);
+            }
+        }
+
+        result.elapsedMs = System.currentTimeMillis() - start;
+        log.info("Backfill finished: {}", result);
+        return result;
+    }
+
+    /**
+     * Direct-path insert of all pending rows. The headers are marked SUCCESS in
+     * the same transaction, so they are only committed with their rows; if the
+     * load fails they are marked ERROR instead.
+     */
+    private void flush(Connection conn, List<MdmImportService.StagedMessage> pending, BackfillResult result)
+            throws SQLException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Collection<MdmImportService.CurveRow> batch = mergeRows(pending);
+        for (MdmImportService.StagedMessage message : pending) {
+            result.duplicateRows += message.rows.size();
+        }
+        result.duplicateRows -= batch.size();
+        int rows = batch.size();
+        long start = System.currentTimeMillis();
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_CURVE_DIRECT_SQL)) {
+            for (MdmImportService.CurveRow row : batch) {
+                MdmImportService.bindCurveRow(ps, row);
+                ps.addBatch();
+            }
+            for (int count : ps.executeBatch()) {
+                if (count == Statement.EXECUTE_FAILED) {
+                    throw new SQLException("Direct-path batch reported failed rows");
+                }
+            }
+            importService.completeStagedMessages(conn, pending, null);
+            // Direct-path rows are only visible (and the table usable again) after commit
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            log.error("Backfill batch of {} rows failed", rows, e);
+            importService.completeStagedMessages(conn, pending, "Backfill load failed: " + e.getMessage());
+            conn.commit();
+            result.failedMessages += pending.size();
+            pending.clear();
+            return;
+        }
+        importService.registerStagedMessages(pending);
+
+        result.messages += pending.size();
+        result.rows += rows;
+        log.info("Backfill batch: {} messages, {} rows in {} ms (total {} rows)",
+                pending.size(), rows, System.currentTimeMillis() - start, result.rows);
+        pending.clear();
+    }
+
+    /**
+     * Rows of the pending messages, one per POD, date and data class; a later
+     * row is merged into the earlier one (in place) slot by slot
+     */
+    static Collection<MdmImportService.CurveRow> mergeRows(List<MdmImportService.StagedMessage> pending) {
+        Map<String, MdmImportService.CurveRow> merged = new LinkedHashMap<>();
+        for (MdmImportService.StagedMessage message : pending) {
+            for (MdmImportService.CurveRow row : message.rows) {
+                String key = row.getPodId() + '|' + row.getDateRead() + '|' + row.getDataClass();
+                MdmImportService.CurveRow earlier = merged.putIfAbsent(key, row);
+                if (earlier != null) {
+                    earlier.mergeFrom(row);
+                }
+            }
+        }
+        return merged.values();
+    }
+
+    /**
+     * Take the exclusive run lock, or fail if another backfill holds it
+     */
+    private void acquireRunLock(Connection conn) throws SQLException {
+        try (CallableStatement cs = conn.prepareCall(REQUEST_RUN_LOCK_SQL)) {
+            cs.registerOutParameter(1, Types.INTEGER);
+            cs.setInt(2, RUN_LOCK_ID);
+            cs.execute();
+            int status = cs.getInt(1);
+            // 0 = granted, 4 = already held by this session
+            if (status != 0 && status != 4) {
+                throw new IllegalStateException(status == 1
+                        ? "Another backfill is already running"
+                        : "Backfill run lock not granted (DBMS_LOCK status " + status + ")");
+            }
+        }
+    }
+
+    private void releaseRunLock(Connection conn) {
+        try (CallableStatement cs = conn.prepareCall(RELEASE_RUN_LOCK_SQL)) {
+            cs.registerOutParameter(1, Types.INTEGER);
+            cs.setInt(2, RUN_LOCK_ID);
+            cs.execute();
+        } catch (SQLException e) {
+            log.warn("Release of the backfill run lock failed (released when the session ends)", e);
+        }
+    }
+
+    /**
+     * Disable the header FK and mark non-unique curve indexes UNUSABLE,
+     * recording each step in {@code deferred} as soon as it succeeds
+     */
+    private void deferIndexMaintenance(Connection conn, DeferredMaintenance deferred) throws SQLException {
+        List<String> indexes = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_DEFERRABLE_INDEXES_SQL)) {
+            ps.setString(1, CURVES_TABLE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    indexes.add(rs.getString(1));
+                }
+            }
+        }
+        try (Statement st = conn.createStatement()) {
+            st.execute("ALTER SESSION SET SKIP_UNUSABLE_INDEXES = TRUE");
+            st.execute("ALTER TABLE " + CURVES_TABLE + " DISABLE CONSTRAINT " + CURVES_FK);
+            deferred.constraintDisabled = true;
+            for (String index : indexes) {
+                st.execute("ALTER INDEX " + index + " UNUSABLE");
+                deferred.indexes.add(index);
+            }
+        }
+        log.info("Deferred maintenance of {} indexes on {}: {}", indexes.size(), CURVES_TABLE, indexes);
+    }
+
+    private void restoreIndexMaintenance(Connection conn, DeferredMaintenance deferred) {
+        if (!deferred.constraintDisabled && deferred.indexes.isEmpty()) {
+            return;
+        }
+        try {
+            // DDL commits implicitly: never let it commit a half-written batch
+            conn.rollback();
+        } catch (SQLException e) {
+            log.warn("Rollback before restoring index maintenance failed", e);
+        }
+        try (Statement st = conn.createStatement()) {
+            for (String index : deferred.indexes) {
+                long start = System.currentTimeMillis();
+                try {
+                    st.execute("ALTER INDEX " + index + " REBUILD");
+                    log.info("Rebuilt index {} in {} ms", index, System.currentTimeMillis() - start);
+                } catch (SQLException e) {
+                    log.error("Rebuild of index {} failed - rebuild manually", index, e);
+                }
+            }
+            if (deferred.constraintDisabled) {
+                try {
+                    st.execute("ALTER TABLE " + CURVES_TABLE + " ENABLE VALIDATE CONSTRAINT " + CURVES_FK);
+                } catch (SQLException e) {
+                    log.error("Re-enabling {} failed - enable manually", CURVES_FK, e);
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Restoring index maintenance on {} failed", CURVES_TABLE, e);
+        }
+    }
+
+    /**
+     * What deferIndexMaintenance has changed so far and must be restored
+     */
+    private static class DeferredMaintenance {
+        boolean constraintDisabled;
+        final List<String> indexes = new ArrayList<>();
+    }
+
+    /**
+     * Outcome of a backfill run
+     */
+    public static class BackfillResult {
+        private int files;
+        private int messages;
+        private int failedMessages;
+        private int duplicateMessages;
+        private long duplicateRows;
+        private long rows;
+        private long elapsedMs;
+
+        public int getFiles() { return files; }
+        public int getMessages() { return messages; }
+        public int getFailedMessages() { return failedMessages; }
+        public int getDuplicateMessages() { return duplicateMessages; }
+        public long getDuplicateRows() { return duplicateRows; }
+        public long getRows() { return rows; }
+        public long getElapsedMs() { return elapsedMs; }
+
+        public double getRowsPerSecond() {
+            return elapsedMs > 0 ? rows * 1000.0 / elapsedMs : rows;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("files", files);
+            map.put("messages", messages);
+            map.put("failedMessages", failedMessages);
+            map.put("duplicateMessages", duplicateMessages);
+            map.put("duplicateRows", duplicateRows);
+            map.put("rows", rows);
+            map.put("elapsedMs", elapsedMs);
+            map.put("rowsPerSecond", Math.round(getRowsPerSecond()));
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return toMap().toString();
+        }
+    }
+
+    /**
+     * Command line entry point
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: CurveBackfillService <directory> [sourceSystem]");
+            System.exit(2);
+        }
+        String sourceSystem = args.length > 1 ? args[1] : MdmImportService.SOURCE_SYSTEM_ZFA;
+        try {
+            BackfillResult result = new CurveBackfillService().backfillDirectory(args[0], sourceSystem);
+            System.out.println(result);
+            System.exit(result.getFailedMessages() == 0 ? 0 : 1);
+        } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+    }
+}
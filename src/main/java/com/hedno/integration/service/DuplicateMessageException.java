@@ -0,0 +1,30 @@
+package com.hedno.integration.service;
+
+/**
+ * Thrown when an incoming message repeats the MESSAGE_UUID of a message
+ * that was already accepted. Carries the identifiers of the original.
+ *
+ * @author HEDNO Integration Team
+ * @version 1.0
+ */
+public class DuplicateMessageException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String messageUuid;
+    private final long originalLogId;
+
+    public DuplicateMessageException(String messageUuid, long originalLogId) {
+        super("Duplicate message " + messageUuid + " already stored as HD_LOG_ID " + originalLogId);
+        this.messageUuid = messageUuid;
+        this.originalLogId = originalLogId;
+    }
+
+    public String getMessageUuid() {
+        return messageUuid;
+    }
+
+    public long getOriginalLogId() {
+        return originalLogId;
+    }
+}
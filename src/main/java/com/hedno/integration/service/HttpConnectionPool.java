@@ -0,0 +1,443 @@
+package com.hedno.integration.service;
+
+import com.hedno.integration.ConfigService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persistent HTTP connections for the outbound SOAP clients.
+ *
+ * Requests go through HttpURLConnection without "Connection: close" and
+ * without disconnect(): once a response body has been read to the end the
+ * JDK keeps the connection in its keep-alive cache and the next message to
+ * the same endpoint reuses it, so it no longer pays for a TCP connect and a
+ * TLS handshake. The JDK closes idle connections after the server's
+ * Keep-Alive timeout (5 s without one) and keeps at most http.maxConnections
+ * (JVM property, default 5) idle per endpoint. Proxies come from the JVM's
+ * ProxySelector (http.proxyHost, https.proxyHost...).
+ *
+ * At most maxPerRoute requests are in flight; a caller that finds all of
+ * them in use waits up to its connect timeout.
+ *
+ * Bodies are sent in streaming mode (fixed length or chunked), so the JDK
+ * never resends a request on its own; it checks a cached connection before
+ * a POST reuses it. A request is resent here once only when writing its
+ * byte array body failed, i.e. the server cannot have received all of it.
+ * A request whose body was written completely is never resent: SAP may
+ * already have processed it.
+ *
+ * An exchange in progress can be aborted from another thread through its
+ * Call (used for the deadlines of async sends).
+ *
+ * @author HEDNO Integration Team
+ * @version 1.0
+ */
+public class HttpConnectionPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpConnectionPool.class);
+
+    private static final int MAX_RETAINED_BODY = 64 * 1024;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int maxPerRoute;
+    private final Semaphore permits;
+    private final SSLSocketFactory sslSocketFactory;
+    private final HostnameVerifier hostnameVerifier;
+    private volatile boolean shutdown;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder leaseWaits = new LongAdder();
+    private final LongAdder leaseTimeouts = new LongAdder();
+    private final LongAdder aborted = new LongAdder();
+
+    /**
+     * Pool configured from application.properties (soap.http.*)
+     *
+     * @param sslSocketFactory Factory for https endpoints (null = JVM default)
+     * @param hostnameVerifier Verifier for https endpoints (null = JVM default)
+     */
+    public HttpConnectionPool(SSLSocketFactory sslSocketFactory, HostnameVerifier hostnameVerifier) {
+        this(Integer.parseInt(ConfigService.get("soap.http.max.per.route", "8").trim()),
+                sslSocketFactory, hostnameVerifier);
+    }
+
+    HttpConnectionPool(int maxPerRoute, SSLSocketFactory sslSocketFactory, HostnameVerifier hostnameVerifier) {
+        this.maxPerRoute = Math.max(1, maxPerRoute);
+        this.permits = new Semaphore(this.maxPerRoute, true);
+        this.sslSocketFactory = sslSocketFactory;
+        this.hostnameVerifier = hostnameVerifier;
+    }
+
+    /**
+     * Response of one exchange. The body is fully read before it is returned
+     * (only the first 64 KB are kept).
+     */
+    public static class Response {
+        private final int statusCode;
+        private final String statusMessage;
+        private final Map<String, String> headers;
+        private final byte[] body;
+
+        Response(int statusCode, String statusMessage, Map<String, String> headers, byte[] body) {
+            this.statusCode = statusCode;
+            this.statusMessage = statusMessage;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        public int getStatusCode() { return statusCode; }
+        public String getStatusMessage() { return statusMessage; }
+        public Map<String, String> getHeaders() { return headers; }
+        public byte[] getBody() { return body; }
+
+        /**
+         * First value of a header (name is case-insensitive)
+         */
+        public String getHeader(String name) {
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                if (entry.getKey().equalsIgnoreCase(name)) {
+                    return entry.getValue();
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Handle to abort one exchange from another thread. abort() disconnects
+     * the connection the exchange is using; an exchange that has not
+     * connected yet fails as soon as it has.
+     */
+    public static final class Call {
+        private HttpURLConnection connection;
+        private boolean aborted;
+
+        public synchronized void abort() {
+            aborted = true;
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+
+        public synchronized boolean isAborted() {
+            return aborted;
+        }
+
+        synchronized void bind(HttpURLConnection connection) throws InterruptedIOException {
+            checkAborted();
+            this.connection = connection;
+        }
+
+        synchronized void checkAborted() throws InterruptedIOException {
+            if (aborted) {
+                throw new InterruptedIOException("Request aborted");
+            }
+        }
+
+        synchronized void unbind() {
+            connection = null;
+        }
+    }
+
+    /**
+     * Request body written straight to the connection (chunked). It is called
+     * once per request: a streamed request is never resent.
+     */
+    public interface BodyWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Send one request and read the complete response
+     *
+     * @param method HTTP method (POST, GET)
+     * @param url Target URL (http or https)
+     * @param headers Request headers; Host, Content-Length and Connection are set by the JDK
+     * @param body Request body, or null
+     * @param connectTimeout Connect timeout, also the longest wait for a free slot (ms)
+     * @param readTimeout Socket read timeout (ms)
+     */
+    public Response execute(String method, URL url, Map<String, String> headers, byte[] body,
+                            int connectTimeout, int readTimeout) throws IOException {
+        return execute(method, url, headers, body, connectTimeout, readTimeout, new Call());
+    }
+
+    /**
+     * Send one request that can be aborted through call
+     */
+    public Response execute(String method, URL url, Map<String, String> headers, byte[] body,
+                            int connectTimeout, int readTimeout, Call call) throws IOException {
+        return execute(method, url, headers, body != null ? out -> out.write(body) : null,
+                body != null ? body.length : -1, connectTimeout, readTimeout, call);
+    }
+
+    /**
+     * Send one request whose body is streamed with chunked transfer encoding
+     */
+    public Response execute(String method, URL url, Map<String, String> headers, BodyWriter body,
+                            int connectTimeout, int readTimeout, Call call) throws IOException {
+        return execute(method, url, headers, body, -1, connectTimeout, readTimeout, call);
+    }
+
+    /**
+     * @param contentLength Length of body, -1 to send it chunked
+     */
+    private Response execute(String method, URL url, Map<String, String> headers, BodyWriter body,
+                             long contentLength, int connectTimeout, int readTimeout, Call call) throws IOException {
+        call.checkAborted();
+        String scheme = url.getProtocol().toLowerCase();
+        if (!"http".equals(scheme) && !"https".equals(scheme)) {
+            throw new IllegalArgumentException("Unsupported scheme: " + scheme);
+        }
+        requests.increment();
+        acquire(url, connectTimeout);
+        try {
+            Exchange exchange = new Exchange();
+            try {
+                return exchange(exchange, method, url, headers, body, contentLength, connectTimeout, readTimeout,
+                        call);
+            } catch (IOException e) {
+                // Only a body that did not get out completely may be sent again,
+                // and a streamed one cannot be
+                if (exchange.requestWritten || contentLength < 0 || !exchange.connected
+                        || e instanceof SocketTimeoutException || call.isAborted()) {
+                    throw e;
+                }
+                logger.debug("Writing the request to {} failed ({}), retrying on a new connection",
+                        url.getHost(), e.getMessage());
+                retried.increment();
+                return exchange(new Exchange(), method, url, headers, body, contentLength, connectTimeout,
+                        readTimeout, call);
+            }
+        } catch (IOException | RuntimeException e) {
+            if (call.isAborted()) {
+                aborted.increment();
+                InterruptedIOException abort = new InterruptedIOException("Request aborted");
+                abort.initCause(e);
+                throw abort;
+            }
+            failed.increment();
+            throw e;
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Response exchange(Exchange exchange, String method, URL url, Map<String, String> headers,
+                              BodyWriter body, long contentLength, int connectTimeout, int readTimeout,
+                              Call call) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            configure(connection, method, headers, body, contentLength, connectTimeout, readTimeout);
+            call.bind(connection);
+            connection.connect();
+            exchange.connected = true;
+            // An abort() before connect() had nothing to disconnect
+            call.checkAborted();
+
+            if (body != null) {
+                try (OutputStream out = connection.getOutputStream()) {
+                    body.writeTo(out);
+                }
+            }
+            exchange.requestWritten = true;
+
+            int statusCode = connection.getResponseCode();
+            String statusMessage = connection.getResponseMessage();
+            Map<String, String> responseHeaders = responseHeaders(connection);
+            // Read to the end and close (not disconnect): the connection goes
+            // back to the keep-alive cache
+            byte[] responseBody = readBody(statusCode >= 400 ? connection.getErrorStream()
+                    : connection.getInputStream());
+            call.unbind();
+            return new Response(statusCode, statusMessage != null ? statusMessage : "", responseHeaders,
+                    responseBody);
+        } catch (IOException | RuntimeException e) {
+            call.unbind();
+            // Broken or abandoned mid-exchange: not reusable
+            connection.disconnect();
+            throw e;
+        }
+    }
+
+    private void configure(HttpURLConnection connection, String method, Map<String, String> headers,
+                           BodyWriter body, long contentLength, int connectTimeout, int readTimeout)
+            throws IOException {
+        if (connection instanceof HttpsURLConnection) {
+            if (sslSocketFactory != null) {
+                ((HttpsURLConnection) connection).setSSLSocketFactory(sslSocketFactory);
+            }
+            if (hostnameVerifier != null) {
+                ((HttpsURLConnection) connection).setHostnameVerifier(hostnameVerifier);
+            }
+        }
+        connection.setRequestMethod(method);
+        connection.setDoInput(true);
+        connection.setUseCaches(false);
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            String name = header.getKey();
+            if ("Host".equalsIgnoreCase(name) || "Content-Length".equalsIgnoreCase(name)
+                    || "Transfer-Encoding".equalsIgnoreCase(name)
+                    || "Connection".equalsIgnoreCase(name) || header.getValue() == null) {
+                continue;
+            }
+            connection.setRequestProperty(name, header.getValue());
+        }
+        if (body != null) {
+            connection.setDoOutput(true);
+            // Streaming mode: the JDK does not buffer the body and never resends it
+            if (contentLength >= 0) {
+                connection.setFixedLengthStreamingMode(contentLength);
+            } else {
+                connection.setChunkedStreamingMode(BUFFER_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Take one of the maxPerRoute slots, waiting up to timeoutMs
+     */
+    private void acquire(URL url, long timeoutMs) throws IOException {
+        if (shutdown) {
+            throw new IOException("Connection pool is shut down");
+        }
+        if (permits.tryAcquire()) {
+            return;
+        }
+        leaseWaits.increment();
+        try {
+            if (!permits.tryAcquire(Math.max(0, timeoutMs), TimeUnit.MILLISECONDS)) {
+                leaseTimeouts.increment();
+                throw new SocketTimeoutException("Timeout waiting for a connection to " + url.getHost()
+                        + " (" + maxPerRoute + " in use)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for a connection to " + url.getHost());
+        }
+        if (shutdown) {
+            permits.release();
+            throw new IOException("Connection pool is shut down");
+        }
+    }
+
+    private static Map<String, String> responseHeaders(HttpURLConnection connection) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : connection.getHeaderFields().entrySet()) {
+            // The null key is the status line
+            if (entry.getKey() != null && entry.getValue() != null && !entry.getValue().isEmpty()) {
+                headers.put(entry.getKey(), entry.getValue().get(0));
+            }
+        }
+        return Collections.unmodifiableMap(headers);
+    }
+
+    /**
+     * Read the body to the end, keeping at most MAX_RETAINED_BODY of it
+     */
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (in == null) {
+            return body.toByteArray();
+        }
+        try (InputStream stream = in) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = stream.read(buffer)) >= 0) {
+                int keep = Math.min(n, MAX_RETAINED_BODY - body.size());
+                if (keep > 0) {
+                    body.write(buffer, 0, keep);
+                }
+            }
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * Refuse new requests and wait for the ones in progress. Idle connections
+     * belong to the JDK's keep-alive cache and close on its timeout.
+     *
+     * @param timeoutMs Longest wait for requests in progress
+     * @return true if no request was still in progress at the end
+     */
+    public boolean shutdown(long timeoutMs) {
+        shutdown = true;
+        boolean idle;
+        try {
+            idle = permits.tryAcquire(maxPerRoute, Math.max(0, timeoutMs), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            idle = false;
+        }
+        if (idle) {
+            permits.release(maxPerRoute);
+        }
+        int leased = maxPerRoute - permits.availablePermits();
+        logger.info("HTTP connection pool shut down: {} requests still in progress", leased);
+        return idle;
+    }
+
+    /**
+     * Pool utilisation and request counters
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        int leased = maxPerRoute - permits.availablePermits();
+        stats.put("maxPerRoute", maxPerRoute);
+        stats.put("leased", leased);
+        stats.put("utilisationPct", leased * 100 / maxPerRoute);
+        stats.put("requests", requests.sum());
+        stats.put("retried", retried.sum());
+        stats.put("failed", failed.sum());
+        stats.put("lease.waits", leaseWaits.sum());
+        stats.put("lease.timeouts", leaseTimeouts.sum());
+        stats.put("aborted", aborted.sum());
+        return stats;
+    }
+
+    /**
+     * One-line summary for the SOAP clients' getThreadPoolStats()
+     */
+    public String describe() {
+        Map<String, Object> stats = getStatistics();
+        return String.format("Connections[leased=%s, maxPerRoute=%s, utilisation=%s%%, requests=%s, retried=%s, failed=%s, waits=%s]",
+                stats.get("leased"), stats.get("maxPerRoute"), stats.get("utilisationPct"),
+                stats.get("requests"), stats.get("retried"), stats.get("failed"), stats.get("lease.waits"));
+    }
+
+    public int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    /**
+     * Progress of one exchange: once the whole request is written it may
+     * have been processed and is not sent again
+     */
+    private static final class Exchange {
+        boolean connected;
+        boolean requestWritten;
+    }
+}
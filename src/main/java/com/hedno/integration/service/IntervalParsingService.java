@@ -1,6 +1,8 @@
 package com.hedno.integration.service;
 
+import com.hedno.integration.processor.FixedPointDecimal;
 import com.hedno.integration.processor.IntervalData;
+import com.hedno.integration.processor.IsoDateTimeParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -8,12 +10,11 @@ import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
-import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
-import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -24,11 +25,9 @@ import java.util.List;
 public class IntervalParsingService {
 
     private static final Logger logger = LoggerFactory.getLogger(IntervalParsingService.class);
-    private DocumentBuilderFactory factory;
     private String defaultStatus;
 
     public IntervalParsingService() {
-        this.factory = DocumentBuilderFactory.newInstance();
         this.defaultStatus = System.getProperty("data.default.status", "W");
     }
 
@@ -41,9 +40,11 @@ public class IntervalParsingService {
      */
     public List<IntervalData> parseIntervalsFromXml(String rawXml, String profilBlocId) {
         List<IntervalData> intervals = new ArrayList<>();
+        FixedPointDecimal decimals = new FixedPointDecimal();
+        IsoDateTimeParser timestamps = new IsoDateTimeParser();
 
         try (InputStream stream = new ByteArrayInputStream(rawXml.getBytes(StandardCharsets.UTF_8))) {
-            Document doc = factory.newDocumentBuilder().parse(stream);
+            Document doc = XmlParserPool.documentBuilder(XmlParserPool.Profile.DEFAULT).parse(stream);
 
             // Get all <Item> tags anywhere in the document
             NodeList itemNodes = doc.getElementsByTagName("Item");
@@ -67,10 +68,11 @@ public class IntervalParsingService {
                     if (startStr != null && endStr != null && valueStr != null) {
                         try {
                             IntervalData interval = new IntervalData();
-                            interval.setStartDateTime(LocalDateTime.parse(startStr));
-                            interval.setValue(new BigDecimal(valueStr));
-                            interval.setStatus((statusStr != null && !statusStr.isEmpty()) ? statusStr : this.defaultStatus);
-                            interval.setUnitCode("KWH"); // Default or extract from XML if available
+                            interval.setStartDateTime(parseLocalDateTime(timestamps, startStr));
+                            interval.setScaledValue(decimals.parse(valueStr), decimals.getLastScale());
+                            interval.setStatus(SymbolTable.STATUS.intern(
+                                    (statusStr != null && !statusStr.isEmpty()) ? statusStr : this.defaultStatus));
+                            interval.setUnitCode(SymbolTable.UNIT.intern("KWH")); // Default or extract from XML if available
 
                             intervals.add(interval);
                         } catch (Exception e) {
@@ -88,6 +90,19 @@ public class IntervalParsingService {
         return intervals;
     }
 
+    /**
+     * Parse an ISO local date-time (2025-01-01T00:15:00) with the fixed-layout
+     * parser, falling back to LocalDateTime.parse for other forms.
+     */
+    private LocalDateTime parseLocalDateTime(IsoDateTimeParser timestamps, String text) {
+        long local = timestamps.parse(text);
+        if (local == IsoDateTimeParser.INVALID || timestamps.getLastOffsetSeconds() != IsoDateTimeParser.NO_OFFSET
+                || text.length() != 19 || text.charAt(10) != 'T') {
+            return LocalDateTime.parse(text);
+        }
+        return LocalDateTime.ofEpochSecond(local, 0, ZoneOffset.UTC);
+    }
+
     /**
      * Helper to get text content of a tag within a specific Element.
      */
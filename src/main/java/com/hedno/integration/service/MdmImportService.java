@@ -1,17 +1,32 @@
 package com.hedno.integration.service;
 
+import com.hedno.integration.ConfigService;
 import com.hedno.integration.dao.ConnectOracleDAO;
-import com.hedno.integration.processor.IntervalData;
+import com.hedno.integration.processor.FixedPointDecimal;
+import com.hedno.integration.processor.IntervalColumns;
 import com.hedno.integration.processor.LoadProfileData;
 import com.hedno.integration.processor.LoadProfileDataExtractor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.StringReader;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.sql.*;
 import java.time.*;
+import java.time.zone.ZoneRules;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
 /**
  * MDM Import Service v3.1
@@ -30,8 +45,19 @@ import java.util.*;
  * Changes in v3.1:
  * - Simplified CLOB handling using setCharacterStream (avoids OracleConnection dependency)
  * 
+ * Changes in v3.2:
+ * - Optional gzip archival of the raw payload (RAW_XML_GZ BLOB + RAW_XML_CODEC)
+ * - Optional deferred archival through a local spool (RAW_XML_STATE)
+ * - MESSAGE_UUID replay rejection (DuplicateMessageException): the header is
+ *   committed as PENDING before any curve is written and UX_HD_MESSAGE_UUID
+ *   rejects a second live header for the same UUID
+ * - MERGE write mode: partial POD-days are merged into one row per
+ *   (POD_ID, DATE_READ, DATA_CLASS) instead of inserting a row per message
+ * - Large messages are pivoted in parallel (ForkJoin) and inserted in JDBC
+ *   batches; concurrent message writers are bounded by a connection semaphore
+ * 
  * @author HEDNO Integration Team
- * @version 3.1
+ * @version 3.2
  */
 public class MdmImportService {
 
@@ -39,7 +65,6 @@ public class MdmImportService {
 
     // Timezone for Greek local time conversion
     private static final ZoneId GREEK_ZONE = ZoneId.of("Europe/Athens");
-    private static final ZoneId UTC_ZONE = ZoneId.of("UTC");
 
     // Source system constants
     public static final String SOURCE_SYSTEM_ZFA = "ZFA";
@@ -52,24 +77,95 @@ public class MdmImportService {
 
     // Max intervals (96 normal + 4 for DST)
     private static final int MAX_INTERVALS = 100;
+    private static final long SECONDS_PER_DAY = 86400;
+    private static final int SECONDS_PER_INTERVAL = 900;
+
+    // Q values are bound as longs scaled by 10^4 and descaled by Oracle (exact NUMBER division)
+    private static final String Q_BIND = "? / 10000";
+
+    // Curve write modes: INSERT a row per message, or MERGE slots into the POD-day row
+    public static final String CURVE_WRITE_MODE_INSERT = "INSERT";
+    public static final String CURVE_WRITE_MODE_MERGE = "MERGE";
 
     private final LoadProfileDataExtractor extractor;
 
+    // Optional XSD validation of ZFA payloads, run in the extraction pass
+    private final SchemaValidation schemaValidation;
+
+    // Raw payload archival state
+    public static final String RAW_XML_STATE_INLINE = "INLINE";
+    public static final String RAW_XML_STATE_SPOOLED = "SPOOLED";
+    public static final String RAW_XML_STATE_ARCHIVED = "ARCHIVED";
+
+    // Raw payload archival codec (NONE = CLOB, GZIP = BLOB)
+    private final String rawXmlCodec;
+    private final int rawXmlGzipLevel;
+
+    // Deferred archival: header committed without RAW_XML, payload spooled
+    private final boolean deferRawXml;
+
+    // MESSAGE_UUID replay detection
+    private final MessageReplayRegistry replayRegistry;
+
+    // Concurrency / per-sender / in-flight-bytes limits for pushed messages
+    private final AdmissionController admission;
+
+    private final String curveWriteMode;
+    private final int dbBatchSize;
+
+    // Messages with at least this many profiles are pivoted in parallel
+    private final int parallelThreshold;
+    private final long writerAcquireTimeoutMs;
+
+    // Bounds the connections held by concurrent message writers
+    private static final Semaphore WRITER_PERMITS = new Semaphore(
+            Integer.parseInt(ConfigService.get("mdm.writer.max.connections", "16").trim()), true);
+
+    // Ingestion metrics: extraction (parse + optional validation) time per message
+    private static final LongAdder EXTRACTED_MESSAGES = new LongAdder();
+    private static final LongAdder EXTRACT_NANOS = new LongAdder();
+    private static final LongAdder VALIDATED_MESSAGES = new LongAdder();
+    private static final LongAdder VALIDATED_EXTRACT_NANOS = new LongAdder();
+
+    // Marks the end of the row stream produced by the transform pool
+    private static final List<CurveRow> END_OF_ROWS = Collections.emptyList();
+
     // SQL Statements
     private static final String INSERT_HD_SQL = "INSERT INTO SMC_MDM_SCCURVES_HD (" +
             "SOURCE_SYSTEM, SOURCE_TYPE, FILE_ID, FILE_NAME, MESSAGE_UUID, " +
             "WSDL_OPERATION, ENDPOINT, SENDER_ID, RECIPIENT_ID, SOURCE_CREATION_DT, " +
-            "STATUS, RAW_XML) " +
-            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 'PENDING', ?)";
+            "STATUS, RAW_XML, RAW_XML_GZ, RAW_XML_CODEC, RAW_XML_STATE) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 'PENDING', ?, ?, ?, ?)";
 
     private static final String UPDATE_HD_STATUS_SQL = "UPDATE SMC_MDM_SCCURVES_HD SET STATUS = ?, STATUS_MSG = ?, " +
             "RECORDS_PROCESSED = ?, DT_UPDATE = SYSTIMESTAMP WHERE LOG_ID = ?";
 
+    // A PROCESSING backfill header taken over by a resend (MessageReplayRegistry) must not complete
+    private static final String COMPLETE_STAGED_SQL = "UPDATE SMC_MDM_SCCURVES_HD SET STATUS = ?, STATUS_MSG = ?, " +
+            "RECORDS_PROCESSED = ?, DT_UPDATE = SYSTIMESTAMP WHERE LOG_ID = ? AND STATUS = 'PROCESSING'";
+
+    // A PENDING header taken over by a resend (MessageReplayRegistry) must not complete
+    private static final String COMPLETE_HD_SQL = "UPDATE SMC_MDM_SCCURVES_HD SET STATUS = 'SUCCESS', STATUS_MSG = NULL, " +
+            "RECORDS_PROCESSED = ?, DT_UPDATE = SYSTIMESTAMP WHERE LOG_ID = ? AND STATUS = 'PENDING'";
+
     private static final String SELECT_HD_SQL = "SELECT LOG_ID, SOURCE_SYSTEM, SOURCE_TYPE, MESSAGE_UUID, STATUS, STATUS_MSG, "
             +
-            "RECORDS_PROCESSED, RECEIVED_AT FROM SMC_MDM_SCCURVES_HD WHERE LOG_ID = ?";
+            "RECORDS_PROCESSED, RECEIVED_AT, NVL(RAW_XML_CODEC, 'NONE') AS RAW_XML_CODEC, " +
+            "NVL(RAW_XML_STATE, 'INLINE') AS RAW_XML_STATE " +
+            "FROM SMC_MDM_SCCURVES_HD WHERE LOG_ID = ?";
+
+    private static final String SELECT_HD_RAW_XML_SQL = "SELECT RAW_XML_CODEC, RAW_XML, RAW_XML_GZ " +
+            "FROM SMC_MDM_SCCURVES_HD WHERE LOG_ID = ?";
+
+    private static final String SELECT_HD_BY_UUID_SQL = "SELECT STATUS, NVL(RAW_XML_STATE, 'INLINE') AS RAW_XML_STATE " +
+            "FROM SMC_MDM_SCCURVES_HD WHERE MESSAGE_UUID = ?";
 
-    private static final String SELECT_HD_BY_UUID_SQL = "SELECT STATUS FROM SMC_MDM_SCCURVES_HD WHERE MESSAGE_UUID = ?";
+    private static final String CURVE_HEADER_COLUMNS = "HD_LOG_ID, SECTION_UUID, POD_ID, SUPPLY_NUM, DATE_READ, " +
+            "DATA_CLASS, UNIT_MEASURE, SOURCE_SYSTEM, SOURCE_CREATION_DT";
+
+    private static final String INSERT_CURVE_SQL = buildInsertCurveSql(null);
+
+    private static final String MERGE_CURVE_SQL = buildMergeCurveSql();
 
     private static final String SELECT_CURVES_SUMMARY_SQL = "SELECT POD_ID, SUPPLY_NUM, DATA_CLASS, DATE_READ, SECTION_UUID, "
             +
@@ -78,6 +174,16 @@ public class MdmImportService {
 
     public MdmImportService() {
         this.extractor = new LoadProfileDataExtractor();
+        this.schemaValidation = SchemaValidation.configured();
+        this.rawXmlCodec = RawPayloadCodec.configuredCodec();
+        this.rawXmlGzipLevel = RawPayloadCodec.configuredLevel();
+        this.deferRawXml = RawPayloadSpool.isEnabled();
+        this.replayRegistry = MessageReplayRegistry.getInstance();
+        this.admission = AdmissionController.getInstance();
+        this.curveWriteMode = ConfigService.get("mdm.curves.write.mode", CURVE_WRITE_MODE_INSERT).trim().toUpperCase();
+        this.dbBatchSize = Integer.parseInt(ConfigService.get("db.batch.size", "4096").trim());
+        this.parallelThreshold = Integer.parseInt(ConfigService.get("mdm.transform.parallel.threshold", "64").trim());
+        this.writerAcquireTimeoutMs = Long.parseLong(ConfigService.get("mdm.writer.acquire.timeout.ms", "5000").trim());
     }
 
     // ========================================================================
@@ -109,33 +215,92 @@ public class MdmImportService {
      * @param fileId        File ID (for ITRON)
      * @param fileName      File name (for ITRON)
      * @return The HD_LOG_ID of the created header record
+     * @throws DuplicateMessageException if the MESSAGE_UUID was already accepted
+     * @throws AdmissionRejectedException if the message is over an admission limit,
+     *         or its original is still being processed
      */
     public long processXmlPayload(String xmlBody, String endpoint, String wsdlOperation,
             String sourceSystem, String sourceType, String fileId, String fileName)
             throws Exception {
 
+        // 1. Extract metadata from XML and reject replays before touching the database
+        XmlMetadata metadata = extractXmlMetadata(xmlBody);
+        String replayUuid = metadata.uuidFromXml ? metadata.messageUuid : null;
+        if (!replayRegistry.reserve(sourceSystem, replayUuid)) {
+            log.info("Resend of message UUID {} while the original is processed on this node, refused for now",
+                    replayUuid);
+            throw admission.rejectInProgress(replayUuid, 0);
+        }
+        try {
+            rejectReplay(sourceSystem, replayUuid);
+            return writeMessage(xmlBody, endpoint, wsdlOperation, sourceSystem, sourceType,
+                    fileId, fileName, metadata);
+        } finally {
+            replayRegistry.release(sourceSystem, replayUuid);
+        }
+    }
+
+    /**
+     * Throw if an earlier message with the same UUID succeeded (duplicate) or
+     * is still being processed (refused, the sender retries later)
+     */
+    private void rejectReplay(String sourceSystem, String messageUuid) throws Exception {
+        MessageReplayRegistry.Original original = replayRegistry.findOriginal(sourceSystem, messageUuid);
+        if (original == null) {
+            return;
+        }
+        if (original.isInProgress()) {
+            log.info("Resend of message UUID {} while HD_LOG_ID {} is {}, refused for now",
+                    messageUuid, original.getLogId(), original.getStatus());
+            throw admission.rejectInProgress(messageUuid, original.getLogId());
+        }
+        log.info("Replay of message UUID {} rejected, original HD_LOG_ID: {}",
+                messageUuid, original.getLogId());
+        throw new DuplicateMessageException(messageUuid, original.getLogId());
+    }
+
+    /**
+     * Write a message reserved on this node: header, curve rows and status
+     */
+    private long writeMessage(String xmlBody, String endpoint, String wsdlOperation,
+            String sourceSystem, String sourceType, String fileId, String fileName,
+            XmlMetadata metadata) throws Exception {
+
         ConnectOracleDAO dao = new ConnectOracleDAO();
         long hdLogId = 0;
         int recordsProcessed = 0;
         Connection conn = null;
 
+        AdmissionController.Permit permit = admission.admit(metadata.senderId, xmlBody.length());
+        boolean writerAcquired = false;
+        try {
+            writerAcquired = WRITER_PERMITS.tryAcquire(writerAcquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } finally {
+            if (!writerAcquired) {
+                permit.close();
+            }
+        }
+        if (!writerAcquired) {
+            throw admission.rejectWriter(writerAcquireTimeoutMs);
+        }
+        permit.started();
+
         try {
             conn = dao.getConnection();
             conn.setAutoCommit(false);
 
-            // 1. Extract metadata from XML
-            XmlMetadata metadata = extractXmlMetadata(xmlBody);
-
-            // 2. Insert header record (PENDING status)
-            hdLogId = insertHeader(conn, sourceSystem, sourceType, fileId, fileName,
-                    metadata.messageUuid, wsdlOperation, endpoint,
-                    metadata.senderId, metadata.recipientId, metadata.creationDateTime, xmlBody);
+            // 2. Reserve the message: header committed as PENDING before any curve is written
+            hdLogId = reserveHeader(conn, sourceSystem, sourceType, fileId, fileName,
+                    wsdlOperation, endpoint, metadata, xmlBody);
 
             log.info("Created HD record {} for {} {} message UUID: {}",
                     hdLogId, sourceSystem, sourceType, metadata.messageUuid);
 
+            // Payload is durable before the curves are committed
+            spoolRawXml(conn, hdLogId, xmlBody);
+
             // 3. Parse XML and extract profiles
-            List<LoadProfileData> profiles = extractor.extractFromXml(xmlBody);
+            List<LoadProfileData> profiles = extractProfiles(xmlBody, sourceSystem);
 
             if (profiles.isEmpty()) {
                 updateHeaderStatus(conn, hdLogId, "ERROR", "No profiles found in XML", 0);
@@ -144,25 +309,31 @@ public class MdmImportService {
             }
 
             // 4. Process each profile (channel)
-            for (LoadProfileData profile : profiles) {
-                List<CurveRow> curveRows = transformToCurveRows(profile, hdLogId,
+            if (CURVE_WRITE_MODE_MERGE.equals(curveWriteMode)) {
+                List<CurveRow> curveRows = transformAll(profiles, hdLogId,
+                        sourceSystem, metadata.creationDateTime);
+                recordsProcessed = mergeCurveRows(conn, curveRows);
+            } else {
+                recordsProcessed = insertCurveRows(conn, profiles, hdLogId,
                         sourceSystem, metadata.creationDateTime);
-
-                for (CurveRow row : curveRows) {
-                    insertCurveRow(conn, row);
-                    recordsProcessed++;
-                }
             }
 
             // 5. Update header to SUCCESS
-            updateHeaderStatus(conn, hdLogId, "SUCCESS", null, recordsProcessed);
+            completeHeader(conn, hdLogId, recordsProcessed);
             conn.commit();
+            if (metadata.uuidFromXml) {
+                replayRegistry.register(sourceSystem, metadata.messageUuid, hdLogId);
+            }
 
             log.info("Successfully processed {} curve records for HD_LOG_ID: {}",
                     recordsProcessed, hdLogId);
 
             return hdLogId;
 
+        } catch (DuplicateMessageException | AdmissionRejectedException e) {
+            // Another header for the UUID won the insert; nothing was written
+            throw e;
+
         } catch (Exception e) {
             log.error("Processing failed for HD_LOG_ID: {}", hdLogId, e);
 
@@ -195,6 +366,106 @@ public class MdmImportService {
                     log.debug("Error closing connection", e);
                 }
             }
+            WRITER_PERMITS.release();
+            permit.close();
+        }
+    }
+
+    // ========================================================================
+    // Backfill Support (see CurveBackfillService)
+    // ========================================================================
+
+    /**
+     * Create the header of one message (committed, PROCESSING) and return its
+     * curve rows without writing them. The caller bulk-loads the rows, calls
+     * {@link #completeStagedMessages} in the same transaction, commits and then
+     * calls {@link #registerStagedMessages}. Messages without profiles are
+     * marked ERROR and returned with no rows.
+     * 
+     * @throws DuplicateMessageException if the MESSAGE_UUID was already accepted
+     */
+    StagedMessage stageMessage(Connection conn, String xmlBody, String endpoint,
+            String sourceSystem, String sourceType, String fileName) throws Exception {
+
+        XmlMetadata metadata = extractXmlMetadata(xmlBody);
+        String replayUuid = metadata.uuidFromXml ? metadata.messageUuid : null;
+        if (!replayRegistry.reserve(sourceSystem, replayUuid)) {
+            throw new DuplicateMessageException(replayUuid, 0);
+        }
+        try {
+            // Historical data: a live message with the same UUID wins, whatever its state
+            MessageReplayRegistry.Original original = replayRegistry.findOriginal(sourceSystem, replayUuid);
+            if (original != null) {
+                throw new DuplicateMessageException(replayUuid, original.getLogId());
+            }
+            return stageReservedMessage(conn, xmlBody, endpoint, sourceSystem, sourceType, fileName,
+                    metadata);
+        } finally {
+            replayRegistry.release(sourceSystem, replayUuid);
+        }
+    }
+
+    private StagedMessage stageReservedMessage(Connection conn, String xmlBody, String endpoint,
+            String sourceSystem, String sourceType, String fileName, XmlMetadata metadata) throws Exception {
+
+        StagedMessage staged = new StagedMessage();
+        staged.sourceSystem = sourceSystem;
+        staged.messageUuid = metadata.uuidFromXml ? metadata.messageUuid : null;
+        staged.hdLogId = reserveHeader(conn, sourceSystem, sourceType, null, fileName,
+                "backfill", endpoint, metadata, xmlBody);
+
+        try {
+            spoolRawXml(conn, staged.hdLogId, xmlBody);
+            List<LoadProfileData> profiles = extractProfiles(xmlBody, sourceSystem);
+            if (profiles.isEmpty()) {
+                updateHeaderStatus(conn, staged.hdLogId, "ERROR", "No profiles found in XML", 0);
+            } else {
+                updateHeaderStatus(conn, staged.hdLogId, "PROCESSING", null, 0);
+                for (LoadProfileData profile : profiles) {
+                    staged.rows.addAll(transformToCurveRows(profile, staged.hdLogId,
+                            sourceSystem, metadata.creationDateTime));
+                }
+            }
+        } catch (Exception e) {
+            updateHeaderStatus(conn, staged.hdLogId, "ERROR", truncateMessage(e.getMessage(), 4000), 0);
+            staged.rows.clear();
+        }
+        conn.commit();
+        return staged;
+    }
+
+    /**
+     * Mark staged messages SUCCESS (or ERROR with the given message if the
+     * load failed). Not committed: on success the caller commits together with
+     * the loaded rows. Only PROCESSING headers are updated; a header taken
+     * over by a resend in the meantime fails a successful load.
+     */
+    void completeStagedMessages(Connection conn, List<StagedMessage> messages, String errorMessage)
+            throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(COMPLETE_STAGED_SQL)) {
+            for (StagedMessage message : messages) {
+                ps.setString(1, errorMessage == null ? "SUCCESS" : "ERROR");
+                ps.setString(2, errorMessage == null ? null : truncateMessage(errorMessage, 4000));
+                ps.setInt(3, errorMessage == null ? message.rows.size() : 0);
+                ps.setLong(4, message.hdLogId);
+                ps.addBatch();
+            }
+            int[] counts = ps.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0 && errorMessage == null) {
+                    throw new SQLException("Header " + messages.get(i).hdLogId
+                            + " is no longer PROCESSING (taken over by a resend)");
+                }
+            }
+        }
+    }
+
+    /**
+     * Register committed staged messages for replay detection
+     */
+    void registerStagedMessages(List<StagedMessage> messages) {
+        for (StagedMessage message : messages) {
+            replayRegistry.register(message.sourceSystem, message.messageUuid, message.hdLogId);
         }
     }
 
@@ -202,12 +473,29 @@ public class MdmImportService {
      * Get log status by transaction ID (UUID)
      */
     public String getLogStatus(String txId) throws Exception {
+        return getLogStatusDetail(txId).get("status");
+    }
+
+    /**
+     * Get log status and raw payload archival state by transaction ID (UUID)
+     * 
+     * @return Map with "status" and "rawXmlState" (both NOT_FOUND if unknown)
+     */
+    public Map<String, String> getLogStatusDetail(String txId) throws Exception {
         ConnectOracleDAO dao = new ConnectOracleDAO();
         try (Connection conn = dao.getConnection();
                 PreparedStatement ps = conn.prepareStatement(SELECT_HD_BY_UUID_SQL)) {
             ps.setString(1, txId);
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? rs.getString(1) : "NOT_FOUND";
+                Map<String, String> result = new HashMap<>();
+                if (rs.next()) {
+                    result.put("status", rs.getString("STATUS"));
+                    result.put("rawXmlState", rs.getString("RAW_XML_STATE"));
+                } else {
+                    result.put("status", "NOT_FOUND");
+                    result.put("rawXmlState", "NOT_FOUND");
+                }
+                return result;
             }
         }
     }
@@ -232,6 +520,8 @@ public class MdmImportService {
                     result.put("statusMsg", rs.getString("STATUS_MSG"));
                     result.put("recordsProcessed", rs.getInt("RECORDS_PROCESSED"));
                     result.put("receivedAt", rs.getTimestamp("RECEIVED_AT"));
+                    result.put("rawXmlCodec", rs.getString("RAW_XML_CODEC"));
+                    result.put("rawXmlState", rs.getString("RAW_XML_STATE"));
                     return result;
                 }
                 return null;
@@ -239,6 +529,46 @@ public class MdmImportService {
         }
     }
 
+    /**
+     * Get the original XML payload of a header, decompressed if it was
+     * archived with the GZIP codec. Used by debug endpoints and reprocessing.
+     *
+     * @return The raw XML, or null if the header or payload does not exist
+     */
+    public String getRawXml(long logId) throws Exception {
+        ConnectOracleDAO dao = new ConnectOracleDAO();
+        try (Connection conn = dao.getConnection();
+                PreparedStatement ps = conn.prepareStatement(SELECT_HD_RAW_XML_SQL)) {
+
+            ps.setLong(1, logId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                if (RawPayloadCodec.CODEC_GZIP.equals(rs.getString("RAW_XML_CODEC"))) {
+                    Blob blob = rs.getBlob("RAW_XML_GZ");
+                    if (blob == null) {
+                        return null;
+                    }
+                    try {
+                        return RawPayloadCodec.readFully(RawPayloadCodec.gunzip(blob.getBinaryStream()));
+                    } finally {
+                        blob.free();
+                    }
+                }
+                Clob clob = rs.getClob("RAW_XML");
+                if (clob == null) {
+                    return null;
+                }
+                try {
+                    return RawPayloadCodec.readFully(clob.getCharacterStream());
+                } finally {
+                    clob.free();
+                }
+            }
+        }
+    }
+
     /**
      * Get processing summary for a header (list of curve records created)
      */
@@ -267,10 +597,57 @@ public class MdmImportService {
         return results;
     }
 
+    /**
+     * Ingestion counters: extraction time per message, with and without
+     * schema validation (the difference is the validation cost), the
+     * validation results and admission control (queue time)
+     */
+    public static Map<String, Object> getIngestionStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long messages = EXTRACTED_MESSAGES.sum();
+        long validatedMessages = VALIDATED_MESSAGES.sum();
+        long validatedNanos = VALIDATED_EXTRACT_NANOS.sum();
+        long plainNanos = EXTRACT_NANOS.sum() - validatedNanos;
+        stats.put("messages", messages);
+        stats.put("extract.avgMicros", averageMicros(plainNanos, messages - validatedMessages));
+        stats.put("validated.messages", validatedMessages);
+        stats.put("validated.extract.avgMicros", averageMicros(validatedNanos, validatedMessages));
+        stats.putAll(SchemaValidation.configured().getStatistics());
+        for (Map.Entry<String, Object> entry : AdmissionController.getInstance().getStatistics().entrySet()) {
+            stats.put("admission." + entry.getKey(), entry.getValue());
+        }
+        return stats;
+    }
+
+    private static long averageMicros(long nanos, long count) {
+        return count > 0 ? nanos / count / 1000 : 0;
+    }
+
     // ========================================================================
     // Private Helper Methods
     // ========================================================================
 
+    /**
+     * Extract the profiles of a message, validating ZFA payloads against the
+     * schema in the same pass when mdm.validation.mode is set
+     */
+    private List<LoadProfileData> extractProfiles(String xmlBody, String sourceSystem) throws Exception {
+        SchemaValidation validation = SOURCE_SYSTEM_ZFA.equals(sourceSystem) ? schemaValidation : null;
+        boolean validating = validation != null && validation.isEnabled();
+        long started = System.nanoTime();
+        try {
+            return extractor.extractFromXml(xmlBody, validation);
+        } finally {
+            long elapsed = System.nanoTime() - started;
+            EXTRACTED_MESSAGES.increment();
+            EXTRACT_NANOS.add(elapsed);
+            if (validating) {
+                VALIDATED_MESSAGES.increment();
+                VALIDATED_EXTRACT_NANOS.add(elapsed);
+            }
+        }
+    }
+
     /**
      * Insert header record into SMC_MDM_SCCURVES_HD
      */
@@ -292,12 +669,13 @@ public class MdmImportService {
             ps.setString(idx++, senderId);
             ps.setString(idx++, recipientId);
             ps.setTimestamp(idx++, sourceCreationDt);
-            if (rawXml != null && !rawXml.isEmpty()) {
-                // Use setCharacterStream - bypasses WebLogic's SerialClob issue
-                // This streams the data directly without creating a CLOB object
-                ps.setCharacterStream(idx++, new StringReader(rawXml), rawXml.length());
+            if (deferRawXml) {
+                // Payload is spooled once the header is committed and archived by the background writer
+                idx = RawPayloadCodec.bind(ps, idx, null, null, 0);
+                ps.setString(idx++, rawXml != null && !rawXml.isEmpty() ? RAW_XML_STATE_SPOOLED : null);
             } else {
-                ps.setNull(idx++, Types.CLOB);
+                idx = RawPayloadCodec.bind(ps, idx, rawXml, rawXmlCodec, rawXmlGzipLevel);
+                ps.setString(idx++, RAW_XML_STATE_INLINE);
             }
 
             ps.executeUpdate();
@@ -311,6 +689,69 @@ public class MdmImportService {
         throw new SQLException("Failed to get generated LOG_ID");
     }
 
+    /**
+     * Insert the PENDING header of a message and commit it, so resends on any
+     * node see it. A concurrent header for the same UUID that was committed
+     * first makes UX_HD_MESSAGE_UUID reject the insert.
+     *
+     * @throws DuplicateMessageException if the UUID lost the insert race
+     */
+    private long reserveHeader(Connection conn, String sourceSystem, String sourceType,
+            String fileId, String fileName, String wsdlOperation, String endpoint,
+            XmlMetadata metadata, String rawXml) throws Exception {
+        long hdLogId;
+        try {
+            hdLogId = insertHeader(conn, sourceSystem, sourceType, fileId, fileName,
+                    metadata.messageUuid, wsdlOperation, endpoint,
+                    metadata.senderId, metadata.recipientId, metadata.creationDateTime, rawXml);
+            conn.commit();
+        } catch (SQLException e) {
+            if (!isUniqueViolation(e)) {
+                throw e;
+            }
+            conn.rollback();
+            log.info("Header for message UUID {} already created by a concurrent request", metadata.messageUuid);
+            rejectReplay(sourceSystem, metadata.messageUuid);
+            throw new DuplicateMessageException(metadata.messageUuid, 0);
+        }
+        return hdLogId;
+    }
+
+    /**
+     * Mark a PENDING header SUCCESS in the curve transaction
+     *
+     * @throws SQLException if the header is no longer PENDING (taken over by a resend)
+     */
+    private void completeHeader(Connection conn, long logId, int recordsProcessed) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(COMPLETE_HD_SQL)) {
+            ps.setInt(1, recordsProcessed);
+            ps.setLong(2, logId);
+            if (ps.executeUpdate() == 0) {
+                throw new SQLException("HD_LOG_ID " + logId + " is no longer PENDING, superseded by a resend");
+            }
+        }
+    }
+
+    /**
+     * Hand the raw payload of a committed PENDING header to the spool
+     * (deferred mode), before the curves of the message are committed. If the
+     * spool is unavailable the payload is written inline instead; if that
+     * fails too the message fails, so the sender can resend it.
+     */
+    private void spoolRawXml(Connection conn, long hdLogId, String rawXml) throws SQLException {
+        if (!deferRawXml || rawXml == null || rawXml.isEmpty()) {
+            return;
+        }
+        try {
+            RawPayloadSpool.getInstance().append(hdLogId, rawXml);
+        } catch (IOException e) {
+            log.warn("Raw XML spool unavailable for HD_LOG_ID {}, archiving inline: {}",
+                    hdLogId, e.getMessage());
+            RawPayloadSpool.archiveDirect(conn, hdLogId, rawXml);
+            conn.commit();
+        }
+    }
+
     /**
      * Update header status
      */
@@ -327,51 +768,60 @@ public class MdmImportService {
 
     /**
      * Transform LoadProfileData into CurveRows (horizontal pivot)
-     * Groups intervals by Greek local date
+     * Groups intervals by Greek local date. Reads the interval columns directly,
+     * without materializing IntervalData objects.
      */
     private List<CurveRow> transformToCurveRows(LoadProfileData profile, long hdLogId,
             String sourceSystem, Timestamp sourceCreationDt) {
 
-        Map<LocalDate, CurveRow> curvesByDate = new HashMap<>();
+        Map<Long, CurveRow> curvesByDate = new LinkedHashMap<>();
+        IntervalColumns columns = profile.getColumns();
+        ZoneRules greekRules = GREEK_ZONE.getRules();
 
         String podIdFull = profile.getPodId();
         String supplyNum = extractSupplyNum(podIdFull);
         String dataClass = profile.getObisCode();
         String sectionUuid = profile.getMessageUuid();
 
-        for (IntervalData interval : profile.getIntervals()) {
-            LocalDateTime utcStart = interval.getStartDateTime();
-            if (utcStart == null)
+        long currentDay = Long.MIN_VALUE;
+        CurveRow curve = null;
+
+        for (int i = 0; i < columns.size(); i++) {
+            long utcStart = columns.getStartEpochSecond(i);
+            if (utcStart == IntervalColumns.NO_VALUE)
                 continue;
 
             // Convert UTC to Greek local time
-            ZonedDateTime utcZoned = utcStart.atZone(UTC_ZONE);
-            ZonedDateTime greekZoned = utcZoned.withZoneSameInstant(GREEK_ZONE);
-            LocalDate greekDate = greekZoned.toLocalDate();
-            LocalDateTime greekLocalTime = greekZoned.toLocalDateTime();
-
-            // Get or create curve row for this date
-            CurveRow curve = curvesByDate.computeIfAbsent(greekDate, date -> {
-                CurveRow newCurve = new CurveRow();
-                newCurve.setHdLogId(hdLogId);
-                newCurve.setSectionUuid(sectionUuid);
-                newCurve.setPodId(podIdFull);
-                newCurve.setSupplyNum(supplyNum);
-                newCurve.setDateRead(date);
-                newCurve.setDataClass(dataClass);
-                newCurve.setUnitMeasure(interval.getUnitCode());
-                newCurve.setSourceSystem(sourceSystem);
-                newCurve.setSourceCreationDt(sourceCreationDt);
-                return newCurve;
-            });
+            long greekLocal = utcStart + greekRules.getOffset(Instant.ofEpochSecond(utcStart)).getTotalSeconds();
+            long greekDay = Math.floorDiv(greekLocal, SECONDS_PER_DAY);
+            int secondOfDay = (int) Math.floorMod(greekLocal, SECONDS_PER_DAY);
+
+            // Get or create curve row for this date (intervals usually arrive in order)
+            if (greekDay != currentDay) {
+                currentDay = greekDay;
+                curve = curvesByDate.get(greekDay);
+                if (curve == null) {
+                    curve = new CurveRow();
+                    curve.setHdLogId(hdLogId);
+                    curve.setSectionUuid(sectionUuid);
+                    curve.setPodId(podIdFull);
+                    curve.setSupplyNum(supplyNum);
+                    curve.setDateRead(LocalDate.ofEpochDay(greekDay));
+                    curve.setDataClass(dataClass);
+                    curve.setUnitMeasure(columns.getUnitCode(i));
+                    curve.setSourceSystem(sourceSystem);
+                    curve.setSourceCreationDt(sourceCreationDt);
+                    curvesByDate.put(greekDay, curve);
+                }
+            }
 
             // Calculate Q index (1-based)
             // Q1 = 00:00-00:14, Q2 = 00:15-00:29, ... Q96 = 23:45-23:59
-            int qIndex = (greekLocalTime.getHour() * 4) + (greekLocalTime.getMinute() / 15) + 1;
+            int qIndex = secondOfDay / SECONDS_PER_INTERVAL + 1;
 
             if (qIndex >= 1 && qIndex <= MAX_INTERVALS) {
-                curve.setQValue(qIndex, interval.getValue());
-                curve.setSValue(qIndex, interval.getStatus());
+                curve.setQValue(qIndex, columns.getScaledValue(i), columns.getScale(i));
+                curve.setSValue(qIndex, columns.getStatus(i));
             }
         }
 
@@ -379,13 +829,181 @@ public class MdmImportService {
     }
 
     /**
-     * Insert a curve row into SMC_MDM_SCCURVES
+     * Pivot all profiles of a message. Large messages fan out over the shared
+     * transform pool; small ones stay on the calling thread.
+     */
+    private List<CurveRow> transformAll(List<LoadProfileData> profiles, long hdLogId,
+            String sourceSystem, Timestamp sourceCreationDt) throws Exception {
+        if (profiles.size() < parallelThreshold) {
+            List<CurveRow> rows = new ArrayList<>();
+            for (LoadProfileData profile : profiles) {
+                rows.addAll(transformToCurveRows(profile, hdLogId, sourceSystem, sourceCreationDt));
+            }
+            return rows;
+        }
+        try {
+            return TransformPool.get().submit(() -> profiles.parallelStream()
+                    .flatMap(p -> transformToCurveRows(p, hdLogId, sourceSystem, sourceCreationDt).stream())
+                    .collect(Collectors.toList())).get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Insert the curve rows of all profiles with batched INSERTs on the message
+     * connection, so commit/rollback stays atomic per message.
+     * 
+     * For large messages the pivot runs on the transform pool while this thread
+     * drains finished rows into the batch, overlapping CPU work and DB round trips.
+     * 
+     * @return Number of rows inserted
+     */
+    private int insertCurveRows(Connection conn, List<LoadProfileData> profiles, long hdLogId,
+            String sourceSystem, Timestamp sourceCreationDt) throws Exception {
+
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_CURVE_SQL)) {
+            CurveBatch batch = new CurveBatch(ps, dbBatchSize);
+
+            if (profiles.size() < parallelThreshold) {
+                for (LoadProfileData profile : profiles) {
+                    batch.addAll(transformToCurveRows(profile, hdLogId, sourceSystem, sourceCreationDt));
+                }
+                return batch.finish();
+            }
+
+            // Bounded: the transform pool waits for the writer instead of piling up rows
+            BlockingQueue<List<CurveRow>> ready = new ArrayBlockingQueue<>(TransformPool.get().getParallelism() * 2);
+            AtomicBoolean stopped = new AtomicBoolean();
+            CompletableFuture<Void> producer = CompletableFuture.runAsync(() -> profiles.parallelStream()
+                    .forEach(p -> {
+                        if (!stopped.get()) {
+                            putRows(ready, transformToCurveRows(p, hdLogId, sourceSystem, sourceCreationDt), stopped);
+                        }
+                    }),
+                    TransformPool.get());
+            producer.whenComplete((v, ex) -> putRows(ready, END_OF_ROWS, stopped));
+
+            try {
+                List<CurveRow> rows;
+                while ((rows = ready.take()) != END_OF_ROWS) {
+                    batch.addAll(rows);
+                }
+                producer.join();
+            } catch (CompletionException e) {
+                throw unwrap(e);
+            } finally {
+                // On failure: remaining profiles are skipped and blocked producers give up
+                stopped.set(true);
+                producer.cancel(true);
+            }
+            return batch.finish();
+        }
+    }
+
+    private static Exception unwrap(Exception e) {
+        Throwable cause = e.getCause();
+        return cause instanceof Exception ? (Exception) cause : e;
+    }
+
+    /**
+     * Upsert curve rows into SMC_MDM_SCCURVES on (POD_ID, DATE_READ, DATA_CLASS).
+     * Only the Q/S slots present in a row overwrite the stored ones.
+     * 
+     * Two messages for a new POD-day can both reach WHEN NOT MATCHED;
+     * UX_CURVES_POD_DATE_CLASS (04_curves_merge.sql) makes the second insert
+     * wait for the first and fail with ORA-00001, and the retry updates it.
+     * 
+     * @return Number of rows merged
+     */
+    private int mergeCurveRows(Connection conn, List<CurveRow> rows) throws SQLException {
+        try {
+            return executeMergeBatches(conn, rows);
+        } catch (SQLException e) {
+            if (!isUniqueViolation(e)) {
+                throw e;
+            }
+            // A concurrent message inserted the same POD-day first; MERGE is idempotent, so retry
+            log.warn("Concurrent insert of a POD-day detected, retrying merge: {}", e.getMessage());
+            return executeMergeBatches(conn, rows);
+        }
+    }
+
+    /**
+     * ORA-00001, possibly wrapped in a BatchUpdateException
+     */
+    private boolean isUniqueViolation(SQLException e) {
+        for (SQLException ex = e; ex != null; ex = ex.getNextException()) {
+            if (ex instanceof SQLIntegrityConstraintViolationException || ex.getErrorCode() == 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int executeMergeBatches(Connection conn, List<CurveRow> rows) throws SQLException {
+        int merged = 0;
+        try (PreparedStatement ps = conn.prepareStatement(MERGE_CURVE_SQL)) {
+            int pending = 0;
+            for (CurveRow row : rows) {
+                bindCurveRow(ps, row);
+                ps.addBatch();
+                if (++pending == dbBatchSize) {
+                    ps.executeBatch();
+                    merged += pending;
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                ps.executeBatch();
+                merged += pending;
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Bind a curve row in column order: header columns, then Q1, S1 ... Q100, S100.
+     * Shared by the INSERT and MERGE statements.
+     */
+    static void bindCurveRow(PreparedStatement ps, CurveRow row) throws SQLException {
+        int idx = 1;
+        ps.setLong(idx++, row.getHdLogId());
+        ps.setString(idx++, row.getSectionUuid());
+        ps.setString(idx++, row.getPodId());
+        ps.setString(idx++, row.getSupplyNum());
+        ps.setDate(idx++, java.sql.Date.valueOf(row.getDateRead()));
+        ps.setString(idx++, row.getDataClass());
+        ps.setString(idx++, row.getUnitMeasure());
+        ps.setString(idx++, row.getSourceSystem());
+        ps.setTimestamp(idx++, row.getSourceCreationDt());
+
+        // Set Q and S values; Q is bound as the scaled long (see Q_BIND)
+        for (int i = 1; i <= MAX_INTERVALS; i++) {
+            long qVal = row.getQScaledValue(i);
+            if (qVal != IntervalColumns.NO_VALUE) {
+                ps.setLong(idx++, qVal);
+            } else {
+                ps.setNull(idx++, Types.NUMERIC);
+            }
+
+            String sVal = row.getSValue(i);
+            ps.setString(idx++, sVal);
+        }
+    }
+
+    /**
+     * INSERT statement for a full curve row, optionally with an optimizer hint
+     * (e.g. APPEND_VALUES for direct-path backfills)
      */
-    private void insertCurveRow(Connection conn, CurveRow row) throws SQLException {
+    static String buildInsertCurveSql(String hint) {
         StringBuilder sql = new StringBuilder();
-        sql.append("INSERT INTO SMC_MDM_SCCURVES (");
-        sql.append("HD_LOG_ID, SECTION_UUID, POD_ID, SUPPLY_NUM, DATE_READ, DATA_CLASS, ");
-        sql.append("UNIT_MEASURE, SOURCE_SYSTEM, SOURCE_CREATION_DT");
+        sql.append("INSERT ");
+        if (hint != null) {
+            sql.append("/*+ ").append(hint).append(" */ ");
+        }
+        sql.append("INTO SMC_MDM_SCCURVES (");
+        sql.append(CURVE_HEADER_COLUMNS);
 
         // Add Q1-Q100 and S1-S100 columns
         for (int i = 1; i <= MAX_INTERVALS; i++) {
@@ -393,38 +1011,50 @@ public class MdmImportService {
             sql.append(", S").append(i);
         }
         sql.append(") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?");
-        for (int i = 1; i <= MAX_INTERVALS * 2; i++) {
-            sql.append(", ?");
+        for (int i = 1; i <= MAX_INTERVALS; i++) {
+            sql.append(", ").append(Q_BIND).append(", ?");
         }
         sql.append(")");
+        return sql.toString();
+    }
 
-        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
-            int idx = 1;
-            ps.setLong(idx++, row.getHdLogId());
-            ps.setString(idx++, row.getSectionUuid());
-            ps.setString(idx++, row.getPodId());
-            ps.setString(idx++, row.getSupplyNum());
-            ps.setDate(idx++, java.sql.Date.valueOf(row.getDateRead()));
-            ps.setString(idx++, row.getDataClass());
-            ps.setString(idx++, row.getUnitMeasure());
-            ps.setString(idx++, row.getSourceSystem());
-            ps.setTimestamp(idx++, row.getSourceCreationDt());
-
-            // Set Q and S values
-            for (int i = 1; i <= MAX_INTERVALS; i++) {
-                BigDecimal qVal = row.getQValue(i);
-                if (qVal != null) {
-                    ps.setBigDecimal(idx++, qVal);
-                } else {
-                    ps.setNull(idx++, Types.DECIMAL);
-                }
+    /**
+     * MERGE keyed on (POD_ID, DATE_READ, DATA_CLASS). A slot is present in the
+     * incoming row when its status is set (the extractor always assigns one);
+     * absent slots keep their stored Q/S values.
+     */
+    private static String buildMergeCurveSql() {
+        StringBuilder sql = new StringBuilder();
+        sql.append("MERGE INTO SMC_MDM_SCCURVES t USING (SELECT ");
+        sql.append("? HD_LOG_ID, ? SECTION_UUID, ? POD_ID, ? SUPPLY_NUM, ? DATE_READ, ? DATA_CLASS, ");
+        sql.append("? UNIT_MEASURE, ? SOURCE_SYSTEM, ? SOURCE_CREATION_DT");
+        for (int i = 1; i <= MAX_INTERVALS; i++) {
+            sql.append(", ").append(Q_BIND).append(" Q").append(i).append(", ? S").append(i);
+        }
+        sql.append(" FROM DUAL) s ");
+        sql.append("ON (t.POD_ID = s.POD_ID AND t.DATE_READ = s.DATE_READ AND t.DATA_CLASS = s.DATA_CLASS) ");
 
-                String sVal = row.getSValue(i);
-                ps.setString(idx++, sVal);
-            }
+        sql.append("WHEN MATCHED THEN UPDATE SET ");
+        sql.append("t.HD_LOG_ID = s.HD_LOG_ID, t.SECTION_UUID = s.SECTION_UUID, ");
+        sql.append("t.UNIT_MEASURE = NVL(s.UNIT_MEASURE, t.UNIT_MEASURE), ");
+        sql.append("t.SOURCE_CREATION_DT = s.SOURCE_CREATION_DT, t.DT_UPDATE = SYSTIMESTAMP");
+        for (int i = 1; i <= MAX_INTERVALS; i++) {
+            sql.append(", t.Q").append(i).append(" = CASE WHEN s.S").append(i)
+               .append(" IS NOT NULL THEN s.Q").append(i).append(" ELSE t.Q").append(i).append(" END");
+            sql.append(", t.S").append(i).append(" = NVL(s.S").append(i).append(", t.S").append(i).append(")");
+        }
 
-            ps.executeUpdate();
+        sql.append(" WHEN NOT MATCHED THEN INSERT (").append(CURVE_HEADER_COLUMNS);
+        for (int i = 1; i <= MAX_INTERVALS; i++) {
+            sql.append(", Q").append(i).append(", S").append(i);
+        }
+        sql.append(") VALUES (s.HD_LOG_ID, s.SECTION_UUID, s.POD_ID, s.SUPPLY_NUM, s.DATE_READ, ");
+        sql.append("s.DATA_CLASS, s.UNIT_MEASURE, s.SOURCE_SYSTEM, s.SOURCE_CREATION_DT");
+        for (int i = 1; i <= MAX_INTERVALS; i++) {
+            sql.append(", s.Q").append(i).append(", s.S").append(i);
         }
+        sql.append(")");
+        return sql.toString();
     }
 
     /**
@@ -446,6 +1076,7 @@ public class MdmImportService {
 
         // Extract UUID
         metadata.messageUuid = extractTagValue(xml, "UUID");
+        metadata.uuidFromXml = metadata.messageUuid != null;
         if (metadata.messageUuid == null) {
             metadata.messageUuid = UUID.randomUUID().toString().toUpperCase();
         }
@@ -511,11 +1142,96 @@ public class MdmImportService {
     // Inner Classes
     // ========================================================================
 
+    /**
+     * Shared ForkJoin pool for the per-profile pivot (mdm.transform.parallelism)
+     */
+    private static final class TransformPool {
+        private static final ForkJoinPool POOL = new ForkJoinPool(
+                Integer.parseInt(ConfigService.get("mdm.transform.parallelism",
+                        String.valueOf(Runtime.getRuntime().availableProcessors())).trim()),
+                pool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("curve-transform-" + thread.getPoolIndex());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                null, false);
+
+        static ForkJoinPool get() {
+            return POOL;
+        }
+    }
+
+    /**
+     * Blocking put into the transform queue that gives up once the consumer
+     * has stopped (it no longer drains the queue)
+     */
+    private static void putRows(BlockingQueue<List<CurveRow>> ready, List<CurveRow> rows, AtomicBoolean stopped) {
+        try {
+            while (!stopped.get()) {
+                if (ready.offer(rows, 100, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Accumulates curve rows into JDBC batches of a fixed size
+     */
+    private static final class CurveBatch {
+        private final PreparedStatement ps;
+        private final int batchSize;
+        private int pending;
+        private int written;
+
+        CurveBatch(PreparedStatement ps, int batchSize) {
+            this.ps = ps;
+            this.batchSize = batchSize;
+        }
+
+        void addAll(List<CurveRow> rows) throws SQLException {
+            for (CurveRow row : rows) {
+                bindCurveRow(ps, row);
+                ps.addBatch();
+                if (++pending == batchSize) {
+                    flush();
+                }
+            }
+        }
+
+        int finish() throws SQLException {
+            flush();
+            return written;
+        }
+
+        private void flush() throws SQLException {
+            if (pending > 0) {
+                ps.executeBatch();
+                written += pending;
+                pending = 0;
+            }
+        }
+    }
+
+    /**
+     * Message staged for a bulk backfill: committed header plus pending curve rows
+     */
+    static class StagedMessage {
+        long hdLogId;
+        String sourceSystem;
+        String messageUuid;
+        final List<CurveRow> rows = new ArrayList<>();
+    }
+
     /**
      * Metadata extracted from XML header
      */
     private static class XmlMetadata {
         String messageUuid;
+        boolean uuidFromXml;
         String senderId;
         String recipientId;
         Timestamp creationDateTime;
@@ -535,8 +1251,11 @@ public class MdmImportService {
         private String sourceSystem;
         private Timestamp sourceCreationDt;
 
-        private final Map<Integer, BigDecimal> qValues = new HashMap<>();
-        private final Map<Integer, String> sValues = new HashMap<>();
+        // Indexed by Q/S slot (1-based): Q as scaled long (FixedPointDecimal),
+        // NO_VALUE marks an unset Q slot
+        private final long[] qScaled = newUnsetSlots();
+        private final byte[] qScales = new byte[MAX_INTERVALS + 1];
+        private final String[] sValues = new String[MAX_INTERVALS + 1];
 
         // Getters and setters
         public long getHdLogId() {
@@ -612,19 +1331,67 @@ public class MdmImportService {
         }
 
         public void setQValue(int index, BigDecimal value) {
-            qValues.put(index, value);
+            if (value == null) {
+                setQValue(index, IntervalColumns.NO_VALUE, 0);
+            } else {
+                setQValue(index, FixedPointDecimal.fromBigDecimal(value), FixedPointDecimal.scaleOf(value));
+            }
+        }
+
+        /**
+         * @param scaledValue Value scaled by 10^4, or NO_VALUE
+         * @param scale Natural scale used when the value is read as BigDecimal
+         */
+        public void setQValue(int index, long scaledValue, int scale) {
+            qScaled[index] = scaledValue;
+            qScales[index] = (byte) scale;
+        }
+
+        /**
+         * Q value scaled by 10^4, or NO_VALUE
+         */
+        public long getQScaledValue(int index) {
+            return qScaled[index];
         }
 
         public BigDecimal getQValue(int index) {
-            return qValues.get(index);
+            long scaled = qScaled[index];
+            return scaled == IntervalColumns.NO_VALUE ? null : FixedPointDecimal.toBigDecimal(scaled, qScales[index]);
         }
 
         public void setSValue(int index, String value) {
-            sValues.put(index, value);
+            sValues[index] = value;
         }
 
         public String getSValue(int index) {
-            return sValues.get(index);
+            return sValues[index];
+        }
+
+        /**
+         * Apply a later row for the same POD, date and data class the way
+         * MERGE_CURVE_SQL updates a stored row: slots the later row carries
+         * (status set) are taken over, all others are kept
+         */
+        void mergeFrom(CurveRow later) {
+            hdLogId = later.hdLogId;
+            sectionUuid = later.sectionUuid;
+            if (later.unitMeasure != null) {
+                unitMeasure = later.unitMeasure;
+            }
+            sourceCreationDt = later.sourceCreationDt;
+            for (int i = 1; i <= MAX_INTERVALS; i++) {
+                if (later.sValues[i] != null) {
+                    qScaled[i] = later.qScaled[i];
+                    qScales[i] = later.qScales[i];
+                    sValues[i] = later.sValues[i];
+                }
+            }
+        }
+
+        private static long[] newUnsetSlots() {
+            long[] slots = new long[MAX_INTERVALS + 1];
+            Arrays.fill(slots, IntervalColumns.NO_VALUE);
+            return slots;
         }
     }
 }
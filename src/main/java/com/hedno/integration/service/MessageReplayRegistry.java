@@ -0,0 +1,422 @@
+package com.hedno.integration.service;
+
+import com.hedno.integration.ConfigService;
+import com.hedno.integration.dao.ConnectOracleDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Replay detection for incoming messages by MESSAGE_UUID.
+ *
+ * A message is first reserved on this node (reserve/release), so a resend
+ * that arrives while the original is still being written is caught before
+ * its header exists. Lookup order:
+ * 1. Bounded LRU of recently accepted UUIDs (UUID -> HD_LOG_ID)
+ * 2. Bloom filter of every UUID seen, only with mdm.dedup.filter.trusted=true
+ *    (single node): a miss means "new message", no DB access
+ * 3. IDX_HD_MESSAGE_UUID lookup in SMC_MDM_SCCURVES_HD for PENDING, PROCESSING
+ *    and completed headers
+ *
+ * In a cluster other nodes accept messages this node's filter never saw, so
+ * by default every LRU miss goes to the database. UX_HD_MESSAGE_UUID rejects a
+ * duplicate header that slips past both checks.
+ *
+ * A PENDING header (live message) or PROCESSING header (backfill) not updated
+ * for mdm.dedup.pending.timeout.ms belongs to a node or backfill run that died
+ * mid-message; it is marked ERROR so the resend is accepted.
+ * Only messages that carry their own UUID are checked, and only for the
+ * source systems listed in mdm.dedup.sources.
+ *
+ * @author HEDNO Integration Team
+ * @version 1.0
+ */
+public class MessageReplayRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageReplayRegistry.class);
+
+    private static final String SELECT_ORIGINAL_SQL = "SELECT LOG_ID, STATUS, " +
+            "CASE WHEN STATUS IN ('PENDING', 'PROCESSING') " +
+            "AND NVL(DT_UPDATE, RECEIVED_AT) < SYSTIMESTAMP - NUMTODSINTERVAL(? / 1000, 'SECOND') " +
+            "THEN 1 ELSE 0 END AS ABANDONED FROM SMC_MDM_SCCURVES_HD " +
+            "WHERE MESSAGE_UUID = ? AND SOURCE_SYSTEM = ? AND STATUS <> 'ERROR' " +
+            "ORDER BY LOG_ID FETCH FIRST 1 ROWS ONLY";
+
+    private static final String ABANDON_SQL = "UPDATE SMC_MDM_SCCURVES_HD SET STATUS = 'ERROR', " +
+            "STATUS_MSG = 'Abandoned while ' || STATUS || ', superseded by a resend', DT_UPDATE = SYSTIMESTAMP " +
+            "WHERE LOG_ID = ? AND STATUS IN ('PENDING', 'PROCESSING')";
+
+    private static final String SELECT_RECENT_SQL = "SELECT SOURCE_SYSTEM, MESSAGE_UUID FROM SMC_MDM_SCCURVES_HD " +
+            "WHERE RECEIVED_AT > SYSTIMESTAMP - NUMTODSINTERVAL(?, 'DAY') " +
+            "AND MESSAGE_UUID IS NOT NULL AND STATUS <> 'ERROR'";
+
+    private static final long WARMUP_RETRY_MS = 60000;
+
+    private static volatile MessageReplayRegistry instance;
+
+    private final Set<String> sources;
+    private final int warmupDays;
+    private final boolean trustFilter;
+    private final long pendingTimeoutMs;
+    private final BloomFilter filter;
+    private final Map<String, Long> recent;
+
+    // Messages being processed on this node
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean warmed;
+    private volatile long lastWarmupAttempt;
+
+    private final AtomicLong lruHits = new AtomicLong();
+    private final AtomicLong filterMisses = new AtomicLong();
+    private final AtomicLong databaseLookups = new AtomicLong();
+    private final AtomicLong inFlightHits = new AtomicLong();
+    private final AtomicLong abandoned = new AtomicLong();
+
+    MessageReplayRegistry(Set<String> sources, long expectedMessages, double falsePositiveRate,
+            int lruSize, int warmupDays, boolean trustFilter, long pendingTimeoutMs) {
+        this.sources = sources;
+        this.warmupDays = warmupDays;
+        this.trustFilter = trustFilter;
+        this.pendingTimeoutMs = pendingTimeoutMs;
+        this.filter = new BloomFilter(expectedMessages, falsePositiveRate);
+        this.recent = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > lruSize;
+            }
+        };
+    }
+
+    /**
+     * Shared registry configured from application.properties
+     */
+    public static MessageReplayRegistry getInstance() {
+        MessageReplayRegistry result = instance;
+        if (result == null) {
+            synchronized (MessageReplayRegistry.class) {
+                result = instance;
+                if (result == null) {
+                    Set<String> sources = new HashSet<>();
+                    for (String source : ConfigService.get("mdm.dedup.sources", "ZFA").split(",")) {
+                        if (!source.trim().isEmpty()) {
+                            sources.add(source.trim().toUpperCase());
+                        }
+                    }
+                    result = new MessageReplayRegistry(sources,
+                            Long.parseLong(ConfigService.get("mdm.dedup.bloom.expected", "2000000").trim()),
+                            Double.parseDouble(ConfigService.get("mdm.dedup.bloom.fpp", "0.001").trim()),
+                            Integer.parseInt(ConfigService.get("mdm.dedup.lru.size", "10000").trim()),
+                            Integer.parseInt(ConfigService.get("mdm.dedup.warmup.days", "7").trim()),
+                            Boolean.parseBoolean(ConfigService.get("mdm.dedup.filter.trusted", "false").trim()),
+                            Long.parseLong(ConfigService.get("mdm.dedup.pending.timeout.ms", "600000").trim()));
+                    log.info("Message replay registry enabled for sources: {} (trusted filter: {})",
+                            sources, result.trustFilter);
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Whether replay detection applies to the given source system
+     */
+    public boolean isEnabled(String sourceSystem) {
+        return sourceSystem != null && sources.contains(sourceSystem.toUpperCase());
+    }
+
+    /**
+     * Reserve a message UUID on this node until release() is called
+     *
+     * @return false if a message with the same UUID is already being processed here
+     */
+    public boolean reserve(String sourceSystem, String messageUuid) {
+        if (!isEnabled(sourceSystem) || messageUuid == null || messageUuid.isEmpty()) {
+            return true;
+        }
+        if (!inFlight.add(key(sourceSystem, messageUuid))) {
+            inFlightHits.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public void release(String sourceSystem, String messageUuid) {
+        if (isEnabled(sourceSystem) && messageUuid != null) {
+            inFlight.remove(key(sourceSystem, messageUuid));
+        }
+    }
+
+    /**
+     * Find the header of an earlier, non-failed message with the same UUID.
+     *
+     * @return The original header, or null if the message is new
+     */
+    public Original findOriginal(String sourceSystem, String messageUuid) throws Exception {
+        if (!isEnabled(sourceSystem) || messageUuid == null || messageUuid.isEmpty()) {
+            return null;
+        }
+        String key = key(sourceSystem, messageUuid);
+
+        synchronized (recent) {
+            Long logId = recent.get(key);
+            if (logId != null) {
+                lruHits.incrementAndGet();
+                return new Original(logId, "SUCCESS");
+            }
+        }
+
+        if (trustFilter) {
+            ensureWarm();
+            if (warmed && !filter.mightContain(key)) {
+                filterMisses.incrementAndGet();
+                return null;
+            }
+        }
+
+        databaseLookups.incrementAndGet();
+        Original original = findInDatabase(sourceSystem, messageUuid);
+        if (original != null && !original.isInProgress()) {
+            remember(key, original.getLogId());
+        }
+        return original;
+    }
+
+    /**
+     * Record an accepted message
+     */
+    public void register(String sourceSystem, String messageUuid, long hdLogId) {
+        if (!isEnabled(sourceSystem) || messageUuid == null || messageUuid.isEmpty()) {
+            return;
+        }
+        remember(key(sourceSystem, messageUuid), hdLogId);
+    }
+
+    /**
+     * Lookup counters for monitoring
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("warmed", warmed);
+        stats.put("trustedFilter", trustFilter);
+        stats.put("lruHits", lruHits.get());
+        stats.put("filterMisses", filterMisses.get());
+        stats.put("databaseLookups", databaseLookups.get());
+        stats.put("inFlight", inFlight.size());
+        stats.put("inFlightHits", inFlightHits.get());
+        stats.put("abandonedTakenOver", abandoned.get());
+        synchronized (recent) {
+            stats.put("lruSize", recent.size());
+        }
+        return stats;
+    }
+
+    private void remember(String key, long hdLogId) {
+        filter.put(key);
+        synchronized (recent) {
+            recent.put(key, hdLogId);
+        }
+    }
+
+    private void ensureWarm() {
+        if (warmed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (filter) {
+            if (warmed || now - lastWarmupAttempt < WARMUP_RETRY_MS) {
+                return;
+            }
+            lastWarmupAttempt = now;
+            try {
+                int loaded = loadRecent();
+                warmed = true;
+                log.info("Message replay filter warmed with {} UUIDs from the last {} days", loaded, warmupDays);
+            } catch (Exception e) {
+                log.warn("Message replay filter warm-up failed, using database lookups: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Look up an earlier header by MESSAGE_UUID (IDX_HD_MESSAGE_UUID). An
+     * abandoned PENDING or PROCESSING header is marked ERROR and not returned.
+     */
+    protected Original findInDatabase(String sourceSystem, String messageUuid) throws Exception {
+        ConnectOracleDAO dao = new ConnectOracleDAO();
+        try (Connection conn = dao.getConnection()) {
+            Original original;
+            boolean isAbandoned;
+            try (PreparedStatement ps = conn.prepareStatement(SELECT_ORIGINAL_SQL)) {
+                ps.setLong(1, pendingTimeoutMs);
+                ps.setString(2, messageUuid);
+                ps.setString(3, sourceSystem);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    original = new Original(rs.getLong("LOG_ID"), rs.getString("STATUS"));
+                    isAbandoned = rs.getInt("ABANDONED") == 1;
+                }
+            }
+            if (!isAbandoned) {
+                return original;
+            }
+            try (PreparedStatement ps = conn.prepareStatement(ABANDON_SQL)) {
+                ps.setLong(1, original.getLogId());
+                if (ps.executeUpdate() == 0) {
+                    // Completed or failed since the select: look again
+                    return findInDatabase(sourceSystem, messageUuid);
+                }
+            }
+            if (!conn.getAutoCommit()) {
+                conn.commit();
+            }
+            abandoned.incrementAndGet();
+            log.warn("Header {} of message {} was {} for over {} ms, marked ERROR for the resend",
+                    original.getLogId(), messageUuid, original.getStatus(), pendingTimeoutMs);
+            return null;
+        }
+    }
+
+    /**
+     * Load recent UUIDs into the Bloom filter
+     *
+     * @return Number of UUIDs loaded
+     */
+    protected int loadRecent() throws Exception {
+        int loaded = 0;
+        ConnectOracleDAO dao = new ConnectOracleDAO();
+        try (Connection conn = dao.getConnection();
+                PreparedStatement ps = conn.prepareStatement(SELECT_RECENT_SQL)) {
+            ps.setInt(1, warmupDays);
+            ps.setFetchSize(5000);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    addToFilter(rs.getString(1), rs.getString(2));
+                    loaded++;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Add a UUID to the Bloom filter only (used while warming up)
+     */
+    protected void addToFilter(String sourceSystem, String messageUuid) {
+        filter.put(key(sourceSystem, messageUuid));
+    }
+
+    private static String key(String sourceSystem, String messageUuid) {
+        return sourceSystem.toUpperCase() + ':' + messageUuid;
+    }
+
+    /**
+     * Earlier header with the same MESSAGE_UUID
+     */
+    public static final class Original {
+        private final long logId;
+        private final String status;
+
+        Original(long logId, String status) {
+            this.logId = logId;
+            this.status = status;
+        }
+
+        public long getLogId() {
+            return logId;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        /**
+         * Still being written (PENDING, or PROCESSING in a backfill): the
+         * outcome is not known yet
+         */
+        public boolean isInProgress() {
+            return "PENDING".equals(status) || "PROCESSING".equals(status);
+        }
+    }
+
+    /**
+     * Lock-free Bloom filter over String keys (double hashing, 64-bit FNV-1a + murmur mix)
+     */
+    static final class BloomFilter {
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashCount;
+
+        BloomFilter(long expected, double falsePositiveRate) {
+            long n = Math.max(1, expected);
+            double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+            long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) >>> 6));
+            this.bits = new AtomicLongArray(words);
+            this.bitCount = (long) words << 6;
+            this.hashCount = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+        }
+
+        void put(String key) {
+            long h1 = fnv1a(key);
+            long h2 = mix(h1) | 1L;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << (bit & 63);
+                long current;
+                do {
+                    current = bits.get(word);
+                    if ((current & mask) != 0) {
+                        break;
+                    }
+                } while (!bits.compareAndSet(word, current, current | mask));
+            }
+        }
+
+        boolean mightContain(String key) {
+            long h1 = fnv1a(key);
+            long h2 = mix(h1) | 1L;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << (bit & 63))) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long fnv1a(String key) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                hash ^= key.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.hedno.integration.service;
+
+import com.hedno.integration.ConfigService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Codec for the raw XML payload archived in SMC_MDM_SCCURVES_HD.
+ *
+ * NONE - payload stored as-is in RAW_XML (CLOB)
+ * GZIP - payload stored gzip-compressed in RAW_XML_GZ (BLOB)
+ *
+ * Compression is pull-based: the driver reads the compressed bytes straight
+ * from the payload string in small chunks, so no full-size byte[] copy of the
+ * XML is ever built.
+ *
+ * @author HEDNO Integration Team
+ * @version 1.0
+ */
+public final class RawPayloadCodec {
+
+    private static final Logger log = LoggerFactory.getLogger(RawPayloadCodec.class);
+
+    public static final String CODEC_NONE = "NONE";
+    public static final String CODEC_GZIP = "GZIP";
+
+    private static final int CHUNK_CHARS = 8192;
+    private static final int BUFFER_SIZE = 8192;
+
+    private RawPayloadCodec() {
+    }
+
+    /**
+     * Codec configured for new header rows (mdm.rawxml.codec, default NONE)
+     */
+    public static String configuredCodec() {
+        String codec = ConfigService.get("mdm.rawxml.codec", CODEC_NONE).trim().toUpperCase();
+        if (!CODEC_GZIP.equals(codec) && !CODEC_NONE.equals(codec)) {
+            log.warn("Unknown mdm.rawxml.codec '{}', storing raw XML uncompressed", codec);
+            return CODEC_NONE;
+        }
+        return codec;
+    }
+
+    /**
+     * Compression level for GZIP (mdm.rawxml.gzip.level, default 6)
+     */
+    public static int configuredLevel() {
+        try {
+            int level = Integer.parseInt(ConfigService.get("mdm.rawxml.gzip.level", "6").trim());
+            return Math.max(Deflater.BEST_SPEED, Math.min(Deflater.BEST_COMPRESSION, level));
+        } catch (NumberFormatException e) {
+            return Deflater.DEFAULT_COMPRESSION;
+        }
+    }
+
+    /**
+     * Bind the payload as the three parameters RAW_XML, RAW_XML_GZ, RAW_XML_CODEC
+     * starting at the given index.
+     *
+     * @return The next free parameter index
+     */
+    public static int bind(PreparedStatement ps, int idx, String payload, String codec, int level)
+            throws SQLException {
+        if (payload == null || payload.isEmpty()) {
+            ps.setNull(idx++, Types.CLOB);
+            ps.setNull(idx++, Types.BLOB);
+            ps.setNull(idx++, Types.VARCHAR);
+        } else if (CODEC_GZIP.equals(codec)) {
+            // Compressed while the driver reads the stream - no byte[] copy of the payload
+            ps.setNull(idx++, Types.CLOB);
+            ps.setBinaryStream(idx++, gzip(payload, level));
+            ps.setString(idx++, CODEC_GZIP);
+        } else {
+            // Use setCharacterStream - bypasses WebLogic's SerialClob issue
+            // This streams the data directly without creating a CLOB object
+            ps.setCharacterStream(idx++, new StringReader(payload), payload.length());
+            ps.setNull(idx++, Types.BLOB);
+            ps.setString(idx++, CODEC_NONE);
+        }
+        return idx;
+    }
+
+    /**
+     * Stream the UTF-8 encoded payload as gzip, compressing while it is read
+     */
+    public static InputStream gzip(String payload, int level) {
+        return new GzipCompressingInputStream(payload, level);
+    }
+
+    /**
+     * Open a reader over a gzip-compressed payload
+     */
+    public static Reader gunzip(InputStream compressed) throws IOException {
+        return new InputStreamReader(new GZIPInputStream(compressed, BUFFER_SIZE), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read a whole payload from a reader
+     */
+    public static String readFully(Reader reader) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] buffer = new char[CHUNK_CHARS];
+        int n;
+        try (Reader r = reader) {
+            while ((n = r.read(buffer)) != -1) {
+                sb.append(buffer, 0, n);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * InputStream producing a gzip member (RFC 1952) from a String.
+     * Chunks of the source are UTF-8 encoded and deflated on demand.
+     */
+    private static final class GzipCompressingInputStream extends InputStream {
+
+        private static final byte[] HEADER = {
+            (byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+        };
+
+        private static final int STATE_HEADER = 0;
+        private static final int STATE_BODY = 1;
+        private static final int STATE_TRAILER = 2;
+        private static final int STATE_DONE = 3;
+
+        private final String source;
+        private final Deflater deflater;
+        private final CRC32 crc = new CRC32();
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+
+        private int sourcePos;
+        private long totalIn;
+        private int state = STATE_HEADER;
+        private int bufPos;
+        private int bufLen;
+
+        GzipCompressingInputStream(String source, int level) {
+            this.source = source != null ? source : "";
+            this.deflater = new Deflater(level, true);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (bufPos == bufLen && !fill()) {
+                return -1;
+            }
+            int n = Math.min(len, bufLen - bufPos);
+            System.arraycopy(buffer, bufPos, b, off, n);
+            bufPos += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+            state = STATE_DONE;
+            deflater.end();
+        }
+
+        /**
+         * Refill the output buffer. Returns false at end of stream.
+         */
+        private boolean fill() {
+            bufPos = 0;
+            bufLen = 0;
+            while (bufLen == 0) {
+                switch (state) {
+                    case STATE_HEADER:
+                        System.arraycopy(HEADER, 0, buffer, 0, HEADER.length);
+                        bufLen = HEADER.length;
+                        state = STATE_BODY;
+                        break;
+
+                    case STATE_BODY:
+                        if (deflater.needsInput() && !deflater.finished()) {
+                            feedDeflater();
+                        }
+                        bufLen = deflater.deflate(buffer, 0, buffer.length);
+                        if (bufLen == 0 && deflater.finished()) {
+                            state = STATE_TRAILER;
+                        }
+                        break;
+
+                    case STATE_TRAILER:
+                        writeIntLE((int) crc.getValue(), 0);
+                        writeIntLE((int) totalIn, 4);
+                        bufLen = 8;
+                        state = STATE_DONE;
+                        deflater.end();
+                        break;
+
+                    default:
+                        return false;
+                }
+            }
+            return true;
+        }
+
+        private void feedDeflater() {
+            if (sourcePos >= source.length()) {
+                deflater.finish();
+                return;
+            }
+            int end = Math.min(source.length(), sourcePos + CHUNK_CHARS);
+            // Never split a surrogate pair across chunks
+            if (end < source.length() && Character.isHighSurrogate(source.charAt(end - 1))) {
+                end--;
+            }
+            byte[] chunk = source.substring(sourcePos, end).getBytes(StandardCharsets.UTF_8);
+            sourcePos = end;
+            crc.update(chunk, 0, chunk.length);
+            totalIn += chunk.length;
+            deflater.setInput(chunk);
+            if (sourcePos >= source.length()) {
+                deflater.finish();
+            }
+        }
+
+        private void writeIntLE(int value, int offset) {
+            buffer[offset] = (byte) value;
+            buffer[offset + 1] = (byte) (value >>> 8);
+            buffer[offset + 2] = (byte) (value >>> 16);
+            buffer[offset + 3] = (byte) (value >>> 24);
+        }
+    }
+}
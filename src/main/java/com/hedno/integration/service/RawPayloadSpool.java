@@ -0,0 +1,381 @@
+package com.hedno.integration.service;
+
+import com.hedno.integration.ConfigService;
+import com.hedno.integration.dao.ConnectOracleDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Local spool for deferred raw payload archival.
+ *
+ * With mdm.rawxml.deferred=true the request path creates the header row
+ * without RAW_XML and, once that PENDING header is committed, appends the
+ * payload to an append-only spool file (fsynced) before it commits the
+ * curves. A successful header therefore never lacks its payload; a record
+ * whose message failed afterwards is archived into its ERROR header.
+ * A background writer copies spooled payloads into SMC_MDM_SCCURVES_HD in
+ * batches and advances a checkpoint only after the batch is committed, so a
+ * failed copy is retried from the spool on the next run.
+ *
+ * Spool layout (mdm.rawxml.spool.dir):
+ * - rawxml-NNNNNNNNNNNN.spool : segments of records [magic, logId, length, crc, UTF-8 bytes]
+ * - rawxml.checkpoint         : "segment offset" of the first record not yet archived
+ *
+ * @author HEDNO Integration Team
+ * @version 1.0
+ */
+public final class RawPayloadSpool {
+
+    private static final Logger log = LoggerFactory.getLogger(RawPayloadSpool.class);
+
+    private static final int RECORD_MAGIC = 0x52415758; // "RAWX"
+    private static final int RECORD_HEADER_SIZE = 4 + 8 + 4 + 4;
+    private static final String SEGMENT_PREFIX = "rawxml-";
+    private static final String SEGMENT_SUFFIX = ".spool";
+    private static final String CHECKPOINT_FILE = "rawxml.checkpoint";
+
+    private static final String UPDATE_RAW_XML_SQL = "UPDATE SMC_MDM_SCCURVES_HD SET RAW_XML = ?, RAW_XML_GZ = ?, " +
+            "RAW_XML_CODEC = ?, RAW_XML_STATE = 'ARCHIVED' WHERE LOG_ID = ? AND RAW_XML_STATE = 'SPOOLED'";
+
+    private static volatile RawPayloadSpool instance;
+
+    private final Path directory;
+    private final int batchSize;
+    private final long segmentMaxBytes;
+    private final boolean fsync;
+    private final String codec;
+    private final int gzipLevel;
+
+    // Append side (guarded by appendLock)
+    private final Object appendLock = new Object();
+    private FileChannel appendChannel;
+    private long appendSegment;
+
+    // Writer side (single writer thread)
+    private final ScheduledExecutorService writer;
+    private long checkpointSegment;
+    private long checkpointOffset;
+
+    private final AtomicLong spooledCount = new AtomicLong();
+    private final AtomicLong archivedCount = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    private RawPayloadSpool() throws IOException {
+        this.directory = Paths.get(ConfigService.get("mdm.rawxml.spool.dir",
+                System.getProperty("java.io.tmpdir") + "/smc-rawxml-spool"));
+        this.batchSize = Integer.parseInt(ConfigService.get("mdm.rawxml.spool.batch.size", "100").trim());
+        this.segmentMaxBytes = Long.parseLong(ConfigService.get("mdm.rawxml.spool.segment.max.bytes", "268435456").trim());
+        this.fsync = Boolean.parseBoolean(ConfigService.get("mdm.rawxml.spool.fsync", "true").trim());
+        long intervalMs = Long.parseLong(ConfigService.get("mdm.rawxml.spool.interval.ms", "2000").trim());
+        this.codec = RawPayloadCodec.configuredCodec();
+        this.gzipLevel = RawPayloadCodec.configuredLevel();
+
+        Files.createDirectories(directory);
+        loadCheckpoint();
+
+        // Always append to a fresh segment: a crash may have left a torn record
+        // at the end of the previous one
+        this.appendSegment = Math.max(lastSegment() + 1, checkpointSegment);
+        openAppendSegment();
+
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rawxml-spool-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        this.writer.scheduleWithFixedDelay(this::drain, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+
+        log.info("Raw XML spool started - dir: {}, checkpoint: {}/{}, batch: {}, codec: {}",
+                directory, checkpointSegment, checkpointOffset, batchSize, codec);
+    }
+
+    /**
+     * Shared spool instance, created on first use
+     */
+    public static RawPayloadSpool getInstance() throws IOException {
+        RawPayloadSpool result = instance;
+        if (result == null) {
+            synchronized (RawPayloadSpool.class) {
+                result = instance;
+                if (result == null) {
+                    result = new RawPayloadSpool();
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Whether deferred raw payload archival is enabled (mdm.rawxml.deferred)
+     */
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(ConfigService.get("mdm.rawxml.deferred", "false").trim());
+    }
+
+    /**
+     * Append a payload for a committed header row
+     */
+    public void append(long logId, String rawXml) throws IOException {
+        byte[] payload = rawXml.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        header.putInt(RECORD_MAGIC).putLong(logId).putInt(payload.length).putInt((int) crc.getValue());
+        header.flip();
+        ByteBuffer body = ByteBuffer.wrap(payload);
+
+        synchronized (appendLock) {
+            if (appendChannel.size() >= segmentMaxBytes) {
+                appendChannel.close();
+                appendSegment++;
+                openAppendSegment();
+            }
+            while (header.hasRemaining() || body.hasRemaining()) {
+                appendChannel.write(new ByteBuffer[] {header, body});
+            }
+            if (fsync) {
+                appendChannel.force(false);
+            }
+        }
+        spooledCount.incrementAndGet();
+    }
+
+    /**
+     * Write a payload straight into the header row (used when the spool is unavailable)
+     */
+    public static void archiveDirect(Connection conn, long logId, String rawXml) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(UPDATE_RAW_XML_SQL)) {
+            int idx = RawPayloadCodec.bind(ps, 1, rawXml,
+                    RawPayloadCodec.configuredCodec(), RawPayloadCodec.configuredLevel());
+            ps.setLong(idx, logId);
+            ps.executeUpdate();
+        }
+    }
+
+    // ========================================================================
+    // Background writer
+    // ========================================================================
+
+    /**
+     * Copy spooled payloads into the header table until the spool is drained
+     * or a batch fails. Runs on the writer thread only.
+     */
+    private void drain() {
+        try {
+            while (true) {
+                List<SpoolRecord> batch = new ArrayList<>(batchSize);
+                long nextOffset = readBatch(batch);
+                if (batch.isEmpty()) {
+                    if (!advanceSegment(nextOffset)) {
+                        return;
+                    }
+                    continue;
+                }
+                writeBatch(batch);
+                archivedCount.addAndGet(batch.size());
+                checkpointOffset = nextOffset;
+                saveCheckpoint();
+                log.debug("Archived {} raw payloads (spooled: {}, archived: {}, failed batches: {})",
+                        batch.size(), spooledCount.get(), archivedCount.get(), failedBatches.get());
+            }
+        } catch (Exception e) {
+            failedBatches.incrementAndGet();
+            log.warn("Raw XML archival batch failed, will retry from spool at {}/{}: {}",
+                    checkpointSegment, checkpointOffset, e.getMessage());
+        }
+    }
+
+    /**
+     * Read up to batchSize complete records from the checkpoint position.
+     *
+     * @return Offset just after the last record read
+     */
+    private long readBatch(List<SpoolRecord> batch) throws IOException {
+        Path segment = segmentPath(checkpointSegment);
+        if (!Files.exists(segment)) {
+            return checkpointOffset;
+        }
+
+        long offset = checkpointOffset;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+            while (batch.size() < batchSize && size - offset >= RECORD_HEADER_SIZE) {
+                header.clear();
+                readFully(channel, header, offset);
+                header.flip();
+                int magic = header.getInt();
+                long logId = header.getLong();
+                int length = header.getInt();
+                int checksum = header.getInt();
+                if (magic != RECORD_MAGIC || length < 0) {
+                    log.error("Corrupt raw XML spool record in {} at offset {}, skipping rest of segment",
+                            segment, offset);
+                    return size;
+                }
+                if (size - offset - RECORD_HEADER_SIZE < length) {
+                    break; // Incomplete record (still being written or torn)
+                }
+
+                ByteBuffer body = ByteBuffer.allocate(length);
+                readFully(channel, body, offset + RECORD_HEADER_SIZE);
+                CRC32 crc = new CRC32();
+                crc.update(body.array(), 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    log.error("Checksum mismatch in raw XML spool for LOG_ID {}, record skipped", logId);
+                } else {
+                    batch.add(new SpoolRecord(logId, new String(body.array(), StandardCharsets.UTF_8)));
+                }
+                offset += RECORD_HEADER_SIZE + length;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Move the checkpoint to the next segment once the current one is fully
+     * archived and no longer written to.
+     *
+     * @return true if the checkpoint moved
+     */
+    private boolean advanceSegment(long offset) throws IOException {
+        synchronized (appendLock) {
+            if (checkpointSegment >= appendSegment) {
+                return false;
+            }
+        }
+        Path segment = segmentPath(checkpointSegment);
+        if (Files.exists(segment) && Files.size(segment) > offset) {
+            log.warn("Discarding incomplete tail of raw XML spool segment {} ({} bytes)",
+                    segment, Files.size(segment) - offset);
+        }
+        checkpointSegment++;
+        checkpointOffset = 0;
+        saveCheckpoint();
+        Files.deleteIfExists(segment);
+        return true;
+    }
+
+    private void writeBatch(List<SpoolRecord> batch) throws Exception {
+        ConnectOracleDAO dao = new ConnectOracleDAO();
+        try (Connection conn = dao.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(UPDATE_RAW_XML_SQL)) {
+                for (SpoolRecord record : batch) {
+                    int idx = RawPayloadCodec.bind(ps, 1, record.rawXml, codec, gzipLevel);
+                    ps.setLong(idx, record.logId);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // ========================================================================
+    // Files
+    // ========================================================================
+
+    private void openAppendSegment() throws IOException {
+        appendChannel = FileChannel.open(segmentPath(appendSegment),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private long lastSegment() throws IOException {
+        long last = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    last = Math.max(last, Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring unexpected file in raw XML spool: {}", name);
+                }
+            }
+        }
+        return last;
+    }
+
+    private void loadCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (Files.exists(file)) {
+            String[] parts = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim().split("\\s+");
+            checkpointSegment = Long.parseLong(parts[0]);
+            checkpointOffset = Long.parseLong(parts[1]);
+        } else {
+            // Start from the oldest segment left behind, if any
+            long first = Long.MAX_VALUE;
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                    SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+                for (Path f : files) {
+                    String name = f.getFileName().toString();
+                    first = Math.min(first, Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())));
+                }
+            }
+            checkpointSegment = first == Long.MAX_VALUE ? 0 : first;
+            checkpointOffset = 0;
+        }
+    }
+
+    private void saveCheckpoint() throws IOException {
+        Path tmp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        Files.write(tmp, (checkpointSegment + " " + checkpointOffset).getBytes(StandardCharsets.US_ASCII));
+        Files.move(tmp, directory.resolve(CHECKPOINT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) {
+                throw new IOException("Unexpected end of raw XML spool segment");
+            }
+        }
+    }
+
+    /**
+     * Spooled payload waiting for archival
+     */
+    private static final class SpoolRecord {
+        final long logId;
+        final String rawXml;
+
+        SpoolRecord(long logId, String rawXml) {
+            this.logId = logId;
+            this.rawXml = rawXml;
+        }
+    }
+}
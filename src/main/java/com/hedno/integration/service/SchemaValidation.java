@@ -0,0 +1,241 @@
+package com.hedno.integration.service;
+
+import com.hedno.integration.ConfigService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.ValidatorHandler;
+import java.io.File;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional XSD validation of ZFA payloads (UtilitiesTimeSeriesERPItemBulkNotification).
+ *
+ * The schema (mdm.validation.xsd, file path or classpath resource) is compiled
+ * once and shared by all threads. Validation does not parse the document
+ * again: the extractor feeds its StAX events into a pooled ValidatorHandler
+ * while it extracts (see LoadProfileDataExtractor).
+ *
+ * mdm.validation.mode:
+ * - OFF:    no validation (default)
+ * - LOG:    schema errors are logged and counted, the message is processed
+ * - REJECT: the first schema error fails the message
+ *
+ * @author HEDNO Integration Team
+ * @version 1.0
+ */
+public final class SchemaValidation {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaValidation.class);
+
+    public enum Mode { OFF, LOG, REJECT }
+
+    private static final int MAX_LOGGED_ERRORS = 10;
+
+    private static final SchemaValidation CONFIGURED = fromConfig();
+
+    private final Mode mode;
+    private final String rootElement;
+    private final XmlParserPool.BoundedPool<ValidatorHandler, RuntimeException> handlers;
+
+    private final LongAdder validated = new LongAdder();
+    private final LongAdder invalid = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    SchemaValidation(Schema schema, Mode mode, String rootElement) {
+        this.mode = schema != null ? mode : Mode.OFF;
+        this.rootElement = rootElement;
+        this.handlers = schema != null
+                ? new XmlParserPool.BoundedPool<>("xsd.validator", XmlParserPool.MAX_IDLE, schema::newValidatorHandler)
+                : null;
+    }
+
+    /**
+     * Validation configured in application.properties (shared instance)
+     */
+    public static SchemaValidation configured() {
+        return CONFIGURED;
+    }
+
+    public boolean isEnabled() {
+        return mode != Mode.OFF;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Local name of the element whose subtree is validated (the SOAP envelope
+     * around it, if any, is skipped)
+     */
+    public String getRootElement() {
+        return rootElement;
+    }
+
+    /**
+     * Start validating one document. The session must be closed.
+     */
+    public Session open() {
+        return new Session(handlers.borrow());
+    }
+
+    /**
+     * Validation counters
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("validation.mode", mode.name());
+        stats.put("validation.validated", validated.sum());
+        stats.put("validation.invalid", invalid.sum());
+        stats.put("validation.errors", errors.sum());
+        if (handlers != null) {
+            stats.putAll(handlers.getStatistics());
+        }
+        return stats;
+    }
+
+    private static SchemaValidation fromConfig() {
+        Mode mode = Mode.valueOf(ConfigService.get("mdm.validation.mode", "OFF").trim().toUpperCase());
+        String root = ConfigService.get("mdm.validation.root", "UtilitiesTimeSeriesERPItemBulkNotification").trim();
+        if (mode == Mode.OFF) {
+            return new SchemaValidation(null, mode, root);
+        }
+
+        String location = ConfigService.get("mdm.validation.xsd", "").trim();
+        try {
+            Schema schema = compile(location);
+            logger.info("Schema validation {} with {}", mode, location);
+            return new SchemaValidation(schema, mode, root);
+        } catch (Exception e) {
+            logger.error("Could not compile schema '{}' - validation disabled", location, e);
+            return new SchemaValidation(null, Mode.OFF, root);
+        }
+    }
+
+    /**
+     * Compile a schema from a file path or classpath resource
+     */
+    static Schema compile(String location) throws SAXException {
+        if (location.isEmpty()) {
+            throw new SAXException("mdm.validation.xsd is not set");
+        }
+        File file = new File(location);
+        if (file.isFile()) {
+            return newSchemaFactory().newSchema(file);
+        }
+        URL url = Thread.currentThread().getContextClassLoader().getResource(location);
+        if (url == null) {
+            throw new SAXException("Schema not found: '" + location + "'");
+        }
+        return newSchemaFactory().newSchema(new StreamSource(url.toExternalForm()));
+    }
+
+    private static SchemaFactory newSchemaFactory() throws SAXException {
+        SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        // xs:import / xs:include of local files next to the XSD only
+        factory.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        factory.setProperty(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "file,jar");
+        return factory;
+    }
+
+    /**
+     * Validation of one document: a ContentHandler the extractor forwards its
+     * events to, and the errors found so far
+     */
+    public final class Session implements ErrorHandler, AutoCloseable {
+
+        private final ValidatorHandler handler;
+        private int errorCount;
+        private String firstError;
+        private boolean completed;
+
+        Session(ValidatorHandler handler) {
+            this.handler = handler;
+            handler.setErrorHandler(this);
+            handler.setContentHandler(null);
+        }
+
+        public ContentHandler handler() {
+            return handler;
+        }
+
+        public int getErrorCount() {
+            return errorCount;
+        }
+
+        public String getFirstError() {
+            return firstError;
+        }
+
+        /**
+         * Record an error found outside the schema (e.g. root element missing)
+         */
+        public void reject(String message) throws SAXException {
+            error(new SAXParseException(message, null));
+        }
+
+        /**
+         * Mark the document as fully validated
+         */
+        public void complete() {
+            completed = true;
+        }
+
+        @Override
+        public void warning(SAXParseException e) {
+            logger.debug("Schema warning at line {}: {}", e.getLineNumber(), e.getMessage());
+        }
+
+        @Override
+        public void error(SAXParseException e) throws SAXException {
+            errorCount++;
+            if (firstError == null) {
+                firstError = describe(e);
+            }
+            if (mode == Mode.REJECT) {
+                throw e;
+            }
+            if (errorCount <= MAX_LOGGED_ERRORS) {
+                logger.warn("Schema validation error: {}", describe(e));
+            }
+        }
+
+        @Override
+        public void fatalError(SAXParseException e) throws SAXException {
+            error(e);
+            throw e;
+        }
+
+        @Override
+        public void close() {
+            validated.increment();
+            errors.add(errorCount);
+            if (errorCount > 0) {
+                invalid.increment();
+            }
+            // A handler left mid-document is not reused
+            if (completed) {
+                handlers.release(handler);
+            }
+        }
+
+        private String describe(SAXParseException e) {
+            return e.getLineNumber() > 0
+                    ? "line " + e.getLineNumber() + ", column " + e.getColumnNumber() + ": " + e.getMessage()
+                    : e.getMessage();
+        }
+    }
+}
@@ -8,16 +8,21 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
@@ -36,7 +41,15 @@ public class SimpleXMLBuilderService {
     private static final String RECIPIENT_ID = "EHE000130";
     private static final DateTimeFormatter ISO_FORMATTER = DateTimeFormatter.ISO_DATE_TIME;
     
-    private final DocumentBuilderFactory documentBuilderFactory;
+    // Possible message ID elements, in order of preference
+    private static final String[] MESSAGE_ID_ELEMENTS = {"MessageID", "MessageId", "UUID", "messageUuid"};
+    // One per profile: LoadProfilePush and SAP bulk notification
+    private static final String PROFILE_ELEMENT = "Profile";
+    private static final String NOTIFICATION_MESSAGE_ELEMENT = "UtilitiesTimeSeriesERPItemNotificationMessage";
+    // SOAP 1.1 envelope, matched by local name (any prefix)
+    private static final String ENVELOPE_ELEMENT = "Envelope";
+    private static final String BODY_ELEMENT = "Body";
+    
     private final TransformerFactory transformerFactory;
     private final TimeBasedGenerator uuidGenerator;
     
@@ -44,7 +57,6 @@ public class SimpleXMLBuilderService {
      * Constructor
      */
     public SimpleXMLBuilderService() {
-        this.documentBuilderFactory = DocumentBuilderFactory.newInstance();
         this.transformerFactory = TransformerFactory.newInstance();
         this.uuidGenerator = Generators.timeBasedGenerator();
         logger.info("SimpleXMLBuilderService initialized");
@@ -56,7 +68,7 @@ public class SimpleXMLBuilderService {
      * @return XML string
      */
     public String buildLoadProfileMessage(List<ProfileData> profiles) throws Exception {
-        DocumentBuilder builder = documentBuilderFactory.newDocumentBuilder();
+        DocumentBuilder builder = XmlParserPool.documentBuilder(XmlParserPool.Profile.DEFAULT);
         Document doc = builder.newDocument();
         
         // Generate UUID for this message
@@ -103,7 +115,7 @@ public class SimpleXMLBuilderService {
      * @return SOAP XML string
      */
     public String buildSoapMessage(List<ProfileData> profiles) throws Exception {
-        DocumentBuilder builder = documentBuilderFactory.newDocumentBuilder();
+        DocumentBuilder builder = XmlParserPool.documentBuilder(XmlParserPool.Profile.DEFAULT);
         Document doc = builder.newDocument();
         
         String messageUuid = generateUuid();
@@ -189,72 +201,113 @@ public class SimpleXMLBuilderService {
     }
     
     /**
-     * Extract message UUID from XML
+     * Inspect XML in a single streaming pass: message ID, profile count and
+     * validation errors. In a SOAP envelope only the Body is inspected.
+     * Elements are matched by local name with a reader that is not
+     * namespace-aware, so prefixes declared on the Envelope (or nowhere) do
+     * not matter. The XML declaration XMLBuilderService marshals at the start
+     * of the Body is skipped.
      */
-    public String extractMessageId(String xml) {
+    public ValidationResult inspect(String xml) {
+        List<String> errors = new ArrayList<>();
+        String[] messageIds = new String[MESSAGE_ID_ELEMENTS.length];
+        int profileCount = 0;
+        
+        if (xml == null) {
+            errors.add("No XML");
+            return new ValidationResult(null, -1, errors);
+        }
+        
+        XMLStreamReader reader = null;
         try {
-            DocumentBuilder builder = documentBuilderFactory.newDocumentBuilder();
-            Document doc = builder.parse(new java.io.ByteArrayInputStream(xml.getBytes()));
-            
-            // Try different possible locations
-            String[] tagNames = {"MessageID", "MessageId", "UUID", "messageUuid"};
-            for (String tagName : tagNames) {
-                org.w3c.dom.NodeList nodeList = doc.getElementsByTagName(tagName);
-                if (nodeList.getLength() > 0) {
-                    return nodeList.item(0).getTextContent();
+            reader = XmlParserPool.plainXmlInputFactory().createXMLStreamReader(
+                new StringReader(withoutNestedDeclaration(xml)));
+            boolean envelope = false;
+            boolean inBody = false;
+            int depth = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (envelope && depth == 2) {
+                        inBody = false;
+                    }
+                    depth--;
+                    continue;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
                 }
+                depth++;
+                String name = localName(reader);
+                if (depth == 1 && ENVELOPE_ELEMENT.equals(name)) {
+                    envelope = true;
+                    continue;
+                }
+                if (envelope && !inBody) {
+                    // SOAP Header and anything else outside the Body
+                    inBody = depth == 2 && BODY_ELEMENT.equals(name);
+                    continue;
+                }
+                if (PROFILE_ELEMENT.equals(name) || NOTIFICATION_MESSAGE_ELEMENT.equals(name)) {
+                    profileCount++;
+                    continue;
+                }
+                for (int i = 0; i < MESSAGE_ID_ELEMENTS.length; i++) {
+                    if (messageIds[i] == null && MESSAGE_ID_ELEMENTS[i].equals(name)) {
+                        messageIds[i] = reader.getElementText();
+                        break;
+                    }
+                }
+            }
+        } catch (XMLStreamException e) {
+            errors.add("XML parsing failed: " + e.getMessage());
+            return new ValidationResult(null, -1, errors);
+        } finally {
+            closeQuietly(reader);
+        }
+        
+        String messageId = null;
+        for (String candidate : messageIds) {
+            if (candidate != null) {
+                messageId = candidate.trim();
+                break;
             }
-        } catch (Exception e) {
-            logger.error("Failed to extract message ID from XML", e);
         }
-        return null;
+        if (messageId == null || messageId.isEmpty()) {
+            errors.add("Missing Message ID in XML");
+        }
+        if (profileCount <= 0) {
+            errors.add("No profiles found in XML");
+        }
+        return new ValidationResult(messageId, profileCount, errors);
+    }
+    
+    /**
+     * Extract message UUID from XML
+     */
+    public String extractMessageId(String xml) {
+        return inspect(xml).getMessageId();
     }
     
     /**
      * Count profiles in XML
      */
     public int countProfiles(String xml) {
-        try {
-            DocumentBuilder builder = documentBuilderFactory.newDocumentBuilder();
-            Document doc = builder.parse(new java.io.ByteArrayInputStream(xml.getBytes()));
-            
-            org.w3c.dom.NodeList profileNodes = doc.getElementsByTagName("Profile");
-            return profileNodes.getLength();
-        } catch (Exception e) {
-            logger.error("Failed to count profiles in XML", e);
-            return -1;
-        }
+        return inspect(xml).getProfileCount();
     }
     
     /**
      * Validate XML structure
      */
     public boolean validateXml(String xml) {
-        try {
-            // Basic validation - parse the XML
-            DocumentBuilder builder = documentBuilderFactory.newDocumentBuilder();
-            Document doc = builder.parse(new java.io.ByteArrayInputStream(xml.getBytes()));
-            
-            // Check for required elements
-            String messageId = extractMessageId(xml);
-            if (messageId == null || messageId.isEmpty()) {
-                logger.error("Missing Message ID in XML");
-                return false;
-            }
-            
-            int profileCount = countProfiles(xml);
-            if (profileCount <= 0) {
-                logger.error("No profiles found in XML");
-                return false;
-            }
-            
-            logger.debug("XML validation passed - MessageID: {}, Profiles: {}", messageId, profileCount);
-            return true;
-            
-        } catch (Exception e) {
-            logger.error("XML validation failed", e);
+        ValidationResult result = inspect(xml);
+        if (!result.isValid()) {
+            logger.error("XML validation failed: {}", result.getErrors());
             return false;
         }
+        logger.debug("XML validation passed - MessageID: {}, Profiles: {}",
+            result.getMessageId(), result.getProfileCount());
+        return true;
     }
     
     // Helper methods
@@ -276,6 +329,43 @@ public class SimpleXMLBuilderService {
         return writer.toString();
     }
     
+    /**
+     * Local name of the current element; a reader that is not namespace-aware
+     * reports the prefixed name
+     */
+    private static String localName(XMLStreamReader reader) {
+        String name = reader.getLocalName();
+        int colon = name.indexOf(':');
+        return colon >= 0 ? name.substring(colon + 1) : name;
+    }
+    
+    /**
+     * The document without an XML declaration after its start (the one
+     * XMLBuilderService marshals inside the SOAP Body), which no parser accepts
+     */
+    private static String withoutNestedDeclaration(String xml) {
+        int nested = xml.indexOf("<?xml", xml.startsWith("<?xml") ? 1 : 0);
+        while (nested >= 0 && nested + 5 < xml.length() && !Character.isWhitespace(xml.charAt(nested + 5))) {
+            // Another processing instruction (<?xml-stylesheet ...?>)
+            nested = xml.indexOf("<?xml", nested + 5);
+        }
+        int end = nested >= 0 ? xml.indexOf("?>", nested) : -1;
+        if (end < 0) {
+            return xml;
+        }
+        return xml.substring(0, nested) + xml.substring(end + 2);
+    }
+    
+    private static void closeQuietly(XMLStreamReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                logger.debug("Failed to close XML reader", e);
+            }
+        }
+    }
+    
     private String generateUuid() {
         UUID uuid = uuidGenerator.generate();
         return uuid.toString().toUpperCase();
@@ -283,6 +373,32 @@ public class SimpleXMLBuilderService {
     
     // Data classes
     
+    /**
+     * Outcome of inspect(): what was found in the XML and what is wrong with it
+     */
+    public static final class ValidationResult {
+        private final String messageId;
+        private final int profileCount;
+        private final List<String> errors;
+        
+        public ValidationResult(String messageId, int profileCount, List<String> errors) {
+            this.messageId = messageId;
+            this.profileCount = profileCount;
+            this.errors = Collections.unmodifiableList(new ArrayList<>(errors));
+        }
+        
+        public String getMessageId() { return messageId; }
+        
+        /**
+         * Number of profiles, -1 if the XML could not be parsed
+         */
+        public int getProfileCount() { return profileCount; }
+        
+        public List<String> getErrors() { return errors; }
+        
+        public boolean isValid() { return errors.isEmpty(); }
+    }
+    
     public static class ProfileData {
         private String podId;
         private String obisCode;
@@ -5,13 +5,15 @@ import org.slf4j.LoggerFactory;
 
 import javax.net.ssl.*;
 import java.io.*;
-import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyStore;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -58,6 +60,9 @@ public class SoapClientServiceAsync {
     private SSLContext sslContext;
     private HostnameVerifier hostnameVerifier;
     
+    // Keep-alive connections to the SAP endpoint
+    private final HttpConnectionPool connectionPool;
+    
     /**
      * Response class to encapsulate HTTP response details
      */
@@ -110,6 +115,57 @@ public class SoapClientServiceAsync {
         void onException(String messageId, Exception e);
     }
     
+    /**
+     * Aggregated outcome of the notifications of one split message
+     */
+    public static class BulkSendResult {
+        private final String parentUuid;
+        private final Map<String, SoapResponse> responses;
+        
+        public BulkSendResult(String parentUuid, Map<String, SoapResponse> responses) {
+            this.parentUuid = parentUuid;
+            this.responses = Collections.unmodifiableMap(responses);
+        }
+        
+        public String getParentUuid() { return parentUuid; }
+        
+        /**
+         * Response per notification UUID, in send order
+         */
+        public Map<String, SoapResponse> getResponses() { return responses; }
+        
+        public int getSucceeded() {
+            int succeeded = 0;
+            for (SoapResponse response : responses.values()) {
+                if (response.isSuccess()) {
+                    succeeded++;
+                }
+            }
+            return succeeded;
+        }
+        
+        public int getFailed() { return responses.size() - getSucceeded(); }
+        
+        public boolean isSuccess() { return getFailed() == 0; }
+        
+        /**
+         * Time of the slowest notification (they are sent concurrently)
+         */
+        public long getResponseTimeMs() {
+            long max = -1;
+            for (SoapResponse response : responses.values()) {
+                max = Math.max(max, response.getResponseTimeMs());
+            }
+            return max;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("BulkSendResult[parentUuid=%s, notifications=%d, succeeded=%d, failed=%d, responseTime=%dms]", 
+                parentUuid, responses.size(), getSucceeded(), getFailed(), getResponseTimeMs());
+        }
+    }
+    
     /**
      * Constructor with configuration parameters
      */
@@ -141,13 +197,17 @@ public class SoapClientServiceAsync {
                     return thread;
                 }
             },
-            new ThreadPoolExecutor.CallerRunsPolicy() // Execute on caller thread if queue is full
+            // Refuse when the queue is full: the caller (the processor timer)
+            // must not do the HTTP work itself
+            new ThreadPoolExecutor.AbortPolicy()
         );
         
         // Initialize SSL if using HTTPS
         if (useHttps) {
             initializeSSL();
         }
+        this.connectionPool = new HttpConnectionPool(
+            sslContext != null ? sslContext.getSocketFactory() : null, hostnameVerifier);
         
         logger.info("Async SoapClientService initialized for {}://{}:{}{}", 
             useHttps ? "https" : "http", host, port, path);
@@ -174,42 +234,108 @@ public class SoapClientServiceAsync {
         
         activeRequests.incrementAndGet();
         
-        CompletableFuture<SoapResponse> future = CompletableFuture.supplyAsync(() -> {
-            long startTime = System.currentTimeMillis();
-            logger.info("Starting async SOAP request for UUID: {}", messageUuid);
-            
-            try {
-                SoapResponse response = sendSoapMessageInternal(soapXml, messageUuid, startTime);
+        CompletableFuture<SoapResponse> future = new CompletableFuture<>();
+        HttpConnectionPool.Call call = new HttpConnectionPool.Call();
+        long timeoutMs = connectTimeout + readTimeout;
+        
+        // Deadline on the shared timer thread: aborting the call closes the
+        // socket, so the worker stops waiting for SAP at once
+        ScheduledFuture<?> timeoutTask = TimeoutScheduler.getInstance().schedule(() -> {
+            if (!future.isDone()) {
+                logger.warn("SOAP request for UUID {} timed out after {}ms, aborting", messageUuid, timeoutMs);
+                call.abort();
+                future.completeExceptionally(new TimeoutException("Operation timed out"));
+            }
+        }, timeoutMs);
+        
+        try {
+            executorService.execute(() -> {
+                long startTime = System.currentTimeMillis();
+                logger.info("Starting async SOAP request for UUID: {}", messageUuid);
                 
-                // Invoke callback based on response
-                if (response.isSuccess()) {
-                    callback.onSuccess(response);
-                } else {
-                    callback.onFailure(response);
+                try {
+                    SoapResponse response = sendSoapMessageInternal(soapXml, messageUuid, startTime, call);
+                    // Response is in: the deadline no longer applies to the callbacks
+                    timeoutTask.cancel(false);
+                    
+                    // Invoke callback based on response
+                    if (response.isSuccess()) {
+                        callback.onSuccess(response);
+                    } else {
+                        callback.onFailure(response);
+                    }
+                    
+                    future.complete(response);
+                    
+                } catch (Exception e) {
+                    logger.error("Exception during SOAP request for UUID: {}", messageUuid, e);
+                    callback.onException(messageUuid, e);
+                    future.complete(new SoapResponse(messageUuid, e));
+                    
+                } finally {
+                    timeoutTask.cancel(false);
+                    activeRequests.decrementAndGet();
+                    logger.debug("Active requests: {}", activeRequests.get());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Worker queue full, rejecting request for UUID: {}", messageUuid);
+            timeoutTask.cancel(false);
+            activeRequests.decrementAndGet();
+            callback.onException(messageUuid, e);
+            future.complete(new SoapResponse(messageUuid, e));
+        }
+        
+        return future;
+    }
+    
+    /**
+     * Send the notifications of one split message concurrently
+     * (see XMLBuilderService.buildBulkNotifications)
+     * @param parentUuid The ReferenceUUID shared by the notifications
+     * @param soapXmlByUuid SOAP XML per notification UUID
+     * @return Future completed once every notification has an outcome
+     */
+    public CompletableFuture<BulkSendResult> sendNotificationsAsync(String parentUuid, 
+                                                                    Map<String, String> soapXmlByUuid) {
+        
+        Map<String, CompletableFuture<SoapResponse>> pending = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : soapXmlByUuid.entrySet()) {
+            CompletableFuture<SoapResponse> outcome = new CompletableFuture<>();
+            pending.put(entry.getKey(), outcome);
+            // The callback always fires, a timed-out send included
+            sendSoapMessageAsync(entry.getValue(), entry.getKey(), new SoapResponseCallback() {
+                @Override
+                public void onSuccess(SoapResponse response) {
+                    outcome.complete(response);
                 }
                 
-                return response;
-                
-            } catch (Exception e) {
-                logger.error("Exception during SOAP request for UUID: {}", messageUuid, e);
-                callback.onException(messageUuid, e);
-                return new SoapResponse(messageUuid, e);
+                @Override
+                public void onFailure(SoapResponse response) {
+                    outcome.complete(response);
+                }
                 
-            } finally {
-                activeRequests.decrementAndGet();
-                logger.debug("Active requests: {}", activeRequests.get());
-            }
-        }, executorService);
-        
-        // Add timeout handling
-        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-        ScheduledFuture<?> timeoutTask = scheduler.schedule(() -> {
-            future.completeExceptionally(new TimeoutException("Operation timed out"));
-        }, connectTimeout + readTimeout, TimeUnit.MILLISECONDS);
-
-        future.whenComplete((response, throwable) -> timeoutTask.cancel(true));
+                @Override
+                public void onException(String messageId, Exception e) {
+                    outcome.complete(new SoapResponse(messageId, e));
+                }
+            });
+        }
         
-        return future;
+        return CompletableFuture.allOf(pending.values().toArray(new CompletableFuture<?>[0]))
+            .thenApply(done -> {
+                Map<String, SoapResponse> responses = new LinkedHashMap<>();
+                for (Map.Entry<String, CompletableFuture<SoapResponse>> entry : pending.entrySet()) {
+                    responses.put(entry.getKey(), entry.getValue().join());
+                }
+                BulkSendResult result = new BulkSendResult(parentUuid, responses);
+                if (result.isSuccess()) {
+                    logger.info("{}", result);
+                } else {
+                    logger.warn("{}", result);
+                }
+                return result;
+            });
     }
     
     /**
@@ -220,40 +346,26 @@ public class SoapClientServiceAsync {
      */
     public SoapResponse sendSoapMessage(String soapXml, String messageUuid) {
         long startTime = System.currentTimeMillis();
-        return sendSoapMessageInternal(soapXml, messageUuid, startTime);
+        return sendSoapMessageInternal(soapXml, messageUuid, startTime, new HttpConnectionPool.Call());
     }
     
     /**
      * Internal method to send SOAP message
      */
-    private SoapResponse sendSoapMessageInternal(String soapXml, String messageUuid, long startTime) {
+    private SoapResponse sendSoapMessageInternal(String soapXml, String messageUuid, long startTime,
+                                                 HttpConnectionPool.Call call) {
         String urlWithMessageId = buildUrlWithMessageId(messageUuid);
-        HttpURLConnection connection = null;
         
         try {
-            // Create and configure connection
-            URL url = new URL(urlWithMessageId);
-            connection = (HttpURLConnection) url.openConnection();
-            
-            // FIXED: Apply instance-specific SSL settings
-            if (useHttps && connection instanceof HttpsURLConnection) {
-                if (sslContext != null) {
-                    ((HttpsURLConnection) connection).setSSLSocketFactory(sslContext.getSocketFactory());
-                }
-                if (hostnameVerifier != null) {
-                    ((HttpsURLConnection) connection).setHostnameVerifier(hostnameVerifier);
-                }
-            }
-            
-            // Configure for SOAP 1.1
-            configureConnection(connection, soapXml.getBytes(StandardCharsets.UTF_8).length);
-            
-            // Send SOAP request
-            writeSoapRequest(connection, soapXml);
+            // Send SOAP request on a pooled connection
+            byte[] body = soapXml.getBytes(StandardCharsets.UTF_8);
+            HttpConnectionPool.Response httpResponse = connectionPool.execute(
+                "POST", new URL(urlWithMessageId), buildRequestHeaders(), body, connectTimeout, readTimeout, call);
+            logger.debug("SOAP 1.1 request sent, size: {} bytes", body.length);
             
             // Get HTTP status code (per requirement: only process status code)
-            int statusCode = connection.getResponseCode();
-            String statusMessage = connection.getResponseMessage();
+            int statusCode = httpResponse.getStatusCode();
+            String statusMessage = httpResponse.getStatusMessage();
             long responseTime = System.currentTimeMillis() - startTime;
             
             // Log response
@@ -274,14 +386,13 @@ public class SoapClientServiceAsync {
             
         } catch (Exception e) {
             long responseTime = System.currentTimeMillis() - startTime;
+            if (call.isAborted()) {
+                logger.error("SOAP message for UUID {} aborted after {}ms (timeout)", messageUuid, responseTime);
+                return new SoapResponse(messageUuid, new TimeoutException("Operation timed out"));
+            }
             logger.error("Error sending SOAP message for UUID {} ({}ms): {}", 
                 messageUuid, responseTime, e.getMessage());
             return new SoapResponse(messageUuid, e);
-            
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
         }
     }
     
@@ -314,55 +425,32 @@ public class SoapClientServiceAsync {
     }
     
     /**
-     * Configure the HTTP connection for SOAP 1.1
+     * Request headers for SOAP 1.1. No "Connection: close": the connection
+     * stays open for the next message.
      */
-    private void configureConnection(HttpURLConnection connection, int contentLength) 
-            throws IOException {
-        
-        // HTTP method
-        connection.setRequestMethod("POST");
-        connection.setDoOutput(true);
-        connection.setDoInput(true);
-        connection.setUseCaches(false);
-        
-        // Timeouts
-        connection.setConnectTimeout(connectTimeout);
-        connection.setReadTimeout(readTimeout);
+    private Map<String, String> buildRequestHeaders() {
+        Map<String, String> headers = new LinkedHashMap<>();
         
         // SOAP 1.1 specific headers
-        connection.setRequestProperty("Content-Type", SOAP_1_1_CONTENT_TYPE);
-        connection.setRequestProperty("Content-Length", String.valueOf(contentLength));
-        connection.setRequestProperty(SOAP_ACTION_HEADER, ""); // Empty for document/literal
+        headers.put("Content-Type", SOAP_1_1_CONTENT_TYPE);
+        headers.put(SOAP_ACTION_HEADER, ""); // Empty for document/literal
         
         // Authentication
         if (username != null && password != null) {
-            String auth = username + ":" + password;
-            String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
-            connection.setRequestProperty("Authorization", "Basic " + encodedAuth);
+            headers.put("Authorization", basicAuth());
         }
         
         // Additional headers
-        connection.setRequestProperty("Accept", "text/xml");
-        connection.setRequestProperty("Cache-Control", "no-cache");
-        connection.setRequestProperty("Pragma", "no-cache");
-        connection.setRequestProperty("User-Agent", USER_AGENT);
-        connection.setRequestProperty("Connection", "close"); // Prevent connection reuse issues
+        headers.put("Accept", "text/xml");
+        headers.put("Cache-Control", "no-cache");
+        headers.put("Pragma", "no-cache");
+        headers.put("User-Agent", USER_AGENT);
+        return headers;
     }
     
-    /**
-     * Write SOAP request to the connection
-     */
-    private void writeSoapRequest(HttpURLConnection connection, String soapXml) 
-            throws IOException {
-        
-        try (OutputStream os = connection.getOutputStream();
-             OutputStreamWriter writer = new OutputStreamWriter(os, StandardCharsets.UTF_8)) {
-            
-            writer.write(soapXml);
-            writer.flush();
-            
-            logger.debug("SOAP 1.1 request sent, size: {} bytes", soapXml.length());
-        }
+    private String basicAuth() {
+        String auth = username + ":" + password;
+        return "Basic " + Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
     }
     
     /**
@@ -431,33 +519,17 @@ public class SoapClientServiceAsync {
      * @return true if endpoint is reachable
      */
     public boolean testConnection() {
-        HttpURLConnection connection = null;
         try {
             URL url = new URL(buildUrlWithMessageId("TEST-" + System.currentTimeMillis()));
-            connection = (HttpURLConnection) url.openConnection();
-            
-            // FIXED: Apply instance-specific SSL settings
-            if (useHttps && connection instanceof HttpsURLConnection) {
-                if (sslContext != null) {
-                    ((HttpsURLConnection) connection).setSSLSocketFactory(sslContext.getSocketFactory());
-                }
-                if (hostnameVerifier != null) {
-                    ((HttpsURLConnection) connection).setHostnameVerifier(hostnameVerifier);
-                }
-            }
-            
-            // FIXED: Use "GET" instead of "HEAD" as it's more likely to be allowed
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(5000);
-            connection.setReadTimeout(5000);
             
+            Map<String, String> headers = new LinkedHashMap<>();
+            headers.put("User-Agent", USER_AGENT);
             if (username != null && password != null) {
-                String auth = username + ":" + password;
-                String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
-                connection.setRequestProperty("Authorization", "Basic " + encodedAuth);
+                headers.put("Authorization", basicAuth());
             }
             
-            int responseCode = connection.getResponseCode();
+            // FIXED: Use "GET" instead of "HEAD" as it's more likely to be allowed
+            int responseCode = connectionPool.execute("GET", url, headers, null, 5000, 5000).getStatusCode();
             
             logger.info("Connection test result: HTTP {}", responseCode);
             // Any response (even 404, 405, 500) means the host is reachable
@@ -466,10 +538,6 @@ public class SoapClientServiceAsync {
         } catch (Exception e) {
             logger.error("Connection test failed", e);
             return false;
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
         }
     }
     
@@ -481,17 +549,25 @@ public class SoapClientServiceAsync {
     }
     
     /**
-     * Get thread pool statistics
+     * Get thread pool and connection pool statistics
      */
     public String getThreadPoolStats() {
         if (executorService instanceof ThreadPoolExecutor) {
             ThreadPoolExecutor tpe = (ThreadPoolExecutor) executorService;
-            return String.format("Pool[active=%d, completed=%d, queue=%d]",
+            return String.format("Pool[active=%d, completed=%d, queue=%d] %s",
                 tpe.getActiveCount(),
                 tpe.getCompletedTaskCount(),
-                tpe.getQueue().size());
+                tpe.getQueue().size(),
+                connectionPool.describe());
         }
-        return "N/A";
+        return connectionPool.describe();
+    }
+    
+    /**
+     * Connection pool counters, keyed as in HttpConnectionPool.getStatistics()
+     */
+    public Map<String, Object> getConnectionPoolStatistics() {
+        return connectionPool.getStatistics();
     }
     
     /**
@@ -519,6 +595,9 @@ public class SoapClientServiceAsync {
             Thread.currentThread().interrupt();
         }
         
+        // Workers are done: nothing is in flight any more
+        connectionPool.shutdown(0);
+        
         logger.info("Shutdown complete. Active requests at shutdown: {}", activeRequests.get());
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
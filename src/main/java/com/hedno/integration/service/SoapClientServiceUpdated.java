@@ -4,15 +4,24 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.net.ssl.*;
-import java.io.*;
-import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.security.cert.X509Certificate;
 import java.util.Base64;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * Updated SOAP Client Service with improved logging and status handling
@@ -21,6 +30,9 @@ import java.util.List;
  * - Logs only headers and profile count, not full XML
  * - Properly returns 2xx, 4xx, 5xx status codes
  * - Supports configurable endpoint
+ * - Persistent (keep-alive) connections through HttpConnectionPool
+ * - Async sends on a fixed worker pool; deadlines on the shared TimeoutScheduler
+ * - A body can be streamed to the connection (chunked) instead of sent from a String
  * 
  * @author HEDNO Integration Team
  * @version 2.0
@@ -48,6 +60,14 @@ public class SoapClientServiceUpdated {
     private SSLContext sslContext;
     private HostnameVerifier hostnameVerifier;
     
+    // Keep-alive connections to the endpoint
+    private final HttpConnectionPool connectionPool;
+    
+    // Workers for async sends: one per connection, so queued messages wait
+    // here rather than for a connection
+    private final ExecutorService executorService;
+    private volatile boolean isShuttingDown = false;
+    
     /**
      * Response class to encapsulate HTTP response details
      */
@@ -56,13 +76,20 @@ public class SoapClientServiceUpdated {
         private final String statusMessage;
         private final String messageId;
         private final Map<String, String> responseHeaders;
+        private final long responseTimeMs;
         private final boolean success;
         
         public SoapResponse(int statusCode, String statusMessage, String messageId, Map<String, String> headers) {
+            this(statusCode, statusMessage, messageId, headers, -1);
+        }
+        
+        public SoapResponse(int statusCode, String statusMessage, String messageId, Map<String, String> headers,
+                            long responseTimeMs) {
             this.statusCode = statusCode;
             this.statusMessage = statusMessage;
             this.messageId = messageId;
             this.responseHeaders = headers;
+            this.responseTimeMs = responseTimeMs;
             // 2xx responses are considered success
             this.success = (statusCode >= 200 && statusCode < 300);
         }
@@ -71,15 +98,25 @@ public class SoapClientServiceUpdated {
         public String getStatusMessage() { return statusMessage; }
         public String getMessageId() { return messageId; }
         public Map<String, String> getResponseHeaders() { return responseHeaders; }
+        public long getResponseTimeMs() { return responseTimeMs; }
         public boolean isSuccess() { return success; }
         
         @Override
         public String toString() {
-            return String.format("SoapResponse[messageId=%s, status=%d, message=%s, success=%s]", 
-                messageId, statusCode, statusMessage, success);
+            return String.format("SoapResponse[messageId=%s, status=%d, message=%s, success=%s, responseTime=%dms]", 
+                messageId, statusCode, statusMessage, success, responseTimeMs);
         }
     }
     
+    /**
+     * Callback interface for async operations
+     */
+    public interface SoapResponseCallback {
+        void onSuccess(SoapResponse response);
+        void onFailure(SoapResponse response);
+        void onException(String messageId, Exception e);
+    }
+    
     /**
      * Constructor with full URL endpoint
      */
@@ -95,6 +132,15 @@ public class SoapClientServiceUpdated {
         if (useHttps) {
             initializeSSL();
         }
+        this.connectionPool = new HttpConnectionPool(
+            sslContext != null ? sslContext.getSocketFactory() : null, hostnameVerifier);
+        
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        this.executorService = Executors.newFixedThreadPool(connectionPool.getMaxPerRoute(), r -> {
+            Thread thread = new Thread(r, "SoapClient-Worker-" + threadNumber.getAndIncrement());
+            thread.setDaemon(false);
+            return thread;
+        });
         
         logger.info("SoapClientServiceUpdated initialized for endpoint: {}", endpointUrl);
     }
@@ -107,59 +153,141 @@ public class SoapClientServiceUpdated {
      * @return SoapResponse with appropriate status code
      */
     public SoapResponse sendSoapMessage(String soapXml, String messageUuid, int profileCount) {
+        return sendSoapMessage(soapXml, messageUuid, profileCount, new HttpConnectionPool.Call());
+    }
+    
+    /**
+     * Send SOAP message asynchronously with callback. The request is aborted
+     * once connect + read timeout have passed since submission; the callback
+     * then gets onFailure with status 500.
+     * @param soapXml The SOAP XML message
+     * @param messageUuid The unique message ID
+     * @param callback Callback for handling the response
+     * @return Future for the operation
+     */
+    public Future<SoapResponse> sendSoapMessageAsync(String soapXml, String messageUuid,
+                                                     SoapResponseCallback callback) {
+        return submit(messageUuid, callback,
+            call -> sendSoapMessage(soapXml, messageUuid, extractProfileCount(soapXml), call));
+    }
+    
+    /**
+     * Send a SOAP message asynchronously, streaming the body with chunked
+     * transfer encoding (e.g. XMLBuilderService.writeXml); same deadline
+     * and callbacks as sendSoapMessageAsync(String, ...)
+     * @param body Writes the SOAP XML as UTF-8; may be called again on a retried connection
+     * @param messageUuid The unique message ID
+     * @param profileCount The number of profiles in the message
+     * @param callback Callback for handling the response
+     * @return Future for the operation
+     */
+    public Future<SoapResponse> sendSoapMessageAsync(HttpConnectionPool.BodyWriter body, String messageUuid,
+                                                     int profileCount, SoapResponseCallback callback) {
+        return submit(messageUuid, callback,
+            call -> sendSoapMessage(null, body, messageUuid, profileCount, call));
+    }
+    
+    private Future<SoapResponse> submit(String messageUuid, SoapResponseCallback callback,
+                                        Function<HttpConnectionPool.Call, SoapResponse> send) {
+        if (isShuttingDown) {
+            logger.warn("Service is shutting down, rejecting new request for UUID: {}", messageUuid);
+            callback.onException(messageUuid, new RejectedExecutionException("Service shutting down"));
+            CompletableFuture<SoapResponse> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(new RejectedExecutionException("Service shutting down"));
+            return rejected;
+        }
+        
+        CompletableFuture<SoapResponse> future = new CompletableFuture<>();
+        HttpConnectionPool.Call call = new HttpConnectionPool.Call();
+        long timeoutMs = connectTimeout + readTimeout;
+        
+        // Deadline on the shared timer thread: aborting the call closes the
+        // socket, so the worker stops waiting for the endpoint at once
+        ScheduledFuture<?> timeoutTask = TimeoutScheduler.getInstance().schedule(() -> {
+            if (!future.isDone()) {
+                logger.warn("SOAP request for UUID {} timed out after {} ms, aborting", messageUuid, timeoutMs);
+                call.abort();
+                future.completeExceptionally(new TimeoutException("Operation timed out"));
+            }
+        }, timeoutMs);
+        
+        try {
+            executorService.execute(() -> {
+                try {
+                    SoapResponse response = send.apply(call);
+                    // Response is in: the deadline no longer applies to the callbacks
+                    timeoutTask.cancel(false);
+                    
+                    if (response.isSuccess()) {
+                        callback.onSuccess(response);
+                    } else {
+                        callback.onFailure(response);
+                    }
+                    future.complete(response);
+                    
+                } catch (Exception e) {
+                    logger.error("Exception during SOAP request for UUID: {}", messageUuid, e);
+                    callback.onException(messageUuid, e);
+                    future.completeExceptionally(e);
+                    
+                } finally {
+                    timeoutTask.cancel(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            timeoutTask.cancel(false);
+            callback.onException(messageUuid, e);
+            future.completeExceptionally(e);
+        }
+        
+        return future;
+    }
+    
+    private SoapResponse sendSoapMessage(String soapXml, String messageUuid, int profileCount,
+                                         HttpConnectionPool.Call call) {
+        return sendSoapMessage(soapXml.getBytes(StandardCharsets.UTF_8), null, messageUuid, profileCount, call);
+    }
+    
+    /**
+     * Send body (Content-Length) or, when body is null, streamedBody (chunked)
+     */
+    private SoapResponse sendSoapMessage(byte[] body, HttpConnectionPool.BodyWriter streamedBody,
+                                         String messageUuid, int profileCount, HttpConnectionPool.Call call) {
         long startTime = System.currentTimeMillis();
-        HttpURLConnection connection = null;
         
         // Log the request headers and profile count (NOT the full XML)
         logger.info("=== SOAP Request ===");
         logger.info("Message UUID: {}", messageUuid);
         logger.info("Profile Count: {}", profileCount);
         logger.info("Endpoint: {}", endpointUrl);
-        logger.info("Content-Length: {} bytes", soapXml.getBytes(StandardCharsets.UTF_8).length);
+        if (body != null) {
+            logger.info("Content-Length: {} bytes", body.length);
+        } else {
+            logger.info("Transfer-Encoding: chunked");
+        }
         
         try {
-            // Create connection
             URL url = new URL(endpointUrl);
-            connection = (HttpURLConnection) url.openConnection();
-            
-            // Apply SSL settings if HTTPS
-            if (useHttps && connection instanceof HttpsURLConnection) {
-                if (sslContext != null) {
-                    ((HttpsURLConnection) connection).setSSLSocketFactory(sslContext.getSocketFactory());
-                }
-                if (hostnameVerifier != null) {
-                    ((HttpsURLConnection) connection).setHostnameVerifier(hostnameVerifier);
-                }
-            }
-            
-            // Configure connection
-            configureConnection(connection, soapXml.getBytes(StandardCharsets.UTF_8).length);
+            Map<String, String> requestHeaders = buildRequestHeaders();
             
             // Log request headers
-            Map<String, List<String>> requestHeaders = connection.getRequestProperties();
             logger.debug("Request Headers:");
-            for (Map.Entry<String, List<String>> entry : requestHeaders.entrySet()) {
+            for (Map.Entry<String, String> entry : requestHeaders.entrySet()) {
                 logger.debug("  {}: {}", entry.getKey(), entry.getValue());
             }
             
-            // Send SOAP request
-            writeSoapRequest(connection, soapXml);
+            // Send SOAP request on a pooled connection
+            HttpConnectionPool.Response httpResponse = body != null
+                ? connectionPool.execute("POST", url, requestHeaders, body, connectTimeout, readTimeout, call)
+                : connectionPool.execute("POST", url, requestHeaders, streamedBody, connectTimeout, readTimeout, call);
             
             // Get response
-            int statusCode = connection.getResponseCode();
-            String statusMessage = connection.getResponseMessage();
+            int statusCode = httpResponse.getStatusCode();
+            String statusMessage = httpResponse.getStatusMessage();
             long responseTime = System.currentTimeMillis() - startTime;
             
             // Capture response headers
-            Map<String, String> responseHeaders = new HashMap<>();
-            Map<String, List<String>> headerFields = connection.getHeaderFields();
-            if (headerFields != null) {
-                for (Map.Entry<String, List<String>> entry : headerFields.entrySet()) {
-                    if (entry.getKey() != null && entry.getValue() != null && !entry.getValue().isEmpty()) {
-                        responseHeaders.put(entry.getKey(), entry.getValue().get(0));
-                    }
-                }
-            }
+            Map<String, String> responseHeaders = new HashMap<>(httpResponse.getHeaders());
             
             // Log response headers and status (NOT the response body)
             logger.info("=== SOAP Response ===");
@@ -172,7 +300,8 @@ public class SoapClientServiceUpdated {
             }
             
             // Create response object
-            SoapResponse response = new SoapResponse(statusCode, statusMessage, messageUuid, responseHeaders);
+            SoapResponse response = new SoapResponse(statusCode, statusMessage, messageUuid, responseHeaders,
+                responseTime);
             
             // Log outcome based on status code
             if (statusCode >= 200 && statusCode < 300) {
@@ -193,70 +322,47 @@ public class SoapClientServiceUpdated {
             
         } catch (Exception e) {
             long responseTime = System.currentTimeMillis() - startTime;
+            if (call.isAborted()) {
+                logger.error("TIMEOUT: SOAP message {} aborted after {} ms", messageUuid, responseTime);
+                return new SoapResponse(500, "Timed out after " + responseTime + " ms", 
+                    messageUuid, new HashMap<>(), responseTime);
+            }
             logger.error("EXCEPTION: Error sending SOAP message {} after {} ms: {}", 
                 messageUuid, responseTime, e.getMessage());
             
             // Return 500 status for exceptions
             return new SoapResponse(500, "Internal Error: " + e.getMessage(), 
-                messageUuid, new HashMap<>());
-            
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
+                messageUuid, new HashMap<>(), responseTime);
         }
     }
     
     /**
-     * Configure the HTTP connection for SOAP 1.1
+     * Request headers for SOAP 1.1. No "Connection: close": the connection
+     * stays open for the next message.
      */
-    private void configureConnection(HttpURLConnection connection, int contentLength) 
-            throws IOException {
-        
-        // HTTP method
-        connection.setRequestMethod("POST");
-        connection.setDoOutput(true);
-        connection.setDoInput(true);
-        connection.setUseCaches(false);
-        
-        // Timeouts
-        connection.setConnectTimeout(connectTimeout);
-        connection.setReadTimeout(readTimeout);
+    private Map<String, String> buildRequestHeaders() {
+        Map<String, String> headers = new LinkedHashMap<>();
         
         // SOAP 1.1 specific headers
-        connection.setRequestProperty("Content-Type", SOAP_1_1_CONTENT_TYPE);
-        connection.setRequestProperty("Content-Length", String.valueOf(contentLength));
-        connection.setRequestProperty(SOAP_ACTION_HEADER, ""); // Empty for document/literal
+        headers.put("Content-Type", SOAP_1_1_CONTENT_TYPE);
+        headers.put(SOAP_ACTION_HEADER, ""); // Empty for document/literal
         
         // Authentication
         if (username != null && password != null && !username.isEmpty()) {
-            String auth = username + ":" + password;
-            String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
-            connection.setRequestProperty("Authorization", "Basic " + encodedAuth);
+            headers.put("Authorization", basicAuth());
         }
         
         // Additional headers
-        connection.setRequestProperty("Accept", "text/xml, application/xml");
-        connection.setRequestProperty("Cache-Control", "no-cache");
-        connection.setRequestProperty("Pragma", "no-cache");
-        connection.setRequestProperty("User-Agent", USER_AGENT);
-        connection.setRequestProperty("Connection", "close");
+        headers.put("Accept", "text/xml, application/xml");
+        headers.put("Cache-Control", "no-cache");
+        headers.put("Pragma", "no-cache");
+        headers.put("User-Agent", USER_AGENT);
+        return headers;
     }
     
-    /**
-     * Write SOAP request to the connection
-     */
-    private void writeSoapRequest(HttpURLConnection connection, String soapXml) 
-            throws IOException {
-        
-        try (OutputStream os = connection.getOutputStream();
-             OutputStreamWriter writer = new OutputStreamWriter(os, StandardCharsets.UTF_8)) {
-            
-            writer.write(soapXml);
-            writer.flush();
-            
-            logger.debug("SOAP request body sent, size: {} bytes", soapXml.length());
-        }
+    private String basicAuth() {
+        String auth = username + ":" + password;
+        return "Basic " + Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
     }
     
     /**
@@ -300,32 +406,15 @@ public class SoapClientServiceUpdated {
      * @return true if endpoint is reachable
      */
     public boolean testConnection() {
-        HttpURLConnection connection = null;
         try {
-            URL url = new URL(endpointUrl);
-            connection = (HttpURLConnection) url.openConnection();
-            
-            // Apply SSL settings if HTTPS
-            if (useHttps && connection instanceof HttpsURLConnection) {
-                if (sslContext != null) {
-                    ((HttpsURLConnection) connection).setSSLSocketFactory(sslContext.getSocketFactory());
-                }
-                if (hostnameVerifier != null) {
-                    ((HttpsURLConnection) connection).setHostnameVerifier(hostnameVerifier);
-                }
-            }
-            
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(5000);
-            connection.setReadTimeout(5000);
-            
+            Map<String, String> headers = new LinkedHashMap<>();
+            headers.put("User-Agent", USER_AGENT);
             if (username != null && password != null && !username.isEmpty()) {
-                String auth = username + ":" + password;
-                String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
-                connection.setRequestProperty("Authorization", "Basic " + encodedAuth);
+                headers.put("Authorization", basicAuth());
             }
             
-            int responseCode = connection.getResponseCode();
+            int responseCode = connectionPool.execute("GET", new URL(endpointUrl), headers, null, 5000, 5000)
+                .getStatusCode();
             
             logger.info("Connection test result: HTTP {}", responseCode);
             return responseCode > 0;
@@ -333,10 +422,55 @@ public class SoapClientServiceUpdated {
         } catch (Exception e) {
             logger.error("Connection test failed", e);
             return false;
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
+        }
+    }
+    
+    /**
+     * Get worker and connection pool statistics (requests in flight, retries, waits)
+     */
+    public String getThreadPoolStats() {
+        if (executorService instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor tpe = (ThreadPoolExecutor) executorService;
+            return String.format("Pool[active=%d, completed=%d, queue=%d] %s",
+                tpe.getActiveCount(),
+                tpe.getCompletedTaskCount(),
+                tpe.getQueue().size(),
+                connectionPool.describe());
+        }
+        return connectionPool.describe();
+    }
+    
+    /**
+     * Connection pool counters, keyed as in HttpConnectionPool.getStatistics()
+     */
+    public Map<String, Object> getConnectionPoolStatistics() {
+        return connectionPool.getStatistics();
+    }
+    
+    /**
+     * Shutdown the service gracefully: finish queued async sends, then
+     * wait for synchronous senders
+     * @param timeoutSeconds Maximum time to wait for pending requests
+     */
+    public void shutdown(int timeoutSeconds) {
+        logger.info("Initiating shutdown with {}s timeout", timeoutSeconds);
+        isShuttingDown = true;
+        
+        executorService.shutdown();
+        try {
+            if (!executorService.awaitTermination(timeoutSeconds, TimeUnit.SECONDS)) {
+                logger.warn("Timeout reached, forcing shutdown");
+                executorService.shutdownNow();
             }
+        } catch (InterruptedException e) {
+            logger.error("Shutdown interrupted", e);
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        
+        // Synchronous senders may still hold connections
+        if (!connectionPool.shutdown(5000)) {
+            logger.warn("Connections still in use at shutdown");
         }
     }
     
@@ -0,0 +1,381 @@
+package com.hedno.integration.service;
+
+import com.hedno.integration.soap.model.UtilitiesTimeSeriesERPItemBulkNotification;
+import com.hedno.integration.soap.model.UtilitiesTimeSeriesERPItemBulkNotification.*;
+import com.hedno.integration.soap.model.UtilitiesTimeSeriesERPItemBulkNotification.UtilitiesMeasurementTaskAssignmentRole.PointOfDeliveryIdentification;
+
+import javax.xml.datatype.XMLGregorianCalendar;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes the SOAP envelope of a UtilitiesTimeSeriesERPItemBulkNotification as
+ * UTF-8 straight to a stream, without JAXB.
+ *
+ * All markup (envelope, XML declaration, tags, indentation) is prepared once
+ * as UTF-8 bytes; per message only the values are escaped and encoded. The
+ * output is byte for byte what XMLBuilderService.marshalToXml gives with the
+ * formatted JAXB marshaller: null values are left out, elements without
+ * content are written as &lt;X/&gt;. A change to the model classes has to be
+ * made here as well (SoapEnvelopeWriterTest compares both).
+ *
+ * @author HEDNO Integration Team
+ * @version 1.0
+ */
+public final class SoapEnvelopeWriter {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int INDENT = 4;
+
+    private static final byte[] ENVELOPE_START = utf8(XMLBuilderService.SOAP_ENVELOPE_START
+            + "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>");
+    private static final byte[] ROOT_ATTRIBUTES = utf8(
+            " xsi:schemaLocation=\"" + XMLBuilderService.SCHEMA_LOCATION + "\""
+            + " xmlns:ns2=\"" + XMLBuilderService.NAMESPACE + "\""
+            + " xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"");
+    private static final byte[] ENVELOPE_END = utf8("\n" + XMLBuilderService.SOAP_ENVELOPE_END);
+
+    private static final Tag ROOT = new Tag("ns2:UtilitiesTimeSeriesERPItemBulkNotification");
+    private static final Tag MESSAGE_HEADER = new Tag("ns2:MessageHeader");
+    private static final Tag UUID = new Tag("UUID");
+    private static final Tag REFERENCE_UUID = new Tag("ReferenceUUID");
+    private static final Tag CREATION_DATE_TIME = new Tag("CreationDateTime");
+    private static final Tag SENDER_PARTY = new Tag("SenderParty");
+    private static final Tag RECIPIENT_PARTY = new Tag("RecipientParty");
+    private static final Tag STANDARD_ID = new Tag("StandardID");
+    private static final Tag NOTIFICATION_MESSAGE = new Tag("ns2:UtilitiesTimeSeriesERPItemNotificationMessage");
+    private static final Tag TIME_SERIES = new Tag("ns2:UtilitiesTimeSeries");
+    private static final Tag ITEM = new Tag("Item");
+    private static final Tag QUANTITY = new Tag("Quantity");
+    private static final Tag VALIDITY_START = new Tag("UTCValidityStartDateTime");
+    private static final Tag VALIDITY_END = new Tag("UTCValidityEndDateTime");
+    private static final Tag ITEM_STATUS = new Tag("ItemStatus");
+    private static final Tag ITEM_TYPE_CODE = new Tag("UtilitiesTimeSeriesItemTypeCode");
+    private static final Tag MEASUREMENT_ROLE = new Tag("UtilitiesMeasurementTaskAssignmentRole");
+    private static final Tag OBIS_CODE = new Tag("UtilitiesObjectIdentificationSystemCodeText");
+    private static final Tag POD_IDENTIFICATION = new Tag("UtilitiesPointOfDeliveryExternalIdentification");
+    private static final Tag POD_ID = new Tag("UtilitiesPointOfDeliveryPartyID");
+
+    private static final byte[] SCHEME_AGENCY_ID = utf8(" schemeAgencyID=\"");
+    private static final byte[] UNIT_CODE = utf8(" unitCode=\"");
+
+    private SoapEnvelopeWriter() {
+    }
+
+    /**
+     * Write the envelope to out. out is not flushed or closed.
+     */
+    public static void write(UtilitiesTimeSeriesERPItemBulkNotification notification, OutputStream out)
+            throws IOException {
+        Output xml = new Output(out);
+        xml.raw(ENVELOPE_START);
+
+        xml.start(ROOT);
+        xml.raw(ROOT_ATTRIBUTES);
+        writeHeader(xml, notification.getMessageHeader());
+        for (UtilitiesTimeSeriesERPItemNotificationMessage message : notification.getNotificationMessages()) {
+            if (message == null) {
+                continue;
+            }
+            xml.start(NOTIFICATION_MESSAGE);
+            writeHeader(xml, message.getMessageHeader());
+            writeTimeSeries(xml, message.getUtilitiesTimeSeries());
+            xml.end(NOTIFICATION_MESSAGE);
+        }
+        xml.end(ROOT);
+
+        xml.raw(ENVELOPE_END);
+        xml.flushBuffer();
+    }
+
+    private static void writeHeader(Output xml, MessageHeader header) throws IOException {
+        if (header == null) {
+            return;
+        }
+        xml.start(MESSAGE_HEADER);
+        xml.leaf(UUID, header.getUuid());
+        xml.leaf(REFERENCE_UUID, header.getReferenceUuid());
+        xml.leaf(CREATION_DATE_TIME, format(header.getCreationDateTime()));
+        writeParty(xml, SENDER_PARTY, header.getSenderParty());
+        writeParty(xml, RECIPIENT_PARTY, header.getRecipientParty());
+        xml.end(MESSAGE_HEADER);
+    }
+
+    private static void writeParty(Output xml, Tag tag, Party party) throws IOException {
+        if (party == null) {
+            return;
+        }
+        xml.start(tag);
+        Party.StandardID standardId = party.getStandardID();
+        if (standardId != null) {
+            xml.start(STANDARD_ID);
+            xml.attribute(SCHEME_AGENCY_ID, standardId.getSchemeAgencyID());
+            xml.text(standardId.getValue());
+            xml.end(STANDARD_ID);
+        }
+        xml.end(tag);
+    }
+
+    private static void writeTimeSeries(Output xml, UtilitiesTimeSeries series) throws IOException {
+        if (series == null) {
+            return;
+        }
+        xml.start(TIME_SERIES);
+        for (TimeSeriesItem item : series.getItems()) {
+            if (item == null) {
+                continue;
+            }
+            xml.start(ITEM);
+            Quantity quantity = item.getQuantity();
+            if (quantity != null) {
+                xml.start(QUANTITY);
+                xml.attribute(UNIT_CODE, quantity.getUnitCode());
+                xml.text(format(quantity.getValue()));
+                xml.end(QUANTITY);
+            }
+            xml.leaf(VALIDITY_START, format(item.getUtcValidityStartDateTime()));
+            xml.leaf(VALIDITY_END, format(item.getUtcValidityEndDateTime()));
+            ItemStatus status = item.getItemStatus();
+            if (status != null) {
+                xml.start(ITEM_STATUS);
+                xml.leaf(ITEM_TYPE_CODE, status.getUtilitiesTimeSeriesItemTypeCode());
+                xml.end(ITEM_STATUS);
+            }
+            xml.end(ITEM);
+        }
+        UtilitiesMeasurementTaskAssignmentRole role = series.getMeasurementRole();
+        if (role != null) {
+            xml.start(MEASUREMENT_ROLE);
+            xml.leaf(OBIS_CODE, role.getObisCode());
+            PointOfDeliveryIdentification pod = role.getPointOfDeliveryIdentification();
+            if (pod != null) {
+                xml.start(POD_IDENTIFICATION);
+                xml.leaf(POD_ID, pod.getPodId());
+                xml.end(POD_IDENTIFICATION);
+            }
+            xml.end(MEASUREMENT_ROLE);
+        }
+        xml.end(TIME_SERIES);
+    }
+
+    // Lexical forms of the JAXB datatype converter
+    private static String format(XMLGregorianCalendar calendar) {
+        return calendar != null ? calendar.toXMLFormat() : null;
+    }
+
+    private static String format(BigDecimal value) {
+        return value != null ? value.toPlainString() : null;
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Start and end tag of one element
+     */
+    private static final class Tag {
+        final byte[] open;
+        final byte[] close;
+
+        Tag(String qualifiedName) {
+            this.open = utf8("<" + qualifiedName);
+            this.close = utf8("</" + qualifiedName + ">");
+        }
+    }
+
+    /**
+     * Buffered UTF-8 output with the layout of the formatted JAXB marshaller:
+     * every start tag on a new line, indented per level; an end tag on its own
+     * line after child elements, on the same line after text; "/>" when the
+     * element got no content at all.
+     */
+    private static final class Output {
+        private static final int MAX_DEPTH = 16;
+        private static final byte[] NEWLINE_INDENT = newlineIndent();
+
+        private final OutputStream out;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private final boolean[] hasChildren = new boolean[MAX_DEPTH];
+        private int count;
+        private int depth;
+        private boolean startTagOpen;
+
+        Output(OutputStream out) {
+            this.out = out;
+        }
+
+        void start(Tag tag) throws IOException {
+            closeStartTag();
+            if (depth > 0) {
+                hasChildren[depth - 1] = true;
+            }
+            raw(NEWLINE_INDENT, 0, 1 + depth * INDENT);
+            raw(tag.open);
+            hasChildren[depth++] = false;
+            startTagOpen = true;
+        }
+
+        void end(Tag tag) throws IOException {
+            depth--;
+            if (startTagOpen) {
+                startTagOpen = false;
+                write('/');
+                write('>');
+                return;
+            }
+            if (hasChildren[depth]) {
+                raw(NEWLINE_INDENT, 0, 1 + depth * INDENT);
+            }
+            raw(tag.close);
+        }
+
+        /**
+         * Element with text content, left out when value is null
+         */
+        void leaf(Tag tag, String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            start(tag);
+            text(value);
+            end(tag);
+        }
+
+        void attribute(byte[] nameAndQuote, String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            raw(nameAndQuote);
+            escape(value, true);
+            write('"');
+        }
+
+        void text(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            closeStartTag();
+            escape(value, false);
+        }
+
+        void raw(byte[] bytes) throws IOException {
+            raw(bytes, 0, bytes.length);
+        }
+
+        void raw(byte[] bytes, int offset, int length) throws IOException {
+            if (length > buffer.length - count) {
+                flushBuffer();
+                if (length > buffer.length) {
+                    out.write(bytes, offset, length);
+                    return;
+                }
+            }
+            System.arraycopy(bytes, offset, buffer, count, length);
+            count += length;
+        }
+
+        void flushBuffer() throws IOException {
+            if (count > 0) {
+                out.write(buffer, 0, count);
+                count = 0;
+            }
+        }
+
+        private void closeStartTag() throws IOException {
+            if (startTagOpen) {
+                startTagOpen = false;
+                write('>');
+            }
+        }
+
+        /**
+         * Escape as JAXB does: &amp; &lt; &gt; and CR everywhere; in
+         * attributes also the quote and LF. Everything else is written as is.
+         */
+        private void escape(String value, boolean attribute) throws IOException {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '&':
+                        ascii("&amp;");
+                        break;
+                    case '<':
+                        ascii("&lt;");
+                        break;
+                    case '>':
+                        ascii("&gt;");
+                        break;
+                    case '\r':
+                        ascii("&#13;");
+                        break;
+                    case '"':
+                        if (attribute) {
+                            ascii("&quot;");
+                        } else {
+                            write(c);
+                        }
+                        break;
+                    case '\n':
+                        if (attribute) {
+                            ascii("&#10;");
+                        } else {
+                            write(c);
+                        }
+                        break;
+                    default:
+                        if (c < 0x80) {
+                            write(c);
+                        } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                                && Character.isLowSurrogate(value.charAt(i + 1))) {
+                            codePoint(Character.toCodePoint(c, value.charAt(++i)));
+                        } else if (Character.isSurrogate(c)) {
+                            // Unpaired surrogate: replaced, as String.getBytes does
+                            write('?');
+                        } else {
+                            codePoint(c);
+                        }
+                }
+            }
+        }
+
+        private void codePoint(int cp) throws IOException {
+            if (cp < 0x800) {
+                write(0xC0 | (cp >> 6));
+                write(0x80 | (cp & 0x3F));
+            } else if (cp < 0x10000) {
+                write(0xE0 | (cp >> 12));
+                write(0x80 | ((cp >> 6) & 0x3F));
+                write(0x80 | (cp & 0x3F));
+            } else {
+                write(0xF0 | (cp >> 18));
+                write(0x80 | ((cp >> 12) & 0x3F));
+                write(0x80 | ((cp >> 6) & 0x3F));
+                write(0x80 | (cp & 0x3F));
+            }
+        }
+
+        private void ascii(String s) throws IOException {
+            for (int i = 0; i < s.length(); i++) {
+                write(s.charAt(i));
+            }
+        }
+
+        private void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flushBuffer();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        private static byte[] newlineIndent() {
+            byte[] bytes = new byte[1 + MAX_DEPTH * INDENT];
+            Arrays.fill(bytes, (byte) ' ');
+            bytes[0] = '\n';
+            return bytes;
+        }
+    }
+}
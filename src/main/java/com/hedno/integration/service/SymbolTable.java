@@ -0,0 +1,164 @@
+package com.hedno.integration.service;
+
+import com.hedno.integration.ConfigService;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared, concurrent symbol table for the small vocabularies repeated in
+ * every message: POD IDs, OBIS codes, units and status codes.
+ *
+ * Parsers hand each value to intern() and keep the canonical instance, or
+ * to code() and keep a small int. Lookups of known symbols are lock-free;
+ * only new symbols take the table lock.
+ *
+ * Each table is bounded by mdm.symbols.max.entries. Once full, unknown
+ * values are returned as-is (intern) or as NO_CODE (code) and counted
+ * as rejected.
+ *
+ * @author HEDNO Integration Team
+ * @version 1.0
+ */
+public final class SymbolTable {
+
+    /** Returned by code() when the table is full */
+    public static final int NO_CODE = -1;
+
+    private static final int MAX_ENTRIES =
+            Integer.parseInt(ConfigService.get("mdm.symbols.max.entries", "500000").trim());
+
+    public static final SymbolTable POD = new SymbolTable("pod", MAX_ENTRIES);
+    public static final SymbolTable OBIS = new SymbolTable("obis", MAX_ENTRIES);
+    public static final SymbolTable UNIT = new SymbolTable("unit", MAX_ENTRIES);
+    public static final SymbolTable STATUS = new SymbolTable("status", MAX_ENTRIES);
+
+    private static final SymbolTable[] ALL = {POD, OBIS, UNIT, STATUS};
+
+    private final String name;
+    private final int maxEntries;
+    private final ConcurrentHashMap<String, Symbol> symbols = new ConcurrentHashMap<>();
+    private volatile String[] byCode = new String[64];
+    private int size;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    SymbolTable(String name, int maxEntries) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Canonical instance of a value (null stays null)
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        Symbol symbol = lookup(value);
+        return symbol != null ? symbol.value : value;
+    }
+
+    /**
+     * Code of a value, or NO_CODE for null or when the table is full
+     */
+    public int code(String value) {
+        if (value == null) {
+            return NO_CODE;
+        }
+        Symbol symbol = lookup(value);
+        return symbol != null ? symbol.code : NO_CODE;
+    }
+
+    /**
+     * Value of a code handed out by code()
+     */
+    public String symbol(int code) {
+        if (code < 0) {
+            return null;
+        }
+        String[] table = byCode;
+        return code < table.length ? table[code] : null;
+    }
+
+    public int size() {
+        return symbols.size();
+    }
+
+    private Symbol lookup(String value) {
+        Symbol symbol = symbols.get(value);
+        if (symbol != null) {
+            hits.increment();
+            return symbol;
+        }
+        synchronized (this) {
+            symbol = symbols.get(value);
+            if (symbol != null) {
+                hits.increment();
+                return symbol;
+            }
+            if (size >= maxEntries) {
+                rejected.increment();
+                return null;
+            }
+            misses.increment();
+            symbol = new Symbol(value, size);
+            String[] table = byCode;
+            if (size == table.length) {
+                table = Arrays.copyOf(table, table.length * 2);
+            }
+            table[size++] = value;
+            // Publish the code before the symbol becomes visible to lock-free readers
+            byCode = table;
+            symbols.put(value, symbol);
+            return symbol;
+        }
+    }
+
+    /**
+     * Lookup counters of this table
+     */
+    public Map<String, Object> getStatistics() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum() + rejected.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size());
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("hitRate", total > 0 ? Math.round(hitCount * 10000.0 / total) / 100.0 : 0.0);
+        return stats;
+    }
+
+    /**
+     * Counters of all shared tables, keyed "<table>.<counter>"
+     */
+    public static Map<String, Object> getAllStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (SymbolTable table : ALL) {
+            for (Map.Entry<String, Object> entry : table.getStatistics().entrySet()) {
+                stats.put(table.name + "." + entry.getKey(), entry.getValue());
+            }
+        }
+        return stats;
+    }
+
+    private static final class Symbol {
+        final String value;
+        final int code;
+
+        Symbol(String value, int code) {
+            this.value = value;
+            this.code = code;
+        }
+    }
+}
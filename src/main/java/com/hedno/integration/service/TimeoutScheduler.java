@@ -0,0 +1,111 @@
+package com.hedno.integration.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One timer thread for all deadlines of the outbound SOAP clients (request
+ * timeouts of async sends). The thread count does not depend on the number
+ * of messages in flight.
+ *
+ * Cancelled deadlines are removed from the queue at once, so a send that
+ * completes in time leaves nothing behind.
+ *
+ * @author HEDNO Integration Team
+ * @version 1.0
+ */
+public final class TimeoutScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimeoutScheduler.class);
+
+    private static volatile TimeoutScheduler instance;
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder fired = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    TimeoutScheduler() {
+        executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "SoapClient-Timeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Shared scheduler (one daemon thread)
+     */
+    public static TimeoutScheduler getInstance() {
+        TimeoutScheduler result = instance;
+        if (result == null) {
+            synchronized (TimeoutScheduler.class) {
+                result = instance;
+                if (result == null) {
+                    result = new TimeoutScheduler();
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Run task once after delayMs unless the returned future is cancelled first.
+     * Tasks run on the timer thread and must not block.
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long delayMs) {
+        scheduled.increment();
+        return executor.schedule(() -> {
+            fired.increment();
+            run(task);
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Run task every periodMs until the returned future is cancelled
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long periodMs) {
+        return executor.scheduleWithFixedDelay(() -> run(task), periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void run(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            // An exception would silently cancel a periodic task
+            failed.increment();
+            logger.error("Scheduled task failed", e);
+        }
+    }
+
+    /**
+     * Deadline counters and the size of the timer queue
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("threads", executor.getPoolSize());
+        stats.put("pending", executor.getQueue().size());
+        stats.put("scheduled", scheduled.sum());
+        stats.put("fired", fired.sum());
+        stats.put("failed", failed.sum());
+        return stats;
+    }
+
+    /**
+     * Stop the timer thread (pending deadlines are dropped)
+     */
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
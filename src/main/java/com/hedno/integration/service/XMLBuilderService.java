@@ -2,6 +2,7 @@ package com.hedno.integration.service;
 
 import com.hedno.integration.soap.model.UtilitiesTimeSeriesERPItemBulkNotification;
 import com.hedno.integration.soap.model.UtilitiesTimeSeriesERPItemBulkNotification.*;
+import com.hedno.integration.ConfigService;
 import com.fasterxml.uuid.Generators;
 import com.fasterxml.uuid.impl.TimeBasedGenerator;
 import org.slf4j.Logger;
@@ -16,15 +17,23 @@ import javax.xml.datatype.DatatypeFactory;
 import javax.xml.datatype.XMLGregorianCalendar;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.GregorianCalendar;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -41,16 +50,29 @@ public class XMLBuilderService {
     private static final String SENDER_PARTY_ID = "T_MERES";
     private static final String RECIPIENT_PARTY_ID = "EHE000130";
     private static final String DEFAULT_ITEM_STATUS = "W";
-    private static final String NAMESPACE = "http://sap.com/xi/SAPGlobal20/Global";
+    static final String NAMESPACE = "http://sap.com/xi/SAPGlobal20/Global";
+    static final String SCHEMA_LOCATION = NAMESPACE + " UtilitiesTimeSeriesERPItemBulkNotification_OutService.xsd";
+    
+    // SOAP envelope around the marshalled notification (shared with SoapEnvelopeWriter)
+    static final String SOAP_ENVELOPE_START = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\" "
+        + "xmlns:glob=\"" + NAMESPACE + "\">\n"
+        + "  <soapenv:Header/>\n"
+        + "  <soapenv:Body>\n";
+    static final String SOAP_ENVELOPE_END = "  </soapenv:Body>\n"
+        + "</soapenv:Envelope>";
     
     // Default configuration values
     private static final int DEFAULT_MAX_PROFILES_PER_MESSAGE = 10;
     private static final int INTERVALS_PER_DAY = 96; // 15-minute intervals
     
     private final JAXBContext jaxbContext;
+    private final XmlParserPool.BoundedPool<Marshaller, JAXBException> marshallers;
+    private final XmlParserPool.BoundedPool<Unmarshaller, JAXBException> unmarshallers;
     private final DatatypeFactory datatypeFactory;
     private final TimeBasedGenerator uuidGenerator;
     private final int maxProfilesPerMessage;
+    private final boolean streamingWriter;
     
     /**
      * Constructor with default max profiles per message
@@ -63,11 +85,26 @@ public class XMLBuilderService {
      * Constructor with configurable max profiles per message
      */
     public XMLBuilderService(int maxProfilesPerMessage) throws JAXBException, DatatypeConfigurationException {
-        this.jaxbContext = JAXBContext.newInstance(UtilitiesTimeSeriesERPItemBulkNotification.class);
+        this(maxProfilesPerMessage,
+            Boolean.parseBoolean(ConfigService.get("soap.streaming.writer.enabled", "true").trim()));
+    }
+    
+    /**
+     * Constructor choosing how writeXml produces the envelope
+     * @param streamingWriter true for SoapEnvelopeWriter, false for JAXB
+     */
+    XMLBuilderService(int maxProfilesPerMessage, boolean streamingWriter)
+            throws JAXBException, DatatypeConfigurationException {
+        this.jaxbContext = XmlParserPool.jaxbContext(UtilitiesTimeSeriesERPItemBulkNotification.class);
+        JAXBContext context = this.jaxbContext;
+        this.marshallers = XmlParserPool.pool("jaxb.notification.marshaller", () -> createMarshaller(context));
+        this.unmarshallers = XmlParserPool.pool("jaxb.notification.unmarshaller", jaxbContext::createUnmarshaller);
         this.datatypeFactory = DatatypeFactory.newInstance();
         this.uuidGenerator = Generators.timeBasedGenerator();
         this.maxProfilesPerMessage = maxProfilesPerMessage;
-        logger.info("XMLBuilderService initialized with max {} profiles per message", maxProfilesPerMessage);
+        this.streamingWriter = streamingWriter;
+        logger.info("XMLBuilderService initialized with max {} profiles per message, {} envelope writer", 
+            maxProfilesPerMessage, streamingWriter ? "streaming" : "JAXB");
     }
     
     /**
@@ -84,21 +121,59 @@ public class XMLBuilderService {
         
         if (profileDataList.size() > maxProfilesPerMessage) {
             throw new IllegalArgumentException(String.format(
-                "Profile count %d exceeds maximum %d per message", 
+                "Profile count %d exceeds maximum %d per message (use buildBulkNotifications)", 
                 profileDataList.size(), maxProfilesPerMessage));
         }
         
+        String mainUuid = generateUuid();
+        return buildNotification(profileDataList, mainUuid, mainUuid);
+    }
+    
+    /**
+     * Build as many bulk notifications as needed for the profiles, at most
+     * maxProfilesPerMessage each. A list that fits gives one notification as
+     * buildBulkNotification does; otherwise every chunk has its own UUID and
+     * the ReferenceUUID of all chunks is one shared parent UUID.
+     * @param profileDataList List of profile data to include
+     * @return Notifications in profile order
+     */
+    public List<UtilitiesTimeSeriesERPItemBulkNotification> buildBulkNotifications(
+            List<LoadProfileData> profileDataList) {
+        
+        if (profileDataList == null || profileDataList.isEmpty()) {
+            throw new IllegalArgumentException("Profile data list cannot be null or empty");
+        }
+        
+        if (profileDataList.size() <= maxProfilesPerMessage) {
+            return Collections.singletonList(buildBulkNotification(profileDataList));
+        }
+        
+        String parentUuid = generateUuid();
+        List<UtilitiesTimeSeriesERPItemBulkNotification> notifications = new ArrayList<>();
+        for (int from = 0; from < profileDataList.size(); from += maxProfilesPerMessage) {
+            int to = Math.min(from + maxProfilesPerMessage, profileDataList.size());
+            notifications.add(buildNotification(profileDataList.subList(from, to), generateUuid(), parentUuid));
+        }
+        
+        logger.info("Split {} profiles into {} notifications, parent UUID: {}", 
+            profileDataList.size(), notifications.size(), parentUuid);
+        
+        return notifications;
+    }
+    
+    private UtilitiesTimeSeriesERPItemBulkNotification buildNotification(
+            List<LoadProfileData> profileDataList, String mainUuid, String referenceUuid) {
+        
         UtilitiesTimeSeriesERPItemBulkNotification notification = 
             new UtilitiesTimeSeriesERPItemBulkNotification();
         
         // Create main message header
-        String mainUuid = generateUuid();
-        notification.setMessageHeader(createMessageHeader(mainUuid));
+        notification.setMessageHeader(createMessageHeader(mainUuid, referenceUuid));
         
         // Add individual notification messages for each profile
         for (LoadProfileData profileData : profileDataList) {
             notification.getNotificationMessages().add(
-                createNotificationMessage(mainUuid, profileData));
+                createNotificationMessage(mainUuid, referenceUuid, profileData));
         }
         
         logger.debug("Built bulk notification with {} profiles, UUID: {}", 
@@ -107,14 +182,77 @@ public class XMLBuilderService {
         return notification;
     }
     
+    /**
+     * Merge already built bulk notifications into one.
+     * The merged UUID is derived from the UUIDs the notifications are keyed by
+     * (coalescedUuid), so a retry of the same messages goes out under the same
+     * MessageId and SAP detects the duplicate. The notification messages keep
+     * their own headers: each profile can be traced back to the message it came from.
+     * @param notificationsByUuid Notifications keyed by their message UUID, in order
+     * @return UtilitiesTimeSeriesERPItemBulkNotification
+     */
+    public UtilitiesTimeSeriesERPItemBulkNotification coalesceNotifications(
+            Map<String, UtilitiesTimeSeriesERPItemBulkNotification> notificationsByUuid) {
+        
+        if (notificationsByUuid == null || notificationsByUuid.isEmpty()) {
+            throw new IllegalArgumentException("Notifications cannot be null or empty");
+        }
+        
+        int profileCount = 0;
+        for (UtilitiesTimeSeriesERPItemBulkNotification notification : notificationsByUuid.values()) {
+            profileCount += notification.getNotificationMessages().size();
+        }
+        if (profileCount > maxProfilesPerMessage) {
+            throw new IllegalArgumentException(String.format(
+                "Profile count %d exceeds maximum %d per message", 
+                profileCount, maxProfilesPerMessage));
+        }
+        
+        UtilitiesTimeSeriesERPItemBulkNotification merged = 
+            new UtilitiesTimeSeriesERPItemBulkNotification();
+        String mainUuid = coalescedUuid(notificationsByUuid.keySet());
+        merged.setMessageHeader(createMessageHeader(mainUuid));
+        
+        for (UtilitiesTimeSeriesERPItemBulkNotification notification : notificationsByUuid.values()) {
+            merged.getNotificationMessages().addAll(notification.getNotificationMessages());
+        }
+        
+        logger.debug("Coalesced {} notifications with {} profiles, UUID: {}", 
+            notificationsByUuid.size(), profileCount, mainUuid);
+        
+        return merged;
+    }
+    
+    /**
+     * UUID of a notification merged from the given message UUIDs: name-based
+     * (version 3) over the sorted UUIDs, the same for the same messages in any order
+     */
+    public static String coalescedUuid(Collection<String> messageUuids) {
+        List<String> sorted = new ArrayList<>(messageUuids);
+        Collections.sort(sorted);
+        return UUID.nameUUIDFromBytes(String.join(",", sorted).getBytes(StandardCharsets.UTF_8))
+            .toString().toUpperCase();
+    }
+    
+    /**
+     * Maximum number of profiles in one bulk notification
+     */
+    public int getMaxProfilesPerMessage() {
+        return maxProfilesPerMessage;
+    }
+    
     /**
      * Create the main message header
      */
     private MessageHeader createMessageHeader(String uuid) {
+        return createMessageHeader(uuid, uuid);
+    }
+    
+    private MessageHeader createMessageHeader(String uuid, String referenceUuid) {
         MessageHeader header = new MessageHeader();
         
         header.setUuid(uuid);
-        header.setReferenceUuid(uuid);
+        header.setReferenceUuid(referenceUuid);
         header.setCreationDateTime(getCurrentTimestamp());
         
         // Set sender party
@@ -134,13 +272,13 @@ public class XMLBuilderService {
      * Create individual notification message for a profile
      */
     private UtilitiesTimeSeriesERPItemNotificationMessage createNotificationMessage(
-            String mainUuid, LoadProfileData profileData) {
+            String mainUuid, String referenceUuid, LoadProfileData profileData) {
         
         UtilitiesTimeSeriesERPItemNotificationMessage message = 
             new UtilitiesTimeSeriesERPItemNotificationMessage();
         
         // Set message header (same as main header)
-        message.setMessageHeader(createMessageHeader(mainUuid));
+        message.setMessageHeader(createMessageHeader(mainUuid, referenceUuid));
         
         // Create utilities time series
         UtilitiesTimeSeries timeSeries = new UtilitiesTimeSeries();
@@ -207,24 +345,19 @@ public class XMLBuilderService {
         
         StringWriter writer = new StringWriter();
         
-        Marshaller marshaller = jaxbContext.createMarshaller();
-        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-        marshaller.setProperty(Marshaller.JAXB_SCHEMA_LOCATION, 
-            "http://sap.com/xi/SAPGlobal20/Global UtilitiesTimeSeriesERPItemBulkNotification_OutService.xsd");
-        
         // Add SOAP envelope wrapper
-        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
-        writer.write("<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\" ");
-        writer.write("xmlns:glob=\"" + NAMESPACE + "\">\n");
-        writer.write("  <soapenv:Header/>\n");
-        writer.write("  <soapenv:Body>\n");
+        writer.write(SOAP_ENVELOPE_START);
         
         // Marshal the notification
-        marshaller.marshal(notification, writer);
+        Marshaller marshaller = marshallers.borrow();
+        try {
+            marshaller.marshal(notification, writer);
+        } finally {
+            marshallers.release(marshaller);
+        }
         
         // Close SOAP envelope
-        writer.write("  </soapenv:Body>\n");
-        writer.write("</soapenv:Envelope>");
+        writer.write(SOAP_ENVELOPE_END);
         
         String xml = writer.toString();
         logger.debug("Marshalled notification to XML, size: {} characters", xml.length());
@@ -232,6 +365,53 @@ public class XMLBuilderService {
         return xml;
     }
     
+    /**
+     * Write the notification's SOAP envelope as UTF-8 to out: the bytes of
+     * marshalToXml, without building the String. Streamed from the model by
+     * SoapEnvelopeWriter, or marshalled with JAXB when
+     * soap.streaming.writer.enabled=false.
+     * @param notification The notification to write
+     * @param out Target stream (not flushed or closed)
+     */
+    public void writeXml(UtilitiesTimeSeriesERPItemBulkNotification notification, OutputStream out) 
+            throws IOException {
+        
+        if (streamingWriter) {
+            SoapEnvelopeWriter.write(notification, out);
+            return;
+        }
+        try {
+            out.write(marshalToXml(notification).getBytes(StandardCharsets.UTF_8));
+        } catch (JAXBException e) {
+            throw new IOException("Failed to marshal notification", e);
+        }
+    }
+    
+    /**
+     * Marshal several notifications (e.g. from buildBulkNotifications)
+     * @param notifications The notifications to marshal
+     * @return XML strings keyed by notification UUID, in order
+     */
+    public Map<String, String> marshalToXml(List<UtilitiesTimeSeriesERPItemBulkNotification> notifications) 
+            throws JAXBException {
+        
+        Map<String, String> xmlByUuid = new LinkedHashMap<>();
+        for (UtilitiesTimeSeriesERPItemBulkNotification notification : notifications) {
+            xmlByUuid.put(notification.getMessageHeader().getUuid(), marshalToXml(notification));
+        }
+        return xmlByUuid;
+    }
+    
+    /**
+     * Create a marshaller for the pool (configured once, reused per message)
+     */
+    private static Marshaller createMarshaller(JAXBContext context) throws JAXBException {
+        Marshaller marshaller = context.createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+        marshaller.setProperty(Marshaller.JAXB_SCHEMA_LOCATION, SCHEMA_LOCATION);
+        return marshaller;
+    }
+    
     /**
      * Unmarshal XML string to notification object
      * @param xml The XML string to unmarshal
@@ -243,11 +423,15 @@ public class XMLBuilderService {
         // Extract body content from SOAP envelope if present
         String bodyContent = extractBodyContent(xml);
         
-        Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
         StringReader reader = new StringReader(bodyContent);
         
-        UtilitiesTimeSeriesERPItemBulkNotification notification = 
-            (UtilitiesTimeSeriesERPItemBulkNotification) unmarshaller.unmarshal(reader);
+        UtilitiesTimeSeriesERPItemBulkNotification notification;
+        Unmarshaller unmarshaller = unmarshallers.borrow();
+        try {
+            notification = (UtilitiesTimeSeriesERPItemBulkNotification) unmarshaller.unmarshal(reader);
+        } finally {
+            unmarshallers.release(unmarshaller);
+        }
         
         logger.debug("Unmarshalled XML to notification with {} profiles", 
             notification.getNotificationMessages().size());
@@ -1,12 +1,13 @@
 package com.hedno.integration.service;
 
 import com.hedno.integration.dao.ConnectOracleDAO;
+import com.hedno.integration.processor.FixedPointDecimal;
+import com.hedno.integration.processor.IsoDateTimeParser;
 import org.w3c.dom.Document;
 import org.xml.sax.ErrorHandler;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.File;
 import java.sql.*;
 import java.util.HashSet;
@@ -26,7 +27,9 @@ import java.util.Properties;
 
 //import com.hedno.integration.dao.ChannelDAO;
 //import com.hedno.integration.dao.ReadingDAO;
+import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 
 /**
@@ -55,6 +58,9 @@ public class XMLReaderService {
 
     private static long fileLogId;
 
+    private static final ThreadLocal<FixedPointDecimal> DECIMALS = ThreadLocal.withInitial(FixedPointDecimal::new);
+    private static final ThreadLocal<IsoDateTimeParser> TIMESTAMPS = ThreadLocal.withInitial(IsoDateTimeParser::new);
+
     public static String get(String key) {
         return properties.getProperty(key);
     }
@@ -85,6 +91,39 @@ public class XMLReaderService {
         return (num <= 9) ? "0" + num : String.valueOf(num);
     }
 
+    /**
+     * Reading value as a plain NUMBER(15,4) literal, parsed with the fixed-point
+     * parser. Values that do not parse are passed through unchanged.
+     *
+     * @param value Value attribute of a Reading
+     * @return String
+     */
+    public static String quantityLiteral(String value) {
+        try {
+            return FixedPointDecimal.toPlainString(DECIMALS.get().parse(value));
+        } catch (NumberFormatException | ArithmeticException e) {
+            logger.warn("Invalid reading value: " + value);
+            return value;
+        }
+    }
+
+    /**
+     * Parse a StartTime attribute (2025-09-28T01:00:00+03:00) with the fixed-layout
+     * parser, falling back to OffsetDateTime.parse for anything else.
+     *
+     * @param dateTime ISO-8601 date-time with offset
+     * @return OffsetDateTime
+     */
+    public static OffsetDateTime parseOffsetDateTime(String dateTime) {
+        IsoDateTimeParser parser = TIMESTAMPS.get();
+        long local = parser.parse(dateTime);
+        if (local == IsoDateTimeParser.INVALID || parser.getLastOffsetSeconds() == IsoDateTimeParser.NO_OFFSET) {
+            return OffsetDateTime.parse(dateTime);
+        }
+        return OffsetDateTime.of(LocalDateTime.ofEpochSecond(local, 0, ZoneOffset.UTC),
+                ZoneOffset.ofTotalSeconds(parser.getLastOffsetSeconds()));
+    }
+
     /*
 
      */
@@ -155,13 +194,10 @@ public class XMLReaderService {
             fileId = insertHeader(conn,preparedStatementProcess,in_xmlFile,"EVENT");
             fileLogId = fileId;
 
-            // 1. Create a DocumentBuilderFactory
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            // For this simple case, we can ignore namespaces
-            factory.setNamespaceAware(false);
+            // 1. Shared parser - for this simple case, we can ignore namespaces
+            DocumentBuilder builder = XmlParserPool.documentBuilder(XmlParserPool.Profile.DEFAULT);
 
             // 2. Build the document
-            DocumentBuilder builder = factory.newDocumentBuilder();
             Document doc = builder.parse(xmlFile);
             doc.getDocumentElement().normalize();
 
@@ -290,9 +326,7 @@ public class XMLReaderService {
             File file = new File(in_xmlFile);
 
             // Set parser to be namespace-aware
-            DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-            dbFactory.setNamespaceAware(true);
-            DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+            DocumentBuilder dBuilder = XmlParserPool.documentBuilder(XmlParserPool.Profile.NAMESPACE_AWARE);
 
             // Parse XML
             Document doc = dBuilder.parse(file);
@@ -478,10 +512,7 @@ public class XMLReaderService {
 
                 // Create DocumentBuilder
                 //XML parsers like DocumentBuilder cannot parse broken XML
-                DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-                dbFactory.setIgnoringComments(true);
-                dbFactory.setIgnoringElementContentWhitespace(true);
-                DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+                DocumentBuilder dBuilder = XmlParserPool.documentBuilder(XmlParserPool.Profile.IGNORING_COMMENTS);
 
                 // Parse XML
                 Document doc = dBuilder.parse(xmlFile);
@@ -583,8 +614,8 @@ public class XMLReaderService {
                     //KVARTEST1:3  pomid:dataclass
                     //GR00000000880000000000:101  ==> GR0 000000088[SUPPLY_NUM] From char 4 up to  13 digits paroci (Perifereia + 8 digits paroxi) 0000000000
                     int  indxOf =  servicePoint.indexOf(":");
-                    String podId = servicePoint.substring(0, indxOf);
-                    String dataClass = servicePoint.substring(indxOf + 1 );
+                    String podId = SymbolTable.POD.intern(servicePoint.substring(0, indxOf));
+                    String dataClass = SymbolTable.OBIS.intern(servicePoint.substring(indxOf + 1 ));
                     String supplyNum = null;
                     try{
                         supplyNum = servicePoint.substring(3, 12);
@@ -644,8 +675,8 @@ public class XMLReaderService {
                         endTimeXML = endDateTimeXML.substring(11,19);
                         logger.info("startTimeXML =" + startTimeXML+ " endTimeXML =" + endTimeXML);
 
-                        odt = OffsetDateTime.parse(startDateTimeXML);
-                        oDate = OffsetDateTime.parse(startDateTimeXML);
+                        odt = parseOffsetDateTime(startDateTimeXML);
+                        oDate = odt;
                     }
                     //Creating CURVES structure
                     //ChannelDAO channelDAO = new ChannelDAO(servicePoint, startDateTimeXML, endDateTimeXML, timeZone, intervalLength, isRegister);
@@ -669,8 +700,8 @@ public class XMLReaderService {
                     for (int j = 0; j < readings.getLength(); ++j) {
                         updAfterLoopFlg = true;
                         Element reading = (Element) readings.item(j);
-                        String value = reading.getAttribute("Value");
-                        String statusRef = reading.getAttribute("StatusRef");
+                        String value = quantityLiteral(reading.getAttribute("Value"));
+                        String statusRef = SymbolTable.STATUS.intern(reading.getAttribute("StatusRef"));
                         String readingTime = reading.hasAttribute("ReadingTime")
                                 ? reading.getAttribute("ReadingTime")
                                 :null;
@@ -859,13 +890,9 @@ public class XMLReaderService {
         File xmlFile = new File(in_xmlFile);//file_template_fixed
 
         try{
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-
-            factory.setNamespaceAware(true);    // Handle xmlns properly
-            factory.setValidating(false);       // Only check well-formedness
-            factory.setIgnoringComments(true);
-            factory.setIgnoringElementContentWhitespace(true);
-            DocumentBuilder builder = factory.newDocumentBuilder();
+            // Namespace-aware, non-validating: only checks well-formedness
+            DocumentBuilder builder = XmlParserPool.documentBuilder(
+                    XmlParserPool.Profile.NAMESPACE_AWARE_IGNORING_COMMENTS);
 
             // Attach a custom error handler
             builder.setErrorHandler(new ErrorHandler() {
@@ -962,9 +989,7 @@ public class XMLReaderService {
             logger.info("Repaired XML written to: " + fixed.toAbsolutePath());
 
             // parsing the repaired file to confirm validity
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
-            DocumentBuilder builder = factory.newDocumentBuilder();
+            DocumentBuilder builder = XmlParserPool.documentBuilder(XmlParserPool.Profile.NAMESPACE_AWARE);
             Document doc = builder.parse(fixed.toFile());
             logger.info("XML parsed successfully. Root element: " + doc.getDocumentElement().getNodeName());
             return 1;
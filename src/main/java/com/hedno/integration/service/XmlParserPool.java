@@ -0,0 +1,235 @@
+package com.hedno.integration.service;
+
+import com.hedno.integration.ConfigService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared XML parsers for all services.
+ *
+ * - DOM: one hardened DocumentBuilderFactory per Profile, configured once;
+ *   DocumentBuilders are confined to the calling thread and reset on reuse.
+ * - StAX: two hardened XMLInputFactories, namespace-aware or not
+ *   (thread-safe once configured).
+ * - JAXB: one JAXBContext per root class; Marshallers/Unmarshallers are
+ *   kept in bounded pools (xml.pool.max.idle per pool).
+ *
+ * Hardening: secure processing, no external entities or DTDs, no XInclude.
+ *
+ * @author HEDNO Integration Team
+ * @version 1.0
+ */
+public final class XmlParserPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(XmlParserPool.class);
+
+    static final int MAX_IDLE =
+            Integer.parseInt(ConfigService.get("xml.pool.max.idle", "32").trim());
+
+    /**
+     * DOM parser configurations used in the services
+     */
+    public enum Profile {
+        DEFAULT(false, false),
+        NAMESPACE_AWARE(true, false),
+        IGNORING_COMMENTS(false, true),
+        NAMESPACE_AWARE_IGNORING_COMMENTS(true, true);
+
+        private final DocumentBuilderFactory factory;
+        private final ThreadLocal<DocumentBuilder> builders = new ThreadLocal<>();
+        private final LongAdder created = new LongAdder();
+        private final LongAdder borrowed = new LongAdder();
+
+        Profile(boolean namespaceAware, boolean ignoringComments) {
+            this.factory = newDocumentBuilderFactory(namespaceAware, ignoringComments);
+        }
+    }
+
+    private static final XMLInputFactory INPUT_FACTORY = newInputFactory(true);
+    private static final XMLInputFactory PLAIN_INPUT_FACTORY = newInputFactory(false);
+
+    private static final Map<Class<?>, JAXBContext> CONTEXTS = new ConcurrentHashMap<>();
+    private static final Map<String, BoundedPool<?, ?>> POOLS = new ConcurrentHashMap<>();
+
+    private XmlParserPool() {
+    }
+
+    /**
+     * DocumentBuilder of the calling thread for a profile, reset for reuse.
+     * Do not hand it to other threads.
+     */
+    public static DocumentBuilder documentBuilder(Profile profile) throws ParserConfigurationException {
+        profile.borrowed.increment();
+        DocumentBuilder builder = profile.builders.get();
+        if (builder == null) {
+            builder = profile.factory.newDocumentBuilder();
+            profile.builders.set(builder);
+            profile.created.increment();
+        } else {
+            builder.reset();
+        }
+        // reset() does not guarantee the handlers of a previous caller are dropped
+        builder.setErrorHandler(null);
+        builder.setEntityResolver(null);
+        return builder;
+    }
+
+    /**
+     * Shared namespace-aware, coalescing StAX input factory
+     */
+    public static XMLInputFactory xmlInputFactory() {
+        return INPUT_FACTORY;
+    }
+
+    /**
+     * Shared coalescing StAX input factory that is not namespace-aware:
+     * names keep their prefix, which need not be declared
+     */
+    public static XMLInputFactory plainXmlInputFactory() {
+        return PLAIN_INPUT_FACTORY;
+    }
+
+    /**
+     * Shared JAXBContext of a root class (created on first use)
+     */
+    public static JAXBContext jaxbContext(Class<?> type) throws JAXBException {
+        JAXBContext context = CONTEXTS.get(type);
+        if (context == null) {
+            context = JAXBContext.newInstance(type);
+            JAXBContext existing = CONTEXTS.putIfAbsent(type, context);
+            if (existing != null) {
+                context = existing;
+            }
+        }
+        return context;
+    }
+
+    /**
+     * Registered bounded pool of a name, created with the factory on first use
+     */
+    @SuppressWarnings("unchecked")
+    public static <T, E extends Exception> BoundedPool<T, E> pool(String name, Factory<T, E> factory) {
+        return (BoundedPool<T, E>) POOLS.computeIfAbsent(name, key -> new BoundedPool<>(key, MAX_IDLE, factory));
+    }
+
+    /**
+     * Counters of all parsers and pools, keyed "<parser>.<counter>"
+     */
+    public static Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Profile profile : Profile.values()) {
+            String name = "dom." + profile.name().toLowerCase();
+            long borrowed = profile.borrowed.sum();
+            long created = profile.created.sum();
+            stats.put(name + ".borrowed", borrowed);
+            stats.put(name + ".created", created);
+            stats.put(name + ".reused", borrowed - created);
+        }
+        for (BoundedPool<?, ?> pool : POOLS.values()) {
+            stats.putAll(pool.getStatistics());
+        }
+        return stats;
+    }
+
+    private static DocumentBuilderFactory newDocumentBuilderFactory(boolean namespaceAware, boolean ignoringComments) {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(namespaceAware);
+        factory.setIgnoringComments(ignoringComments);
+        factory.setIgnoringElementContentWhitespace(ignoringComments);
+        factory.setXIncludeAware(false);
+        factory.setExpandEntityReferences(false);
+        setFeature(factory, XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        setFeature(factory, "http://xml.org/sax/features/external-general-entities", false);
+        setFeature(factory, "http://xml.org/sax/features/external-parameter-entities", false);
+        setFeature(factory, "http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        return factory;
+    }
+
+    private static void setFeature(DocumentBuilderFactory factory, String feature, boolean value) {
+        try {
+            factory.setFeature(feature, value);
+        } catch (ParserConfigurationException e) {
+            logger.warn("XML parser does not support feature {}: {}", feature, e.getMessage());
+        }
+    }
+
+    private static XMLInputFactory newInputFactory(boolean namespaceAware) {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, namespaceAware);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        // No DTD processing at all (XXE / entity expansion); SOAP payloads never carry one
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return factory;
+    }
+
+    /**
+     * Creates pooled objects
+     */
+    public interface Factory<T, E extends Exception> {
+        T create() throws E;
+    }
+
+    /**
+     * Bounded pool of non-thread-safe objects (Marshaller, Unmarshaller).
+     * borrow() never blocks: it creates a new object when none is idle, and
+     * release() drops the object when the pool already holds maxIdle.
+     */
+    public static final class BoundedPool<T, E extends Exception> {
+
+        private final String name;
+        private final BlockingQueue<T> idle;
+        private final Factory<T, E> factory;
+        private final LongAdder created = new LongAdder();
+        private final LongAdder borrowed = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+
+        BoundedPool(String name, int maxIdle, Factory<T, E> factory) {
+            this.name = name;
+            this.idle = new ArrayBlockingQueue<>(Math.max(1, maxIdle));
+            this.factory = factory;
+        }
+
+        public T borrow() throws E {
+            borrowed.increment();
+            T object = idle.poll();
+            if (object == null) {
+                object = factory.create();
+                created.increment();
+            }
+            return object;
+        }
+
+        public void release(T object) {
+            if (object != null && !idle.offer(object)) {
+                dropped.increment();
+            }
+        }
+
+        public Map<String, Object> getStatistics() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            long borrowedCount = borrowed.sum();
+            long createdCount = created.sum();
+            stats.put(name + ".borrowed", borrowedCount);
+            stats.put(name + ".created", createdCount);
+            stats.put(name + ".reused", borrowedCount - createdCount);
+            stats.put(name + ".dropped", dropped.sum());
+            stats.put(name + ".idle", idle.size());
+            return stats;
+        }
+    }
+}
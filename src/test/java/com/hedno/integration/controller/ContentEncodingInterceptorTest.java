@@ -0,0 +1,93 @@
+package com.hedno.integration.controller;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ContentEncodingInterceptor decoding
+ */
+public class ContentEncodingInterceptorTest {
+
+    private static final byte[] XML =
+            "<Notification><Item>1.5</Item><Item>2.5</Item></Notification>".getBytes(StandardCharsets.UTF_8);
+
+    private final ContentEncodingInterceptor interceptor = new ContentEncodingInterceptor(1024);
+
+    @Test
+    public void testGzipAndDeflate() throws Exception {
+        assertArrayEquals(XML, read(interceptor.decode("gzip", gzip(XML))));
+        assertArrayEquals(XML, read(interceptor.decode(" X-GZIP ", gzip(XML))));
+        // zlib-wrapped (RFC 1950) and raw (RFC 1951) deflate
+        assertArrayEquals(XML, read(interceptor.decode("deflate", deflate(XML, false))));
+        assertArrayEquals(XML, read(interceptor.decode("deflate", deflate(XML, true))));
+        assertArrayEquals(XML, read(interceptor.decode("identity", new ByteArrayInputStream(XML))));
+        assertNull(interceptor.decode("br", new ByteArrayInputStream(XML)));
+    }
+
+    @Test
+    public void testDecompressedSizeCeiling() throws Exception {
+        byte[] bomb = new byte[2048];
+        Arrays.fill(bomb, (byte) '0');
+        try {
+            read(interceptor.decode("gzip", gzip(bomb)));
+            fail("Body above the ceiling accepted");
+        } catch (ContentEncodingInterceptor.PayloadTooLargeException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCorruptGzipHeader() throws Exception {
+        assertCorrupt(new ByteArrayInputStream(XML));
+        // Truncated inside the gzip header
+        assertCorrupt(new ByteArrayInputStream(new byte[] {(byte) 0x1f, (byte) 0x8b}));
+        assertCorrupt(new ByteArrayInputStream(new byte[0]));
+    }
+
+    private void assertCorrupt(InputStream body) throws IOException {
+        try {
+            interceptor.decode("gzip", body);
+            fail("Corrupt gzip body accepted");
+        } catch (ContentEncodingInterceptor.CorruptBodyException expected) {
+            // answered with 400
+        }
+    }
+
+    private static InputStream gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        }
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+
+    private static InputStream deflate(byte[] data, boolean raw) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new DeflaterOutputStream(bytes, new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+            out.write(data);
+        }
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,75 @@
+package com.hedno.integration.processor;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for FixedPointDecimal
+ */
+public class FixedPointDecimalTest {
+
+    private final FixedPointDecimal parser = new FixedPointDecimal();
+
+    @Test
+    public void testPlainValues() {
+        assertEquals(12500, parser.parse("1.250"));
+        assertEquals(3, parser.getLastScale());
+        assertEquals(-5000, parser.parse(" -0.5 "));
+        assertEquals(1, parser.getLastScale());
+        assertEquals(0, parser.parse("0"));
+        assertEquals(0, parser.getLastScale());
+        assertEquals(999999999999999L, parser.parse("99999999999.9999"));
+    }
+
+    @Test
+    public void testRoundingAndExponents() {
+        assertEquals(1, parser.parse("0.00005"));
+        assertEquals(0, parser.parse("0.00004999"));
+        assertEquals(-1, parser.parse("-0.00005"));
+        assertEquals(12000000, parser.parse("1.2E+3"));
+        assertEquals(0, parser.getLastScale());
+        assertEquals(120, parser.parse("1.2e-2"));
+        assertEquals(3, parser.getLastScale());
+        assertEquals(1235, parser.parse("0.12345678901234567890123"));
+    }
+
+    @Test
+    public void testMatchesBigDecimal() {
+        String[] values = {"1234567890123456789e-5", "123456789012345678901e-10", "00012.3400", "-5.55555", "1e-30"};
+        for (String value : values) {
+            long expected = new BigDecimal(value).setScale(4, RoundingMode.HALF_UP).unscaledValue().longValue();
+            assertEquals(value, expected, parser.parse(value));
+        }
+    }
+
+    @Test
+    public void testInvalidAndOverflow() {
+        String[] invalid = {"", " ", "-", ".", "1.2.3", "1e", "12a", "1,5"};
+        for (String value : invalid) {
+            try {
+                parser.parse(value);
+                fail("Accepted '" + value + "'");
+            } catch (NumberFormatException expected) {
+                // expected
+            }
+        }
+        try {
+            parser.parse("100000000000000");
+            fail("Overflow not reported");
+        } catch (ArithmeticException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testConversions() {
+        assertEquals(new BigDecimal("1.250"), FixedPointDecimal.toBigDecimal(12500, 3));
+        assertEquals(new BigDecimal("100.5"), FixedPointDecimal.toBigDecimal(FixedPointDecimal.fromBigDecimal(new BigDecimal("100.5")), 1));
+        assertEquals("-0.0500", FixedPointDecimal.toPlainString(-500));
+        assertEquals("12.0000", FixedPointDecimal.toPlainString(120000));
+    }
+}
@@ -0,0 +1,75 @@
+package com.hedno.integration.processor;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for IntervalColumns and the LoadProfileData compatibility view
+ */
+public class IntervalColumnsTest {
+
+    @Test
+    public void testRoundTripThroughColumns() {
+        IntervalColumns columns = new IntervalColumns(2);
+        for (int i = 0; i < 200; i++) {
+            columns.add(LocalDateTime.of(2025, 1, 1, 0, 0).plusMinutes(15L * i),
+                    new BigDecimal("1.250").add(BigDecimal.valueOf(i)), "KWH", i % 2 == 0 ? "W" : "V");
+        }
+
+        assertEquals(200, columns.size());
+        assertEquals(LocalDateTime.of(2025, 1, 1, 0, 15), columns.getStartDateTime(1));
+        assertEquals(new BigDecimal("2.250"), columns.getValue(1));
+        assertEquals(22500, columns.getScaledValue(1));
+        assertEquals(3, columns.getScale(1));
+        assertEquals("KWH", columns.getUnitCode(199));
+        assertEquals("V", columns.getStatus(199));
+        assertEquals(columns.getStatusCodeId(0), columns.getStatusCodeId(198));
+    }
+
+    @Test
+    public void testMissingValues() {
+        IntervalColumns columns = new IntervalColumns();
+        columns.add(null, null, null, null);
+
+        assertNull(columns.getStartDateTime(0));
+        assertFalse(columns.hasValue(0));
+        assertNull(columns.getValue(0));
+        assertNull(columns.getUnitCode(0));
+        assertEquals(IntervalColumns.NO_CODE, columns.getStatusCodeId(0));
+    }
+
+    @Test
+    public void testValuesRoundedToFourDigits() {
+        IntervalColumns columns = new IntervalColumns();
+        columns.add(null, new BigDecimal("0.12345678901234567890123"), "KWH", "W");
+
+        assertEquals(1235, columns.getScaledValue(0));
+        assertEquals(new BigDecimal("0.1235"), columns.getValue(0));
+        try {
+            columns.add(null, new BigDecimal("123456789012345678901234567890"), "KWH", "W");
+            fail("Out of range value accepted");
+        } catch (ArithmeticException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testLoadProfileDataView() {
+        LoadProfileData profile = new LoadProfileData();
+        profile.addInterval(new IntervalData(LocalDateTime.of(2024, 12, 5, 10, 0), new BigDecimal("12.5"), "E"));
+
+        List<IntervalData> intervals = profile.getIntervals();
+        assertEquals(1, intervals.size());
+        assertEquals(new BigDecimal("12.5"), intervals.get(0).getValue());
+        assertEquals("E", intervals.get(0).getStatus());
+        assertEquals(1, profile.getColumns().size());
+
+        profile.setIntervals(intervals);
+        assertEquals(LocalDateTime.of(2024, 12, 5, 10, 0), profile.getIntervals().get(0).getStartDateTime());
+    }
+}
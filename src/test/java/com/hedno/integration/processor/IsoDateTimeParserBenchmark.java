@@ -0,0 +1,85 @@
+package com.hedno.integration.processor;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * IsoDateTimeParser against the DateTimeFormatter chain it replaces in
+ * LoadProfileDataExtractor.parseDateTime.
+ *
+ * Not a unit test (surefire ignores it). Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.hedno.integration.processor.IsoDateTimeParserBenchmark
+ * </pre>
+ */
+public class IsoDateTimeParserBenchmark {
+
+    private static final DateTimeFormatter UTC_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
+    private static final DateTimeFormatter OFFSET_PREFIX_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    private static final int SAMPLES = 96 * 1_000;
+    private static final int WARMUP_ROUNDS = 10;
+    private static final int MEASURED_ROUNDS = 10;
+
+    public static void main(String[] args) {
+        String[] utc = new String[SAMPLES];
+        String[] offset = new String[SAMPLES];
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 0; i < SAMPLES; i++) {
+            LocalDateTime t = start.plusMinutes(15L * i);
+            utc[i] = t.format(OFFSET_PREFIX_FORMATTER) + "Z";
+            offset[i] = t.format(OFFSET_PREFIX_FORMATTER) + "+02:00";
+        }
+
+        System.out.printf("%-10s %14s %14s%n", "layout", "formatter ns", "parser ns");
+        report("Z", utc);
+        report("+hh:mm", offset);
+    }
+
+    private static void report(String layout, String[] samples) {
+        IsoDateTimeParser parser = new IsoDateTimeParser();
+        long check = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            check += formatterRound(samples) + parserRound(parser, samples);
+        }
+        long bestFormatter = Long.MAX_VALUE;
+        long bestParser = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long t0 = System.nanoTime();
+            long a = formatterRound(samples);
+            long t1 = System.nanoTime();
+            long b = parserRound(parser, samples);
+            long t2 = System.nanoTime();
+            if (a != b) {
+                throw new IllegalStateException("Parsers disagree for layout " + layout);
+            }
+            check += a;
+            bestFormatter = Math.min(bestFormatter, t1 - t0);
+            bestParser = Math.min(bestParser, t2 - t1);
+        }
+        System.out.printf("%-10s %14.1f %14.1f   (%d)%n", layout,
+                (double) bestFormatter / samples.length, (double) bestParser / samples.length, check & 0xF);
+    }
+
+    private static long formatterRound(String[] samples) {
+        long sum = 0;
+        for (String text : samples) {
+            String cleaned = text.trim();
+            LocalDateTime t = cleaned.endsWith("Z")
+                    ? LocalDateTime.parse(cleaned, UTC_FORMATTER)
+                    : LocalDateTime.parse(cleaned.substring(0, 19), OFFSET_PREFIX_FORMATTER);
+            sum += t.toEpochSecond(ZoneOffset.UTC);
+        }
+        return sum;
+    }
+
+    private static long parserRound(IsoDateTimeParser parser, String[] samples) {
+        long sum = 0;
+        for (String text : samples) {
+            sum += parser.parse(text);
+        }
+        return sum;
+    }
+}
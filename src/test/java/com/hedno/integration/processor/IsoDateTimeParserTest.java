@@ -0,0 +1,64 @@
+package com.hedno.integration.processor;
+
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for IsoDateTimeParser
+ */
+public class IsoDateTimeParserTest {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXXX");
+
+    private final IsoDateTimeParser parser = new IsoDateTimeParser();
+
+    @Test
+    public void testFixedLayouts() {
+        long expected = LocalDateTime.of(2025, 11, 23, 22, 0).toEpochSecond(ZoneOffset.UTC);
+
+        assertEquals(expected, parser.parse("2025-11-23T22:00:00"));
+        assertEquals(IsoDateTimeParser.NO_OFFSET, parser.getLastOffsetSeconds());
+        assertEquals(expected, parser.parse(" 2025-11-23T22:00:00Z "));
+        assertEquals(0, parser.getLastOffsetSeconds());
+        assertEquals(expected, parser.parse("2025-11-23T22:00:00+02:00"));
+        assertEquals(7200, parser.getLastOffsetSeconds());
+        assertEquals(expected, parser.parse("2025-11-23T22:00:00-03:30"));
+        assertEquals(-12600, parser.getLastOffsetSeconds());
+        assertEquals(expected, parser.parse("2025-11-23 22:00:00"));
+    }
+
+    @Test
+    public void testOtherFormsLeftToFallback() {
+        String[] rejected = {
+            "", "2025-11-23", "2025-11-23T22:00", "2025-11-23T22:00:00.000",
+            "2025-02-29T00:00:00", "2025-13-01T00:00:00", "2025-11-23T24:00:00",
+            "2025-11-23 22:00:00Z", "2025-11-23T22:00:00+0200", "2025/11/23T22:00:00"
+        };
+        for (String text : rejected) {
+            assertEquals(text, IsoDateTimeParser.INVALID, parser.parse(text));
+        }
+        assertEquals(LocalDateTime.of(2024, 2, 29, 0, 0).toEpochSecond(ZoneOffset.UTC),
+                parser.parse("2024-02-29T00:00:00"));
+    }
+
+    @Test
+    public void testMatchesOffsetDateTime() {
+        Random random = new Random(36);
+        for (int i = 0; i < 100_000; i++) {
+            LocalDateTime local = LocalDateTime.ofEpochSecond(
+                    random.nextInt(Integer.MAX_VALUE) * 4L - 4_000_000_000L, 0, ZoneOffset.UTC);
+            ZoneOffset offset = ZoneOffset.ofTotalSeconds((random.nextInt(36) - 18) * 3600 + random.nextInt(2) * 1800);
+            String text = OffsetDateTime.of(local, offset).format(FORMATTER);
+
+            assertEquals(text, local.toEpochSecond(ZoneOffset.UTC), parser.parse(text));
+            assertEquals(text, offset.getTotalSeconds(), parser.getLastOffsetSeconds());
+        }
+    }
+}
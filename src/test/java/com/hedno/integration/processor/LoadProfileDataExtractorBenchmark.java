@@ -0,0 +1,78 @@
+package com.hedno.integration.processor;
+
+import java.util.List;
+
+/**
+ * Scaling benchmark for LoadProfileDataExtractor.
+ *
+ * Not a unit test (surefire ignores it). Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.hedno.integration.processor.LoadProfileDataExtractorBenchmark
+ * </pre>
+ * Extraction time per Item should stay flat from 1k to 100k Items.
+ */
+public class LoadProfileDataExtractorBenchmark {
+
+    private static final int ITEMS_PER_PROFILE = 96;
+    private static final int[] ITEM_COUNTS = {1_000, 10_000, 50_000, 100_000};
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        LoadProfileDataExtractor extractor = new LoadProfileDataExtractor();
+
+        String warmup = buildDocument(10_000);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            extractor.extractFromXml(warmup);
+        }
+
+        System.out.printf("%10s %12s %12s %12s%n", "items", "bytes", "ms", "ns/item");
+        for (int items : ITEM_COUNTS) {
+            String xml = buildDocument(items);
+            long best = Long.MAX_VALUE;
+            int extracted = 0;
+            int rejected = 0;
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                long start = System.nanoTime();
+                List<LoadProfileData> profiles = extractor.extractFromXml(xml);
+                long elapsed = System.nanoTime() - start;
+                best = Math.min(best, elapsed);
+                extracted = 0;
+                rejected = 0;
+                for (LoadProfileData profile : profiles) {
+                    IntervalColumns columns = profile.getColumns();
+                    extracted += columns.size();
+                    for (int c = 0; c < columns.size(); c++) {
+                        if (columns.getStartEpochSecond(c) == IntervalColumns.NO_VALUE) {
+                            rejected++;
+                        }
+                    }
+                }
+            }
+            // Otherwise the run measures the parse-failure path, not extraction
+            if (extracted != items || rejected != 0) {
+                throw new IllegalStateException("Expected " + items + " valid intervals, got "
+                    + extracted + " (" + rejected + " with a rejected start time)");
+            }
+            System.out.printf("%10d %12d %12.1f %12.1f%n",
+                items, xml.length(), best / 1_000_000.0, (double) best / items);
+        }
+    }
+
+    static String buildDocument(int items) {
+        StringBuilder sb = new StringBuilder(items * 300);
+        sb.append("<glob:UtilitiesTimeSeriesERPItemBulkNotification xmlns:glob=\"http://sap.com/xi/SAPGlobal20/Global\">")
+          .append("<MessageHeader><UUID>BENCH-0001</UUID></MessageHeader>");
+        int remaining = items;
+        int pod = 0;
+        while (remaining > 0) {
+            int count = Math.min(ITEMS_PER_PROFILE, remaining);
+            sb.append(LoadProfileDataExtractorTest.message(
+                String.format("GR%021d", pod++), "1-1:1.29.0", count));
+            remaining -= count;
+        }
+        sb.append("</glob:UtilitiesTimeSeriesERPItemBulkNotification>");
+        return sb.toString();
+    }
+}
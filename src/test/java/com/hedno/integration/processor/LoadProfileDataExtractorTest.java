@@ -0,0 +1,138 @@
+package com.hedno.integration.processor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for LoadProfileDataExtractor
+ */
+public class LoadProfileDataExtractorTest {
+
+    static final LocalDateTime FIRST_INTERVAL = LocalDateTime.of(2025, 11, 23, 22, 0);
+    private static final DateTimeFormatter UTC_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
+
+    private LoadProfileDataExtractor extractor;
+
+    @Before
+    public void setUp() {
+        extractor = new LoadProfileDataExtractor();
+    }
+
+    @Test
+    public void testZfaBulkNotification() throws Exception {
+        String xml = "<glob:UtilitiesTimeSeriesERPItemBulkNotification xmlns:glob=\"http://sap.com/xi/SAPGlobal20/Global\">"
+            + "<MessageHeader><UUID>ABC-123</UUID><SenderParty><StandardID>ZFA</StandardID></SenderParty></MessageHeader>"
+            + message("GR0000000000000000000001", "1-1:1.29.0", 4)
+            + message("GR0000000000000000000002", "1-1:2.29.0", 2)
+            + "</glob:UtilitiesTimeSeriesERPItemBulkNotification>";
+
+        List<LoadProfileData> profiles = extractor.extractFromXml(xml);
+
+        assertEquals(2, profiles.size());
+        LoadProfileData first = profiles.get(0);
+        assertEquals("ABC-123", first.getMessageUuid());
+        assertEquals("GR0000000000000000000001", first.getPodId());
+        assertEquals("1-1:1.29.0", first.getObisCode());
+        assertEquals(4, first.getIntervals().size());
+
+        IntervalData interval = first.getIntervals().get(1);
+        assertEquals(LocalDateTime.of(2025, 11, 23, 22, 15), interval.getStartDateTime());
+        assertEquals(new BigDecimal("1.250"), interval.getValue());
+        assertEquals("KWH", interval.getUnitCode());
+        assertEquals("V", interval.getStatus());
+
+        assertEquals("GR0000000000000000000002", profiles.get(1).getPodId());
+        assertEquals(2, profiles.get(1).getIntervals().size());
+    }
+
+    @Test
+    public void testGeneratedIntervalsAreAllValid() throws Exception {
+        // A day and a half: the generated start times cross midnight
+        String xml = "<glob:UtilitiesTimeSeriesERPItemBulkNotification xmlns:glob=\"http://sap.com/xi/SAPGlobal20/Global\">"
+            + message("GR0000000000000000000001", "1-1:1.29.0", 144)
+            + "</glob:UtilitiesTimeSeriesERPItemBulkNotification>";
+
+        IntervalColumns columns = extractor.extractFromXml(xml).get(0).getColumns();
+
+        assertEquals(144, columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            assertEquals(FIRST_INTERVAL.plusMinutes(15L * i), columns.getStartDateTime(i));
+        }
+    }
+
+    @Test
+    public void testGenericTimeSeriesFallback() throws Exception {
+        String xml = "<Root><UtilitiesTimeSeries><POD_ID>GR999</POD_ID><OBIS>1-0:1.8.0</OBIS>"
+            + "<Item><StartDateTime>2024-12-05 10:00:00</StartDateTime><Value> 12.5 </Value><StatusRef>E</StatusRef></Item>"
+            + "<Item><StartDateTime>2024-12-05T10:15:00+02:00</StartDateTime><Value>x</Value></Item>"
+            + "<Item><Value>1</Value></Item>"
+            + "</UtilitiesTimeSeries></Root>";
+
+        List<LoadProfileData> profiles = extractor.extractFromXml(xml);
+
+        assertEquals(1, profiles.size());
+        LoadProfileData profile = profiles.get(0);
+        assertNotNull(profile.getMessageUuid());
+        assertEquals("GR999", profile.getPodId());
+        assertEquals("1-0:1.8.0", profile.getObisCode());
+        // Item without start time is skipped
+        assertEquals(2, profile.getIntervals().size());
+        assertEquals(new BigDecimal("12.5"), profile.getIntervals().get(0).getValue());
+        assertEquals("E", profile.getIntervals().get(0).getStatus());
+        assertEquals(LocalDateTime.of(2024, 12, 5, 10, 15), profile.getIntervals().get(1).getStartDateTime());
+        assertEquals(BigDecimal.ZERO, profile.getIntervals().get(1).getValue());
+        assertEquals("W", profile.getIntervals().get(1).getStatus());
+    }
+
+    @Test
+    public void testCandidatePriorityAndDefaults() throws Exception {
+        String xml = "<UtilitiesTimeSeriesERPItemNotificationMessage><MessageID>M-1</MessageID>"
+            + "<UtilitiesTimeSeries><PodId>LOW</PodId><UtilitiesDeviceID>HIGH</UtilitiesDeviceID>"
+            + "<Item><UTCValidityStartDateTime>2025-01-01T00:00:00Z</UTCValidityStartDateTime>"
+            + "<Quantity>3</Quantity></Item>"
+            + "</UtilitiesTimeSeries></UtilitiesTimeSeriesERPItemNotificationMessage>";
+
+        List<LoadProfileData> profiles = extractor.extractFromXml(xml);
+
+        assertEquals(1, profiles.size());
+        assertEquals("M-1", profiles.get(0).getMessageUuid());
+        assertEquals("HIGH", profiles.get(0).getPodId());
+        assertEquals("UNKNOWN", profiles.get(0).getObisCode());
+        assertEquals("KWH", profiles.get(0).getIntervals().get(0).getUnitCode());
+    }
+
+    @Test
+    public void testEmptyProfilesAreDropped() throws Exception {
+        String xml = "<UtilitiesTimeSeriesERPItemNotificationMessage><UtilitiesTimeSeries>"
+            + "<POD_ID>GR1</POD_ID></UtilitiesTimeSeries></UtilitiesTimeSeriesERPItemNotificationMessage>";
+
+        assertTrue(extractor.extractFromXml(xml).isEmpty());
+    }
+
+    static String message(String podId, String obis, int items) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<UtilitiesTimeSeriesERPItemNotificationMessage><UtilitiesTimeSeries>");
+        LocalDateTime start = FIRST_INTERVAL;
+        for (int i = 0; i < items; i++) {
+            sb.append("<Item><Quantity unitCode=\"KWH\">").append(i).append(".250</Quantity>")
+              .append("<UTCValidityStartDateTime>").append(start.format(UTC_TIMESTAMP))
+              .append("</UTCValidityStartDateTime>")
+              .append("<ItemStatus><UtilitiesTimeSeriesItemTypeCode>V</UtilitiesTimeSeriesItemTypeCode></ItemStatus></Item>");
+            start = start.plusMinutes(15);
+        }
+        sb.append("<UtilitiesMeasurementTaskAssignmentRole>")
+          .append("<UtilitiesObjectIdentificationSystemCodeText>").append(obis)
+          .append("</UtilitiesObjectIdentificationSystemCodeText>")
+          .append("<UtilitiesPointOfDeliveryExternalIdentification><UtilitiesPointOfDeliveryPartyID>").append(podId)
+          .append("</UtilitiesPointOfDeliveryPartyID></UtilitiesPointOfDeliveryExternalIdentification>")
+          .append("</UtilitiesMeasurementTaskAssignmentRole></UtilitiesTimeSeries></UtilitiesTimeSeriesERPItemNotificationMessage>");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,188 @@
+package com.hedno.integration.processor;
+
+import com.hedno.integration.entity.LoadProfileInbound;
+import com.hedno.integration.service.XMLBuilderService;
+import com.hedno.integration.soap.model.UtilitiesTimeSeriesERPItemBulkNotification;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.xml.bind.JAXBException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for NotificationCoalescer
+ */
+public class NotificationCoalescerTest {
+
+    private XMLBuilderService xmlBuilder;
+
+    @Before
+    public void setUp() throws Exception {
+        xmlBuilder = new XMLBuilderService(10);
+    }
+
+    @Test
+    public void testMessagesAreMergedUpToMaxProfiles() throws Exception {
+        List<LoadProfileInbound> messages = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            messages.add(message(3));
+        }
+
+        List<NotificationCoalescer.Delivery> deliveries =
+                new NotificationCoalescer(xmlBuilder, Long.MAX_VALUE).coalesce(messages, 10);
+
+        // 3 + 3 + 3 profiles, then the fourth message starts a new delivery
+        assertEquals(2, deliveries.size());
+        NotificationCoalescer.Delivery merged = deliveries.get(0);
+        assertTrue(merged.isCoalesced());
+        assertEquals(messages.subList(0, 3), merged.getMessages());
+        assertEquals(9, merged.getProfileCount());
+
+        UtilitiesTimeSeriesERPItemBulkNotification notification = xmlBuilder.unmarshalFromXml(merged.getPayload());
+        assertEquals(merged.getMessageUuid(), notification.getMessageHeader().getUuid());
+        assertEquals(9, notification.getNotificationMessages().size());
+        // Every profile points back to the inbound message it came from
+        assertEquals(messages.get(0).getMessageUuid(),
+                notification.getNotificationMessages().get(0).getMessageHeader().getReferenceUuid());
+        assertEquals(messages.get(2).getMessageUuid(),
+                notification.getNotificationMessages().get(8).getMessageHeader().getReferenceUuid());
+
+        // A single message is sent as received
+        NotificationCoalescer.Delivery single = deliveries.get(1);
+        assertFalse(single.isCoalesced());
+        assertEquals(messages.get(3).getMessageUuid(), single.getMessageUuid());
+        assertSame(messages.get(3).getRawPayload(), single.getPayload());
+    }
+
+    @Test
+    public void testMaxBytesLimitsDelivery() throws Exception {
+        List<LoadProfileInbound> messages = Arrays.asList(message(1), message(1), message(1));
+        long size = messages.get(0).getRawPayload().length();
+
+        List<NotificationCoalescer.Delivery> deliveries =
+                new NotificationCoalescer(xmlBuilder, size * 2 + 10).coalesce(messages, 10);
+
+        assertEquals(2, deliveries.size());
+        assertEquals(2, deliveries.get(0).getMessages().size());
+        assertEquals(1, deliveries.get(1).getMessages().size());
+    }
+
+    @Test
+    public void testUnparseableMessageIsDeliveredAlone() throws Exception {
+        LoadProfileInbound other = new LoadProfileInbound("OTHER", "<LoadProfilePush/>");
+        List<LoadProfileInbound> messages = Arrays.asList(message(2), other, message(2));
+
+        List<NotificationCoalescer.Delivery> deliveries =
+                new NotificationCoalescer(xmlBuilder, Long.MAX_VALUE).coalesce(messages, 10);
+
+        assertEquals(2, deliveries.size());
+        assertEquals(Collections.singletonList(other), deliveries.get(0).getMessages());
+        assertEquals("OTHER", deliveries.get(0).getMessageUuid());
+        assertEquals(4, deliveries.get(1).getProfileCount());
+    }
+
+    @Test
+    public void testMessagesBeyondMaxDeliveriesAreLeftOut() throws Exception {
+        List<LoadProfileInbound> messages = Arrays.asList(message(6), message(6), message(6));
+
+        List<NotificationCoalescer.Delivery> deliveries =
+                new NotificationCoalescer(xmlBuilder, Long.MAX_VALUE).coalesce(messages, 2);
+
+        assertEquals(2, deliveries.size());
+        assertSame(messages.get(1), deliveries.get(1).getMessages().get(0));
+        assertTrue(new NotificationCoalescer(xmlBuilder, Long.MAX_VALUE).coalesce(messages, 0).isEmpty());
+    }
+
+    @Test
+    public void testMergedUuidIsStableAcrossAttempts() throws Exception {
+        List<LoadProfileInbound> messages = Arrays.asList(message(2), message(2), message(2));
+        NotificationCoalescer coalescer = new NotificationCoalescer(xmlBuilder, Long.MAX_VALUE);
+
+        String first = coalescer.coalesce(messages, 10).get(0).getMessageUuid();
+        List<LoadProfileInbound> reordered = new ArrayList<>(messages);
+        Collections.reverse(reordered);
+        assertEquals(first, coalescer.coalesce(messages, 10).get(0).getMessageUuid());
+        assertEquals(first, coalescer.coalesce(reordered, 10).get(0).getMessageUuid());
+        assertNotEquals(first, coalescer.coalesce(messages.subList(0, 2), 10).get(0).getMessageUuid());
+
+        // The profiles keep the headers of the message they came from
+        UtilitiesTimeSeriesERPItemBulkNotification notification =
+                coalescer.coalesce(messages, 10).get(0).getNotification();
+        assertEquals(messages.get(1).getMessageUuid(),
+                notification.getNotificationMessages().get(2).getMessageHeader().getUuid());
+    }
+
+    @Test
+    public void testLeftOutMessagesAreNotParsed() throws Exception {
+        final AtomicInteger parsed = new AtomicInteger();
+        XMLBuilderService counting = new XMLBuilderService(10) {
+            @Override
+            public UtilitiesTimeSeriesERPItemBulkNotification unmarshalFromXml(String xml) throws JAXBException {
+                parsed.incrementAndGet();
+                return super.unmarshalFromXml(xml);
+            }
+        };
+        List<LoadProfileInbound> messages = Arrays.asList(message(6), message(6), message(6), message(6));
+
+        assertEquals(2, new NotificationCoalescer(counting, Long.MAX_VALUE).coalesce(messages, 2).size());
+        // The third message is parsed to learn it cannot join the second delivery
+        assertEquals(3, parsed.get());
+
+        // A stored profile count answers without parsing
+        messages.get(2).setProfileCount(6);
+        parsed.set(0);
+        new NotificationCoalescer(counting, Long.MAX_VALUE).coalesce(messages, 2);
+        assertEquals(2, parsed.get());
+    }
+
+    @Test
+    public void testMaxBytesCountsUtf8() throws Exception {
+        assertEquals("a\u0394\u20ac\ud83d\ude00".getBytes(StandardCharsets.UTF_8).length,
+                NotificationCoalescer.utf8Length("a\u0394\u20ac\ud83d\ude00"));
+
+        List<LoadProfileInbound> messages = Arrays.asList(message(1, "\u0394\u0395\u0394\u0394\u0397\u0395"),
+                message(1, "\u0394\u0395\u0394\u0394\u0397\u0395"));
+        long chars = messages.get(0).getRawPayload().length();
+        long bytes = messages.get(0).getRawPayload().getBytes(StandardCharsets.UTF_8).length;
+        assertTrue(bytes > chars);
+
+        // Two messages fit by char count but not by UTF-8 size
+        List<NotificationCoalescer.Delivery> deliveries =
+                new NotificationCoalescer(xmlBuilder, chars + bytes).coalesce(messages, 10);
+        assertEquals(2, deliveries.size());
+        assertEquals(1, new NotificationCoalescer(xmlBuilder, bytes * 2).coalesce(messages, 10).size());
+    }
+
+    private LoadProfileInbound message(int profiles) throws Exception {
+        return message(profiles, "HU000130F110S-TEST-00");
+    }
+
+    private LoadProfileInbound message(int profiles, String podPrefix) throws Exception {
+        List<XMLBuilderService.LoadProfileData> profileList = new ArrayList<>();
+        for (int i = 0; i < profiles; i++) {
+            XMLBuilderService.IntervalData interval = new XMLBuilderService.IntervalData();
+            interval.setValue(new BigDecimal("1.5"));
+            interval.setUnitCode("KWH");
+            interval.setStartDateTime(LocalDateTime.of(2025, 1, 1, 0, 0));
+            interval.setEndDateTime(LocalDateTime.of(2025, 1, 1, 0, 15));
+
+            XMLBuilderService.LoadProfileData profile = new XMLBuilderService.LoadProfileData();
+            profile.setObisCode("1.29.99.128");
+            profile.setPodId(podPrefix + i);
+            profile.setIntervals(Collections.singletonList(interval));
+            profileList.add(profile);
+        }
+        UtilitiesTimeSeriesERPItemBulkNotification notification = xmlBuilder.buildBulkNotification(profileList);
+        return new LoadProfileInbound(notification.getMessageHeader().getUuid(),
+                xmlBuilder.marshalToXml(notification));
+    }
+}
@@ -0,0 +1,54 @@
+package com.hedno.integration.processor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for RetryBackoff
+ */
+public class RetryBackoffTest {
+
+    @Test
+    public void testDelayDoublesPerAttempt() {
+        RetryBackoff backoff = new RetryBackoff(1000, 60000);
+        for (int i = 0; i < 100; i++) {
+            assertBetween(500, 1000, backoff.delayMs(1));
+            assertBetween(1000, 2000, backoff.delayMs(2));
+            assertBetween(4000, 8000, backoff.delayMs(4));
+        }
+    }
+
+    @Test
+    public void testDelayIsCapped() {
+        RetryBackoff backoff = new RetryBackoff(1000, 60000);
+        for (int i = 0; i < 100; i++) {
+            assertBetween(30000, 60000, backoff.delayMs(7));
+            assertBetween(30000, 60000, backoff.delayMs(Integer.MAX_VALUE));
+        }
+    }
+
+    @Test
+    public void testDelayIsJittered() {
+        RetryBackoff backoff = new RetryBackoff(1000000, 1000000);
+        long first = backoff.delayMs(1);
+        boolean differs = false;
+        for (int i = 0; i < 20 && !differs; i++) {
+            differs = backoff.delayMs(1) != first;
+        }
+        assertTrue(differs);
+    }
+
+    @Test
+    public void testFirstAttemptUsesBaseDelay() {
+        RetryBackoff backoff = new RetryBackoff(2000, 60000);
+        assertBetween(1000, 2000, backoff.delayMs(0));
+        long now = System.currentTimeMillis();
+        long due = backoff.nextAttemptAt(1).getTime();
+        assertTrue(due >= now + 1000 && due <= System.currentTimeMillis() + 2000);
+    }
+
+    private static void assertBetween(long min, long max, long actual) {
+        assertTrue(actual + " not in [" + min + ", " + max + "]", actual >= min && actual <= max);
+    }
+}
@@ -0,0 +1,93 @@
+package com.hedno.integration.service;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for AdaptiveConcurrencyLimiter
+ */
+public class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    public void testLimitIsEnforced() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 0.5, 1000);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(0, limiter.available());
+
+        limiter.release();
+        assertEquals(1, limiter.available());
+        assertEquals(1L, limiter.getStatistics().get("rejected"));
+    }
+
+    @Test
+    public void testAdditiveIncreaseUnderLoad() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 4, 0.5, 1000);
+        for (int i = 0; i < 5; i++) {
+            fill(limiter);
+            limiter.onSuccess(100);
+            drain(limiter);
+        }
+        assertEquals(4, limiter.getLimit());
+
+        // A lightly used limit does not grow
+        AdaptiveConcurrencyLimiter idle = new AdaptiveConcurrencyLimiter(4, 1, 10, 0.5, 1000);
+        idle.tryAcquire();
+        idle.onSuccess(100);
+        assertEquals(4, idle.getLimit());
+    }
+
+    @Test
+    public void testMultiplicativeDecreaseOnDropsAndSlowResponses() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 1, 10, 0.5, 1000);
+        limiter.tryAcquire();
+        limiter.onDropped(50);
+        assertEquals(4, limiter.getLimit());
+
+        limiter.tryAcquire();
+        limiter.onSuccess(5000);
+        assertEquals(2, limiter.getLimit());
+
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire();
+            limiter.onDropped(50);
+        }
+        assertEquals(1, limiter.getLimit());
+        assertEquals(0, limiter.getStatistics().get("inFlight"));
+        assertEquals(1L, limiter.getStatistics().get("slow"));
+        assertEquals(6L, limiter.getStatistics().get("dropped"));
+    }
+
+    @Test
+    public void testUnbalancedReleaseIsCountedNotAbsorbed() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 0.5, 1000);
+        limiter.tryAcquire();
+        limiter.onSuccess(100);
+        // Nothing in flight any more
+        limiter.release();
+        limiter.onDropped(100);
+
+        Map<String, Object> stats = limiter.getStatistics();
+        assertEquals(2L, stats.get("unbalanced"));
+        assertEquals(0, stats.get("inFlight"));
+        // Later acquisitions are still counted from zero
+        assertTrue(limiter.tryAcquire());
+        assertEquals(1, limiter.getStatistics().get("inFlight"));
+    }
+
+    private static void fill(AdaptiveConcurrencyLimiter limiter) {
+        while (limiter.tryAcquire()) {
+            // take every slot
+        }
+    }
+
+    private static void drain(AdaptiveConcurrencyLimiter limiter) {
+        while ((Integer) limiter.getStatistics().get("inFlight") > 0) {
+            limiter.release();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.hedno.integration.service;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for AdmissionController
+ */
+public class AdmissionControllerTest {
+
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        AdmissionController controller = new AdmissionController(2, 2, Long.MAX_VALUE, 3);
+        AdmissionController.Permit first = controller.admit("A", 10);
+        controller.admit("B", 10);
+
+        assertRejected(controller, "C", 10, AdmissionController.LIMIT_CONCURRENCY);
+
+        first.close();
+        first.close();
+        controller.admit("C", 10);
+        assertEquals(2, controller.getStatistics().get("inFlight"));
+    }
+
+    @Test
+    public void testFairShareBetweenSenders() throws Exception {
+        AdmissionController controller = new AdmissionController(4, 4, Long.MAX_VALUE, 1);
+        // Alone, a sender may use the whole limit ...
+        controller.admit("A", 1);
+        controller.admit("A", 1);
+        // ... but once B is active each gets half
+        controller.admit("B", 1);
+        assertRejected(controller, "A", 1, AdmissionController.LIMIT_SENDER);
+        controller.admit("B", 1);
+
+        // The per-sender cap applies even to a single active sender
+        AdmissionController capped = new AdmissionController(10, 2, Long.MAX_VALUE, 1);
+        capped.admit("A", 1);
+        capped.admit("A", 1);
+        assertRejected(capped, "A", 1, AdmissionController.LIMIT_SENDER);
+    }
+
+    @Test
+    public void testInFlightBytesBudget() throws Exception {
+        AdmissionController controller = new AdmissionController(10, 10, 1000, 1);
+        // A single oversized message is admitted when nothing else is in flight
+        AdmissionController.Permit large = controller.admit("A", 800);
+        assertRejected(controller, "B", 1, AdmissionController.LIMIT_BYTES);
+        large.started();
+        large.close();
+
+        controller.admit("B", 200);
+        assertRejected(controller, "B", 301, AdmissionController.LIMIT_BYTES);
+
+        Map<String, Object> stats = controller.getStatistics();
+        assertEquals(2L, stats.get("rejected.bytes"));
+        assertEquals(400L, stats.get("inFlightBytes"));
+    }
+
+    @Test
+    public void testWriterRejection() throws Exception {
+        AdmissionController controller = new AdmissionController(10, 10, Long.MAX_VALUE, 4);
+        AdmissionRejectedException e = controller.rejectWriter(5000);
+        assertEquals(AdmissionController.LIMIT_WRITER, e.getLimit());
+        assertEquals(4L, e.getRetryAfterSeconds());
+        assertEquals(1L, controller.getStatistics().get("rejected.writer"));
+    }
+
+    private static void assertRejected(AdmissionController controller, String sender, long chars, String limit) {
+        try {
+            controller.admit(sender, chars);
+            fail("Admitted over the " + limit + " limit");
+        } catch (AdmissionRejectedException e) {
+            assertEquals(limit, e.getLimit());
+            assertTrue(e.getRetryAfterSeconds() >= 1);
+        }
+    }
+}
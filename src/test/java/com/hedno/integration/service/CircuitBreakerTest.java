@@ -0,0 +1,122 @@
+package com.hedno.integration.service;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for CircuitBreaker
+ */
+public class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong(1000);
+
+    @Test
+    public void testOpensOnFailureRate() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 4, 50, 1000, 8000, now::get);
+        breaker.onSuccess(breaker.tryAcquirePermission());
+        breaker.onFailure(breaker.tryAcquirePermission());
+        breaker.onSuccess(breaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        // 2 of 4 failed
+        breaker.onFailure(breaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.isCallPermitted());
+        assertEquals(CircuitBreaker.NOT_PERMITTED, breaker.tryAcquirePermission());
+        assertEquals(1L, breaker.getStatistics().get("rejected"));
+    }
+
+    @Test
+    public void testProbeClosesBreaker() {
+        CircuitBreaker breaker = openBreaker();
+        now.addAndGet(1000);
+
+        assertTrue(breaker.isCallPermitted());
+        long probe = breaker.tryAcquirePermission();
+        assertNotEquals(CircuitBreaker.NOT_PERMITTED, probe);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        // One probe at a time
+        assertEquals(CircuitBreaker.NOT_PERMITTED, breaker.tryAcquirePermission());
+
+        breaker.onSuccess(probe);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertNotEquals(CircuitBreaker.NOT_PERMITTED, breaker.tryAcquirePermission());
+    }
+
+    @Test
+    public void testOnlyProbeDecidesHalfOpen() {
+        CircuitBreaker breaker = new CircuitBreaker(4, 2, 100, 1000, 8000, now::get);
+        // Sent while closed, answered after the breaker opened
+        long late = breaker.tryAcquirePermission();
+        breaker.onFailure(breaker.tryAcquirePermission());
+        breaker.onFailure(breaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        now.addAndGet(1000);
+        long probe = breaker.tryAcquirePermission();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.onSuccess(late);
+        breaker.releasePermission(late);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals(CircuitBreaker.NOT_PERMITTED, breaker.tryAcquirePermission());
+        assertEquals(1L, breaker.getStatistics().get("stale"));
+
+        breaker.onFailure(probe);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        // Nor does the old probe count once the breaker moved on
+        breaker.onSuccess(probe);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2L, breaker.getStatistics().get("stale"));
+    }
+
+    @Test
+    public void testFailedProbeDoublesOpenTime() {
+        CircuitBreaker breaker = openBreaker();
+        now.addAndGet(1000);
+        long probe = breaker.tryAcquirePermission();
+        breaker.onFailure(probe);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        now.addAndGet(1500);
+        assertFalse(breaker.isCallPermitted());
+        now.addAndGet(500);
+        assertTrue(breaker.isCallPermitted());
+        assertEquals(2L, breaker.getStatistics().get("opened"));
+    }
+
+    @Test
+    public void testReleasedProbeCanBeRetaken() {
+        CircuitBreaker breaker = openBreaker();
+        now.addAndGet(1000);
+        long probe = breaker.tryAcquirePermission();
+        breaker.releasePermission(probe);
+        assertNotEquals(CircuitBreaker.NOT_PERMITTED, breaker.tryAcquirePermission());
+        assertEquals(2L, breaker.getStatistics().get("probes"));
+    }
+
+    @Test
+    public void testWindowSlides() {
+        CircuitBreaker breaker = new CircuitBreaker(4, 4, 75, 1000, 8000, now::get);
+        breaker.onFailure(breaker.tryAcquirePermission());
+        breaker.onFailure(breaker.tryAcquirePermission());
+        for (int i = 0; i < 4; i++) {
+            breaker.onSuccess(breaker.tryAcquirePermission());
+        }
+        // The early failures have left the window
+        breaker.onFailure(breaker.tryAcquirePermission());
+        breaker.onFailure(breaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(50, breaker.getStatistics().get("window.failureRatePct"));
+    }
+
+    private CircuitBreaker openBreaker() {
+        CircuitBreaker breaker = new CircuitBreaker(4, 2, 100, 1000, 8000, now::get);
+        breaker.onFailure(breaker.tryAcquirePermission());
+        breaker.onFailure(breaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+}
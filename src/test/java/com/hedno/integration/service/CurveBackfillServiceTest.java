@@ -0,0 +1,78 @@
+package com.hedno.integration.service;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for CurveBackfillService
+ */
+public class CurveBackfillServiceTest {
+
+    @Test
+    public void testSameDayFromTwoMessagesIsMergedBySlot() {
+        // Message 1 carries slots 1-2 of the day, message 2 slots 2-3
+        MdmImportService.StagedMessage first = staged(1L, row(1L, "GR1", 1, "1.5", 2, "2.5"));
+        MdmImportService.StagedMessage second = staged(2L, row(2L, "GR1", 2, "20.5", 3, "30.5"),
+                row(2L, "GR2", 1, "9"));
+
+        List<MdmImportService.CurveRow> rows = new ArrayList<>(
+                CurveBackfillService.mergeRows(Arrays.asList(first, second)));
+
+        assertEquals(2, rows.size());
+        MdmImportService.CurveRow merged = rows.get(0);
+        assertEquals("GR1", merged.getPodId());
+        assertEquals(2L, merged.getHdLogId());
+        assertEquals(new BigDecimal("1.5"), merged.getQValue(1));
+        assertEquals(new BigDecimal("20.5"), merged.getQValue(2));
+        assertEquals(new BigDecimal("30.5"), merged.getQValue(3));
+        assertEquals("W", merged.getSValue(1));
+        assertEquals("W", merged.getSValue(3));
+        assertNull(merged.getQValue(4));
+        assertEquals("GR2", rows.get(1).getPodId());
+    }
+
+    @Test
+    public void testOtherDaysAndClassesAreNotMerged() {
+        MdmImportService.CurveRow otherDay = row(2L, "GR1", 1, "2");
+        otherDay.setDateRead(LocalDate.of(2025, 1, 2));
+        MdmImportService.CurveRow otherClass = row(2L, "GR1", 1, "3");
+        otherClass.setDataClass("1-1:2.29.0");
+
+        Collection<MdmImportService.CurveRow> rows = CurveBackfillService.mergeRows(Arrays.asList(
+                staged(1L, row(1L, "GR1", 1, "1")), staged(2L, otherDay, otherClass)));
+
+        assertEquals(3, rows.size());
+    }
+
+    private static MdmImportService.StagedMessage staged(long hdLogId, MdmImportService.CurveRow... rows) {
+        MdmImportService.StagedMessage message = new MdmImportService.StagedMessage();
+        message.hdLogId = hdLogId;
+        message.rows.addAll(Arrays.asList(rows));
+        return message;
+    }
+
+    /**
+     * Row of 2025-01-01 with (slot, value) pairs, status W
+     */
+    private static MdmImportService.CurveRow row(long hdLogId, String podId, Object... slots) {
+        MdmImportService.CurveRow row = new MdmImportService.CurveRow();
+        row.setHdLogId(hdLogId);
+        row.setPodId(podId);
+        row.setDateRead(LocalDate.of(2025, 1, 1));
+        row.setDataClass("1-1:1.29.0");
+        for (int i = 0; i < slots.length; i += 2) {
+            int slot = (Integer) slots[i];
+            row.setQValue(slot, new BigDecimal((String) slots[i + 1]));
+            row.setSValue(slot, "W");
+        }
+        return row;
+    }
+}
@@ -0,0 +1,364 @@
+package com.hedno.integration.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for HttpConnectionPool against a minimal in-process HTTP server
+ */
+public class HttpConnectionPoolTest {
+
+    private static final Map<String, String> HEADERS = Collections.singletonMap("Content-Type", "text/xml");
+    private static final byte[] BODY = "<soapenv:Envelope/>".getBytes(StandardCharsets.UTF_8);
+
+    private TestServer server;
+    private URL url;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new TestServer();
+        url = new URL("http://localhost:" + server.socket.getLocalPort() + "/XISOAPAdapter?MessageId=1");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void testConnectionIsReused() throws Exception {
+        HttpConnectionPool pool = new HttpConnectionPool(2, null, null);
+        for (int i = 0; i < 5; i++) {
+            HttpConnectionPool.Response response = pool.execute("POST", url, HEADERS, BODY, 1000, 1000);
+            assertEquals(200, response.getStatusCode());
+            assertEquals("OK", response.getStatusMessage());
+            assertEquals("OK", new String(response.getBody(), StandardCharsets.UTF_8));
+            assertEquals("2", response.getHeader("content-length"));
+        }
+
+        assertEquals(1, server.accepted.get());
+        Map<String, Object> stats = pool.getStatistics();
+        assertEquals(5L, stats.get("requests"));
+        assertEquals(0L, stats.get("retried"));
+        assertEquals(0, stats.get("leased"));
+        assertTrue(server.lastRequestHead.contains("Content-Length: " + BODY.length));
+        assertFalse(server.lastRequestHead.toLowerCase().contains("connection: close"));
+    }
+
+    @Test
+    public void testChunkedResponseKeepsConnection() throws Exception {
+        server.chunked = true;
+        HttpConnectionPool pool = new HttpConnectionPool(2, null, null);
+        assertEquals("OK", new String(pool.execute("POST", url, HEADERS, BODY, 1000, 1000).getBody(),
+                StandardCharsets.UTF_8));
+        assertEquals(200, pool.execute("POST", url, HEADERS, BODY, 1000, 1000).getStatusCode());
+        assertEquals(1, server.accepted.get());
+    }
+
+    @Test
+    public void testStreamedBodyIsSentChunked() throws Exception {
+        // Larger than one chunk, so the body goes out in several
+        final byte[] large = new byte[20000];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) ('a' + i % 26);
+        }
+        HttpConnectionPool pool = new HttpConnectionPool(2, null, null);
+        HttpConnectionPool.Response response = pool.execute("POST", url, HEADERS,
+                out -> out.write(large), 1000, 1000, new HttpConnectionPool.Call());
+        assertEquals(200, response.getStatusCode());
+        assertArrayEquals(large, server.lastRequestBody);
+        assertTrue(server.lastRequestHead.contains("Transfer-Encoding: chunked"));
+        assertFalse(server.lastRequestHead.contains("Content-Length"));
+
+        pool.execute("POST", url, HEADERS, out -> out.write(BODY), 1000, 1000, new HttpConnectionPool.Call());
+        assertArrayEquals(BODY, server.lastRequestBody);
+        assertEquals(1, server.accepted.get());
+    }
+
+    @Test
+    public void testConnectionCloseIsHonoured() throws Exception {
+        server.connectionClose = true;
+        HttpConnectionPool pool = new HttpConnectionPool(2, null, null);
+        pool.execute("POST", url, HEADERS, BODY, 1000, 1000);
+        pool.execute("POST", url, HEADERS, BODY, 1000, 1000);
+
+        assertEquals(2, server.accepted.get());
+    }
+
+    @Test
+    public void testStaleConnectionIsNotReused() throws Exception {
+        // Server drops the connection after each response without saying so
+        server.silentClose = true;
+        HttpConnectionPool pool = new HttpConnectionPool(2, null, null);
+        pool.execute("POST", url, HEADERS, BODY, 1000, 1000);
+        server.awaitClosed();
+        assertEquals(200, pool.execute("POST", url, HEADERS, BODY, 1000, 1000).getStatusCode());
+
+        assertEquals(2, server.accepted.get());
+        assertEquals(2, server.requests.get());
+        assertEquals(0L, pool.getStatistics().get("retried"));
+    }
+
+    @Test
+    public void testWrittenRequestIsNotResent() throws Exception {
+        // Server reads the whole request, then drops the connection unanswered
+        server.dropBeforeResponse = true;
+        HttpConnectionPool pool = new HttpConnectionPool(2, null, null);
+        try {
+            pool.execute("POST", url, HEADERS, BODY, 1000, 1000);
+            fail("Expected the exchange to fail");
+        } catch (IOException expected) {
+            // SAP may have processed it: up to the caller
+        }
+        server.awaitClosed();
+        assertEquals(1, server.requests.get());
+
+        final AtomicInteger writes = new AtomicInteger();
+        try {
+            pool.execute("POST", url, HEADERS, out -> {
+                writes.incrementAndGet();
+                out.write(BODY);
+            }, 1000, 1000, new HttpConnectionPool.Call());
+            fail("Expected the exchange to fail");
+        } catch (IOException expected) {
+            // Not resent either
+        }
+        server.awaitClosed();
+        assertEquals(2, server.requests.get());
+        assertEquals(1, writes.get());
+
+        Map<String, Object> stats = pool.getStatistics();
+        assertEquals(0L, stats.get("retried"));
+        assertEquals(2L, stats.get("failed"));
+    }
+
+    @Test
+    public void testLeaseTimesOutWhenRouteIsExhausted() throws Exception {
+        server.hold = new CountDownLatch(1);
+        final HttpConnectionPool pool = new HttpConnectionPool(1, null, null);
+        Thread first = new Thread(() -> {
+            try {
+                pool.execute("POST", url, HEADERS, BODY, 1000, 5000);
+            } catch (IOException e) {
+                fail(e.getMessage());
+            }
+        });
+        first.start();
+        assertTrue(server.received.await(5, TimeUnit.SECONDS));
+
+        try {
+            pool.execute("POST", url, HEADERS, BODY, 100, 1000);
+            fail("Expected a lease timeout");
+        } catch (SocketTimeoutException expected) {
+            assertTrue(expected.getMessage().contains("Timeout waiting for a connection"));
+        }
+        assertEquals(100, pool.getStatistics().get("utilisationPct"));
+
+        server.hold.countDown();
+        first.join(5000);
+        assertEquals(1L, pool.getStatistics().get("lease.timeouts"));
+        assertEquals(0, pool.getStatistics().get("leased"));
+    }
+
+    @Test
+    public void testAbortEndsExchangeInProgress() throws Exception {
+        server.hold = new CountDownLatch(1);
+        HttpConnectionPool pool = new HttpConnectionPool(1, null, null);
+        final HttpConnectionPool.Call call = new HttpConnectionPool.Call();
+        TimeoutScheduler.getInstance().schedule(call::abort, 100);
+
+        long start = System.currentTimeMillis();
+        try {
+            pool.execute("POST", url, HEADERS, BODY, 1000, 10000, call);
+            fail("Expected the exchange to be aborted");
+        } catch (InterruptedIOException expected) {
+            assertEquals("Request aborted", expected.getMessage());
+        }
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        server.hold.countDown();
+
+        // The slot is free again and an aborted call does not start a new exchange
+        assertEquals(0, pool.getStatistics().get("leased"));
+        assertEquals(1L, pool.getStatistics().get("aborted"));
+        try {
+            pool.execute("POST", url, HEADERS, BODY, 1000, 1000, call);
+            fail("Expected an aborted call to fail");
+        } catch (InterruptedIOException expected) {
+            assertEquals(1, server.accepted.get());
+        }
+    }
+
+    @Test
+    public void testShutdownRefusesRequests() throws Exception {
+        HttpConnectionPool pool = new HttpConnectionPool(2, null, null);
+        pool.execute("POST", url, HEADERS, BODY, 1000, 1000);
+        assertTrue(pool.shutdown(1000));
+        try {
+            pool.execute("POST", url, HEADERS, BODY, 1000, 1000);
+            fail("Expected the pool to refuse requests");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("shut down"));
+        }
+    }
+
+    /**
+     * HTTP/1.1 server answering every request with "200 OK", one thread per connection
+     */
+    private static final class TestServer implements Runnable {
+
+        final ServerSocket socket = new ServerSocket(0);
+        final AtomicInteger accepted = new AtomicInteger();
+        final AtomicInteger requests = new AtomicInteger();
+        final CountDownLatch received = new CountDownLatch(1);
+        volatile CountDownLatch closed = new CountDownLatch(1);
+        volatile CountDownLatch hold;
+        volatile boolean chunked;
+        volatile boolean connectionClose;
+        volatile boolean silentClose;
+        volatile boolean dropBeforeResponse;
+        volatile String lastRequestHead;
+        volatile byte[] lastRequestBody;
+
+        TestServer() throws IOException {
+            Thread thread = new Thread(this, "test-http-server");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            while (!socket.isClosed()) {
+                try {
+                    final Socket client = socket.accept();
+                    accepted.incrementAndGet();
+                    Thread handler = new Thread(() -> serve(client), "test-http-connection");
+                    handler.setDaemon(true);
+                    handler.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket client) {
+            try (Socket s = client) {
+                InputStream in = new BufferedInputStream(s.getInputStream());
+                OutputStream out = s.getOutputStream();
+                String head;
+                while ((head = readHead(in)) != null) {
+                    lastRequestHead = head;
+                    lastRequestBody = head.contains("Transfer-Encoding: chunked")
+                            ? readChunked(in) : readFully(in, contentLength(head));
+                    requests.incrementAndGet();
+                    received.countDown();
+                    if (dropBeforeResponse) {
+                        break;
+                    }
+                    if (hold != null) {
+                        hold.await(5, TimeUnit.SECONDS);
+                    }
+                    out.write(response().getBytes(StandardCharsets.ISO_8859_1));
+                    out.flush();
+                    if (connectionClose || silentClose) {
+                        break;
+                    }
+                }
+            } catch (Exception e) {
+                // Connection dropped by the client
+            } finally {
+                closed.countDown();
+            }
+        }
+
+        private String response() {
+            StringBuilder sb = new StringBuilder("HTTP/1.1 200 OK\r\n");
+            if (connectionClose) {
+                sb.append("Connection: close\r\n");
+            }
+            if (chunked) {
+                return sb.append("Transfer-Encoding: chunked\r\n\r\n1;ext=1\r\nO\r\n1\r\nK\r\n0\r\n\r\n").toString();
+            }
+            return sb.append("Content-Length: 2\r\n\r\nOK").toString();
+        }
+
+        void awaitClosed() throws InterruptedException {
+            assertTrue(closed.await(5, TimeUnit.SECONDS));
+            closed = new CountDownLatch(1);
+        }
+
+        private static String readHead(InputStream in) throws IOException {
+            StringBuilder head = new StringBuilder();
+            int b;
+            while ((b = in.read()) >= 0) {
+                head.append((char) b);
+                if (head.length() >= 4 && head.substring(head.length() - 4).equals("\r\n\r\n")) {
+                    return head.toString();
+                }
+            }
+            return null;
+        }
+
+        private static byte[] readChunked(InputStream in) throws IOException {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            int size;
+            while ((size = Integer.parseInt(readLine(in).trim(), 16)) > 0) {
+                body.write(readFully(in, size));
+                readLine(in);
+            }
+            readLine(in);
+            return body.toByteArray();
+        }
+
+        private static byte[] readFully(InputStream in, int length) throws IOException {
+            byte[] data = new byte[length];
+            for (int i = 0; i < length; i++) {
+                data[i] = (byte) in.read();
+            }
+            return data;
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int b;
+            while ((b = in.read()) >= 0 && b != '\n') {
+                if (b != '\r') {
+                    line.append((char) b);
+                }
+            }
+            return line.toString();
+        }
+
+        private static int contentLength(String head) {
+            for (String line : head.split("\r\n")) {
+                if (line.toLowerCase().startsWith("content-length:")) {
+                    return Integer.parseInt(line.substring(15).trim());
+                }
+            }
+            return 0;
+        }
+
+        void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.hedno.integration.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for MessageReplayRegistry (database access stubbed)
+ */
+public class MessageReplayRegistryTest {
+
+    private final Map<String, MessageReplayRegistry.Original> database = new HashMap<>();
+    private int databaseLookups;
+    private MessageReplayRegistry registry;
+
+    @Before
+    public void setUp() {
+        database.clear();
+        databaseLookups = 0;
+        registry = newRegistry(false);
+    }
+
+    private MessageReplayRegistry newRegistry(boolean trustFilter) {
+        return new MessageReplayRegistry(Collections.singleton("ZFA"), 10000, 0.001, 100, 7, trustFilter, 600000) {
+            @Override
+            protected Original findInDatabase(String sourceSystem, String messageUuid) {
+                databaseLookups++;
+                return database.get(messageUuid);
+            }
+
+            @Override
+            protected int loadRecent() {
+                for (String uuid : database.keySet()) {
+                    addToFilter("ZFA", uuid);
+                }
+                return database.size();
+            }
+        };
+    }
+
+    @Test
+    public void testNewMessageIsCheckedInDatabase() throws Exception {
+        // Another node may have accepted it: a local miss is not trusted
+        assertNull(registry.findOriginal("ZFA", "NEW-UUID"));
+        assertEquals(1, databaseLookups);
+    }
+
+    @Test
+    public void testTrustedFilterSkipsDatabase() throws Exception {
+        registry = newRegistry(true);
+        assertNull(registry.findOriginal("ZFA", "NEW-UUID"));
+        assertEquals(0, databaseLookups);
+    }
+
+    @Test
+    public void testRegisteredMessageIsDuplicate() throws Exception {
+        registry.register("ZFA", "UUID-1", 42L);
+
+        assertEquals(42L, registry.findOriginal("ZFA", "UUID-1").getLogId());
+        assertEquals(0, databaseLookups);
+    }
+
+    @Test
+    public void testStoredUuidIsResolvedFromDatabase() throws Exception {
+        database.put("OLD-UUID", new MessageReplayRegistry.Original(7L, "SUCCESS"));
+
+        assertEquals(7L, registry.findOriginal("ZFA", "OLD-UUID").getLogId());
+        assertEquals(1, databaseLookups);
+
+        // Second lookup is served from the LRU
+        assertEquals(7L, registry.findOriginal("ZFA", "OLD-UUID").getLogId());
+        assertEquals(1, databaseLookups);
+    }
+
+    @Test
+    public void testPendingOriginalIsNotCached() throws Exception {
+        database.put("LIVE-UUID", new MessageReplayRegistry.Original(9L, "PENDING"));
+
+        assertTrue(registry.findOriginal("ZFA", "LIVE-UUID").isInProgress());
+        // Its outcome is not known yet, so the next resend asks the database again
+        database.remove("LIVE-UUID");
+        assertNull(registry.findOriginal("ZFA", "LIVE-UUID"));
+        assertEquals(2, databaseLookups);
+    }
+
+    @Test
+    public void testReservationRejectsConcurrentResend() {
+        assertTrue(registry.reserve("ZFA", "UUID-3"));
+        assertFalse(registry.reserve("ZFA", "UUID-3"));
+        registry.release("ZFA", "UUID-3");
+        assertTrue(registry.reserve("ZFA", "UUID-3"));
+
+        // Disabled sources and messages without their own UUID are not reserved
+        assertTrue(registry.reserve("ITRON", "UUID-4"));
+        assertTrue(registry.reserve("ITRON", "UUID-4"));
+        assertTrue(registry.reserve("ZFA", null));
+    }
+
+    @Test
+    public void testDisabledSourceIsNotChecked() throws Exception {
+        registry.register("ITRON", "UUID-2", 5L);
+
+        assertFalse(registry.isEnabled("ITRON"));
+        assertNull(registry.findOriginal("ITRON", "UUID-2"));
+    }
+
+    @Test
+    public void testBloomFilterFalsePositiveRate() {
+        MessageReplayRegistry.BloomFilter filter = new MessageReplayRegistry.BloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.put("ZFA:IN-" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(filter.mightContain("ZFA:IN-" + i));
+            if (filter.mightContain("ZFA:OUT-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue("False positives: " + falsePositives, falsePositives < 300);
+    }
+}
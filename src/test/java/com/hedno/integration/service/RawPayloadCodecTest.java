@@ -0,0 +1,61 @@
+package com.hedno.integration.service;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for RawPayloadCodec
+ */
+public class RawPayloadCodecTest {
+
+    @Test
+    public void testGzipRoundTrip() throws Exception {
+        StringBuilder sb = new StringBuilder("<Root>");
+        for (int i = 0; i < 20000; i++) {
+            // Multi-byte and supplementary characters across chunk boundaries
+            sb.append("<Item><Value>").append(i).append("</Value><Note>Μέτρηση 🔌</Note></Item>");
+        }
+        sb.append("</Root>");
+        String xml = sb.toString();
+
+        byte[] compressed = readAll(RawPayloadCodec.gzip(xml, 6));
+
+        assertTrue(compressed.length < xml.length() / 10);
+        assertEquals(xml, RawPayloadCodec.readFully(
+            RawPayloadCodec.gunzip(new ByteArrayInputStream(compressed))));
+    }
+
+    @Test
+    public void testGzipIsStandardFormat() throws Exception {
+        byte[] compressed = readAll(RawPayloadCodec.gzip("<a/>", 1));
+
+        // Readable by java.util.zip without the codec
+        byte[] plain = readAll(new GZIPInputStream(new ByteArrayInputStream(compressed)));
+        assertEquals("<a/>", new String(plain, "UTF-8"));
+    }
+
+    @Test
+    public void testEmptyPayload() throws Exception {
+        byte[] compressed = readAll(RawPayloadCodec.gzip("", 6));
+        assertEquals("", RawPayloadCodec.readFully(
+            RawPayloadCodec.gunzip(new ByteArrayInputStream(compressed))));
+    }
+
+    private static byte[] readAll(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1000];
+        int n;
+        try (InputStream is = in) {
+            while ((n = is.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,89 @@
+package com.hedno.integration.service;
+
+import com.hedno.integration.processor.LoadProfileData;
+import com.hedno.integration.processor.LoadProfileDataExtractor;
+import org.junit.Test;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SchemaValidation in the extraction pass
+ */
+public class SchemaValidationTest {
+
+    private static final String XSD =
+        "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" targetNamespace=\"urn:test\""
+        + " xmlns=\"urn:test\" elementFormDefault=\"unqualified\">"
+        + "<xs:element name=\"Notification\"><xs:complexType><xs:sequence>"
+        + "<xs:element name=\"UtilitiesTimeSeries\"><xs:complexType><xs:sequence>"
+        + "<xs:element name=\"UtilitiesPointOfDeliveryPartyID\" type=\"xs:string\"/>"
+        + "<xs:element name=\"Item\" maxOccurs=\"unbounded\"><xs:complexType><xs:sequence>"
+        + "<xs:element name=\"UTCValidityStartDateTime\" type=\"xs:dateTime\"/>"
+        + "<xs:element name=\"Quantity\"><xs:complexType><xs:simpleContent>"
+        + "<xs:extension base=\"xs:decimal\"><xs:attribute name=\"unitCode\" type=\"xs:string\"/>"
+        + "</xs:extension></xs:simpleContent></xs:complexType></xs:element>"
+        + "</xs:sequence></xs:complexType></xs:element>"
+        + "</xs:sequence></xs:complexType></xs:element>"
+        + "</xs:sequence></xs:complexType></xs:element></xs:schema>";
+
+    @Test
+    public void testValidPayloadInsideEnvelope() throws Exception {
+        SchemaValidation validation = validation(SchemaValidation.Mode.REJECT);
+        List<LoadProfileData> profiles = new LoadProfileDataExtractor()
+                .extractFromXml(document("1.5"), validation);
+
+        assertEquals(1, profiles.size());
+        assertEquals(1, profiles.get(0).getColumns().size());
+        Map<String, Object> stats = validation.getStatistics();
+        assertEquals(1L, stats.get("validation.validated"));
+        assertEquals(0L, stats.get("validation.invalid"));
+    }
+
+    @Test
+    public void testRejectModeFailsMessage() throws Exception {
+        SchemaValidation validation = validation(SchemaValidation.Mode.REJECT);
+        try {
+            new LoadProfileDataExtractor().extractFromXml(document("abc"), validation);
+            fail("Invalid payload accepted");
+        } catch (XMLStreamException expected) {
+            assertTrue(expected.getMessage().startsWith("Schema validation failed"));
+        }
+        assertEquals(1L, validation.getStatistics().get("validation.invalid"));
+    }
+
+    @Test
+    public void testLogModeCountsAndContinues() throws Exception {
+        SchemaValidation validation = validation(SchemaValidation.Mode.LOG);
+        List<LoadProfileData> profiles = new LoadProfileDataExtractor()
+                .extractFromXml(document("abc"), validation);
+
+        assertEquals(1, profiles.size());
+        assertEquals(1L, validation.getStatistics().get("validation.invalid"));
+
+        new LoadProfileDataExtractor().extractFromXml("<Other/>", validation);
+        assertEquals(2L, validation.getStatistics().get("validation.invalid"));
+    }
+
+    private static SchemaValidation validation(SchemaValidation.Mode mode) throws Exception {
+        File xsd = File.createTempFile("notification", ".xsd");
+        xsd.deleteOnExit();
+        Files.write(xsd.toPath(), XSD.getBytes(StandardCharsets.UTF_8));
+        return new SchemaValidation(SchemaValidation.compile(xsd.getPath()), mode, "Notification");
+    }
+
+    private static String document(String quantity) {
+        return "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\"><soapenv:Body>"
+            + "<t:Notification xmlns:t=\"urn:test\"><UtilitiesTimeSeries>"
+            + "<UtilitiesPointOfDeliveryPartyID>GR0001</UtilitiesPointOfDeliveryPartyID>"
+            + "<Item><UTCValidityStartDateTime>2025-01-01T00:00:00Z</UTCValidityStartDateTime>"
+            + "<Quantity unitCode=\"KWH\">" + quantity + "</Quantity></Item>"
+            + "</UtilitiesTimeSeries></t:Notification></soapenv:Body></soapenv:Envelope>";
+    }
+}
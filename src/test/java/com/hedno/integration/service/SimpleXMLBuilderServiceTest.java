@@ -0,0 +1,147 @@
+package com.hedno.integration.service;
+
+import com.hedno.integration.service.SimpleXMLBuilderService.ValidationResult;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SimpleXMLBuilderService
+ */
+public class SimpleXMLBuilderServiceTest {
+
+    private SimpleXMLBuilderService xmlBuilder;
+
+    @Before
+    public void setUp() {
+        xmlBuilder = new SimpleXMLBuilderService();
+    }
+
+    @Test
+    public void testInspectLoadProfilePush() throws Exception {
+        String xml = xmlBuilder.buildLoadProfileMessage(profiles(3));
+
+        ValidationResult result = xmlBuilder.inspect(xml);
+
+        assertTrue(result.getErrors().toString(), result.isValid());
+        assertEquals(3, result.getProfileCount());
+        assertEquals(36, result.getMessageId().length());
+        assertEquals(result.getMessageId(), xmlBuilder.extractMessageId(xml));
+        assertEquals(3, xmlBuilder.countProfiles(xml));
+        assertTrue(xmlBuilder.validateXml(xml));
+    }
+
+    @Test
+    public void testInspectBulkNotification() throws Exception {
+        XMLBuilderService bulkBuilder = new XMLBuilderService(10);
+        List<XMLBuilderService.LoadProfileData> profiles = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            XMLBuilderService.IntervalData interval = new XMLBuilderService.IntervalData();
+            interval.setValue(new BigDecimal("1.5"));
+            interval.setUnitCode("KWH");
+            interval.setStartDateTime(LocalDateTime.of(2025, 1, 1, 0, 0));
+            interval.setEndDateTime(LocalDateTime.of(2025, 1, 1, 0, 15));
+
+            XMLBuilderService.LoadProfileData profile = new XMLBuilderService.LoadProfileData();
+            profile.setObisCode("1.29.99.128");
+            profile.setPodId("HU000130F110S-TEST-00" + i);
+            profile.setIntervals(Collections.singletonList(interval));
+            profiles.add(profile);
+        }
+        String xml = bulkBuilder.marshalToXml(bulkBuilder.buildBulkNotification(profiles));
+
+        ValidationResult result = xmlBuilder.inspect(xml);
+
+        assertTrue(result.getErrors().toString(), result.isValid());
+        assertEquals(2, result.getProfileCount());
+        // The main header UUID comes before those of the items
+        assertEquals(bulkBuilder.extractMessageUuid(xml), result.getMessageId());
+    }
+
+    @Test
+    public void testInspectEnvelopeWithPrefixDeclaredOnEnvelope() {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\" "
+                + "xmlns:glob=\"http://sap.com/xi/SAPGlobal20/Global\">\n"
+                + "  <soapenv:Header><MessageID>FROM-SOAP-HEADER</MessageID></soapenv:Header>\n"
+                + "  <soapenv:Body>\n"
+                + "    <glob:UtilitiesTimeSeriesERPItemBulkNotification>\n"
+                + "      <MessageHeader><UUID>MAIN-UUID</UUID></MessageHeader>\n"
+                + "      <glob:UtilitiesTimeSeriesERPItemNotificationMessage/>\n"
+                + "      <glob:UtilitiesTimeSeriesERPItemNotificationMessage/>\n"
+                + "    </glob:UtilitiesTimeSeriesERPItemBulkNotification>\n"
+                + "  </soapenv:Body>\n"
+                + "</soapenv:Envelope>";
+
+        ValidationResult result = xmlBuilder.inspect(xml);
+
+        assertTrue(result.getErrors().toString(), result.isValid());
+        assertEquals(2, result.getProfileCount());
+        // Only the Body counts, not the SOAP header
+        assertEquals("MAIN-UUID", result.getMessageId());
+    }
+
+    @Test
+    public void testInspectEnvelopeWithOtherPrefixAndBodyAttributes() {
+        String xml = "<S:Envelope xmlns:S=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+                + "<S:Body wsu:Id=\"body-1\" xmlns:wsu=\"urn:wsu\">"
+                + "<n0:LoadProfilePush xmlns:n0=\"urn:push\"><n0:Header><n0:MessageID>PUSH-1</n0:MessageID></n0:Header>"
+                + "<n0:Profiles><n0:Profile/><n0:Profile/><n0:Profile/></n0:Profiles></n0:LoadProfilePush>"
+                + "</S:Body></S:Envelope>";
+
+        ValidationResult result = xmlBuilder.inspect(xml);
+
+        assertTrue(result.getErrors().toString(), result.isValid());
+        assertEquals(3, result.getProfileCount());
+        assertEquals("PUSH-1", result.getMessageId());
+    }
+
+    @Test
+    public void testInspectReportsAllErrors() {
+        ValidationResult result = xmlBuilder.inspect("<LoadProfilePush><Header/><Profiles/></LoadProfilePush>");
+
+        assertFalse(result.isValid());
+        assertNull(result.getMessageId());
+        assertEquals(0, result.getProfileCount());
+        assertEquals(2, result.getErrors().size());
+    }
+
+    @Test
+    public void testInspectMalformedXml() {
+        ValidationResult result = xmlBuilder.inspect("<LoadProfilePush><Header>");
+
+        assertFalse(result.isValid());
+        assertEquals(-1, result.getProfileCount());
+        assertEquals(-1, xmlBuilder.countProfiles("<LoadProfilePush><Header>"));
+        assertFalse(xmlBuilder.validateXml(null));
+    }
+
+    private static List<SimpleXMLBuilderService.ProfileData> profiles(int count) {
+        List<SimpleXMLBuilderService.ProfileData> profiles = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            SimpleXMLBuilderService.IntervalData interval = new SimpleXMLBuilderService.IntervalData();
+            interval.setStart(LocalDateTime.of(2025, 1, 1, 0, 0));
+            interval.setEnd(LocalDateTime.of(2025, 1, 1, 0, 15));
+            interval.setValue(new BigDecimal("2.5"));
+            interval.setUnit("KWH");
+            interval.setStatus("OK");
+
+            SimpleXMLBuilderService.ProfileData profile = new SimpleXMLBuilderService.ProfileData();
+            profile.setPodId("POD-" + i);
+            profile.setObisCode("1.29.99.128");
+            profile.setMeterId("METER-" + i);
+            profile.setStartTime(LocalDateTime.of(2025, 1, 1, 0, 0));
+            profile.setEndTime(LocalDateTime.of(2025, 1, 1, 0, 15));
+            profile.setIntervals(Collections.singletonList(interval));
+            profiles.add(profile);
+        }
+        return profiles;
+    }
+}
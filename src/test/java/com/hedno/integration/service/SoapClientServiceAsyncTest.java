@@ -0,0 +1,76 @@
+package com.hedno.integration.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SoapClientServiceAsync against an in-process HTTP server
+ */
+public class SoapClientServiceAsyncTest {
+
+    private HttpServer server;
+    private SoapClientServiceAsync client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        // HTTP 500 for the notification whose MessageId contains FAIL
+        server.createContext("/XISOAPAdapter", exchange -> {
+            int status = exchange.getRequestURI().getQuery().contains("MessageId=FAIL") ? 500 : 200;
+            exchange.getRequestBody().close();
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+        client = new SoapClientServiceAsync("localhost", server.getAddress().getPort(), "/XISOAPAdapter",
+                "user", "secret", false);
+    }
+
+    @After
+    public void tearDown() {
+        client.shutdown(5);
+        server.stop(0);
+    }
+
+    @Test
+    public void testSplitNotificationsAreAggregated() throws Exception {
+        Map<String, String> xmlByUuid = new LinkedHashMap<>();
+        xmlByUuid.put("CHUNK-1", "<soapenv:Envelope/>");
+        xmlByUuid.put("FAIL-2", "<soapenv:Envelope/>");
+        xmlByUuid.put("CHUNK-3", "<soapenv:Envelope/>");
+
+        SoapClientServiceAsync.BulkSendResult result =
+                client.sendNotificationsAsync("PARENT", xmlByUuid).get(10, TimeUnit.SECONDS);
+
+        assertEquals("PARENT", result.getParentUuid());
+        assertEquals(3, result.getResponses().size());
+        assertEquals(2, result.getSucceeded());
+        assertEquals(1, result.getFailed());
+        assertFalse(result.isSuccess());
+        assertEquals(500, result.getResponses().get("FAIL-2").getStatusCode());
+        assertTrue(result.getResponses().get("CHUNK-3").isSuccess());
+        assertEquals("CHUNK-1", result.getResponses().keySet().iterator().next());
+    }
+
+    @Test
+    public void testAllNotificationsSucceed() throws Exception {
+        Map<String, String> xmlByUuid = new LinkedHashMap<>();
+        xmlByUuid.put("CHUNK-1", "<soapenv:Envelope/>");
+        xmlByUuid.put("CHUNK-2", "<soapenv:Envelope/>");
+
+        SoapClientServiceAsync.BulkSendResult result =
+                client.sendNotificationsAsync("PARENT", xmlByUuid).get(10, TimeUnit.SECONDS);
+
+        assertTrue(result.isSuccess());
+        assertTrue(result.getResponseTimeMs() >= 0);
+    }
+}
@@ -0,0 +1,186 @@
+package com.hedno.integration.service;
+
+import com.hedno.integration.service.XMLBuilderService.IntervalData;
+import com.hedno.integration.service.XMLBuilderService.LoadProfileData;
+import com.hedno.integration.soap.model.UtilitiesTimeSeriesERPItemBulkNotification;
+import com.hedno.integration.soap.model.UtilitiesTimeSeriesERPItemBulkNotification.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.xml.datatype.DatatypeFactory;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Byte equivalence of SoapEnvelopeWriter with XMLBuilderService.marshalToXml (JAXB)
+ */
+public class SoapEnvelopeWriterTest {
+
+    private XMLBuilderService xmlBuilder;
+
+    @Before
+    public void setUp() throws Exception {
+        xmlBuilder = new XMLBuilderService(10, true);
+    }
+
+    @Test
+    public void testBuiltNotification() throws Exception {
+        // 3 days of 15-minute intervals: well past the writer's buffer
+        assertEquivalent(xmlBuilder.buildBulkNotification(profiles(3, 96, "POD")));
+    }
+
+    @Test
+    public void testSplitAndCoalescedNotifications() throws Exception {
+        List<UtilitiesTimeSeriesERPItemBulkNotification> chunks =
+                xmlBuilder.buildBulkNotifications(profiles(25, 4, "POD"));
+        assertEquals(3, chunks.size());
+        for (UtilitiesTimeSeriesERPItemBulkNotification chunk : chunks) {
+            assertEquivalent(chunk);
+        }
+
+        Map<String, UtilitiesTimeSeriesERPItemBulkNotification> byUuid = new LinkedHashMap<>();
+        byUuid.put("MSG-1", xmlBuilder.buildBulkNotification(profiles(2, 4, "A")));
+        byUuid.put("MSG-2", xmlBuilder.buildBulkNotification(profiles(3, 4, "B")));
+        assertEquivalent(xmlBuilder.coalesceNotifications(byUuid));
+    }
+
+    @Test
+    public void testEscapingAndNonAsciiValues() throws Exception {
+        String tricky = "a&b<c>d\"e'f\tg\rh\ni ]]> é€😀 \u0001";
+        UtilitiesTimeSeriesERPItemBulkNotification notification =
+                xmlBuilder.buildBulkNotification(profiles(1, 2, tricky));
+        MessageHeader header = notification.getMessageHeader();
+        header.getSenderParty().getStandardID().setValue(tricky);
+        header.getSenderParty().getStandardID().setSchemeAgencyID(tricky);
+        UtilitiesTimeSeries series = notification.getNotificationMessages().get(0).getUtilitiesTimeSeries();
+        series.getMeasurementRole().setObisCode(tricky);
+        series.getItems().get(0).getQuantity().setUnitCode(tricky);
+        series.getItems().get(0).getItemStatus().setUtilitiesTimeSeriesItemTypeCode(tricky);
+
+        assertEquivalent(notification);
+    }
+
+    @Test
+    public void testLongValueAcrossBuffers() throws Exception {
+        StringBuilder pod = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            pod.append(i % 7 == 0 ? "&é" : "x");
+        }
+        assertEquivalent(xmlBuilder.buildBulkNotification(profiles(2, 1, pod.toString())));
+    }
+
+    @Test
+    public void testNullAndEmptyValues() throws Exception {
+        UtilitiesTimeSeriesERPItemBulkNotification notification =
+                xmlBuilder.buildBulkNotification(profiles(2, 1, "POD"));
+        MessageHeader header = notification.getMessageHeader();
+        header.setReferenceUuid(null);
+        header.setUuid("");
+        header.getSenderParty().getStandardID().setValue(null);
+        header.getRecipientParty().getStandardID().setSchemeAgencyID(null);
+        header.getRecipientParty().getStandardID().setValue("");
+
+        UtilitiesTimeSeriesERPItemNotificationMessage first = notification.getNotificationMessages().get(0);
+        first.getMessageHeader().setSenderParty(new Party());
+        List<TimeSeriesItem> items = first.getUtilitiesTimeSeries().getItems();
+        items.get(0).setItemStatus(null);
+        TimeSeriesItem empty = new TimeSeriesItem();
+        empty.setQuantity(new Quantity(null, null));
+        empty.setItemStatus(new ItemStatus());
+        empty.getItemStatus().setUtilitiesTimeSeriesItemTypeCode(null);
+        items.add(empty);
+        items.add(new TimeSeriesItem());
+        first.getUtilitiesTimeSeries().getMeasurementRole().setPointOfDeliveryIdentification(
+                new UtilitiesMeasurementTaskAssignmentRole.PointOfDeliveryIdentification());
+
+        UtilitiesTimeSeriesERPItemNotificationMessage second = notification.getNotificationMessages().get(1);
+        second.setMessageHeader(null);
+        second.getUtilitiesTimeSeries().setItems(null);
+        second.getUtilitiesTimeSeries().setMeasurementRole(new UtilitiesMeasurementTaskAssignmentRole());
+
+        UtilitiesTimeSeriesERPItemNotificationMessage third = new UtilitiesTimeSeriesERPItemNotificationMessage();
+        third.setUtilitiesTimeSeries(new UtilitiesTimeSeries());
+        notification.getNotificationMessages().add(third);
+        notification.getNotificationMessages().add(new UtilitiesTimeSeriesERPItemNotificationMessage());
+
+        assertEquivalent(notification);
+        assertEquivalent(new UtilitiesTimeSeriesERPItemBulkNotification());
+    }
+
+    @Test
+    public void testDateTimeAndDecimalForms() throws Exception {
+        UtilitiesTimeSeriesERPItemBulkNotification notification =
+                xmlBuilder.buildBulkNotification(profiles(1, 4, "POD"));
+        DatatypeFactory datatypes = DatatypeFactory.newInstance();
+        notification.getMessageHeader().setCreationDateTime(
+                datatypes.newXMLGregorianCalendar("2025-03-30T03:00:00+03:00"));
+        List<TimeSeriesItem> items = notification.getNotificationMessages().get(0).getUtilitiesTimeSeries().getItems();
+        String[] values = {"1E+3", "-0.000", "12345678901234567890.123456789", "1.5E-7"};
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).getQuantity().setValue(new BigDecimal(values[i]));
+        }
+        items.get(0).setUtcValidityStartDateTime(datatypes.newXMLGregorianCalendar("2025-01-01T00:00:00"));
+        items.get(1).setUtcValidityStartDateTime(datatypes.newXMLGregorianCalendar("2025-01-01T00:00:00.5-05:30"));
+
+        assertEquivalent(notification);
+    }
+
+    @Test
+    public void testWriteXmlWithAndWithoutStreaming() throws Exception {
+        UtilitiesTimeSeriesERPItemBulkNotification notification =
+                xmlBuilder.buildBulkNotification(profiles(2, 3, "POD"));
+        byte[] expected = xmlBuilder.marshalToXml(notification).getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        xmlBuilder.writeXml(notification, streamed);
+        ByteArrayOutputStream marshalled = new ByteArrayOutputStream();
+        new XMLBuilderService(10, false).writeXml(notification, marshalled);
+
+        assertArrayEquals(expected, streamed.toByteArray());
+        assertArrayEquals(expected, marshalled.toByteArray());
+        // What is sent can still be read back
+        assertEquals(2, xmlBuilder.unmarshalFromXml(new String(streamed.toByteArray(), StandardCharsets.UTF_8))
+                .getNotificationMessages().size());
+    }
+
+    private void assertEquivalent(UtilitiesTimeSeriesERPItemBulkNotification notification) throws Exception {
+        byte[] expected = xmlBuilder.marshalToXml(notification).getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        SoapEnvelopeWriter.write(notification, actual);
+
+        // Readable diff first, then the bytes themselves
+        assertEquals(new String(expected, StandardCharsets.UTF_8), new String(actual.toByteArray(), StandardCharsets.UTF_8));
+        assertArrayEquals(expected, actual.toByteArray());
+    }
+
+    private static List<LoadProfileData> profiles(int count, int intervals, String podPrefix) {
+        List<LoadProfileData> profiles = new ArrayList<>();
+        for (int p = 0; p < count; p++) {
+            List<IntervalData> intervalList = new ArrayList<>();
+            LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+            for (int i = 0; i < intervals; i++) {
+                IntervalData interval = new IntervalData();
+                interval.setValue(new BigDecimal("1.25").add(BigDecimal.valueOf(i)));
+                interval.setUnitCode("KWH");
+                interval.setStatus(i % 2 == 0 ? "W" : null);
+                interval.setStartDateTime(start.plusMinutes(15L * i));
+                interval.setEndDateTime(start.plusMinutes(15L * (i + 1)));
+                intervalList.add(interval);
+            }
+            LoadProfileData profile = new LoadProfileData();
+            profile.setObisCode("1.29.99.128");
+            profile.setPodId(podPrefix + "-" + p);
+            profile.setIntervals(intervalList);
+            profiles.add(profile);
+        }
+        return profiles;
+    }
+}
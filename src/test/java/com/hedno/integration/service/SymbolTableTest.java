@@ -0,0 +1,50 @@
+package com.hedno.integration.service;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SymbolTable
+ */
+public class SymbolTableTest {
+
+    @Test
+    public void testInternReturnsCanonicalInstance() {
+        SymbolTable table = new SymbolTable("test", 10);
+        String first = table.intern(new String("1-1:1.29.0"));
+        String second = table.intern(new String("1-1:1.29.0"));
+
+        assertSame(first, second);
+        assertNull(table.intern(null));
+
+        Map<String, Object> stats = table.getStatistics();
+        assertEquals(1, stats.get("size"));
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(1L, stats.get("misses"));
+        assertEquals(50.0, stats.get("hitRate"));
+    }
+
+    @Test
+    public void testCodesAreStable() {
+        SymbolTable table = new SymbolTable("test", 1000);
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, table.code("S" + i));
+        }
+        assertEquals(17, table.code("S17"));
+        assertEquals("S199", table.symbol(199));
+        assertEquals(SymbolTable.NO_CODE, table.code(null));
+        assertNull(table.symbol(SymbolTable.NO_CODE));
+    }
+
+    @Test
+    public void testFullTableRejectsNewSymbols() {
+        SymbolTable table = new SymbolTable("test", 1);
+        assertEquals(0, table.code("W"));
+        assertEquals(SymbolTable.NO_CODE, table.code("V"));
+        assertEquals("V", table.intern("V"));
+        assertEquals(2L, table.getStatistics().get("rejected"));
+    }
+}
@@ -0,0 +1,62 @@
+package com.hedno.integration.service;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for TimeoutScheduler
+ */
+public class TimeoutSchedulerTest {
+
+    private final TimeoutScheduler scheduler = new TimeoutScheduler();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testDeadlineFires() throws Exception {
+        CountDownLatch fired = new CountDownLatch(1);
+        scheduler.schedule(fired::countDown, 10);
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertEquals(1L, scheduler.getStatistics().get("fired"));
+    }
+
+    @Test
+    public void testCancelledDeadlinesLeaveNothingBehind() {
+        List<ScheduledFuture<?>> deadlines = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            deadlines.add(scheduler.schedule(() -> fail("Cancelled deadline fired"), 60000));
+        }
+        assertEquals(10000, scheduler.getStatistics().get("pending"));
+        assertEquals(1, scheduler.getStatistics().get("threads"));
+
+        for (ScheduledFuture<?> deadline : deadlines) {
+            deadline.cancel(false);
+        }
+        assertEquals(0, scheduler.getStatistics().get("pending"));
+        assertEquals(1, scheduler.getStatistics().get("threads"));
+    }
+
+    @Test
+    public void testFailingPeriodicTaskKeepsRunning() throws Exception {
+        CountDownLatch runs = new CountDownLatch(3);
+        scheduler.scheduleWithFixedDelay(() -> {
+            runs.countDown();
+            throw new IllegalStateException("test");
+        }, 5);
+
+        assertTrue(runs.await(5, TimeUnit.SECONDS));
+        assertTrue((Long) scheduler.getStatistics().get("failed") >= 2L);
+    }
+}
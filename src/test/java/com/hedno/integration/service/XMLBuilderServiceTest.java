@@ -14,7 +14,10 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.Month;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.Assert.*;
 
@@ -143,6 +146,61 @@ public class XMLBuilderServiceTest {
         xmlBuilder.buildBulkNotification(profileList);
     }
     
+    /**
+     * Test splitting a profile list larger than the maximum per message
+     */
+    @Test
+    public void testBuildBulkNotificationsSplitsOversizedList() throws JAXBException {
+        List<LoadProfileData> profileList = new ArrayList<>();
+        for (int i = 1; i <= 23; i++) {
+            profileList.add(createTestProfileData("1.29.99.128", "HU000130F110S-TEST-0" + i, 4));
+        }
+        
+        List<UtilitiesTimeSeriesERPItemBulkNotification> notifications = 
+            xmlBuilder.buildBulkNotifications(profileList);
+        
+        assertEquals("Should split into 3 notifications", 3, notifications.size());
+        assertEquals(10, notifications.get(0).getNotificationMessages().size());
+        assertEquals(10, notifications.get(1).getNotificationMessages().size());
+        assertEquals(3, notifications.get(2).getNotificationMessages().size());
+        
+        // Own UUID per chunk, one shared parent as ReferenceUUID
+        String parentUuid = notifications.get(0).getMessageHeader().getReferenceUuid();
+        assertEquals("Parent UUID should be 36 characters", 36, parentUuid.length());
+        Set<String> uuids = new HashSet<>();
+        for (UtilitiesTimeSeriesERPItemBulkNotification notification : notifications) {
+            assertTrue("Chunk UUIDs should be unique", uuids.add(notification.getMessageHeader().getUuid()));
+            assertEquals(parentUuid, notification.getMessageHeader().getReferenceUuid());
+            assertEquals(parentUuid, notification.getNotificationMessages().get(0)
+                .getMessageHeader().getReferenceUuid());
+        }
+        assertFalse("Parent UUID is not a chunk UUID", uuids.contains(parentUuid));
+        assertEquals("HU000130F110S-TEST-023", notifications.get(2).getNotificationMessages().get(2)
+            .getUtilitiesTimeSeries().getMeasurementRole().getPointOfDeliveryIdentification().getPodId());
+        
+        // Marshalled in order, keyed by chunk UUID
+        Map<String, String> xmlByUuid = xmlBuilder.marshalToXml(notifications);
+        assertEquals(3, xmlByUuid.size());
+        assertEquals(notifications.get(1).getMessageHeader().getUuid(), 
+            new ArrayList<>(xmlByUuid.keySet()).get(1));
+    }
+    
+    /**
+     * Test that a list within the maximum is not split
+     */
+    @Test
+    public void testBuildBulkNotificationsWithinMaximum() {
+        List<LoadProfileData> profileList = new ArrayList<>();
+        profileList.add(createTestProfileData("1.29.99.128", "HU000130F110S-TEST-001", 96));
+        
+        List<UtilitiesTimeSeriesERPItemBulkNotification> notifications = 
+            xmlBuilder.buildBulkNotifications(profileList);
+        
+        assertEquals(1, notifications.size());
+        assertEquals(notifications.get(0).getMessageHeader().getUuid(), 
+            notifications.get(0).getMessageHeader().getReferenceUuid());
+    }
+    
     /**
      * Test XML marshalling
      */
@@ -0,0 +1,85 @@
+package com.hedno.integration.service;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for XmlParserPool
+ */
+public class XmlParserPoolTest {
+
+    @Test
+    public void testDocumentBuilderReusedPerThread() throws Exception {
+        DocumentBuilder first = XmlParserPool.documentBuilder(XmlParserPool.Profile.NAMESPACE_AWARE);
+        Document doc = first.parse(stream("<a xmlns=\"urn:x\"><b>1</b></a>"));
+        assertEquals("urn:x", doc.getDocumentElement().getNamespaceURI());
+
+        DocumentBuilder second = XmlParserPool.documentBuilder(XmlParserPool.Profile.NAMESPACE_AWARE);
+        assertSame(first, second);
+        assertEquals("1", second.parse(stream("<a><b>1</b></a>")).getElementsByTagName("b").item(0).getTextContent());
+
+        Map<String, Object> stats = XmlParserPool.getStatistics();
+        assertTrue((Long) stats.get("dom.namespace_aware.reused") >= 1L);
+    }
+
+    @Test
+    public void testExternalEntitiesNotResolved() throws Exception {
+        String xml = "<!DOCTYPE a [<!ENTITY x SYSTEM \"file:///etc/passwd\">]><a>&x;</a>";
+        DocumentBuilder builder = XmlParserPool.documentBuilder(XmlParserPool.Profile.DEFAULT);
+        Document doc = builder.parse(stream(xml));
+        assertEquals("", doc.getDocumentElement().getTextContent());
+    }
+
+    @Test
+    public void testStaxDoesNotProcessDtd() throws Exception {
+        XMLInputFactory factory = XmlParserPool.xmlInputFactory();
+        assertEquals(Boolean.FALSE, factory.getProperty(XMLInputFactory.SUPPORT_DTD));
+        assertEquals(Boolean.FALSE, factory.getProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES));
+
+        String xml = "<!DOCTYPE a [<!ENTITY x SYSTEM \"file:///etc/passwd\">]><a>&x;</a>";
+        StringBuilder text = new StringBuilder();
+        try {
+            XMLStreamReader reader = factory.createXMLStreamReader(stream(xml));
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.CHARACTERS) {
+                    text.append(reader.getText());
+                }
+            }
+        } catch (XMLStreamException expected) {
+            // Undeclared entity: rejected rather than resolved
+        }
+        assertEquals("", text.toString());
+    }
+
+    @Test
+    public void testBoundedPoolKeepsAtMostMaxIdle() {
+        XmlParserPool.BoundedPool<StringBuilder, RuntimeException> pool =
+                new XmlParserPool.BoundedPool<>("test", 1, StringBuilder::new);
+
+        StringBuilder a = pool.borrow();
+        StringBuilder b = pool.borrow();
+        pool.release(a);
+        pool.release(b);
+        assertSame(a, pool.borrow());
+
+        Map<String, Object> stats = pool.getStatistics();
+        assertEquals(3L, stats.get("test.borrowed"));
+        assertEquals(2L, stats.get("test.created"));
+        assertEquals(1L, stats.get("test.dropped"));
+    }
+
+    private static ByteArrayInputStream stream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+}